@@ -0,0 +1,174 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.benchmark;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.batik.anim.dom.SAXSVGDocumentFactory;
+import org.apache.batik.anim.dom.SVGOMDocument;
+import org.apache.batik.bridge.BridgeContext;
+import org.apache.batik.bridge.GVTBuilder;
+import org.apache.batik.bridge.UserAgentAdapter;
+import org.apache.batik.ext.awt.geom.RectListManager;
+import org.apache.batik.gvt.GraphicsNode;
+import org.apache.batik.gvt.renderer.StaticRenderer;
+import org.apache.batik.util.XMLResourceDescriptor;
+
+/**
+ * Helpers shared by the benchmarks: loading the documents of the
+ * <code>samples/</code> corpus and building their GVT trees.
+ *
+ * <p>The sample files are resolved against the current directory, which
+ * is the root of the source tree when the benchmarks are run through the
+ * <code>benchmark</code> target of the build file.</p>
+ *
+ * @version $Id$
+ */
+public class BenchmarkUtilities {
+
+    /**
+     * This class only has static methods.
+     */
+    protected BenchmarkUtilities() {
+    }
+
+    /**
+     * Returns the file of the given sample.
+     */
+    public static File getFile(String sample) {
+        return new File(sample).getAbsoluteFile();
+    }
+
+    /**
+     * Returns the URI of the given sample.
+     */
+    public static String getURI(String sample) {
+        return getFile(sample).toURI().toString();
+    }
+
+    /**
+     * Reads the whole content of the given sample.
+     */
+    public static byte[] readBytes(String sample) throws IOException {
+        InputStream is = new FileInputStream(getFile(sample));
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = is.read(buf)) != -1) {
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * Creates a document factory using the default XML parser.
+     */
+    public static SAXSVGDocumentFactory createDocumentFactory() {
+        String parser = XMLResourceDescriptor.getXMLParserClassName();
+        return new SAXSVGDocumentFactory(parser);
+    }
+
+    /**
+     * Parses the given sample.
+     */
+    public static SVGOMDocument parseDocument(String sample)
+        throws IOException {
+        return (SVGOMDocument)createDocumentFactory().
+            createDocument(getURI(sample));
+    }
+
+    /**
+     * Creates a bridge context for building a static GVT tree.
+     */
+    public static BridgeContext createBridgeContext() {
+        BridgeContext ctx = new BridgeContext(new UserAgentAdapter());
+        ctx.setDynamicState(BridgeContext.STATIC);
+        return ctx;
+    }
+
+    /**
+     * Builds the GVT tree of the given document.  The document must not
+     * have been used to build another tree.
+     */
+    public static GraphicsNode buildTree(SVGOMDocument doc) {
+        return new GVTBuilder().build(createBridgeContext(), doc);
+    }
+
+    /**
+     * Returns the transform which fits the given tree in a square of the
+     * given size, preserving its aspect ratio.
+     */
+    public static AffineTransform getFitTransform(GraphicsNode root,
+                                                  int size) {
+        Rectangle2D r = root.getBounds();
+        if (r == null || r.isEmpty()) {
+            return new AffineTransform();
+        }
+        double s = size / Math.max(r.getWidth(), r.getHeight());
+        AffineTransform at = AffineTransform.getScaleInstance(s, s);
+        at.translate(-r.getX(), -r.getY());
+        return at;
+    }
+
+    /**
+     * Returns the device area covered by a square of the given size.
+     */
+    public static Rectangle getArea(int size) {
+        return new Rectangle(0, 0, size, size);
+    }
+
+    /**
+     * Renders the given sample in a square of the given size.
+     * @param premultiplied whether the returned image has premultiplied
+     *        alpha, as the images handled by the filters do, or not, as
+     *        the images handed to the encoders do.
+     */
+    public static BufferedImage renderImage(String sample, int size,
+                                            boolean premultiplied)
+        throws IOException {
+        GraphicsNode root = buildTree(parseDocument(sample));
+        StaticRenderer renderer = new StaticRenderer();
+        renderer.setTree(root);
+        renderer.updateOffScreen(size, size);
+        renderer.setTransform(getFitTransform(root, size));
+        renderer.repaint(new RectListManager(getArea(size)));
+
+        BufferedImage img = new BufferedImage
+            (size, size, premultiplied ? BufferedImage.TYPE_INT_ARGB_PRE
+                                       : BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        g.drawImage(renderer.getOffScreen(), 0, 0, null);
+        g.dispose();
+        renderer.dispose();
+        return img;
+    }
+}
@@ -0,0 +1,378 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.batik.ext.awt.image.rendered.BoxBlur;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the box blurs of {@link BoxBlur} with the per-pixel
+ * implementation <code>GaussianBlurRed8Bit</code> used before, kept
+ * here as a reference.  Both filter, in place, a premultiplied rendering
+ * of a sample horizontally then vertically.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoxBlurBenchmark {
+
+    /**
+     * The sample rendered to get the source image.
+     */
+    @Param({ "samples/anne.svg" })
+    public String sample;
+
+    /**
+     * The width and height of the images.
+     */
+    @Param({ "512" })
+    public int size;
+
+    /**
+     * The size of the boxes: about 2.5 times the standard deviation.
+     */
+    @Param({ "5", "20", "50" })
+    public int box;
+
+    /**
+     * The pixels of the source image, with premultiplied alpha.
+     */
+    protected Raster source;
+
+    /**
+     * The raster filtered by the benchmarks.
+     */
+    protected WritableRaster raster;
+
+    @Setup
+    public void setup() throws Exception {
+        BufferedImage image =
+            BenchmarkUtilities.renderImage(sample, size, true);
+        source = image.getRaster();
+        raster = source.createCompatibleWritableRaster();
+    }
+
+    /**
+     * Blurs the image with the per-pixel implementation.
+     */
+    @Benchmark
+    public Object perPixel() {
+        raster.setRect(source);
+        return legacyBlur(raster, box, box);
+    }
+
+    /**
+     * Blurs the image with {@link BoxBlur}.
+     */
+    @Benchmark
+    public Object boxBlur() {
+        raster.setRect(source);
+        BoxBlur.blur(raster, box, box, 0);
+        return raster;
+    }
+
+    /**
+     * Blurs the given raster in place with the per-pixel implementation.
+     */
+    public static WritableRaster legacyBlur(WritableRaster wr,
+                                            int dX, int dY) {
+        int skipX;
+        if ((dX&0x01) == 0){
+            wr = boxFilterH(wr, wr, 0,    0,   dX,   dX/2);
+            wr = boxFilterH(wr, wr, dX/2, 0,   dX,   dX/2-1);
+            wr = boxFilterH(wr, wr, dX-1, 0,   dX+1, dX/2);
+            skipX = dX-1 + dX/2;
+        } else {
+            wr = boxFilterH(wr, wr, 0,    0,   dX, dX/2);
+            wr = boxFilterH(wr, wr, dX/2, 0,   dX, dX/2);
+            wr = boxFilterH(wr, wr, dX-2, 0,   dX, dX/2);
+            skipX = dX-2 + dX/2;
+        }
+        if ((dY&0x01) == 0){
+            wr = boxFilterV(wr, wr, skipX, 0,    dY,   dY/2);
+            wr = boxFilterV(wr, wr, skipX, dY/2, dY,   dY/2-1);
+            wr = boxFilterV(wr, wr, skipX, dY-1, dY+1, dY/2);
+        } else {
+            wr = boxFilterV(wr, wr, skipX, 0,    dY, dY/2);
+            wr = boxFilterV(wr, wr, skipX, dY/2, dY, dY/2);
+            wr = boxFilterV(wr, wr, skipX, dY-2, dY, dY/2);
+        }
+        return wr;
+    }
+
+    static WritableRaster boxFilterH(Raster src, WritableRaster dest,
+                                     int skipX, int skipY,
+                                     int boxSz, int loc) {
+
+        final int w = src.getWidth();
+        final int h = src.getHeight();
+
+          // Check if the raster is wide enough to do _any_ work
+        if (w < (2*skipX)+boxSz) return dest;
+        if (h < (2*skipY))       return dest;
+
+        final SinglePixelPackedSampleModel srcSPPSM =
+            (SinglePixelPackedSampleModel)src.getSampleModel();
+
+        final SinglePixelPackedSampleModel dstSPPSM =
+            (SinglePixelPackedSampleModel)dest.getSampleModel();
+
+        // Stride is the distance between two consecutive column elements,
+        // in the one-dimention dataBuffer
+        final int srcScanStride = srcSPPSM.getScanlineStride();
+        final int dstScanStride = dstSPPSM.getScanlineStride();
+
+        // Access the integer buffer for each image.
+        DataBufferInt srcDB = (DataBufferInt)src.getDataBuffer();
+        DataBufferInt dstDB = (DataBufferInt)dest.getDataBuffer();
+
+        // Offset defines where in the stack the real data begin
+        final int srcOff
+            = (srcDB.getOffset() +
+               srcSPPSM.getOffset
+               (src.getMinX()-src.getSampleModelTranslateX(),
+                src.getMinY()-src.getSampleModelTranslateY()));
+        final int dstOff
+            = (dstDB.getOffset() +
+               dstSPPSM.getOffset
+               (dest.getMinX()-dest.getSampleModelTranslateX(),
+                dest.getMinY()-dest.getSampleModelTranslateY()));
+
+        // Access the pixel value array
+        final int[] srcPixels  = srcDB.getBankData()[0];
+        final int[] destPixels = dstDB.getBankData()[0];
+
+        final int [] buffer = new int [boxSz];
+        int curr, prev;
+
+          // Fixed point normalization factor (8.24)
+        int scale = (1<<24)/boxSz;
+
+        /*
+         * System.out.println("Info: srcOff: " + srcOff +
+         *                    " x: " + skipX +
+         *                    " y: " + skipY +
+         *                    " w: " + w +
+         *                    " h: " + h +
+         *                    " boxSz " + boxSz +
+         *                    " srcStride: " + srcScanStride);
+         */
+
+        for (int y=skipY; y<(h-skipY); y++) {
+            int sp     = srcOff + y*srcScanStride;
+            int dp     = dstOff + y*dstScanStride;
+            int rowEnd = sp + (w-skipX);
+
+            int k    = 0;
+            int sumA = 0;
+            int sumR = 0;
+            int sumG = 0;
+            int sumB = 0;
+
+            sp += skipX;
+            int end  = sp+boxSz;
+
+            while (sp < end) {
+                curr = buffer[k] = srcPixels[sp];
+                sumA += (curr>>> 24);
+                sumR += (curr >> 16)&0xFF;
+                sumG += (curr >>  8)&0xFF;
+                sumB += (curr      )&0xFF;
+                k++;
+                sp++;
+            }
+
+            dp += skipX + loc;
+            prev = destPixels[dp] = (( (sumA*scale)&0xFF000000)       |
+                                     (((sumR*scale)&0xFF000000)>>>8)  |
+                                     (((sumG*scale)&0xFF000000)>>>16) |
+                                     (((sumB*scale)&0xFF000000)>>>24));
+            dp++;
+            k=0;
+            while (sp < rowEnd) {
+                curr = buffer[k];
+                if (curr == srcPixels[sp]) {
+                    destPixels[dp] = prev;
+                } else {
+                    sumA -= (curr>>> 24);
+                    sumR -= (curr >> 16)&0xFF;
+                    sumG -= (curr >>  8)&0xFF;
+                    sumB -= (curr      )&0xFF;
+
+                    curr = buffer[k] = srcPixels[sp];
+
+                    sumA += (curr>>> 24);
+                    sumR += (curr >> 16)&0xFF;
+                    sumG += (curr >>  8)&0xFF;
+                    sumB += (curr      )&0xFF;
+                    prev = destPixels[dp] = (( (sumA*scale)&0xFF000000)       |
+                                             (((sumR*scale)&0xFF000000)>>>8)  |
+                                             (((sumG*scale)&0xFF000000)>>>16) |
+                                             (((sumB*scale)&0xFF000000)>>>24));
+                }
+                k = (k+1)%boxSz;
+                sp++;
+                dp++;
+            }
+        }
+        return dest;
+    }
+
+    static WritableRaster boxFilterV(Raster src, WritableRaster dest,
+                                     int skipX, int skipY,
+                                     int boxSz, int loc) {
+
+        final int w = src.getWidth();
+        final int h = src.getHeight();
+
+          // Check if the raster is wide enough to do _any_ work
+        if (w < (2*skipX))       return dest;
+        if (h < (2*skipY)+boxSz) return dest;
+
+        final SinglePixelPackedSampleModel srcSPPSM =
+            (SinglePixelPackedSampleModel)src.getSampleModel();
+
+        final SinglePixelPackedSampleModel dstSPPSM =
+            (SinglePixelPackedSampleModel)dest.getSampleModel();
+
+        // Stride is the distance between two consecutive column elements,
+        // in the one-dimention dataBuffer
+        final int srcScanStride = srcSPPSM.getScanlineStride();
+        final int dstScanStride = dstSPPSM.getScanlineStride();
+
+        // Access the integer buffer for each image.
+        DataBufferInt srcDB = (DataBufferInt)src.getDataBuffer();
+        DataBufferInt dstDB = (DataBufferInt)dest.getDataBuffer();
+
+        // Offset defines where in the stack the real data begin
+        final int srcOff
+            = (srcDB.getOffset() +
+               srcSPPSM.getOffset
+               (src.getMinX()-src.getSampleModelTranslateX(),
+                src.getMinY()-src.getSampleModelTranslateY()));
+        final int dstOff
+            = (dstDB.getOffset() +
+               dstSPPSM.getOffset
+               (dest.getMinX()-dest.getSampleModelTranslateX(),
+                dest.getMinY()-dest.getSampleModelTranslateY()));
+
+
+        // Access the pixel value array
+        final int[] srcPixels  = srcDB.getBankData()[0];
+        final int[] destPixels = dstDB.getBankData()[0];
+
+        final int [] buffer = new int [boxSz];
+        int curr, prev;
+
+          // Fixed point normalization factor (8.24)
+        final int scale = (1<<24)/boxSz;
+
+        /*
+         * System.out.println("Info: srcOff: " + srcOff +
+         *                    " x: " + skipX +
+         *                    " y: " + skipY +
+         *                    " w: " + w +
+         *                    " h: " + h +
+         *                    " boxSz " + boxSz +
+         *                    " srcStride: " + srcScanStride);
+         */
+
+        for (int x=skipX; x<(w-skipX); x++) {
+            int sp = srcOff + x;
+            int dp = dstOff + x;
+            int colEnd = sp + (h-skipY)*srcScanStride;
+
+            int k=0;
+            int sumA = 0;
+            int sumR = 0;
+            int sumG = 0;
+            int sumB = 0;
+
+            sp += skipY*srcScanStride;
+            int end  = sp+(boxSz*srcScanStride);
+
+            while (sp < end) {
+                curr = buffer[k] = srcPixels[sp];
+                sumA += (curr>>> 24);
+                sumR += (curr >> 16)&0xFF;
+                sumG += (curr >>  8)&0xFF;
+                sumB += (curr      )&0xFF;
+                k++;
+                sp+=srcScanStride;
+            }
+
+
+            dp += (skipY + loc)*dstScanStride;
+            prev = destPixels[dp] = (( (sumA*scale)&0xFF000000)       |
+                                     (((sumR*scale)&0xFF000000)>>>8)  |
+                                     (((sumG*scale)&0xFF000000)>>>16) |
+                                     (((sumB*scale)&0xFF000000)>>>24));
+            dp+=dstScanStride;
+            k=0;
+            while (sp < colEnd) {
+                curr = buffer[k];
+                if (curr == srcPixels[sp]) {
+                    destPixels[dp] = prev;
+                } else {
+                    sumA -= (curr>>> 24);
+                    sumR -= (curr >> 16)&0xFF;
+                    sumG -= (curr >>  8)&0xFF;
+                    sumB -= (curr      )&0xFF;
+
+                    curr = buffer[k] = srcPixels[sp];
+
+                    sumA += (curr>>> 24);
+                    sumR += (curr >> 16)&0xFF;
+                    sumG += (curr >>  8)&0xFF;
+                    sumB += (curr      )&0xFF;
+                    prev = destPixels[dp] = (( (sumA*scale)&0xFF000000)       |
+                                             (((sumR*scale)&0xFF000000)>>>8)  |
+                                             (((sumG*scale)&0xFF000000)>>>16) |
+                                             (((sumB*scale)&0xFF000000)>>>24));
+                }
+                k = (k+1)%boxSz;
+                sp+=srcScanStride;
+                dp+=dstScanStride;
+            }
+        }
+        return dest;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.batik.anim.dom.SVGOMDocument;
+import org.apache.batik.bridge.BridgeContext;
+import org.apache.batik.bridge.GVTBuilder;
+import org.apache.batik.bridge.UserAgentAdapter;
+import org.apache.batik.css.engine.CSSEngine;
+import org.apache.batik.css.engine.CSSStylableElement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+/**
+ * Benchmarks the build stage: the CSS cascade, and the creation of the
+ * GVT tree by the bridge.  Each invocation works on a fresh copy of the
+ * parsed sample, since both stages cache their results in the document.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuildBenchmark {
+
+    /**
+     * The sample to build.
+     */
+    @Param({ "samples/anne.svg",
+             "samples/mapWaadt.svg",
+             "samples/batikFX.svg",
+             "samples/sydney.svg" })
+    public String sample;
+
+    /**
+     * The parsed sample, copied before each invocation.
+     */
+    protected SVGOMDocument template;
+
+    /**
+     * The copy of the sample used by the current invocation.
+     */
+    protected SVGOMDocument document;
+
+    @Setup
+    public void setup() throws Exception {
+        template = BenchmarkUtilities.parseDocument(sample);
+    }
+
+    @Setup(Level.Invocation)
+    public void copyDocument() {
+        document = (SVGOMDocument)template.cloneNode(true);
+    }
+
+    /**
+     * Computes the value of every property of every element.
+     */
+    @Benchmark
+    public void cascade(Blackhole bh) {
+        CascadeBridgeContext ctx = new CascadeBridgeContext();
+        ctx.initialize(document);
+        cascade(document.getCSSEngine(), document.getDocumentElement(), bh);
+        ctx.dispose();
+    }
+
+    /**
+     * Computes the value of every property of the given element and of
+     * its descendants.
+     */
+    protected void cascade(CSSEngine eng, Node n, Blackhole bh) {
+        if (n instanceof CSSStylableElement) {
+            CSSStylableElement e = (CSSStylableElement)n;
+            int np = eng.getNumberOfProperties();
+            for (int i = 0; i < np; i++) {
+                bh.consume(eng.getComputedStyle(e, null, i));
+            }
+        }
+        for (Node c = n.getFirstChild(); c != null; c = c.getNextSibling()) {
+            cascade(eng, c, bh);
+        }
+    }
+
+    /**
+     * A bridge context which only sets up the CSS engine of a document,
+     * the way the GVT builder does.
+     */
+    protected static class CascadeBridgeContext extends BridgeContext {
+
+        /**
+         * Creates a new CascadeBridgeContext.
+         */
+        public CascadeBridgeContext() {
+            super(new UserAgentAdapter());
+        }
+
+        /**
+         * Associates this context with the given document and creates
+         * its CSS engine.
+         */
+        public void initialize(Document document) {
+            setDocument(document);
+            initializeDocument(document);
+        }
+    }
+
+    /**
+     * Builds the GVT tree of the sample, cascade included.
+     */
+    @Benchmark
+    public Object build() {
+        BridgeContext ctx = BenchmarkUtilities.createBridgeContext();
+        Object root = new GVTBuilder().build(ctx, document);
+        ctx.dispose();
+        return root;
+    }
+}
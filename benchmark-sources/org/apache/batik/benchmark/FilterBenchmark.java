@@ -0,0 +1,136 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.benchmark;
+
+import java.awt.Rectangle;
+import java.awt.color.ColorSpace;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.batik.ext.awt.image.GraphicsUtil;
+import org.apache.batik.ext.awt.image.rendered.CachableRed;
+import org.apache.batik.ext.awt.image.rendered.GaussianBlurRed8Bit;
+import org.apache.batik.ext.awt.image.rendered.MorphologyOp;
+import org.apache.batik.ext.awt.image.rendered.TurbulencePatternRed;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the most expensive filter primitives on a rendering of a
+ * sample: Gaussian blur (both the convolution used for small standard
+ * deviations and the box blur approximation used for larger ones),
+ * morphology, and turbulence.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterBenchmark {
+
+    /**
+     * The sample rendered to get the source image.
+     */
+    @Param({ "samples/anne.svg" })
+    public String sample;
+
+    /**
+     * The width and height of the images.
+     */
+    @Param({ "512" })
+    public int size;
+
+    /**
+     * The source image, with premultiplied alpha.
+     */
+    protected BufferedImage image;
+
+    /**
+     * The source image, wrapped.
+     */
+    protected CachableRed source;
+
+    @Setup
+    public void setup() throws Exception {
+        image = BenchmarkUtilities.renderImage(sample, size, true);
+        source = GraphicsUtil.wrap(image);
+    }
+
+    /**
+     * Computes all the pixels of the given image.
+     */
+    protected static WritableRaster copyData(CachableRed cr) {
+        Rectangle r = cr.getBounds();
+        WritableRaster wr = cr.getColorModel().createCompatibleWritableRaster
+            (r.width, r.height).createWritableTranslatedChild(r.x, r.y);
+        return cr.copyData(wr);
+    }
+
+    /**
+     * Blurs the image with a small standard deviation, for which a
+     * convolution is used.
+     */
+    @Benchmark
+    public Object gaussianBlurConvolve() {
+        return copyData(new GaussianBlurRed8Bit(source, 1.5, null));
+    }
+
+    /**
+     * Blurs the image with a large standard deviation, for which three
+     * box blurs are used.
+     */
+    @Benchmark
+    public Object gaussianBlurBox() {
+        return copyData(new GaussianBlurRed8Bit(source, 8, null));
+    }
+
+    /**
+     * Dilates the image.
+     */
+    @Benchmark
+    public Object morphology() {
+        return new MorphologyOp(4, 4, true).filter(image, null);
+    }
+
+    /**
+     * Generates a fractal noise image with four octaves.
+     */
+    @Benchmark
+    public Object turbulence() {
+        return copyData(new TurbulencePatternRed
+                        (0.05, 0.05, 4, 0, true, null,
+                         new AffineTransform(),
+                         BenchmarkUtilities.getArea(size),
+                         ColorSpace.getInstance(ColorSpace.CS_sRGB), true));
+    }
+}
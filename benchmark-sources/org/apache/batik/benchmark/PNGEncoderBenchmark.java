@@ -0,0 +1,115 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.batik.ext.awt.image.codec.png.PNGEncodeParam;
+import org.apache.batik.ext.awt.image.codec.png.PNGImageEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the encoding stage: writing a rendering of a sample with
+ * the internal PNG encoder, for several compression levels, filters and
+ * thread counts.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PNGEncoderBenchmark {
+
+    /**
+     * The sample rendered to get the image to encode.
+     */
+    @Param({ "samples/mapWaadt.svg" })
+    public String sample;
+
+    /**
+     * The width and height of the image.
+     */
+    @Param({ "1024" })
+    public int size;
+
+    /**
+     * The deflate compression level.
+     */
+    @Param({ "9", "6", "1" })
+    public int compressionLevel;
+
+    /**
+     * The row filter, or -1 for the adaptive filter.
+     */
+    @Param({ "-1", "2" })
+    public int filter;
+
+    /**
+     * The number of threads compressing the image.
+     */
+    @Param({ "1", "4" })
+    public int threads;
+
+    /**
+     * The image to encode.
+     */
+    protected BufferedImage image;
+
+    /**
+     * The size of the last encoded image, used to size the output
+     * buffer.
+     */
+    protected int length = 1024;
+
+    @Setup
+    public void setup() throws Exception {
+        image = BenchmarkUtilities.renderImage(sample, size, false);
+    }
+
+    /**
+     * Encodes the image in memory.
+     */
+    @Benchmark
+    public Object encode() throws Exception {
+        PNGEncodeParam params = PNGEncodeParam.getDefaultEncodeParam(image);
+        params.setCompressionLevel(compressionLevel);
+        params.setFilter(filter);
+        params.setThreadCount(threads);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length);
+        new PNGImageEncoder(out, params).encode(image);
+        length = out.size();
+        return out;
+    }
+}
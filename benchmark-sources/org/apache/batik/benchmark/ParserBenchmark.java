@@ -0,0 +1,145 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.batik.anim.dom.SAXSVGDocumentFactory;
+import org.apache.batik.parser.AWTPathProducer;
+import org.apache.batik.parser.PathParser;
+import org.apache.batik.util.SVGConstants;
+import org.apache.batik.xml.LexicalUnits;
+import org.apache.batik.xml.XMLScanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Benchmarks the parsing stage: scanning the XML tokens, building the
+ * SVG DOM, and parsing the path data.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    /**
+     * The sample to parse.
+     */
+    @Param({ "samples/anne.svg",
+             "samples/mapWaadt.svg",
+             "samples/batikFX.svg",
+             "samples/sydney.svg" })
+    public String sample;
+
+    /**
+     * The content of the sample.
+     */
+    protected byte[] data;
+
+    /**
+     * The URI of the sample.
+     */
+    protected String uri;
+
+    /**
+     * The path data of the sample.
+     */
+    protected String[] paths;
+
+    /**
+     * The factory used to build the documents.
+     */
+    protected SAXSVGDocumentFactory factory;
+
+    @Setup
+    public void setup() throws Exception {
+        data = BenchmarkUtilities.readBytes(sample);
+        uri = BenchmarkUtilities.getURI(sample);
+        factory = BenchmarkUtilities.createDocumentFactory();
+
+        NodeList nl = BenchmarkUtilities.parseDocument(sample).
+            getElementsByTagNameNS(SVGConstants.SVG_NAMESPACE_URI,
+                                   SVGConstants.SVG_PATH_TAG);
+        List l = new ArrayList();
+        for (int i = 0; i < nl.getLength(); i++) {
+            String d = ((Element)nl.item(i)).
+                getAttributeNS(null, SVGConstants.SVG_D_ATTRIBUTE);
+            if (d.length() > 0) {
+                l.add(d);
+            }
+        }
+        paths = (String[])l.toArray(new String[l.size()]);
+    }
+
+    /**
+     * Scans all the XML tokens of the sample.
+     */
+    @Benchmark
+    public int scan() throws Exception {
+        XMLScanner s = new XMLScanner(new ByteArrayInputStream(data),
+                                      "UTF-8");
+        int n = 0;
+        while (s.next() != LexicalUnits.EOF) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Builds the SVG DOM of the sample.
+     */
+    @Benchmark
+    public Object createDocument() throws Exception {
+        return factory.createDocument(uri, new ByteArrayInputStream(data));
+    }
+
+    /**
+     * Parses the path data of the sample into AWT shapes.
+     */
+    @Benchmark
+    public void parsePaths(Blackhole bh) {
+        PathParser p = new PathParser();
+        AWTPathProducer ph = new AWTPathProducer();
+        p.setPathHandler(ph);
+        for (int i = 0; i < paths.length; i++) {
+            p.parse(paths[i]);
+            bh.consume(ph.getShape());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.batik.ext.awt.geom.RectListManager;
+import org.apache.batik.gvt.GraphicsNode;
+import org.apache.batik.gvt.renderer.StaticRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the rendering stage: a full repaint of a GVT tree by the
+ * <code>StaticRenderer</code>, its tile cache being flushed first.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+    /**
+     * The sample to render.
+     */
+    @Param({ "samples/anne.svg",
+             "samples/mapWaadt.svg",
+             "samples/batikFX.svg",
+             "samples/sydney.svg" })
+    public String sample;
+
+    /**
+     * The width and height of the rendered image.
+     */
+    @Param({ "1024" })
+    public int size;
+
+    /**
+     * The renderer.
+     */
+    protected StaticRenderer renderer;
+
+    /**
+     * The area to repaint.
+     */
+    protected RectListManager area;
+
+    @Setup
+    public void setup() throws Exception {
+        GraphicsNode root = BenchmarkUtilities.buildTree
+            (BenchmarkUtilities.parseDocument(sample));
+        renderer = new StaticRenderer();
+        renderer.setTree(root);
+        renderer.updateOffScreen(size, size);
+        renderer.setTransform(BenchmarkUtilities.getFitTransform(root, size));
+        area = new RectListManager(BenchmarkUtilities.getArea(size));
+    }
+
+    @TearDown
+    public void tearDown() {
+        renderer.dispose();
+    }
+
+    /**
+     * Repaints the whole image.
+     */
+    @Benchmark
+    public Object repaint() {
+        renderer.flush();
+        renderer.repaint(area);
+        return renderer.getOffScreen();
+    }
+}
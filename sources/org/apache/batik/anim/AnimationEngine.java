@@ -21,7 +21,9 @@ package org.apache.batik.anim;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.batik.anim.dom.AnimationTarget;
 import org.apache.batik.anim.dom.AnimationTargetListener;
@@ -77,6 +79,37 @@ public abstract class AnimationEngine {
      */
     protected Listener targetListener = new Listener();
 
+    /**
+     * The sandwiches whose animations changed since the last tick, and so
+     * may need their values copied into the document.
+     */
+    protected LinkedHashSet dirtySandwiches = new LinkedHashSet();
+
+    /**
+     * The number of ticks performed.
+     */
+    protected AtomicLong tickCount = new AtomicLong();
+
+    /**
+     * The total time spent in ticks, in nanoseconds.
+     */
+    protected AtomicLong tickTime = new AtomicLong();
+
+    /**
+     * The time spent in the last tick, in nanoseconds.
+     */
+    protected AtomicLong lastTickTime = new AtomicLong();
+
+    /**
+     * The number of timed elements sampled by the ticks.
+     */
+    protected AtomicLong sampledElementCount = new AtomicLong();
+
+    /**
+     * The number of animated values copied into the document by the ticks.
+     */
+    protected AtomicLong updatedValueCount = new AtomicLong();
+
     /**
      * Creates a new AnimationEngine for the given document.
      */
@@ -198,6 +231,7 @@ public abstract class AnimationEngine {
         animations.put(anim, animInfo);
 
         Sandwich sandwich = getSandwich(target, type, ns, an);
+        animInfo.sandwich = sandwich;
         if (sandwich.animation == null) {
             anim.lowerAnimation = null;
             anim.higherAnimation = null;
@@ -236,6 +270,7 @@ public abstract class AnimationEngine {
             sandwich.lowestAnimation = null;
             sandwich.shouldUpdate = true;
         }
+        dirtySandwiches.add(sandwich);
         // } finally { org.apache.batik.anim.timing.Trace.exit(); }
     }
 
@@ -249,19 +284,19 @@ public abstract class AnimationEngine {
         if (type == ANIM_TYPE_XML) {
             sandwich = (Sandwich) info.xmlAnimations.get(ns, an);
             if (sandwich == null) {
-                sandwich = new Sandwich();
+                sandwich = new Sandwich(target, type, ns, an);
                 info.xmlAnimations.put(ns, an, sandwich);
             }
         } else if (type == ANIM_TYPE_CSS) {
             sandwich = (Sandwich) info.cssAnimations.get(an);
             if (sandwich == null) {
-                sandwich = new Sandwich();
+                sandwich = new Sandwich(target, type, null, an);
                 info.cssAnimations.put(an, sandwich);
             }
         } else {
             sandwich = (Sandwich) info.otherAnimations.get(an);
             if (sandwich == null) {
-                sandwich = new Sandwich();
+                sandwich = new Sandwich(target, type, null, an);
                 info.otherAnimations.put(an, sandwich);
             }
         }
@@ -296,111 +331,149 @@ public abstract class AnimationEngine {
 
     /**
      * Updates the animations in the document to the given document time.
+     * Only the timed elements that are active or due to change are sampled,
+     * and only the sandwiches whose animations changed are copied into the
+     * document.
      * @param time the document time to sample at
      * @param hyperlinking whether the document should be seeked to the given
      *                     time, as with hyperlinking
      */
     protected float tick(float time, boolean hyperlinking) {
+        long start = System.nanoTime();
+        long samples = timedDocumentRoot.getSampleCount();
         float waitTime = timedDocumentRoot.seekTo(time, hyperlinking);
-        Map.Entry[] targetEntries =
-            (Map.Entry[]) targets.entrySet().toArray(MAP_ENTRY_ARRAY);
-        for (int i = 0; i < targetEntries.length; i++) {
-            Map.Entry e = targetEntries[i];
-            AnimationTarget target = (AnimationTarget) e.getKey();
-            TargetInfo info = (TargetInfo) e.getValue();
-
-            // Update the XML animations.
-            Iterator j = info.xmlAnimations.iterator();
-            while (j.hasNext()) {
-                DoublyIndexedTable.Entry e2 =
-                    (DoublyIndexedTable.Entry) j.next();
-                String namespaceURI = (String) e2.getKey1();
-                String localName = (String) e2.getKey2();
-                Sandwich sandwich = (Sandwich) e2.getValue();
-                if (sandwich.shouldUpdate ||
-                        sandwich.animation != null
-                            && sandwich.animation.isDirty) {
-                    AnimatableValue av = null;
-                    boolean usesUnderlying = false;
-                    AbstractAnimation anim = sandwich.animation;
-                    if (anim != null) {
-                        av = anim.getComposedValue();
-                        usesUnderlying =
-                            sandwich.lowestAnimation.usesUnderlyingValue();
-                        anim.isDirty = false;
-                    }
-                    if (usesUnderlying && !sandwich.listenerRegistered) {
-                        target.addTargetListener(namespaceURI, localName, false,
-                                                 targetListener);
-                        sandwich.listenerRegistered = true;
-                    } else if (!usesUnderlying && sandwich.listenerRegistered) {
-                        target.removeTargetListener(namespaceURI, localName,
-                                                    false, targetListener);
-                        sandwich.listenerRegistered = false;
-                    }
-                    target.updateAttributeValue(namespaceURI, localName, av);
-                    sandwich.shouldUpdate = false;
-                }
+        Object[] sandwiches = dirtySandwiches.toArray();
+        dirtySandwiches.clear();
+        int updated = 0;
+        for (int i = 0; i < sandwiches.length; i++) {
+            Sandwich sandwich = (Sandwich) sandwiches[i];
+            if (sandwich.shouldUpdate ||
+                    sandwich.animation != null
+                        && sandwich.animation.isDirty) {
+                updateSandwich(sandwich);
+                updated++;
             }
+        }
+        long t = System.nanoTime() - start;
+        tickCount.incrementAndGet();
+        tickTime.addAndGet(t);
+        lastTickTime.set(t);
+        sampledElementCount.addAndGet
+            (timedDocumentRoot.getSampleCount() - samples);
+        updatedValueCount.addAndGet(updated);
+        return waitTime;
+    }
 
-            // Update the CSS animations.
-            j = info.cssAnimations.entrySet().iterator();
-            while (j.hasNext()) {
-                Map.Entry e2 = (Map.Entry) j.next();
-                String propertyName = (String) e2.getKey();
-                Sandwich sandwich = (Sandwich) e2.getValue();
-                if (sandwich.shouldUpdate ||
-                        sandwich.animation != null
-                            && sandwich.animation.isDirty) {
-                    AnimatableValue av = null;
-                    boolean usesUnderlying = false;
-                    AbstractAnimation anim = sandwich.animation;
-                    if (anim != null) {
-                        av = anim.getComposedValue();
-                        usesUnderlying =
-                            sandwich.lowestAnimation.usesUnderlyingValue();
-                        anim.isDirty = false;
-                    }
-                    if (usesUnderlying && !sandwich.listenerRegistered) {
-                        target.addTargetListener(null, propertyName, true,
-                                                 targetListener);
-                        sandwich.listenerRegistered = true;
-                    } else if (!usesUnderlying && sandwich.listenerRegistered) {
-                        target.removeTargetListener(null, propertyName, true,
-                                                    targetListener);
-                        sandwich.listenerRegistered = false;
-                    }
-                    if (usesUnderlying) {
-                        target.updatePropertyValue(propertyName, null);
-                    }
-                    if (!(usesUnderlying && av == null)) {
-                        target.updatePropertyValue(propertyName, av);
-                    }
-                    sandwich.shouldUpdate = false;
-                }
+    /**
+     * Copies the composed value of the given sandwich into the document.
+     */
+    protected void updateSandwich(Sandwich sandwich) {
+        AnimationTarget target = sandwich.target;
+        String namespaceURI = sandwich.namespaceURI;
+        String localName = sandwich.localName;
+        AnimatableValue av = null;
+        boolean usesUnderlying = false;
+        AbstractAnimation anim = sandwich.animation;
+        if (anim != null) {
+            av = anim.getComposedValue();
+            if (sandwich.type != ANIM_TYPE_OTHER) {
+                usesUnderlying =
+                    sandwich.lowestAnimation.usesUnderlyingValue();
             }
-
-            // Update the other animations.
-            j = info.otherAnimations.entrySet().iterator();
-            while (j.hasNext()) {
-                Map.Entry e2 = (Map.Entry) j.next();
-                String type = (String) e2.getKey();
-                Sandwich sandwich = (Sandwich) e2.getValue();
-                if (sandwich.shouldUpdate ||
-                        sandwich.animation != null
-                            && sandwich.animation.isDirty) {
-                    AnimatableValue av = null;
-                    AbstractAnimation anim = sandwich.animation;
-                    if (anim != null) {
-                        av = sandwich.animation.getComposedValue();
-                        anim.isDirty = false;
-                    }
-                    target.updateOtherValue(type, av);
-                    sandwich.shouldUpdate = false;
+            anim.isDirty = false;
+        }
+        switch (sandwich.type) {
+            case ANIM_TYPE_XML:
+                if (usesUnderlying && !sandwich.listenerRegistered) {
+                    target.addTargetListener(namespaceURI, localName, false,
+                                             targetListener);
+                    sandwich.listenerRegistered = true;
+                } else if (!usesUnderlying && sandwich.listenerRegistered) {
+                    target.removeTargetListener(namespaceURI, localName,
+                                                false, targetListener);
+                    sandwich.listenerRegistered = false;
                 }
-            }
+                target.updateAttributeValue(namespaceURI, localName, av);
+                break;
+            case ANIM_TYPE_CSS:
+                if (usesUnderlying && !sandwich.listenerRegistered) {
+                    target.addTargetListener(null, localName, true,
+                                             targetListener);
+                    sandwich.listenerRegistered = true;
+                } else if (!usesUnderlying && sandwich.listenerRegistered) {
+                    target.removeTargetListener(null, localName, true,
+                                                targetListener);
+                    sandwich.listenerRegistered = false;
+                }
+                if (usesUnderlying) {
+                    target.updatePropertyValue(localName, null);
+                }
+                if (!(usesUnderlying && av == null)) {
+                    target.updatePropertyValue(localName, av);
+                }
+                break;
+            default:
+                target.updateOtherValue(localName, av);
         }
-        return waitTime;
+        sandwich.shouldUpdate = false;
+    }
+
+    /**
+     * Records that the sandwich of the given animation may need its value
+     * copied into the document at the next tick.
+     */
+    protected void sandwichChanged(AbstractAnimation anim) {
+        Sandwich sandwich = getAnimationInfo(anim).sandwich;
+        if (sandwich != null) {
+            dirtySandwiches.add(sandwich);
+        }
+    }
+
+    /**
+     * Returns the number of ticks performed.
+     */
+    public long getTickCount() {
+        return tickCount.get();
+    }
+
+    /**
+     * Returns the total time spent in ticks, in nanoseconds.
+     */
+    public long getTickTime() {
+        return tickTime.get();
+    }
+
+    /**
+     * Returns the time spent in the last tick, in nanoseconds.
+     */
+    public long getLastTickTime() {
+        return lastTickTime.get();
+    }
+
+    /**
+     * Returns the number of timed elements sampled by the ticks.
+     */
+    public long getSampledElementCount() {
+        return sampledElementCount.get();
+    }
+
+    /**
+     * Returns the number of animated values copied into the document by the
+     * ticks.
+     */
+    public long getUpdatedValueCount() {
+        return updatedValueCount.get();
+    }
+
+    /**
+     * Resets the tick statistics.
+     */
+    public void resetTickStatistics() {
+        tickCount.set(0);
+        tickTime.set(0);
+        lastTickTime.set(0);
+        sampledElementCount.set(0);
+        updatedValueCount.set(0);
     }
 
     /**
@@ -418,6 +491,7 @@ public abstract class AnimationEngine {
         // animation in the sandwich and it's earlier in document order.
         pushDown(anim);
         anim.markDirty();
+        sandwichChanged(anim);
     }
 
     /**
@@ -476,6 +550,7 @@ public abstract class AnimationEngine {
         anim.isActive = false;
         anim.isFrozen = isFrozen;
         anim.markDirty();
+        sandwichChanged(anim);
         if (!isFrozen) {
             anim.value = null;
             anim.beginTime = Float.NEGATIVE_INFINITY;
@@ -491,6 +566,7 @@ public abstract class AnimationEngine {
         anim.isFrozen = false;
         anim.value = null;
         anim.markDirty();
+        sandwichChanged(anim);
         moveToBottom(anim);
     }
 
@@ -503,6 +579,7 @@ public abstract class AnimationEngine {
                                         animInfo.attributeNamespaceURI,
                                         animInfo.attributeLocalName);
         sandwich.shouldUpdate = true;
+        dirtySandwiches.add(sandwich);
         if (anim.higherAnimation == null) {
             return;
         }
@@ -547,6 +624,7 @@ public abstract class AnimationEngine {
         if (sandwich.animation.isDirty) {
             sandwich.shouldUpdate = true;
         }
+        dirtySandwiches.add(sandwich);
     }
 
     /**
@@ -576,6 +654,9 @@ public abstract class AnimationEngine {
     public void sampledAt(AbstractAnimation anim, float simpleTime,
                           float simpleDur, int repeatIteration) {
         anim.sampledAt(simpleTime, simpleDur, repeatIteration);
+        if (anim.isDirty) {
+            sandwichChanged(anim);
+        }
     }
 
     /**
@@ -586,6 +667,9 @@ public abstract class AnimationEngine {
      */
     public void sampledLastValue(AbstractAnimation anim, int repeatIteration) {
         anim.sampledLastValue(repeatIteration);
+        if (anim.isDirty) {
+            sandwichChanged(anim);
+        }
     }
 
     /**
@@ -607,6 +691,7 @@ public abstract class AnimationEngine {
             short type = isCSS ? ANIM_TYPE_CSS : ANIM_TYPE_XML;
             Sandwich sandwich = getSandwich(t, type, ns, ln);
             sandwich.shouldUpdate = true;
+            dirtySandwiches.add(sandwich);
             AbstractAnimation anim = sandwich.animation;
             while (anim.lowerAnimation != null) {
                 anim = anim.lowerAnimation;
@@ -644,6 +729,30 @@ public abstract class AnimationEngine {
      */
     protected static class Sandwich {
 
+        /**
+         * The target element of the animations.
+         */
+        public AnimationTarget target;
+
+        /**
+         * The type of the animations.  Must be one of the
+         * <code>ANIM_TYPE_*</code> constants defined in
+         * {@link AnimationEngine}.
+         */
+        public short type;
+
+        /**
+         * The namespace URI of the attribute being animated, if this is a
+         * sandwich of XML attribute animations.
+         */
+        public String namespaceURI;
+
+        /**
+         * The local name of the attribute, the name of the CSS property or
+         * the type of the animations.
+         */
+        public String localName;
+
         /**
          * The top-most animation in the sandwich.
          */
@@ -665,6 +774,17 @@ public abstract class AnimationEngine {
          * listen for changes to the base value.
          */
         public boolean listenerRegistered;
+
+        /**
+         * Creates a new Sandwich.
+         */
+        public Sandwich(AnimationTarget target, short type, String ns,
+                        String ln) {
+            this.target = target;
+            this.type = type;
+            this.namespaceURI = ns;
+            this.localName = ln;
+        }
     }
 
     /**
@@ -694,5 +814,10 @@ public abstract class AnimationEngine {
          * animate.
          */
         public String attributeLocalName;
+
+        /**
+         * The sandwich the animation is in.
+         */
+        public Sandwich sandwich;
     }
 }
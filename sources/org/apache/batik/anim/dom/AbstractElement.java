@@ -220,6 +220,15 @@ public abstract class AbstractElement
             setUnspecifiedAttribute(nsURI, name, value);
     }
 
+    /**
+     * Returns whether a change of the given attribute must be notified to
+     * this element: the attributes with a live value are, besides IDs.
+     */
+    protected boolean isAttrObserved(String ns, String ln, String qname) {
+        return super.isAttrObserved(ns, ln, qname)
+            || getLiveAttributeValue(ns, ln) != null;
+    }
+
     /**
      * Called when an attribute has been added.
      */
@@ -22,6 +22,8 @@ import org.apache.batik.anim.values.AnimatableLengthValue;
 import org.apache.batik.anim.values.AnimatableValue;
 import org.apache.batik.dom.svg.LiveAttributeException;
 import org.apache.batik.dom.svg.LiveAttributeValue;
+import org.apache.batik.parser.LengthParser;
+import org.apache.batik.parser.ParseException;
 import org.apache.batik.parser.UnitProcessor;
 
 import org.w3c.dom.Attr;
@@ -74,6 +76,37 @@ public abstract class AbstractSVGAnimatedLength
      */
     protected AnimSVGLength animVal;
 
+    /**
+     * The parsed base value, when the base value object was not created.
+     */
+    protected float checkedValue;
+
+    /**
+     * The unit type of the parsed base value.
+     */
+    protected short checkedUnitType;
+
+    /**
+     * The state of the parsed base value: CHECKED_INVALID, CHECKED_VALID
+     * or CHECKED_MISSING.
+     */
+    protected byte checkedState;
+
+    /**
+     * The parsed base value must be computed again.
+     */
+    protected static final byte CHECKED_INVALID = 0;
+
+    /**
+     * The parsed base value is up to date.
+     */
+    protected static final byte CHECKED_VALID = 1;
+
+    /**
+     * The attribute is missing and has no default value.
+     */
+    protected static final byte CHECKED_MISSING = 2;
+
     /**
      * Whether the value is changing.
      */
@@ -144,10 +177,9 @@ public abstract class AbstractSVGAnimatedLength
                      animVal.getValueAsString());
             }
             return animVal.getValue();
+        } else if (baseVal == null) {
+            return getCheckedBaseValue();
         } else {
-            if (baseVal == null) {
-                baseVal = new BaseSVGLength(direction);
-            }
             baseVal.revalidate();
             if (baseVal.missing) {
                 throw new LiveAttributeException
@@ -170,6 +202,62 @@ public abstract class AbstractSVGAnimatedLength
         }
     }
 
+    /**
+     * Gets the base value straight from the attribute, without creating
+     * the {@link SVGLength} object, which is only needed for the DOM.
+     */
+    protected float getCheckedBaseValue() {
+        if (checkedState == CHECKED_INVALID) {
+            checkedState = CHECKED_VALID;
+            String s = element.getAttributeValueNS(namespaceURI, localName);
+            if (s == null) {
+                s = getDefaultValue();
+            }
+            if (s == null) {
+                checkedState = CHECKED_MISSING;
+            } else {
+                try {
+                    LengthParser lengthParser = new LengthParser();
+                    UnitProcessor.UnitResolver ur =
+                        new UnitProcessor.UnitResolver();
+                    lengthParser.setLengthHandler(ur);
+                    lengthParser.parse(s);
+                    checkedUnitType = ur.unit;
+                    checkedValue = ur.value;
+                } catch (ParseException e) {
+                    checkedUnitType = SVGLength.SVG_LENGTHTYPE_UNKNOWN;
+                    checkedValue = 0;
+                }
+            }
+        }
+        if (checkedState == CHECKED_MISSING) {
+            throw new LiveAttributeException
+                (element, localName,
+                 LiveAttributeException.ERR_ATTRIBUTE_MISSING, null);
+        } else if (checkedUnitType == SVGLength.SVG_LENGTHTYPE_UNKNOWN) {
+            throw new LiveAttributeException
+                (element, localName,
+                 LiveAttributeException.ERR_ATTRIBUTE_MALFORMED, "");
+        }
+        if (nonNegative && checkedValue < 0) {
+            throw new LiveAttributeException
+                (element, localName,
+                 LiveAttributeException.ERR_ATTRIBUTE_NEGATIVE,
+                 Float.toString(checkedValue)
+                 + AbstractSVGLength.UNITS[checkedUnitType]);
+        }
+        SVGOMElement e = (SVGOMElement) element;
+        if (e.unitContext == null) {
+            e.unitContext = e.new UnitContext();
+        }
+        try {
+            return UnitProcessor.svgToUserSpace(checkedValue, checkedUnitType,
+                                                direction, e.unitContext);
+        } catch (IllegalArgumentException ex) {
+            return 0f;
+        }
+    }
+
     /**
      * Updates the animated value with the given {@link AnimatableValue}.
      */
@@ -224,6 +312,7 @@ public abstract class AbstractSVGAnimatedLength
      * Called when the attribute has changed in some way.
      */
     protected void attrChanged() {
+        checkedState = CHECKED_INVALID;
         if (!changing && baseVal != null) {
             baseVal.invalidate();
         }
@@ -288,16 +377,13 @@ public abstract class AbstractSVGAnimatedLength
             missing = false;
             valid = true;
 
-            Attr attr = element.getAttributeNodeNS(namespaceURI, localName);
-            String s;
-            if (attr == null) {
+            String s = element.getAttributeValueNS(namespaceURI, localName);
+            if (s == null) {
                 s = getDefaultValue();
                 if (s == null) {
                     missing = true;
                     return;
                 }
-            } else {
-                s = attr.getValue();
             }
 
             parse(s);
@@ -54,9 +54,15 @@ public abstract class AbstractSVGAnimatedValue
     protected boolean hasAnimVal;
 
     /**
-     * Listener list.
+     * The first listener.  Nearly every value has a single listener, the
+     * one of its document, so the list is only created for the others.
      */
-    protected LinkedList listeners = new LinkedList();
+    protected AnimatedAttributeListener listener;
+
+    /**
+     * Listener list, after the first listener, or null.
+     */
+    protected LinkedList listeners;
 
     /**
      * Creates a new AbstractSVGAnimatedValue.
@@ -99,8 +105,17 @@ public abstract class AbstractSVGAnimatedValue
      * Adds a listener for changes to the animated value.
      */
     public void addAnimatedAttributeListener(AnimatedAttributeListener aal) {
-        if (!listeners.contains(aal)) {
-            listeners.add(aal);
+        if (listener == null) {
+            // The list is empty, as removing the first listener moves up
+            // the next one.
+            listener = aal;
+        } else if (listener != aal) {
+            if (listeners == null) {
+                listeners = new LinkedList();
+            }
+            if (!listeners.contains(aal)) {
+                listeners.add(aal);
+            }
         }
     }
 
@@ -108,7 +123,14 @@ public abstract class AbstractSVGAnimatedValue
      * Removes a listener for changes to the animated value.
      */
     public void removeAnimatedAttributeListener(AnimatedAttributeListener aal) {
-        listeners.remove(aal);
+        if (listener == aal) {
+            listener = null;
+            if (listeners != null && !listeners.isEmpty()) {
+                listener = (AnimatedAttributeListener) listeners.removeFirst();
+            }
+        } else if (listeners != null) {
+            listeners.remove(aal);
+        }
     }
 
     /**
@@ -125,6 +147,12 @@ public abstract class AbstractSVGAnimatedValue
      * Fires the listeners for the animated value.
      */
     protected void fireAnimatedAttributeListeners() {
+        if (listener != null) {
+            listener.animatedAttributeChanged(element, this);
+        }
+        if (listeners == null) {
+            return;
+        }
         Iterator i = listeners.iterator();
         while (i.hasNext()) {
             AnimatedAttributeListener listener =
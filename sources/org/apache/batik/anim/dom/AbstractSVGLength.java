@@ -82,7 +82,7 @@ public abstract class AbstractSVGLength
     protected short direction;
 
     /**
-     * The context used to resolve the units.
+     * The context used to resolve the units, created when first needed.
      */
     protected UnitProcessor.Context context;
 
@@ -102,12 +102,21 @@ public abstract class AbstractSVGLength
      * Creates a new AbstractSVGLength.
      */
     public AbstractSVGLength(short direction) {
-        context = new DefaultContext();
         this.direction = direction;
         this.value = 0.0f;
         this.unitType = SVGLength.SVG_LENGTHTYPE_NUMBER;
     }
 
+    /**
+     * Returns the context used to resolve the units.
+     */
+    protected UnitProcessor.Context getContext() {
+        if (context == null) {
+            context = new DefaultContext();
+        }
+        return context;
+    }
+
     /**
      * <b>DOM</b>: Implements {@link SVGLength#getUnitType()}.
      */
@@ -123,7 +132,7 @@ public abstract class AbstractSVGLength
         revalidate();
         try {
             return UnitProcessor.svgToUserSpace(value, unitType,
-                                                direction, context);
+                                                direction, getContext());
         } catch (IllegalArgumentException ex) {
             // XXX Should we throw an exception here when the length
             //     type is unknown?
@@ -136,7 +145,7 @@ public abstract class AbstractSVGLength
      */
     public void setValue(float value) throws DOMException {
         this.value = UnitProcessor.userSpaceToSVG(value, unitType,
-                                                  direction, context);
+                                                  direction, getContext());
         reset();
     }
 
@@ -113,7 +113,8 @@ public class SVG12DOMImplementation
                                    String           namespaceURI,
                                    String           qualifiedName) {
         if (namespaceURI == null)
-            return new GenericElement(qualifiedName.intern(), document);
+            return new GenericElement(document.internName(qualifiedName),
+                                      document);
 
         String name = DOMUtilities.getLocalName(qualifiedName);
         String prefix = DOMUtilities.getPrefix(qualifiedName);
@@ -89,11 +89,11 @@ public class SVGOMAnimatedBoolean
      * Updates the base value from the attribute.
      */
     protected void update() {
-        Attr attr = element.getAttributeNodeNS(namespaceURI, localName);
-        if (attr == null) {
+        String s = element.getAttributeValueNS(namespaceURI, localName);
+        if (s == null) {
             baseVal = defaultValue;
         } else {
-            baseVal = attr.getValue().equals("true");
+            baseVal = s.equals("true");
         }
         valid = true;
     }
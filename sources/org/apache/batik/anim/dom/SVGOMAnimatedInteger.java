@@ -89,11 +89,11 @@ public class SVGOMAnimatedInteger
      * Updates the base value from the attribute.
      */
     protected void update() {
-        Attr attr = element.getAttributeNodeNS(namespaceURI, localName);
-        if (attr == null) {
+        String s = element.getAttributeValueNS(namespaceURI, localName);
+        if (s == null) {
             baseVal = defaultValue;
         } else {
-            baseVal = Integer.parseInt(attr.getValue());
+            baseVal = Integer.parseInt(s);
         }
         valid = true;
     }
@@ -269,11 +269,11 @@ public class SVGOMAnimatedLengthList
          * Returns the value of the DOM attribute containing the length list.
          */
         protected String getValueAsString() {
-            Attr attr = element.getAttributeNodeNS(namespaceURI, localName);
-            if (attr == null) {
+            String s = element.getAttributeValueNS(namespaceURI, localName);
+            if (s == null) {
                 return defaultValue;
             }
-            return attr.getValue();
+            return s;
         }
 
         /**
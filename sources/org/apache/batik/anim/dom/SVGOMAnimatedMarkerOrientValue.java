@@ -232,12 +232,12 @@ public class SVGOMAnimatedMarkerOrientValue extends AbstractSVGAnimatedValue {
          */
         protected void revalidate() {
             if (!valid) {
-                Attr attr = element.getAttributeNodeNS(namespaceURI, localName);
-                if (attr == null) {
+                String s = element.getAttributeValueNS(namespaceURI, localName);
+                if (s == null) {
                     setUnitType(SVGAngle.SVG_ANGLETYPE_UNSPECIFIED);
                     value = 0;
                 } else {
-                    parse(attr.getValue());
+                    parse(s);
                 }
                 valid = true;
             }
@@ -111,11 +111,10 @@ public class SVGOMAnimatedNumber
      * Updates the base value from the attribute.
      */
     protected void update() {
-        Attr attr = element.getAttributeNodeNS(namespaceURI, localName);
-        if (attr == null) {
+        String v = element.getAttributeValueNS(namespaceURI, localName);
+        if (v == null) {
             baseVal = defaultValue;
         } else {
-            String v = attr.getValue();
             int len = v.length();
             if (allowPercentage && len > 1 && v.charAt(len - 1) == '%') {
                 baseVal = .01f * Float.parseFloat(v.substring(0, len - 1));
@@ -251,11 +251,11 @@ public class SVGOMAnimatedNumberList
          * Returns the value of the DOM attribute containing the number list.
          */
         protected String getValueAsString() {
-            Attr attr = element.getAttributeNodeNS(namespaceURI, localName);
-            if (attr == null) {
+            String s = element.getAttributeValueNS(namespaceURI, localName);
+            if (s == null) {
                 return defaultValue;
             }
-            return attr.getValue();
+            return s;
         }
 
         /**
@@ -42,6 +42,8 @@ import org.apache.batik.dom.svg.SVGPathSegItem;
 
 import org.apache.batik.parser.ParseException;
 import org.apache.batik.parser.PathArrayProducer;
+import org.apache.batik.parser.PathHandler;
+import org.apache.batik.parser.PathParser;
 
 import org.w3c.dom.Attr;
 import org.w3c.dom.DOMException;
@@ -87,6 +89,27 @@ public class SVGOMAnimatedPathData
 //      */
 //     protected NormalizedAnimSVGPathSegList normalizedPathSegs;
 
+    /**
+     * The commands of the base path data value, parsed without creating
+     * the items of a path segment list, or null if not parsed yet.
+     */
+    protected short[] pathCommands;
+
+    /**
+     * The parameters of the base path data value.
+     */
+    protected float[] pathParameters;
+
+    /**
+     * Whether the attribute is missing, once parsed.
+     */
+    protected boolean pathMissing;
+
+    /**
+     * Whether the attribute is malformed, once parsed.
+     */
+    protected boolean pathMalformed;
+
     /**
      * Default value for the 'd' attribute.
      */
@@ -175,33 +198,92 @@ public class SVGOMAnimatedPathData
      */
     public void check() {
         if (!hasAnimVal) {
-            if (pathSegs == null) {
-                pathSegs = new BaseSVGPathSegList();
-            }
-            pathSegs.revalidate();
-            if (pathSegs.missing) {
+            revalidatePathData();
+            if (pathMissing) {
                 throw new LiveAttributeException
                     (element, localName,
                      LiveAttributeException.ERR_ATTRIBUTE_MISSING, null);
             }
-            if (pathSegs.malformed) {
+            if (pathMalformed) {
+                String s = element.getAttributeValueNS(namespaceURI,
+                                                       localName);
                 throw new LiveAttributeException
                     (element, localName,
                      LiveAttributeException.ERR_ATTRIBUTE_MALFORMED,
-                     pathSegs.getValueAsString());
+                     s == null ? defaultValue : s);
+            }
+        }
+    }
+
+    /**
+     * Uses the given {@link PathHandler} to handle the segments of the
+     * animated path data.  Unless the path data is animated, the segments
+     * come from the parsed attribute value, so that no path segment list
+     * is built when no script asks for one.
+     */
+    public void handleAnimatedPathData(PathHandler h) {
+        if (hasAnimVal) {
+            SVGAnimatedPathDataSupport.handlePathSegList
+                (getAnimatedPathSegList(), h);
+        } else {
+            handlePathData(h);
+        }
+    }
+
+    /**
+     * Uses the given {@link PathHandler} to handle the segments of the
+     * base path data, parsed from the attribute value without building a
+     * path segment list.
+     */
+    public void handlePathData(PathHandler h) {
+        revalidatePathData();
+        SVGAnimatedPathDataSupport.handlePathData
+            (pathCommands, pathParameters, h);
+    }
+
+    /**
+     * Parses the base path data value into arrays of commands and
+     * parameters, if needed.  A missing or malformed value is empty, as
+     * the base path segment list is.
+     */
+    protected void revalidatePathData() {
+        if (pathCommands != null) {
+            return;
+        }
+        pathMissing = false;
+        pathMalformed = false;
+
+        String s = element.getAttributeValueNS(namespaceURI, localName);
+        if (s == null) {
+            s = defaultValue;
+        }
+        if (s == null) {
+            pathMissing = true;
+        } else {
+            try {
+                PathParser pathParser = new PathParser();
+                PathArrayProducer pp = new PathArrayProducer();
+                pathParser.setPathHandler(pp);
+                pathParser.parse(s);
+                pathParameters = pp.getPathParameters();
+                pathCommands = pp.getPathCommands();
+                return;
+            } catch (ParseException e) {
+                pathMalformed = true;
             }
         }
+        pathParameters = new float[0];
+        pathCommands = new short[0];
     }
 
     /**
      * Returns the base value of the attribute as an {@link AnimatableValue}.
      */
     public AnimatableValue getUnderlyingValue(AnimationTarget target) {
-        SVGPathSegList psl = getPathSegList();
-        PathArrayProducer pp = new PathArrayProducer();
-        SVGAnimatedPathDataSupport.handlePathSegList(psl, pp);
-        return new AnimatablePathDataValue(target, pp.getPathCommands(),
-                                           pp.getPathParameters());
+        revalidatePathData();
+        return new AnimatablePathDataValue(target,
+                                           (short[]) pathCommands.clone(),
+                                           (float[]) pathParameters.clone());
     }
 
     /**
@@ -226,6 +308,7 @@ public class SVGOMAnimatedPathData
      * Called when an Attr node has been added.
      */
     public void attrAdded(Attr node, String newv) {
+        pathCommands = null;
         if (!changing) {
             if (pathSegs != null) {
                 pathSegs.invalidate();
@@ -244,6 +327,7 @@ public class SVGOMAnimatedPathData
      * Called when an Attr node has been modified.
      */
     public void attrModified(Attr node, String oldv, String newv) {
+        pathCommands = null;
         if (!changing) {
             if (pathSegs != null) {
                 pathSegs.invalidate();
@@ -262,6 +346,7 @@ public class SVGOMAnimatedPathData
      * Called when an Attr node has been removed.
      */
     public void attrRemoved(Attr node, String oldv) {
+        pathCommands = null;
         if (!changing) {
             if (pathSegs != null) {
                 pathSegs.invalidate();
@@ -311,11 +396,11 @@ public class SVGOMAnimatedPathData
          * Returns the value of the DOM attribute containing the path data.
          */
         protected String getValueAsString() {
-            Attr attr = element.getAttributeNodeNS(namespaceURI, localName);
-            if (attr == null) {
+            String s = element.getAttributeValueNS(namespaceURI, localName);
+            if (s == null) {
                 return defaultValue;
             }
-            return attr.getValue();
+            return s;
         }
 
         /**
@@ -420,11 +505,11 @@ public class SVGOMAnimatedPathData
          * Returns the value of the DOM attribute containing the path data.
          */
         protected String getValueAsString() throws SVGException {
-            Attr attr = element.getAttributeNodeNS(namespaceURI, localName);
-            if (attr == null) {
+            String s = element.getAttributeValueNS(namespaceURI, localName);
+            if (s == null) {
                 return defaultValue;
             }
-            return attr.getValue();
+            return s;
         }
 
         /**
@@ -30,7 +30,9 @@ import org.apache.batik.dom.svg.LiveAttributeException;
 import org.apache.batik.dom.svg.SVGItem;
 import org.apache.batik.dom.svg.SVGPointItem;
 
+import org.apache.batik.parser.FloatArrayProducer;
 import org.apache.batik.parser.ParseException;
+import org.apache.batik.parser.PointsParser;
 
 import org.w3c.dom.Attr;
 import org.w3c.dom.DOMException;
@@ -59,6 +61,22 @@ public class SVGOMAnimatedPoints
      */
     protected AnimSVGPointList animVal;
 
+    /**
+     * The coordinates of the base points, parsed without creating the
+     * items of a point list, or null if not parsed yet.
+     */
+    protected float[] pointValues;
+
+    /**
+     * Whether the attribute is missing, once parsed.
+     */
+    protected boolean pointsMissing;
+
+    /**
+     * Whether the attribute is malformed, once parsed.
+     */
+    protected boolean pointsMalformed;
+
     /**
      * Whether the list is changing.
      */
@@ -109,37 +127,86 @@ public class SVGOMAnimatedPoints
      */
     public void check() {
         if (!hasAnimVal) {
-            if (baseVal == null) {
-                baseVal = new BaseSVGPointList();
-            }
-            baseVal.revalidate();
-            if (baseVal.missing) {
+            revalidatePointValues();
+            if (pointsMissing) {
                 throw new LiveAttributeException
                     (element, localName,
                      LiveAttributeException.ERR_ATTRIBUTE_MISSING, null);
             }
-            if (baseVal.malformed) {
+            if (pointsMalformed) {
+                String s = element.getAttributeValueNS(namespaceURI,
+                                                       localName);
                 throw new LiveAttributeException
                     (element, localName,
                      LiveAttributeException.ERR_ATTRIBUTE_MALFORMED,
-                     baseVal.getValueAsString());
+                     s == null ? defaultValue : s);
+            }
+        }
+    }
+
+    /**
+     * Returns the coordinates of the animated points, x and y in turn.
+     * Unless the points are animated, they come from the parsed attribute
+     * value, so that no point list is built when no script asks for one.
+     * The returned array must not be modified.
+     */
+    public float[] getAnimatedPointValues() {
+        if (hasAnimVal) {
+            SVGPointList pl = getAnimatedPoints();
+            int n = pl.getNumberOfItems();
+            float[] points = new float[n * 2];
+            for (int i = 0; i < n; i++) {
+                SVGPoint p = pl.getItem(i);
+                points[i * 2] = p.getX();
+                points[i * 2 + 1] = p.getY();
             }
+            return points;
         }
+        revalidatePointValues();
+        return pointValues;
+    }
+
+    /**
+     * Parses the base points into an array of coordinates, if needed.  A
+     * missing or malformed value is empty, as the base point list is.
+     */
+    protected void revalidatePointValues() {
+        if (pointValues != null) {
+            return;
+        }
+        pointsMissing = false;
+        pointsMalformed = false;
+
+        String s = element.getAttributeValueNS(namespaceURI, localName);
+        if (s == null) {
+            s = defaultValue;
+        }
+        if (s == null) {
+            pointsMissing = true;
+        } else {
+            try {
+                PointsParser pointsParser = new PointsParser();
+                FloatArrayProducer fap = new FloatArrayProducer();
+                pointsParser.setPointsHandler(fap);
+                pointsParser.parse(s);
+                pointValues = fap.getFloatArray();
+                if (pointValues != null) {
+                    return;
+                }
+            } catch (ParseException e) {
+                pointsMalformed = true;
+            }
+        }
+        pointValues = new float[0];
     }
 
     /**
      * Returns the base value of the attribute as an {@link AnimatableValue}.
      */
     public AnimatableValue getUnderlyingValue(AnimationTarget target) {
-        SVGPointList pl = getPoints();
-        int n = pl.getNumberOfItems();
-        float[] points = new float[n * 2];
-        for (int i = 0; i < n; i++) {
-            SVGPoint p = pl.getItem(i);
-            points[i * 2] = p.getX();
-            points[i * 2 + 1] = p.getY();
-        }
-        return new AnimatablePointListValue(target, points);
+        revalidatePointValues();
+        return new AnimatablePointListValue(target,
+                                            (float[]) pointValues.clone());
     }
 
     /**
@@ -164,6 +231,7 @@ public class SVGOMAnimatedPoints
      * Called when an Attr node has been added.
      */
     public void attrAdded(Attr node, String newv) {
+        pointValues = null;
         if (!changing && baseVal != null) {
             baseVal.invalidate();
         }
@@ -177,6 +245,7 @@ public class SVGOMAnimatedPoints
      * Called when an Attr node has been modified.
      */
     public void attrModified(Attr node, String oldv, String newv) {
+        pointValues = null;
         if (!changing && baseVal != null) {
             baseVal.invalidate();
         }
@@ -190,6 +259,7 @@ public class SVGOMAnimatedPoints
      * Called when an Attr node has been removed.
      */
     public void attrRemoved(Attr node, String oldv) {
+        pointValues = null;
         if (!changing && baseVal != null) {
             baseVal.invalidate();
         }
@@ -235,11 +305,11 @@ public class SVGOMAnimatedPoints
          * Returns the value of the DOM attribute containing the point list.
          */
         protected String getValueAsString() {
-            Attr attr = element.getAttributeNodeNS(namespaceURI, localName);
-            if (attr == null) {
+            String s = element.getAttributeValueNS(namespaceURI, localName);
+            if (s == null) {
                 return defaultValue;
             }
-            return attr.getValue();
+            return s;
         }
 
         /**
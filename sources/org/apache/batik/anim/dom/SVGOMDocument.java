@@ -289,7 +289,7 @@ public class SVGOMDocument
      * <b>DOM</b>: Implements {@link Document#createElement(String)}.
      */
     public Element createElement(String tagName) throws DOMException {
-        return new GenericElement(tagName.intern(), this);
+        return new GenericElement(internName(tagName), this);
     }
 
     /**
@@ -340,7 +340,7 @@ public class SVGOMDocument
      * <b>DOM</b>: Implements {@link Document#createAttribute(String)}.
      */
     public Attr createAttribute(String name) throws DOMException {
-        return new GenericAttr(name.intern(), this);
+        return new GenericAttr(internName(name), this);
     }
 
     /**
@@ -357,10 +357,10 @@ public class SVGOMDocument
     public Attr createAttributeNS(String namespaceURI, String qualifiedName)
         throws DOMException {
         if (namespaceURI == null) {
-            return new GenericAttr(qualifiedName.intern(), this);
+            return new GenericAttr(internName(qualifiedName), this);
         } else {
-            return new GenericAttrNS(namespaceURI.intern(),
-                                     qualifiedName.intern(),
+            return new GenericAttrNS(internName(namespaceURI),
+                                     internName(qualifiedName),
                                      this);
         }
     }
@@ -393,10 +393,18 @@ public class SVGOMDocument
      * for this document.
      */
     public boolean isId(Attr node) {
-        if (node.getNamespaceURI() == null) {
-            return SVG_ID_ATTRIBUTE.equals(node.getNodeName());
+        return isId(node.getNamespaceURI(), node.getNodeName());
+    }
+
+    /**
+     * Returns true if the attribute with the given namespace URI and
+     * qualified name represents an 'id' for this document.
+     */
+    public boolean isId(String namespaceURI, String qualifiedName) {
+        if (namespaceURI == null) {
+            return SVG_ID_ATTRIBUTE.equals(qualifiedName);
         }
-        return node.getNodeName().equals(XML_ID_QNAME);
+        return qualifiedName.equals(XML_ID_QNAME);
     }
 
     /**
@@ -146,9 +146,10 @@ public abstract class SVGOMElement
      */
     public String getId() {
         if (((SVGOMDocument) ownerDocument).isSVG12) {
-            Attr a = getAttributeNodeNS(XML_NAMESPACE_URI, SVG_ID_ATTRIBUTE);
-            if (a != null) {
-                return a.getNodeValue();
+            String id = getAttributeValueNS(XML_NAMESPACE_URI,
+                                            SVG_ID_ATTRIBUTE);
+            if (id != null) {
+                return id;
             }
         }
         return getAttributeNS(null, SVG_ID_ATTRIBUTE);
@@ -23,7 +23,6 @@ import org.apache.batik.dom.AbstractDocument;
 import org.apache.batik.util.DoublyIndexedTable;
 import org.apache.batik.util.SVGTypes;
 
-import org.w3c.dom.Attr;
 import org.w3c.dom.Node;
 import org.w3c.dom.svg.SVGAnimatedLength;
 import org.w3c.dom.svg.SVGRectElement;
@@ -136,11 +135,11 @@ public class SVGOMRectElement
             (this, null, SVG_RX_ATTRIBUTE,
              SVGOMAnimatedLength.HORIZONTAL_LENGTH, true) {
                 protected String getDefaultValue() {
-                    Attr attr = getAttributeNodeNS(null, SVG_RY_ATTRIBUTE);
-                    if (attr == null) {
+                    String s = getAttributeValueNS(null, SVG_RY_ATTRIBUTE);
+                    if (s == null) {
                         return "0";
                     }
-                    return attr.getValue();
+                    return s;
                 }
                 protected void attrChanged() {
                     super.attrChanged();
@@ -155,11 +154,11 @@ public class SVGOMRectElement
             (this, null, SVG_RY_ATTRIBUTE,
              SVGOMAnimatedLength.VERTICAL_LENGTH, true) {
                 protected String getDefaultValue() {
-                    Attr attr = getAttributeNodeNS(null, SVG_RX_ATTRIBUTE);
-                    if (attr == null) {
+                    String s = getAttributeValueNS(null, SVG_RX_ATTRIBUTE);
+                    if (s == null) {
                         return "0";
                     }
-                    return attr.getValue();
+                    return s;
                 }
                 protected void attrChanged() {
                     super.attrChanged();
@@ -377,10 +377,10 @@ public abstract class SVGStylableElement
             cssEngine = eng;
             property = prop;
 
-            Attr attr = getAttributeNodeNS(null, prop);
-            if (attr != null) {
+            String s = getAttributeValueNS(null, prop);
+            if (s != null) {
                 value = cssEngine.parsePropertyValue
-                    (SVGStylableElement.this, prop, attr.getValue());
+                    (SVGStylableElement.this, prop, s);
             }
         }
 
@@ -478,10 +478,10 @@ public abstract class SVGStylableElement
             cssEngine = eng;
             property = prop;
 
-            Attr attr = getAttributeNodeNS(null, prop);
-            if (attr != null) {
+            String s = getAttributeValueNS(null, prop);
+            if (s != null) {
                 value = cssEngine.parsePropertyValue
-                    (SVGStylableElement.this, prop, attr.getValue());
+                    (SVGStylableElement.this, prop, s);
             }
         }
 
@@ -580,10 +580,10 @@ public abstract class SVGStylableElement
             cssEngine = eng;
             property = prop;
 
-            Attr attr = getAttributeNodeNS(null, prop);
-            if (attr != null) {
+            String s = getAttributeValueNS(null, prop);
+            if (s != null) {
                 value = cssEngine.parsePropertyValue
-                    (SVGStylableElement.this, prop, attr.getValue());
+                    (SVGStylableElement.this, prop, s);
             }
         }
 
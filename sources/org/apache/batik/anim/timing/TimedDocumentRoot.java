@@ -18,9 +18,15 @@
  */
 package org.apache.batik.anim.timing;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.PriorityQueue;
 
 import org.apache.batik.util.DoublyIndexedSet;
 
@@ -33,6 +39,24 @@ import org.apache.batik.util.DoublyIndexedSet;
  */
 public abstract class TimedDocumentRoot extends TimeContainer {
 
+    /**
+     * The relative amount by which scheduled samples are brought forward,
+     * to allow for rounding in the times returned by
+     * {@link TimedElement#sampleAt}.
+     */
+    protected static final double SCHEDULE_TOLERANCE = 1e-6;
+
+    /**
+     * Orders timed elements by the time they were added to the document.
+     */
+    protected static final Comparator SAMPLE_ORDER = new Comparator() {
+        public int compare(Object o1, Object o2) {
+            int s1 = ((TimedElement) o1).sampleOrder;
+            int s2 = ((TimedElement) o2).sampleOrder;
+            return s1 < s2 ? -1 : s1 > s2 ? 1 : 0;
+        }
+    };
+
     /**
      * The wallclock time that the document began.
      */
@@ -72,6 +96,34 @@ public abstract class TimedDocumentRoot extends TimeContainer {
      */
     protected boolean isHyperlinking;
 
+    /**
+     * The children that were active when last sampled, and so are sampled
+     * at every tick.
+     */
+    protected HashSet activeChildren = new HashSet();
+
+    /**
+     * The {@link ScheduledSample}s of the children that are waiting for
+     * their intervals to begin or end, ordered by time.
+     */
+    protected PriorityQueue scheduledSamples = new PriorityQueue();
+
+    /**
+     * The children whose instance times changed or that caught an event
+     * since they were last sampled.
+     */
+    protected List pendingChildren = new ArrayList();
+
+    /**
+     * The sample order to give to the next child added.
+     */
+    protected int nextSampleOrder;
+
+    /**
+     * The number of times a child has been sampled by this root.
+     */
+    protected long sampleCount;
+
     /**
      * Creates a new TimedDocumentRoot.
      * @param useSVG11AccessKeys allows the use of accessKey() timing
@@ -126,20 +178,35 @@ public abstract class TimedDocumentRoot extends TimeContainer {
     }
 
     /**
-     * Samples the entire timegraph at the given time.
+     * Samples the timegraph at the given time.  Seeking backwards or for a
+     * hyperlink samples every child; otherwise only the children that are
+     * active, that are due to begin or end by the given time, or whose
+     * instance times changed since the last sample are sampled.
      */
     public float seekTo(float time, boolean hyperlinking) {
         // Trace.enter(this, "seekTo", new Object[] { new Float(time) } ); try {
         isSampling = true;
+        boolean sampleAll = hyperlinking || !(time >= lastSampleTime);
         lastSampleTime = time;
         isHyperlinking = hyperlinking;
         propagationFlags.clear();
         // No time containers in SVG, so we don't have to worry
         // about a partial ordering of timed elements to sample.
+        TimedElement[] es;
+        if (sampleAll) {
+            es = getChildren();
+            activeChildren.clear();
+            scheduledSamples.clear();
+            for (int i = 0; i < es.length; i++) {
+                es[i].scheduledSample = null;
+            }
+            clearPendingChildren();
+        } else {
+            es = getDueChildren(time);
+        }
         float mint = Float.POSITIVE_INFINITY;
-        TimedElement[] es = getChildren();
         for (int i = 0; i < es.length; i++) {
-            float t = es[i].sampleAt(time, hyperlinking);
+            float t = sampleChild(es[i], time, hyperlinking);
             if (t < mint) {
                 mint = t;
             }
@@ -151,7 +218,19 @@ public abstract class TimedDocumentRoot extends TimeContainer {
                 if (es[i].shouldUpdateCurrentInterval) {
                     needsUpdates = true;
                     // System.err.print("{" + ((Test.AnimateElement) es[i]).id + "} ");
-                    float t = es[i].sampleAt(time, hyperlinking);
+                    float t = sampleChild(es[i], time, hyperlinking);
+                    if (t < mint) {
+                        mint = t;
+                    }
+                }
+            }
+            // Children whose instance times changed while others were
+            // sampled are sampled again so that they are rescheduled.
+            if (!pendingChildren.isEmpty()) {
+                needsUpdates = true;
+                TimedElement[] ps = clearPendingChildren();
+                for (int i = 0; i < ps.length; i++) {
+                    float t = sampleChild(ps[i], time, hyperlinking);
                     if (t < mint) {
                         mint = t;
                     }
@@ -162,10 +241,147 @@ public abstract class TimedDocumentRoot extends TimeContainer {
         if (hyperlinking) {
             root.currentIntervalWillUpdate();
         }
+        ScheduledSample next = (ScheduledSample) scheduledSamples.peek();
+        if (next != null && next.time - time < mint) {
+            mint = (float) Math.max(0, next.time - time);
+        }
         return mint;
         // } finally { Trace.exit(); }
     }
 
+    /**
+     * Returns the children to sample at the given time, in the order they
+     * were added: the active children, the waiting children whose scheduled
+     * sample time has come and the pending children.
+     */
+    protected TimedElement[] getDueChildren(float time) {
+        HashSet due = new HashSet(activeChildren);
+        TimedElement[] ps = clearPendingChildren();
+        for (int i = 0; i < ps.length; i++) {
+            due.add(ps[i]);
+        }
+        ScheduledSample s;
+        while ((s = (ScheduledSample) scheduledSamples.peek()) != null
+                && s.time <= time) {
+            scheduledSamples.poll();
+            if (s.element.scheduledSample == s) {
+                s.element.scheduledSample = null;
+                due.add(s.element);
+            }
+        }
+        TimedElement[] es =
+            (TimedElement[]) due.toArray(new TimedElement[due.size()]);
+        Arrays.sort(es, SAMPLE_ORDER);
+        return es;
+    }
+
+    /**
+     * Samples the given child and schedules its next sample according to
+     * how long it can wait until it must be sampled again.
+     */
+    protected float sampleChild(TimedElement e, float time,
+                                boolean hyperlinking) {
+        sampleCount++;
+        float t = e.sampleAt(time, hyperlinking);
+        if (e.parent != this) {
+            // Removed while being sampled.
+            return t;
+        }
+        e.scheduledSample = null;
+        if (!(t > 0)) {
+            activeChildren.add(e);
+            return t;
+        }
+        activeChildren.remove(e);
+        if (t != Float.POSITIVE_INFINITY) {
+            // Sample a little early rather than miss the tick at which the
+            // element begins or ends because of rounding.
+            double at = (double) time + t;
+            at -= Math.max(1, Math.abs(at)) * SCHEDULE_TOLERANCE;
+            e.scheduledSample = new ScheduledSample(e, at);
+            scheduledSamples.add(e.scheduledSample);
+            if (scheduledSamples.size() > 2 * children.size() + 16) {
+                pruneScheduledSamples();
+            }
+        }
+        return t;
+    }
+
+    /**
+     * Removes the samples that were superseded or cancelled from the
+     * schedule.
+     */
+    protected void pruneScheduledSamples() {
+        Iterator i = scheduledSamples.iterator();
+        while (i.hasNext()) {
+            ScheduledSample s = (ScheduledSample) i.next();
+            if (s.element.scheduledSample != s) {
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Empties the list of pending children and returns its former contents.
+     */
+    protected TimedElement[] clearPendingChildren() {
+        TimedElement[] ps = (TimedElement[]) pendingChildren.toArray
+            (new TimedElement[pendingChildren.size()]);
+        for (int i = 0; i < ps.length; i++) {
+            ps[i].samplePending = false;
+        }
+        pendingChildren.clear();
+        return ps;
+    }
+
+    /**
+     * Invoked by timed elements in this document to indicate that they must
+     * be sampled at the next tick, because their instance times changed or
+     * they caught an event.
+     */
+    void sampleNeeded(TimedElement e) {
+        while (e.parent != this) {
+            if (e.parent == null) {
+                return;
+            }
+            e = e.parent;
+        }
+        if (!e.samplePending) {
+            e.samplePending = true;
+            pendingChildren.add(e);
+        }
+    }
+
+    /**
+     * Adds a {@link TimedElement} to this document, to be sampled at the
+     * next tick.
+     */
+    public void addChild(TimedElement e) {
+        super.addChild(e);
+        e.sampleOrder = nextSampleOrder++;
+        sampleNeeded(e);
+    }
+
+    /**
+     * Removes a {@link TimedElement} from this document.
+     */
+    public void removeChild(TimedElement e) {
+        super.removeChild(e);
+        activeChildren.remove(e);
+        e.scheduledSample = null;
+        if (e.samplePending) {
+            e.samplePending = false;
+            pendingChildren.remove(e);
+        }
+    }
+
+    /**
+     * Returns the number of times a child has been sampled by this root.
+     */
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
     /**
      * Resets the entire timegraph.
      */
@@ -285,4 +501,39 @@ public abstract class TimedDocumentRoot extends TimeContainer {
      * @return either "repeat" or "repeatEvent"
      */
     protected abstract String getRepeatEventName();
+
+    /**
+     * A scheduled sample of a child, to be taken at the first tick at or
+     * after the given time.  A child's sample is superseded when it is
+     * sampled again, so samples are simply left in the queue until their
+     * time comes rather than removed.
+     */
+    protected static class ScheduledSample implements Comparable {
+
+        /**
+         * The child to sample.
+         */
+        protected TimedElement element;
+
+        /**
+         * The document time at which to sample the child.
+         */
+        protected double time;
+
+        /**
+         * Creates a new ScheduledSample.
+         */
+        public ScheduledSample(TimedElement element, double time) {
+            this.element = element;
+            this.time = time;
+        }
+
+        /**
+         * Compares this sample with another by time.
+         */
+        public int compareTo(Object o) {
+            double t = ((ScheduledSample) o).time;
+            return time < t ? -1 : time > t ? 1 : 0;
+        }
+    }
 }
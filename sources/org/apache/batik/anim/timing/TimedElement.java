@@ -234,6 +234,24 @@ public abstract class TimedElement implements SMILConstants {
      */
     protected boolean hasPropagated;
 
+    /**
+     * The position of this timed element in the order its document root
+     * samples its children.
+     */
+    protected int sampleOrder;
+
+    /**
+     * The pending sample of this timed element in its document root's
+     * schedule, or null if it is not waiting to be sampled at a given time.
+     */
+    protected TimedDocumentRoot.ScheduledSample scheduledSample;
+
+    /**
+     * Whether this timed element must be sampled at the next tick of its
+     * document root.
+     */
+    protected boolean samplePending;
+
     /**
      * Creates a new TimedElement.
      */
@@ -260,14 +278,14 @@ public abstract class TimedElement implements SMILConstants {
      * Returns the current active time of this element.
      */
     public float getActiveTime() {
-        return lastSampleTime;
+        return getLastSampleTime();
     }
 
     /**
      * Returns the current simple time of this element.
      */
     public float getSimpleTime() {
-        return lastSampleTime - lastRepeatTime;
+        return getLastSampleTime() - lastRepeatTime;
     }
 
     /**
@@ -286,6 +304,7 @@ public abstract class TimedElement implements SMILConstants {
         }
         instanceTimes.add(index, time);
         shouldUpdateCurrentInterval = true;
+        root.sampleNeeded(this);
         float ret;
         if (root.isSampling() && !isSampling) {
             ret = sampleAt(root.getCurrentTime(), root.isHyperlinking());
@@ -330,6 +349,7 @@ public abstract class TimedElement implements SMILConstants {
             }
         }
         shouldUpdateCurrentInterval = true;
+        root.sampleNeeded(this);
         float ret;
         if (root.isSampling() && !isSampling) {
             ret = sampleAt(root.getCurrentTime(), root.isHyperlinking());
@@ -351,6 +371,7 @@ public abstract class TimedElement implements SMILConstants {
         // Trace.enter(this, "instanceTimeChanged", new Object[] { time, new Boolean(isBegin) } ); try {
         hasPropagated = true;
         shouldUpdateCurrentInterval = true;
+        root.sampleNeeded(this);
         float ret;
         if (root.isSampling() && !isSampling) {
             ret = sampleAt(root.getCurrentTime(), root.isHyperlinking());
@@ -1349,9 +1370,15 @@ public abstract class TimedElement implements SMILConstants {
 
     /**
      * Returns the last sample time of this element, in local active time.
+     * An element that the document root did not need to sample at its last
+     * tick is taken to have been sampled at the document's current time.
      */
     public float getLastSampleTime() {
-        return lastSampleTime;
+        if (root == null || root == this || root.isSampling()
+                || isUnresolved(lastSampleTime)) {
+            return lastSampleTime;
+        }
+        return root.getCurrentTime();
     }
 
     /**
@@ -1361,7 +1388,8 @@ public abstract class TimedElement implements SMILConstants {
     public float getCurrentBeginTime() {
         float begin;
         if (currentInterval == null
-                || (begin = currentInterval.getBegin()) < lastSampleTime) {
+                || (begin = currentInterval.getBegin())
+                    < getLastSampleTime()) {
             return Float.NaN;
         }
         return begin;
@@ -1442,6 +1470,7 @@ public abstract class TimedElement implements SMILConstants {
             handledEvents.put(e, ts);
         }
         ts.add(t);
+        root.sampleNeeded(this);
         root.currentIntervalWillUpdate();
     }
 
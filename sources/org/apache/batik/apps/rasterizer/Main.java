@@ -511,6 +511,15 @@ public class Main implements SVGConverterController {
     public static String CL_OPTION_SECURITY_OFF_DESCRIPTION
         = Messages.get("Main.cl.option.security.off.description", "No description");
 
+    /**
+     * Option to specify the number of files converted concurrently
+     */
+    public static String CL_OPTION_THREADS
+        = Messages.get("Main.cl.option.threads", "-threads");
+
+    public static String CL_OPTION_THREADS_DESCRIPTION
+        = Messages.get("Main.cl.option.threads.description", "No description");
+
     /**
      * Static map containing all the option handlers able to analyze the
      * various options.
@@ -830,6 +839,22 @@ public class Main implements SVGConverterController {
                               return CL_OPTION_SECURITY_OFF_DESCRIPTION;
                           }
                       });
+
+        optionMap.put(CL_OPTION_THREADS,
+                      new FloatOptionHandler(){
+                              public void handleOption(float optionValue,
+                                                       SVGConverter c){
+                                  if (optionValue < 1 ||
+                                      optionValue != (int)optionValue)
+                                      throw new IllegalArgumentException();
+
+                                  c.setThreadCount((int)optionValue);
+                              }
+
+                              public String getOptionDescription(){
+                                  return CL_OPTION_THREADS_DESCRIPTION;
+                              }
+                          });
     }
 
     /**
@@ -838,6 +863,12 @@ public class Main implements SVGConverterController {
      */
     protected List args;
 
+    /**
+     * Whether several files are converted concurrently, in which case
+     * the progress of each file is only reported once it is done.
+     */
+    protected boolean concurrent;
+
     public Main(String[] args){
         this.args = new ArrayList();
         for (int i=0; i<args.length; i++){
@@ -927,6 +958,8 @@ public class Main implements SVGConverterController {
 
         validateConverterConfig(c);
 
+        concurrent = c.getThreadCount() > 1;
+
         if (expandedSources== null || expandedSources.length < 1){
             System.out.println(USAGE);
             System.out.flush();
@@ -940,6 +973,7 @@ public class Main implements SVGConverterController {
             error(ERROR_WHILE_CONVERTING_FILES,
                   new Object[] { e.getMessage() });
         } finally {
+            printFailures(c.getFailures(), expandedSources.length);
             System.out.flush();
             securityEnforcer.enforceSecurity(false);
         }
@@ -1008,6 +1042,12 @@ public class Main implements SVGConverterController {
     public static final String MESSAGE_CONVERSION_SUCCESS
         = "Main.message.conversion.success";
 
+    public static final String MESSAGE_CONVERSION_FAILURES
+        = "Main.message.conversion.failures";
+
+    public static final String MESSAGE_CONVERSION_FAILURE
+        = "Main.message.conversion.failure";
+
     public boolean proceedWithComputedTask(Transcoder transcoder,
                                            Map hints,
                                            List sources,
@@ -1019,15 +1059,18 @@ public class Main implements SVGConverterController {
 
     public boolean proceedWithSourceTranscoding(SVGConverterSource source,
                                                 File dest){
-        System.out.print(Messages.formatMessage(MESSAGE_ABOUT_TO_TRANSCODE_SOURCE,
-                                                new Object[]{source.toString(),
-                                                             dest.toString()}));
+        if (!concurrent){
+            printAboutToTranscode(source, dest);
+        }
         return true;
     }
 
     public boolean proceedOnSourceTranscodingFailure(SVGConverterSource source,
                                                      File dest,
                                                      String errorCode){
+        if (concurrent){
+            printAboutToTranscode(source, dest);
+        }
         System.out.println(Messages.formatMessage(MESSAGE_CONVERSION_FAILED,
                                                   new Object[]{errorCode}));
 
@@ -1036,8 +1079,38 @@ public class Main implements SVGConverterController {
 
     public void onSourceTranscodingSuccess(SVGConverterSource source,
                                            File dest){
+        if (concurrent){
+            printAboutToTranscode(source, dest);
+        }
         System.out.println(Messages.formatMessage(MESSAGE_CONVERSION_SUCCESS,
                                                   null));
     }
+
+    /**
+     * Prints a summary of the conversions which failed, once all the
+     * sources have been processed.
+     */
+    protected void printFailures(List failures, int nSources){
+        int n = failures.size();
+        if (n == 0){
+            return;
+        }
+        System.out.println(Messages.formatMessage(MESSAGE_CONVERSION_FAILURES,
+                                                  new Object[]{"" + n,
+                                                               "" + nSources}));
+        for (int i=0; i<n; i++){
+            SVGConverter.Failure f = (SVGConverter.Failure)failures.get(i);
+            System.out.println(Messages.formatMessage(MESSAGE_CONVERSION_FAILURE,
+                                                      new Object[]{f.getSource().toString(),
+                                                                   f.getErrorCode()}));
+        }
+    }
+
+    protected void printAboutToTranscode(SVGConverterSource source,
+                                         File dest){
+        System.out.print(Messages.formatMessage(MESSAGE_ABOUT_TO_TRANSCODE_SOURCE,
+                                                new Object[]{source.toString(),
+                                                             dest.toString()}));
+    }
 }
 
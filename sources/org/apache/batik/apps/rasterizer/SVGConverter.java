@@ -32,6 +32,11 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.batik.transcoder.Transcoder;
 import org.apache.batik.transcoder.TranscoderInput;
@@ -39,6 +44,7 @@ import org.apache.batik.transcoder.TranscoderOutput;
 import org.apache.batik.transcoder.image.ImageTranscoder;
 import org.apache.batik.transcoder.image.JPEGTranscoder;
 import org.apache.batik.transcoder.image.PNGTranscoder;
+import org.apache.batik.util.DaemonThreadFactory;
 import org.apache.batik.util.ParsedURL;
 
 /**
@@ -90,6 +96,11 @@ import org.apache.batik.util.ParsedURL;
  *     SVG documents.</li>
  * <li>pixelUnitToMillimeter: defines the size of a pixel in millimeters
  *     to use when processing the SVG documents.</li>
+ * <li>threadCount: controls how many sources are transcoded concurrently.
+ *     Each worker thread uses its own transcoder instance, and the
+ *     controller is always notified from the calling thread, in source
+ *     order. The failures of the whole batch are returned by
+ *     <code>getFailures</code> once it is over.</li>
  * </ul>
  *
  * @version $Id$
@@ -204,6 +215,9 @@ public class SVGConverter {
     /** Default height */
     protected static final float DEFAULT_HEIGHT = -1;
 
+    /** Default number of sources transcoded concurrently */
+    protected static final int DEFAULT_THREAD_COUNT = 1;
+
     /** Result type */
     protected DestinationType destinationType = DEFAULT_RESULT_TYPE;
 
@@ -256,6 +270,12 @@ public class SVGConverter {
     /** Controls whether scripts should be run securely or not */
     protected boolean securityOff = false;
 
+    /** Number of sources transcoded concurrently */
+    protected int threadCount = DEFAULT_THREAD_COUNT;
+
+    /** Failures of the last conversion process, in source order */
+    protected List failures = new ArrayList();
+
     /** Sources files or URLs */
     protected List sources = null;
 
@@ -649,6 +669,35 @@ public class SVGConverter {
         return securityOff;
     }
 
+    /**
+     * Sets the number of sources which should be transcoded
+     * concurrently. A value of 1 (the default) converts the sources
+     * one after the other on the calling thread.
+     */
+    public void setThreadCount(int threadCount){
+        if (threadCount < 1){
+            throw new IllegalArgumentException();
+        }
+
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Returns the number of sources transcoded concurrently.
+     */
+    public int getThreadCount(){
+        return threadCount;
+    }
+
+    /**
+     * Returns the failures of the last call to <code>execute</code>, as
+     * a list of {@link Failure}, in source order. A failure is recorded
+     * whether or not the controller decides to proceed.
+     */
+    public List getFailures(){
+        return failures;
+    }
+
     /**
      * Returns true if f is a File. <code>f</code> is found to be a file if
      * it exists and is a file. If it does not exist, it is declared
@@ -671,6 +720,8 @@ public class SVGConverter {
      * @throws SVGConverterException thrown if parameters are not set correctly.
      */
     public void execute() throws SVGConverterException {
+        failures = new ArrayList();
+
         // Compute the set of SVGConverterSource from the source properties
         // (srcDir and srcFile);
         // This throws an exception if there is not at least one src file.
@@ -706,6 +757,11 @@ public class SVGConverter {
             return;
         }
 
+        if (threadCount > 1 && sources.size() > 1) {
+            executeConcurrently(sources, dstFiles, hints);
+            return;
+        }
+
         // Convert files one by one
         for(int i = 0 ; i < sources.size() ; i++) {
             // Get the file from the vector.
@@ -928,6 +984,111 @@ public class SVGConverter {
         return map;
     }
 
+    /**
+     * Converts the sources using a pool of <code>threadCount</code>
+     * worker threads, each of which owns its own transcoder configured
+     * with <code>hints</code>. The controller is only ever invoked from
+     * the calling thread: sources are offered to
+     * <code>proceedWithSourceTranscoding</code> in order, and the
+     * outcome of each conversion is reported in the same order, so
+     * controllers need not be thread safe. If the controller decides
+     * not to proceed after a failure, conversions which have not
+     * completed yet are cancelled and the failure is thrown. Every
+     * failure is also recorded, and returned by {@link #getFailures}
+     * once the batch is over.
+     */
+    protected void executeConcurrently(List sources,
+                                       List dstFiles,
+                                       final Map hints)
+        throws SVGConverterException {
+        int n = sources.size();
+        int nThreads = Math.min(threadCount, n);
+
+        // Transcoders are not thread safe: give each worker its own.
+        final ThreadLocal transcoders = new ThreadLocal() {
+                protected Object initialValue() {
+                    Transcoder t = destinationType.getTranscoder();
+                    t.setTranscodingHints(hints);
+                    return t;
+                }
+            };
+
+        ExecutorService executor
+            = Executors.newFixedThreadPool
+            (nThreads, new DaemonThreadFactory("SVGConverter-worker"));
+
+        // Sources are only submitted a bounded distance ahead of the
+        // one whose outcome is being reported, so that the controller
+        // is not asked about every source before the first completes.
+        int window = nThreads * 2;
+        Future[] tasks = new Future[n];
+        int submitted = 0;
+        try {
+            for (int i = 0; i < n; i++) {
+                while (submitted < n && submitted < i + window) {
+                    final SVGConverterSource source
+                        = (SVGConverterSource)sources.get(submitted);
+                    final File outputFile = (File)dstFiles.get(submitted);
+
+                    createOutputDir(outputFile);
+                    if (controller.proceedWithSourceTranscoding(source,
+                                                                outputFile)) {
+                        tasks[submitted] = executor.submit(new Callable() {
+                                public Object call() {
+                                    Transcoder t
+                                        = (Transcoder)transcoders.get();
+                                    return transcode(source, outputFile, t,
+                                                     true);
+                                }
+                            });
+                    }
+                    submitted++;
+                }
+
+                if (tasks[i] == null) {
+                    continue;
+                }
+
+                SVGConverterSource source = (SVGConverterSource)sources.get(i);
+                File outputFile = (File)dstFiles.get(i);
+                Object result;
+                try {
+                    result = tasks[i].get();
+                } catch (ExecutionException e) {
+                    result = new SVGConverterException
+                        (ERROR_WHILE_RASTERIZING_FILE,
+                         new Object[] {outputFile.getName(),
+                                       e.getCause().getMessage()});
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SVGConverterException
+                        (ERROR_WHILE_RASTERIZING_FILE,
+                         new Object[] {outputFile.getName(), e.toString()},
+                         true /* fatal error */);
+                }
+
+                if (result == Boolean.TRUE) {
+                    controller.onSourceTranscodingSuccess(source, outputFile);
+                } else if (result instanceof SVGConverterException) {
+                    SVGConverterException e = (SVGConverterException)result;
+                    failures.add(new Failure(source, outputFile, e));
+                    boolean proceed = controller.proceedOnSourceTranscodingFailure
+                        (source, outputFile, e.getErrorCode());
+                    if (!proceed) {
+                        throw e;
+                    }
+                }
+            }
+        } finally {
+            for (int i = 0; i < submitted; i++) {
+                if (tasks[i] != null) {
+                    tasks[i].cancel(true);
+                }
+            }
+            executor.shutdown();
+        }
+    }
+
     /**
      * Converts the input image to the result image.
      * with the given transcoder. If a failure happens, the
@@ -940,15 +1101,46 @@ public class SVGConverter {
                              File outputFile,
                              Transcoder transcoder)
         throws SVGConverterException {
-        TranscoderInput input = null;
-        TranscoderOutput output = null;
-        OutputStream outputStream = null;
-
         if (!controller.proceedWithSourceTranscoding(inputFile,
                                                      outputFile)){
             return;
         }
 
+        Object result = transcode(inputFile, outputFile, transcoder, false);
+        if (result == Boolean.TRUE) {
+            controller.onSourceTranscodingSuccess(inputFile, outputFile);
+        } else if (result instanceof SVGConverterException) {
+            SVGConverterException e = (SVGConverterException)result;
+            failures.add(new Failure(inputFile, outputFile, e));
+            boolean proceed = controller.proceedOnSourceTranscodingFailure
+                (inputFile, outputFile, e.getErrorCode());
+            if (!proceed) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Converts the input image to the result image with the given
+     * transcoder, without notifying the controller. This may be
+     * called from a worker thread.
+     *
+     * @param concurrent whether other sources are being converted at
+     *        the same time, in which case the stack trace of a
+     *        transcoder exception is prefixed with the source name.
+     * @return <code>Boolean.TRUE</code> if the conversion succeeded,
+     *         the <code>SVGConverterException</code> describing the
+     *         failure if it did not, or <code>Boolean.FALSE</code> if the
+     *         output could not be closed after transcoding.
+     */
+    protected Object transcode(SVGConverterSource inputFile,
+                               File outputFile,
+                               Transcoder transcoder,
+                               boolean concurrent) {
+        TranscoderInput input = null;
+        TranscoderOutput output = null;
+        OutputStream outputStream = null;
+
         try {
             if (inputFile.isSameAs(outputFile.getPath())) {
                 throw new SVGConverterException(ERROR_SOURCE_SAME_AS_DESTINATION,
@@ -986,37 +1178,23 @@ public class SVGConverter {
 
             output = new TranscoderOutput(outputStream);
         } catch(SVGConverterException e){
-            boolean proceed = controller.proceedOnSourceTranscodingFailure
-                (inputFile, outputFile, e.getErrorCode());
-            if (proceed){
-                return;
-            } else {
-                throw e;
-            }
+            return e;
         }
 
         // Transcode now
-        boolean success = false;
+        Object result = Boolean.TRUE;
         try {
             transcoder.transcode(input, output);
-            success = true;
         } catch(Exception te) {
-            te.printStackTrace();
-            try {
-                outputStream.flush();
-                outputStream.close();
-            } catch(IOException ioe) {}
-
-            // Report error to the controller. If controller decides
-            // to stop, throw an exception
-            boolean proceed = controller.proceedOnSourceTranscodingFailure
-                (inputFile, outputFile, ERROR_WHILE_RASTERIZING_FILE);
-
-            if (!proceed){
-                throw new SVGConverterException(ERROR_WHILE_RASTERIZING_FILE,
-                                                 new Object[] {outputFile.getName(),
-                                                               te.getMessage()});
+            if (concurrent) {
+                // Stack traces from several workers would otherwise be
+                // impossible to attribute.
+                System.err.println(inputFile.getName() + ":");
             }
+            te.printStackTrace();
+            result = new SVGConverterException(ERROR_WHILE_RASTERIZING_FILE,
+                                               new Object[] {outputFile.getName(),
+                                                             te.getMessage()});
         }
 
         // Close streams and clean up.
@@ -1024,12 +1202,12 @@ public class SVGConverter {
             outputStream.flush();
             outputStream.close();
         } catch(IOException ioe) {
-            return;
+            if (result == Boolean.TRUE) {
+                return Boolean.FALSE;
+            }
         }
 
-        if (success){
-            controller.onSourceTranscodingSuccess(inputFile, outputFile);
-        }
+        return result;
     }
 
     /**
@@ -1148,5 +1326,51 @@ public class SVGConverter {
         }
     }
 
+    /**
+     * The failure to convert a source, as returned by
+     * {@link SVGConverter#getFailures}.
+     */
+    public static class Failure {
+        protected SVGConverterSource source;
+        protected File destination;
+        protected SVGConverterException exception;
+
+        public Failure(SVGConverterSource source,
+                       File destination,
+                       SVGConverterException exception){
+            this.source = source;
+            this.destination = destination;
+            this.exception = exception;
+        }
+
+        /**
+         * Returns the source which could not be converted.
+         */
+        public SVGConverterSource getSource(){
+            return source;
+        }
+
+        /**
+         * Returns the file the source should have been converted to.
+         */
+        public File getDestination(){
+            return destination;
+        }
+
+        /**
+         * Returns the error code of the failure.
+         */
+        public String getErrorCode(){
+            return exception.getErrorCode();
+        }
+
+        /**
+         * Returns the exception describing the failure.
+         */
+        public SVGConverterException getException(){
+            return exception;
+        }
+    }
+
 }
 
@@ -30,7 +30,6 @@ import org.apache.batik.anim.dom.SVGOMPathElement;
 import org.apache.batik.anim.values.AnimatableMotionPointValue;
 import org.apache.batik.anim.values.AnimatableValue;
 import org.apache.batik.ext.awt.geom.ExtendedGeneralPath;
-import org.apache.batik.dom.svg.SVGAnimatedPathDataSupport;
 import org.apache.batik.dom.util.XLinkSupport;
 import org.apache.batik.parser.AWTPathProducer;
 import org.apache.batik.parser.AngleHandler;
@@ -163,8 +162,7 @@ public class SVGAnimateMotionElementBridge extends SVGAnimateElementBridge {
                 }
                 SVGOMPathElement pathElt = (SVGOMPathElement) path;
                 AWTPathProducer app = new AWTPathProducer();
-                SVGAnimatedPathDataSupport.handlePathSegList
-                    (pathElt.getPathSegList(), app);
+                pathElt.getAnimatedPathData().handlePathData(app);
                 return (ExtendedGeneralPath) app.getShape();
             }
             n = n.getNextSibling();
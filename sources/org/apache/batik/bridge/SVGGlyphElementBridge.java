@@ -27,8 +27,10 @@ import java.util.ArrayList;
 
 import org.apache.batik.gvt.CompositeGraphicsNode;
 import org.apache.batik.gvt.GraphicsNode;
+import org.apache.batik.gvt.font.AWTGlyphGeometryCache;
 import org.apache.batik.gvt.font.GVTFontFace;
 import org.apache.batik.gvt.font.Glyph;
+import org.apache.batik.gvt.font.GlyphCache;
 import org.apache.batik.gvt.text.TextPaintInfo;
 import org.apache.batik.parser.AWTPathProducer;
 import org.apache.batik.parser.ParseException;
@@ -91,24 +93,36 @@ public class SVGGlyphElementBridge extends AbstractSVGBridge
         String d = glyphElement.getAttributeNS(null, SVG_D_ATTRIBUTE);
         Shape dShape = null;
         if (d.length() != 0) {
-            AWTPathProducer app = new AWTPathProducer();
             // Glyph is supposed to use properties from text element.
-            app.setWindingRule(CSSUtilities.convertFillRule(textElement));
-            try {
-                PathParser pathParser = new PathParser();
-                pathParser.setPathHandler(app);
-                pathParser.parse(d);
-            } catch (ParseException pEx) {
-                throw new BridgeException(ctx, glyphElement,
-                                          pEx, ERR_ATTRIBUTE_VALUE_MALFORMED,
-                                          new Object [] {SVG_D_ATTRIBUTE});
-            } finally {
-                // transform the shape into the correct coord system
-                Shape shape = app.getShape();
-                Shape transformedShape
-                    = scaleTransform.createTransformedShape(shape);
-                dShape = transformedShape;
+            int windingRule = CSSUtilities.convertFillRule(textElement);
+            // The outline only depends on the path data and the winding
+            // rule, so it is shared by the documents using the same font.
+            GlyphCache glyphCache = GlyphCache.getDefault();
+            GlyphCache.Key key =
+                new GlyphCache.Key(d, new Integer(windingRule), 0);
+            AWTGlyphGeometryCache.Value v = glyphCache.get(key);
+            Shape shape;
+            if (v != null) {
+                shape = v.getOutline();
+            } else {
+                AWTPathProducer app = new AWTPathProducer();
+                app.setWindingRule(windingRule);
+                try {
+                    PathParser pathParser = new PathParser();
+                    pathParser.setPathHandler(app);
+                    pathParser.parse(d);
+                } catch (ParseException pEx) {
+                    throw new BridgeException(ctx, glyphElement,
+                                              pEx,
+                                              ERR_ATTRIBUTE_VALUE_MALFORMED,
+                                              new Object [] {SVG_D_ATTRIBUTE});
+                }
+                shape = app.getShape();
+                glyphCache.put(key, new AWTGlyphGeometryCache.Value
+                               (shape, shape.getBounds2D()));
             }
+            // transform the shape into the correct coord system
+            dShape = scaleTransform.createTransformedShape(shape);
         }
 
         // process any glyph children
@@ -27,14 +27,12 @@ import org.apache.batik.anim.dom.SVGOMAnimatedPathData;
 import org.apache.batik.anim.dom.SVGOMPathElement;
 import org.apache.batik.css.engine.SVGCSSEngine;
 import org.apache.batik.dom.svg.LiveAttributeException;
-import org.apache.batik.dom.svg.SVGAnimatedPathDataSupport;
 import org.apache.batik.dom.svg.SVGPathContext;
 import org.apache.batik.ext.awt.geom.PathLength;
 import org.apache.batik.gvt.ShapeNode;
 import org.apache.batik.parser.AWTPathProducer;
 
 import org.w3c.dom.Element;
-import org.w3c.dom.svg.SVGPathSegList;
 
 /**
  * Bridge class for the &lt;path> element.
@@ -87,9 +85,8 @@ public class SVGPathElementBridge extends SVGDecoratedShapeElementBridge
             // 'd' attribute - required
             SVGOMAnimatedPathData _d = pe.getAnimatedPathData();
             _d.check();
-            SVGPathSegList p = _d.getAnimatedPathSegList();
             app.setWindingRule(CSSUtilities.convertFillRule(e));
-            SVGAnimatedPathDataSupport.handlePathSegList(p, app);
+            _d.handleAnimatedPathData(app);
         } catch (LiveAttributeException ex) {
             throw new BridgeException(ctx, ex);
         } finally {
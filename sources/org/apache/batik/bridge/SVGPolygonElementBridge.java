@@ -30,8 +30,6 @@ import org.apache.batik.gvt.ShapeNode;
 import org.apache.batik.parser.AWTPolygonProducer;
 
 import org.w3c.dom.Element;
-import org.w3c.dom.svg.SVGPoint;
-import org.w3c.dom.svg.SVGPointList;
 
 /**
  * Bridge class for the &lt;polygon> element.
@@ -81,17 +79,15 @@ public class SVGPolygonElementBridge extends SVGDecoratedShapeElementBridge {
         try {
             SVGOMAnimatedPoints _points = pe.getSVGOMAnimatedPoints();
             _points.check();
-            SVGPointList pl = _points.getAnimatedPoints();
-            int size = pl.getNumberOfItems();
-            if (size == 0) {
+            float[] pts = _points.getAnimatedPointValues();
+            if (pts.length == 0) {
                 shapeNode.setShape(DEFAULT_SHAPE);
             } else {
                 AWTPolygonProducer app = new AWTPolygonProducer();
                 app.setWindingRule(CSSUtilities.convertFillRule(e));
                 app.startPoints();
-                for (int i = 0; i < size; i++) {
-                    SVGPoint p = pl.getItem(i);
-                    app.point(p.getX(), p.getY());
+                for (int i = 0; i + 1 < pts.length; i += 2) {
+                    app.point(pts[i], pts[i + 1]);
                 }
                 app.endPoints();
                 shapeNode.setShape(app.getShape());
@@ -0,0 +1,43 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.css.engine;
+
+import org.w3c.dom.NamedNodeMap;
+
+/**
+ * A {@link NamedNodeMap} of attributes which gives the name and the value
+ * of its items without creating their <code>Attr</code> nodes, so that the
+ * CSS engine can read the presentation attributes of an element.
+ *
+ * @version $Id$
+ */
+public interface CSSAttributeMap extends NamedNodeMap {
+
+    /**
+     * Returns the qualified name of the attribute at the given index, or
+     * null if the index is out of range.
+     */
+    String getItemName(int index);
+
+    /**
+     * Returns the value of the attribute at the given index, or null if
+     * the index is out of range.
+     */
+    String getItemValue(int index);
+}
@@ -756,14 +756,21 @@ public abstract class CSSEngine {
                     };
 
                 NamedNodeMap attrs = elt.getAttributes();
+                CSSAttributeMap cam = (attrs instanceof CSSAttributeMap)
+                    ? (CSSAttributeMap) attrs
+                    : null;
                 int len = attrs.getLength();
                 for (int i = 0; i < len; i++) {
-                    Node attr = attrs.item(i);
-                    String an = attr.getNodeName();
+                    String an = (cam != null)
+                        ? cam.getItemName(i)
+                        : attrs.item(i).getNodeName();
                     if (nonCSSPresentationalHints.contains(an)) {
+                        String av = (cam != null)
+                            ? cam.getItemValue(i)
+                            : attrs.item(i).getNodeValue();
                         try {
                             LexicalUnit lu;
-                            lu = parser.parsePropertyValue(attr.getNodeValue());
+                            lu = parser.parsePropertyValue(av);
                             ph.property(an, lu, false);
                         } catch (Exception e) {
                             String m = e.getMessage();
@@ -772,7 +779,7 @@ public abstract class CSSEngine {
                                         documentURI.toString());
                             String s = Messages.formatMessage
                                 ("property.syntax.error.at",
-                                 new Object[] { u, an, attr.getNodeValue(), m});
+                                 new Object[] { u, an, av, m});
                             DOMException de = new DOMException(DOMException.SYNTAX_ERR, s);
                             if (userAgent == null) throw de;
                             userAgent.displayError(de);
@@ -1306,19 +1313,19 @@ public abstract class CSSEngine {
                                     StyleSheet ss,
                                     Element elt,
                                     String pseudo) {
-        int len = ss.getSize();
+        // Only the selectors that can match the element, according to
+        // the id, class or name they require, are tested.
+        SelectorIndex.Entry[] candidates =
+            ss.getSelectorIndex().getCandidates(elt);
+        int len = candidates.length;
         for (int i = 0; i < len; i++) {
-            Rule r = ss.getRule(i);
+            Rule r = candidates[i].getRule();
             switch (r.getType()) {
             case StyleRule.TYPE:
-                StyleRule style = (StyleRule)r;
-                SelectorList sl = style.getSelectorList();
-                int slen = sl.getLength();
-                for (int j = 0; j < slen; j++) {
-                    ExtendedSelector s = (ExtendedSelector)sl.item(j);
-                    if (s.match(elt, pseudo)) {
-                        rules.add(style);
-                    }
+                ExtendedSelector s =
+                    (ExtendedSelector)candidates[i].getSelector();
+                if (s.match(elt, pseudo)) {
+                    rules.add(r);
                 }
                 break;
 
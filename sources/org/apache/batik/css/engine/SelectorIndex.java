@@ -0,0 +1,362 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.css.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.batik.css.engine.sac.AbstractDescendantSelector;
+import org.apache.batik.css.engine.sac.AbstractSiblingSelector;
+import org.apache.batik.css.engine.sac.CSSAndCondition;
+import org.apache.batik.css.engine.sac.CSSClassCondition;
+import org.apache.batik.css.engine.sac.CSSConditionalSelector;
+import org.apache.batik.css.engine.sac.CSSElementSelector;
+import org.apache.batik.css.engine.sac.CSSIdCondition;
+import org.w3c.css.sac.Condition;
+import org.w3c.css.sac.Selector;
+import org.w3c.css.sac.SelectorList;
+import org.w3c.dom.Element;
+
+/**
+ * An index of the selectors of the rules of a style sheet, keyed by the
+ * id, class or element name required by their rightmost simple selector.
+ * Given an element, it returns the selectors that may match it, so that
+ * only those need to be tested.  Selectors which do not require any of
+ * these, as well as @media and @import rules, are kept in a universal
+ * bucket that is returned for every element.
+ *
+ * @version $Id$
+ */
+public class SelectorIndex {
+
+    /**
+     * The selectors keyed by the id they require.
+     */
+    protected Map ids = new HashMap();
+
+    /**
+     * The selectors keyed by a class they require.
+     */
+    protected Map classes = new HashMap();
+
+    /**
+     * The selectors keyed by the element name they require.
+     */
+    protected Map names = new HashMap();
+
+    /**
+     * The selectors that may match any element, and the @media and
+     * @import rules.
+     */
+    protected Entry[] universal;
+
+    /**
+     * Creates a new SelectorIndex for the rules of the given style
+     * sheet.  The nested @media and @import rules are not indexed here,
+     * since they are style sheets with their own index.
+     */
+    public SelectorIndex(StyleSheet ss) {
+        List univ = new ArrayList();
+        int order = 0;
+        int len = ss.getSize();
+        for (int i = 0; i < len; i++) {
+            Rule r = ss.getRule(i);
+            switch (r.getType()) {
+            case StyleRule.TYPE:
+                SelectorList sl = ((StyleRule)r).getSelectorList();
+                int slen = sl.getLength();
+                for (int j = 0; j < slen; j++) {
+                    Selector s = sl.item(j);
+                    Entry e = new Entry(order++, r, s);
+                    Condition c = getCondition(s);
+                    String key;
+                    if ((key = getId(c)) != null) {
+                        add(ids, key, e);
+                    } else if ((key = getClass(c)) != null) {
+                        add(classes, key, e);
+                    } else if ((key = getName(s)) != null) {
+                        add(names, key, e);
+                    } else {
+                        univ.add(e);
+                    }
+                }
+                break;
+
+            case MediaRule.TYPE:
+            case ImportRule.TYPE:
+                univ.add(new Entry(order++, r, null));
+                break;
+            }
+        }
+        universal = (Entry[])univ.toArray(new Entry[univ.size()]);
+        toArrays(ids);
+        toArrays(classes);
+        toArrays(names);
+    }
+
+    /**
+     * Returns the entries that may match the given element, in the
+     * order of the rules and selectors in the style sheet.
+     */
+    public Entry[] getCandidates(Element elt) {
+        List buckets = new ArrayList(4);
+        int n = universal.length;
+        if (n > 0) {
+            buckets.add(universal);
+        }
+        n += addBucket(buckets, names, getName(elt));
+        if (elt instanceof CSSStylableElement) {
+            CSSStylableElement se = (CSSStylableElement)elt;
+            n += addBucket(buckets, ids, se.getXMLId());
+            if (!classes.isEmpty()) {
+                String cls = se.getCSSClass();
+                if (cls != null) {
+                    n += addClassBuckets(buckets, cls);
+                }
+            }
+        }
+
+        if (buckets.size() == 1) {
+            return (Entry[])buckets.get(0);
+        }
+        Entry[] result = new Entry[n];
+        int off = 0;
+        for (int i = 0; i < buckets.size(); i++) {
+            Entry[] b = (Entry[])buckets.get(i);
+            System.arraycopy(b, 0, result, off, b.length);
+            off += b.length;
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Adds the bucket for the given key, if any, to the list and returns
+     * its size.
+     */
+    protected int addBucket(List buckets, Map m, String key) {
+        if (key == null || m.isEmpty()) {
+            return 0;
+        }
+        Entry[] b = (Entry[])m.get(key);
+        if (b == null) {
+            return 0;
+        }
+        buckets.add(b);
+        return b.length;
+    }
+
+    /**
+     * Adds the buckets of the classes listed in the given class attribute
+     * value, splitting it as CSSClassCondition does, and returns the
+     * number of entries added.
+     */
+    protected int addClassBuckets(List buckets, String cls) {
+        int n = 0;
+        int len = cls.length();
+        int start = 0;
+        for (int i = 0; i <= len; i++) {
+            if (i < len && !Character.isSpaceChar(cls.charAt(i))) {
+                continue;
+            }
+            if (i > start) {
+                Entry[] b = (Entry[])classes.get(cls.substring(start, i));
+                if (b != null && !buckets.contains(b)) {
+                    buckets.add(b);
+                    n += b.length;
+                }
+            }
+            start = i + 1;
+        }
+        return n;
+    }
+
+    /**
+     * Adds an entry to the bucket for the given key.
+     */
+    protected static void add(Map m, String key, Entry e) {
+        List b = (List)m.get(key);
+        if (b == null) {
+            b = new ArrayList(4);
+            m.put(key, b);
+        }
+        b.add(e);
+    }
+
+    /**
+     * Turns the buckets of the given map into arrays, since they are
+     * read far more often than built.
+     */
+    protected static void toArrays(Map m) {
+        Iterator it = m.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry me = (Map.Entry)it.next();
+            List b = (List)me.getValue();
+            me.setValue(b.toArray(new Entry[b.size()]));
+        }
+    }
+
+    /**
+     * Returns the name the given element is matched against by element
+     * selectors.
+     */
+    protected static String getName(Element e) {
+        if (e.getPrefix() == null) {
+            return e.getNodeName();
+        }
+        return e.getLocalName();
+    }
+
+    /**
+     * Returns the condition of the rightmost simple selector of the given
+     * selector, or null.
+     */
+    protected static Condition getCondition(Selector s) {
+        s = getRightmost(s);
+        if (s instanceof CSSConditionalSelector) {
+            return ((CSSConditionalSelector)s).getCondition();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the element name required by the rightmost simple selector
+     * of the given selector, or null.
+     */
+    protected static String getName(Selector s) {
+        s = getRightmost(s);
+        if (s instanceof CSSConditionalSelector) {
+            s = ((CSSConditionalSelector)s).getSimpleSelector();
+        }
+        if (s instanceof CSSElementSelector) {
+            return ((CSSElementSelector)s).getLocalName();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the simple selector an element must match for the given
+     * selector to match it.
+     */
+    protected static Selector getRightmost(Selector s) {
+        if (s instanceof AbstractDescendantSelector) {
+            return ((AbstractDescendantSelector)s).getSimpleSelector();
+        }
+        if (s instanceof AbstractSiblingSelector) {
+            return ((AbstractSiblingSelector)s).getSiblingSelector();
+        }
+        return s;
+    }
+
+    /**
+     * Returns the id required by the given condition, or null.
+     */
+    protected static String getId(Condition c) {
+        if (c instanceof CSSIdCondition) {
+            return ((CSSIdCondition)c).getValue();
+        }
+        if (c instanceof CSSAndCondition) {
+            CSSAndCondition ac = (CSSAndCondition)c;
+            String id = getId(ac.getFirstCondition());
+            return (id != null) ? id : getId(ac.getSecondCondition());
+        }
+        return null;
+    }
+
+    /**
+     * Returns a class required by the given condition, or null.  Classes
+     * that cannot be a single token of a class attribute are ignored.
+     */
+    protected static String getClass(Condition c) {
+        if (c instanceof CSSClassCondition) {
+            String cls = ((CSSClassCondition)c).getValue();
+            if (cls == null || cls.length() == 0) {
+                return null;
+            }
+            for (int i = 0; i < cls.length(); i++) {
+                if (Character.isSpaceChar(cls.charAt(i))) {
+                    return null;
+                }
+            }
+            return cls;
+        }
+        if (c instanceof CSSAndCondition) {
+            CSSAndCondition ac = (CSSAndCondition)c;
+            String cls = getClass(ac.getFirstCondition());
+            return (cls != null) ? cls : getClass(ac.getSecondCondition());
+        }
+        return null;
+    }
+
+    /**
+     * A selector of a style rule, or a nested @media or @import rule.
+     */
+    public static class Entry implements Comparable {
+
+        /**
+         * The position of the entry in the style sheet.
+         */
+        protected int order;
+
+        /**
+         * The rule.
+         */
+        protected Rule rule;
+
+        /**
+         * The selector, or null for @media and @import rules.
+         */
+        protected Selector selector;
+
+        /**
+         * Creates a new Entry.
+         */
+        public Entry(int order, Rule rule, Selector selector) {
+            this.order = order;
+            this.rule = rule;
+            this.selector = selector;
+        }
+
+        /**
+         * Returns the rule.
+         */
+        public Rule getRule() {
+            return rule;
+        }
+
+        /**
+         * Returns the selector, or null for @media and @import rules.
+         */
+        public Selector getSelector() {
+            return selector;
+        }
+
+        /**
+         * Compares the positions of two entries in the style sheet.
+         */
+        public int compareTo(Object o) {
+            int oo = ((Entry)o).order;
+            return (order < oo) ? -1 : ((order == oo) ? 0 : 1);
+        }
+    }
+}
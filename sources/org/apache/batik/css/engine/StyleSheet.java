@@ -58,6 +58,11 @@ public class StyleSheet {
      */
     protected String title;
 
+    /**
+     * The index of the selectors of the rules, built on demand.
+     */
+    protected SelectorIndex selectorIndex;
+
     /**
      * Sets the media to use to compute the styles.
      */
@@ -134,6 +139,7 @@ public class StyleSheet {
     public void clear() {
         size = 0;
         rules = new Rule[10];
+        selectorIndex = null;
     }
 
     /**
@@ -146,6 +152,20 @@ public class StyleSheet {
             rules = t;
         }
         rules[size++] = r;
+        selectorIndex = null;
+    }
+
+    /**
+     * Returns the index of the selectors of the rules of this
+     * style-sheet.  It is rebuilt after the style-sheet is modified.
+     */
+    public SelectorIndex getSelectorIndex() {
+        SelectorIndex idx = selectorIndex;
+        if (idx == null) {
+            idx = new SelectorIndex(this);
+            selectorIndex = idx;
+        }
+        return idx;
     }
 
     /**
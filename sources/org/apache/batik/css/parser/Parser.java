@@ -21,6 +21,7 @@ package org.apache.batik.css.parser;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.util.Locale;
 import java.util.MissingResourceException;
 import java.util.StringTokenizer;
@@ -29,6 +30,7 @@ import org.apache.batik.i18n.Localizable;
 import org.apache.batik.i18n.LocalizableSupport;
 import org.apache.batik.util.CSSConstants;
 import org.apache.batik.util.ParsedURL;
+import org.apache.batik.util.io.StreamNormalizingReader;
 import org.w3c.css.sac.CSSException;
 import org.w3c.css.sac.CSSParseException;
 import org.w3c.css.sac.Condition;
@@ -1508,6 +1510,11 @@ public class Parser implements ExtendedParser, Localizable {
 
         try {
             ParsedURL purl = new ParsedURL(uri);
+            ByteBuffer bb = purl.openBuffer();
+            if (bb != null) {
+                return new Scanner(new StreamNormalizingReader
+                                   (bb, source.getEncoding()));
+            }
             is = purl.openStreamRaw(CSSConstants.CSS_MIME_TYPE);
             return new Scanner(is, source.getEncoding());
         } catch (IOException e) {
@@ -78,11 +78,16 @@ public class Scanner {
 
     /**
      * Creates a new Scanner object.
-     * @param r The reader to scan.
+     * @param r The reader to scan.  A {@link NormalizingReader} is scanned
+     *        directly.
      */
     public Scanner(Reader r) throws ParseException {
         try {
-            reader = new StreamNormalizingReader(r);
+            if (r instanceof NormalizingReader) {
+                reader = (NormalizingReader) r;
+            } else {
+                reader = new StreamNormalizingReader(r);
+            }
             current = nextChar();
         } catch (IOException e) {
             throw new ParseException(e);
@@ -36,6 +36,7 @@ import org.apache.batik.dom.events.DocumentEventSupport;
 import org.apache.batik.dom.events.EventSupport;
 import org.apache.batik.dom.traversal.TraversalSupport;
 import org.apache.batik.dom.util.DOMUtilities;
+import org.apache.batik.dom.util.SymbolTable;
 import org.apache.batik.dom.xbl.GenericXBLManager;
 import org.apache.batik.dom.xbl.XBLManager;
 import org.apache.batik.i18n.Localizable;
@@ -185,6 +186,16 @@ public abstract class AbstractDocument
      */
     protected transient Map elementsById;
 
+    /**
+     * The element and attribute names of this document.
+     */
+    protected transient SymbolTable nameTable;
+
+    /**
+     * The shared attribute values and texts of this document.
+     */
+    protected transient SymbolTable valueTable;
+
     /**
      * Creates a new document.
      */
@@ -258,6 +269,40 @@ public abstract class AbstractDocument
         eventsEnabled = b;
     }
 
+    /**
+     * Returns the instance of the given element or attribute name shared
+     * by this document.  It is the instance String.intern() returns.
+     */
+    public String internName(String name) {
+        if (nameTable == null) {
+            nameTable = new SymbolTable(true);
+        }
+        return nameTable.get(name);
+    }
+
+    /**
+     * Returns the instance of the given attribute value or text shared by
+     * this document.
+     */
+    public String internValue(String value) {
+        if (valueTable == null) {
+            valueTable = new SymbolTable(false);
+        }
+        return valueTable.get(value);
+    }
+
+    /**
+     * Returns the instance of the attribute value or text made of the
+     * given characters shared by this document.  No string is created if
+     * the value is already shared.
+     */
+    public String internValue(char[] ch, int off, int len) {
+        if (valueTable == null) {
+            valueTable = new SymbolTable(false);
+        }
+        return valueTable.get(ch, off, len);
+    }
+
     /**
      * <b>DOM</b>: Implements {@link org.w3c.dom.Node#getNodeName()}.
      * @return "#document".
@@ -451,6 +496,15 @@ public abstract class AbstractDocument
      */
     public abstract boolean isId(Attr node);
 
+    /**
+     * Returns whether the attribute with the given namespace URI and
+     * qualified name is an ID attribute.  This implementation creates an
+     * attribute node to ask {@link #isId(Attr)}.
+     */
+    public boolean isId(String namespaceURI, String qualifiedName) {
+        return isId(createAttributeNS(namespaceURI, qualifiedName));
+    }
+
     /**
      * <b>DOM</b>: Implements {@link
      * org.w3c.dom.Document#getElementById(String)}.
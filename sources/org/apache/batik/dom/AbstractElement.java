@@ -20,6 +20,7 @@ package org.apache.batik.dom;
 
 import java.io.Serializable;
 
+import org.apache.batik.css.engine.CSSAttributeMap;
 import org.apache.batik.dom.events.DOMMutationEvent;
 import org.apache.batik.dom.util.DOMUtilities;
 import org.apache.batik.util.XMLConstants;
@@ -44,7 +45,9 @@ public abstract class AbstractElement
     implements Element, ElementTraversal {
 
     /**
-     * The attributes of this element.
+     * The attributes of this element.  The attributes set while the
+     * document has no event listener are stored as strings, and their
+     * <code>Attr</code> nodes are only created when asked for.
      */
     protected NamedNodeMap attributes;
 
@@ -113,18 +116,15 @@ public abstract class AbstractElement
      * <b>DOM</b>: Implements {@link org.w3c.dom.Element#hasAttribute(String)}.
      */
     public boolean hasAttribute( String name ) {
-        return attributes != null && attributes.getNamedItem( name ) != null;
+        return name != null && getAttributeValueNS( null, name ) != null;
     }
 
     /**
      * <b>DOM</b>: Implements {@link org.w3c.dom.Element#getAttribute(String)}.
      */
     public String getAttribute(String name) {
-        if ( attributes == null ) {
-          return "";
-        }
-        Attr attr = (Attr)attributes.getNamedItem( name );
-        return ( attr == null ) ? "" : attr.getValue();
+        String value = (name == null) ? null : getAttributeValueNS(null, name);
+        return ( value == null ) ? "" : value;
     }
 
     /**
@@ -135,6 +135,12 @@ public abstract class AbstractElement
         if (attributes == null) {
             attributes = createAttributes();
         }
+        if (attributes instanceof NamedNodeHashMap
+                && !getCurrentDocument().getEventsEnabled()
+                && ((NamedNodeHashMap)attributes).setValue(null, name,
+                                                           value)) {
+            return;
+        }
         Attr attr = getAttributeNode(name);
         if (attr == null) {
             attr = getOwnerDocument().createAttribute(name);
@@ -219,11 +225,7 @@ public abstract class AbstractElement
      * org.w3c.dom.Element#hasAttributeNS(String,String)}.
      */
     public boolean hasAttributeNS( String namespaceURI, String localName ) {
-        if ( namespaceURI != null && namespaceURI.length() == 0 ) {
-            namespaceURI = null;
-        }
-        return attributes != null &&
-                attributes.getNamedItemNS( namespaceURI, localName ) != null;
+        return getAttributeValueNS( namespaceURI, localName ) != null;
     }
 
     /**
@@ -231,14 +233,30 @@ public abstract class AbstractElement
      * org.w3c.dom.Element#getAttributeNS(String,String)}.
      */
     public String getAttributeNS( String namespaceURI, String localName ) {
+        String value = getAttributeValueNS( namespaceURI, localName );
+        return ( value == null ) ? "" : value;
+    }
+
+    /**
+     * Returns the value of the given attribute, or null if this element
+     * has no such attribute.  Unlike {@link
+     * #getAttributeNodeNS(String,String)}, this does not create the
+     * <code>Attr</code> node of an attribute stored as a string.
+     */
+    public String getAttributeValueNS( String namespaceURI,
+                                       String localName ) {
         if ( attributes == null ) {
-            return "";
+            return null;
         }
         if ( namespaceURI != null && namespaceURI.length() == 0 ) {
             namespaceURI = null;
         }
+        if ( attributes instanceof NamedNodeHashMap ) {
+            return ( (NamedNodeHashMap)attributes ).getValue( namespaceURI,
+                                                              localName );
+        }
         Attr attr = (Attr)attributes.getNamedItemNS( namespaceURI, localName );
-        return ( attr == null ) ? "" : attr.getValue();
+        return ( attr == null ) ? null : attr.getValue();
     }
 
     /**
@@ -255,6 +273,13 @@ public abstract class AbstractElement
         if (namespaceURI != null && namespaceURI.length() == 0) {
             namespaceURI = null;
         }
+        if (attributes instanceof NamedNodeHashMap
+                && !getCurrentDocument().getEventsEnabled()
+                && ((NamedNodeHashMap)attributes).setValue(namespaceURI,
+                                                           qualifiedName,
+                                                           value)) {
+            return;
+        }
         Attr attr = getAttributeNodeNS(namespaceURI, qualifiedName);
         if (attr == null) {
             attr = getOwnerDocument().createAttributeNS(namespaceURI,
@@ -504,21 +529,7 @@ public abstract class AbstractElement
      */
     protected Node export(Node n, AbstractDocument d) {
         super.export(n, d);
-        AbstractElement ae = (AbstractElement)n;
-        if (attributes != null) {
-            NamedNodeMap map = attributes;
-            for (int i = map.getLength() - 1; i >= 0; i--) {
-                AbstractAttr aa = (AbstractAttr)map.item(i);
-                if (aa.getSpecified()) {
-                    Attr attr = (Attr)aa.deepExport(aa.cloneNode(false), d);
-                    if (aa instanceof AbstractAttrNS) {
-                        ae.setAttributeNodeNS(attr);
-                    } else {
-                        ae.setAttributeNode(attr);
-                    }
-                }
-            }
-        }
+        copyAttributesInto((AbstractElement)n, d);
         return n;
     }
 
@@ -529,21 +540,7 @@ public abstract class AbstractElement
      */
     protected Node deepExport(Node n, AbstractDocument d) {
         super.deepExport(n, d);
-        AbstractElement ae = (AbstractElement)n;
-        if (attributes != null) {
-            NamedNodeMap map = attributes;
-            for (int i = map.getLength() - 1; i >= 0; i--) {
-                AbstractAttr aa = (AbstractAttr)map.item(i);
-                if (aa.getSpecified()) {
-                    Attr attr = (Attr)aa.deepExport(aa.cloneNode(false), d);
-                    if (aa instanceof AbstractAttrNS) {
-                        ae.setAttributeNodeNS(attr);
-                    } else {
-                        ae.setAttributeNode(attr);
-                    }
-                }
-            }
-        }
+        copyAttributesInto((AbstractElement)n, d);
         return n;
     }
 
@@ -553,18 +550,7 @@ public abstract class AbstractElement
      */
     protected Node copyInto(Node n) {
         super.copyInto(n);
-        AbstractElement ae = (AbstractElement)n;
-        if (attributes != null) {
-            NamedNodeMap map = attributes;
-            for (int i = map.getLength() - 1; i >= 0; i--) {
-                AbstractAttr aa = (AbstractAttr)map.item(i).cloneNode(true);
-                if (aa instanceof AbstractAttrNS) {
-                    ae.setAttributeNodeNS(aa);
-                } else {
-                    ae.setAttributeNode(aa);
-                }
-            }
-        }
+        copyAttributesInto((AbstractElement)n, null);
         return n;
     }
 
@@ -574,19 +560,78 @@ public abstract class AbstractElement
      */
     protected Node deepCopyInto(Node n) {
         super.deepCopyInto(n);
-        AbstractElement ae = (AbstractElement)n;
-        if (attributes != null) {
-            NamedNodeMap map = attributes;
-            for (int i = map.getLength() - 1; i >= 0; i--) {
-                AbstractAttr aa = (AbstractAttr)map.item(i).cloneNode(true);
-                if (aa instanceof AbstractAttrNS) {
-                    ae.setAttributeNodeNS(aa);
-                } else {
-                    ae.setAttributeNode(aa);
+        copyAttributesInto((AbstractElement)n, null);
+        return n;
+    }
+
+    /**
+     * Copies the attributes of this element into the given element.  The
+     * attributes which have no node yet are copied as strings, without
+     * creating their nodes.  The others are cloned, or exported to the
+     * given document if it is not null, the unspecified ones being then
+     * skipped.
+     * @param ae The element to copy the attributes into.
+     * @param d The destination document, or null.
+     */
+    protected void copyAttributesInto(AbstractElement ae, AbstractDocument d) {
+        if (attributes == null) {
+            return;
+        }
+        NamedNodeHashMap hmap = (attributes instanceof NamedNodeHashMap)
+            ? (NamedNodeHashMap)attributes
+            : null;
+        for (int i = attributes.getLength() - 1; i >= 0; i--) {
+            AbstractAttr aa;
+            if (hmap == null) {
+                aa = (AbstractAttr)attributes.item(i);
+            } else {
+                Entry e = hmap.getEntry(i);
+                if (e.value == null) {
+                    ae.copyAttributeValue(e.namespaceURI, e.qualifiedName,
+                                          e.text);
+                    continue;
                 }
+                aa = (AbstractAttr)e.value;
+            }
+            Attr attr;
+            if (d == null) {
+                attr = (Attr)aa.cloneNode(true);
+            } else if (aa.getSpecified()) {
+                attr = (Attr)aa.deepExport(aa.cloneNode(false), d);
+            } else {
+                continue;
+            }
+            if (aa instanceof AbstractAttrNS) {
+                ae.setAttributeNodeNS(attr);
+            } else {
+                ae.setAttributeNode(attr);
             }
         }
-        return n;
+    }
+
+    /**
+     * Sets the value of an attribute copied from another element, as a
+     * string if possible.  Otherwise a new node is made for it, which
+     * replaces the unspecified attribute of the same name if any.
+     * @param ns The attribute's namespace.
+     * @param qname The attribute's qualified name.
+     * @param value The attribute's value.
+     */
+    protected void copyAttributeValue(String ns, String qname, String value) {
+        if (attributes == null) {
+            attributes = createAttributes();
+        }
+        if (attributes instanceof NamedNodeHashMap
+                && ((NamedNodeHashMap)attributes).setValue(ns, qname, value)) {
+            return;
+        }
+        Attr attr = getOwnerDocument().createAttributeNS(ns, qname);
+        attr.setValue(value);
+        if (attr instanceof AbstractAttrNS) {
+            setAttributeNodeNS(attr);
+        } else {
+            setAttributeNode(attr);
+        }
     }
 
     /**
@@ -662,6 +707,19 @@ public abstract class AbstractElement
         }
     }
 
+    /**
+     * Returns whether a change of the given attribute, made while no event
+     * listener can see it, must still be notified to this element with
+     * {@link #fireDOMAttrModifiedEvent}.  ID attributes are, so that the
+     * document can find their element.
+     * @param ns The attribute's namespace.
+     * @param ln The attribute's local name.
+     * @param qname The attribute's qualified name.
+     */
+    protected boolean isAttrObserved(String ns, String ln, String qname) {
+        return ownerDocument.isId(ns, qname);
+    }
+
     /**
      * Called when an attribute has been added.
      */
@@ -749,10 +807,15 @@ public abstract class AbstractElement
     /**
      * An implementation of the {@link org.w3c.dom.NamedNodeMap}.
      *
+     * <br>The entries added by {@link #setValue(String,String,String)}
+     * hold the name and the value of their attribute, and create its node
+     * when it is first asked for.
+     *
      * <br>This Map is not Thread-safe, concurrent updates or reading while updating may give
      * unexpected results.
      */
-    public class NamedNodeHashMap implements NamedNodeMap, Serializable {
+    public class NamedNodeHashMap
+        implements NamedNodeMap, CSSAttributeMap, Serializable {
 
         /**
          * The initial capacity
@@ -809,6 +872,36 @@ public abstract class AbstractElement
          * <b>DOM</b>: Implements {@link org.w3c.dom.NamedNodeMap#item(int)}.
          */
         public Node item( int index ) {
+            Entry e = getEntry( index );
+            return ( e == null ) ? null : getNode( e );
+        }
+
+        /**
+         * Implements {@link CSSAttributeMap#getItemName(int)}.
+         */
+        public String getItemName( int index ) {
+            Entry e = getEntry( index );
+            if ( e == null ) {
+                return null;
+            }
+            return ( e.value == null ) ? e.qualifiedName : e.value.getNodeName();
+        }
+
+        /**
+         * Implements {@link CSSAttributeMap#getItemValue(int)}.
+         */
+        public String getItemValue( int index ) {
+            Entry e = getEntry( index );
+            if ( e == null ) {
+                return null;
+            }
+            return ( e.value == null ) ? e.text : e.value.getNodeValue();
+        }
+
+        /**
+         * Returns the entry at the given index, or null.
+         */
+        protected Entry getEntry( int index ) {
             if ( index < 0 || index >= count ) {
                 return null;
             }
@@ -820,7 +913,7 @@ public abstract class AbstractElement
                 }
                 do {
                     if ( j++ == index ) {
-                        return e.value;
+                        return e;
                     }
                     e = e.next;
                 } while ( e != null );
@@ -951,12 +1044,135 @@ public abstract class AbstractElement
          * @return the value or null
          */
         protected Node get( String ns, String nm ) {
+            Entry e = getEntry( ns, nm );
+            return ( e == null ) ? null : getNode( e );
+        }
+
+        /**
+         * Returns the value of the given attribute, without creating its
+         * node.
+         *
+         * @return the value or null
+         */
+        public String getValue( String ns, String nm ) {
+            Entry e = getEntry( ns, nm );
+            if ( e == null ) {
+                return null;
+            }
+            return ( e.value == null ) ? e.text : e.value.getNodeValue();
+        }
+
+        /**
+         * Sets the value of the given attribute, storing it as a string if
+         * it has no node yet.  This must only be used while no event
+         * listener can see the change: only the IDs and the attributes
+         * the element observes (see {@link #isAttrObserved}) are notified,
+         * with a node which is not kept.
+         *
+         * @return false if the attribute has a node, which must be used
+         *         to change its value, or if its name is not valid, so
+         *         that creating its node reports the error.
+         */
+        public boolean setValue( String ns, String qname, String value ) {
+            if ( isReadonly() ) {
+                throw createDOMException
+                        ( DOMException.NO_MODIFICATION_ALLOWED_ERR,
+                                "readonly.node.map",
+                                new Object[]{} );
+            }
+            AbstractDocument doc = getCurrentDocument();
+            if ( doc.getStrictErrorChecking() && !isValidName( ns, qname ) ) {
+                return false;
+            }
+            qname = doc.internName( qname );
+            String nm = qname;
+            if ( ns != null ) {
+                ns = doc.internName( ns );
+                nm = doc.internName( DOMUtilities.getLocalName( qname ) );
+            }
+            Entry e = getEntry( ns, nm );
+            if ( e != null && e.value != null ) {
+                return false;
+            }
+            if ( value == null ) {
+                value = "";
+            }
+            String old = "";
+            short change = MutationEvent.ADDITION;
+            if ( e == null ) {
+                int hash = hashCode( ns, nm ) & 0x7FFFFFFF;
+                int len = table.length;
+                if ( count++ >= ( len - ( len >> 2 ) ) ) {
+                    // more than 75% loaded: grow
+                    rehash();
+                }
+                int index = hash % table.length;
+                e = new Entry( hash, ns, nm, null, table[ index ] );
+                table[ index ] = e;
+            } else {
+                old = e.text;
+                change = MutationEvent.MODIFICATION;
+            }
+            e.qualifiedName = qname;
+            e.text = value;
+            if ( isAttrObserved( ns, nm, qname ) ) {
+                AbstractAttr attr = (AbstractAttr)getOwnerDocument().
+                        createAttributeNS( ns, qname );
+                attr.setOwnerElement( AbstractElement.this );
+                fireDOMAttrModifiedEvent( qname, attr, old, value, change );
+            }
+            return true;
+        }
+
+        /**
+         * Returns whether the given qualified name is valid for an
+         * attribute in the given namespace, as its node would check it.
+         */
+        protected boolean isValidName( String ns, String qname ) {
+            if ( !DOMUtilities.isValidName( qname ) ) {
+                return false;
+            }
+            if ( ns == null ) {
+                return true;
+            }
+            String prefix = DOMUtilities.getPrefix( qname );
+            if ( prefix == null ) {
+                return !"xmlns".equals( qname )
+                    || XMLConstants.XMLNS_NAMESPACE_URI.equals( ns );
+            }
+            return ( !"xml".equals( prefix )
+                     || XMLConstants.XML_NAMESPACE_URI.equals( ns ) )
+                && ( !"xmlns".equals( prefix )
+                     || XMLConstants.XMLNS_NAMESPACE_URI.equals( ns ) );
+        }
+
+        /**
+         * Returns the node of the given entry, creating it if the entry
+         * only holds the name and value of the attribute.
+         */
+        protected Node getNode( Entry e ) {
+            if ( e.value == null ) {
+                AbstractAttr attr = (AbstractAttr)getOwnerDocument().
+                        createAttributeNS( e.namespaceURI, e.qualifiedName );
+                attr.setNodeValue( e.text );
+                attr.setOwnerElement( AbstractElement.this );
+                e.value = attr;
+                e.qualifiedName = null;
+                e.text = null;
+            }
+            return e.value;
+        }
+
+        /**
+         * Returns the entry of the given attribute, or null.
+         */
+        protected Entry getEntry( String ns, String nm ) {
             int hash = hashCode( ns, nm ) & 0x7FFFFFFF;
             int index = hash % table.length;
 
             for ( Entry e = table[ index ]; e != null; e = e.next ) {
                 if ( ( e.hash == hash ) && e.match( ns, nm ) ) {
-                    return e.value;
+                    return e;
                 }
             }
             return null;
@@ -973,7 +1189,7 @@ public abstract class AbstractElement
 
             for ( Entry e = table[ index ]; e != null; e = e.next ) {
                 if ( ( e.hash == hash ) && e.match( ns, nm ) ) {
-                    Node old = e.value;
+                    Node old = getNode( e );
                     e.value = value;
                     return old;
                 }
@@ -1004,7 +1220,7 @@ public abstract class AbstractElement
             Entry p = null;
             for ( Entry e = table[ index ]; e != null; e = e.next ) {
                 if ( ( e.hash == hash ) && e.match( ns, nm ) ) {
-                    Node result = e.value;
+                    Node result = getNode( e );
                     if ( p == null ) {
                         table[ index ] = e.next;
                     } else {
@@ -1069,10 +1285,21 @@ public abstract class AbstractElement
         public String name;
 
         /**
-         * The value
+         * The value, or null if the attribute node was not created yet.
          */
         public Node value;
 
+        /**
+         * The qualified name of the attribute, while its node was not
+         * created.
+         */
+        public String qualifiedName;
+
+        /**
+         * The value of the attribute, while its node was not created.
+         */
+        public String text;
+
         /**
          * The next entry
          */
@@ -191,7 +191,8 @@ public abstract class ExtensibleDOMImplementation
             namespaceURI = null;
         }
         if (namespaceURI == null)
-            return new GenericElement(qualifiedName.intern(), document);
+            return new GenericElement(document.internName(qualifiedName),
+                                      document);
 
         if (customFactories != null) {
             String name = DOMUtilities.getLocalName(qualifiedName);
@@ -202,8 +203,8 @@ public abstract class ExtensibleDOMImplementation
                                   document);
             }
         }
-        return new GenericElementNS(namespaceURI.intern(),
-                                    qualifiedName.intern(),
+        return new GenericElementNS(document.internName(namespaceURI),
+                                    document.internName(qualifiedName),
                                     document);
     }
 
@@ -85,8 +85,16 @@ public class GenericDocument
      * for this document.
      */
     public boolean isId(Attr node) {
-        if (node.getNamespaceURI() != null) return false;
-        return ATTR_ID.equals(node.getNodeName());
+        return isId(node.getNamespaceURI(), node.getNodeName());
+    }
+
+    /**
+     * Returns true if the attribute with the given namespace URI and
+     * qualified name represents an 'id' for this document.
+     */
+    public boolean isId(String namespaceURI, String qualifiedName) {
+        if (namespaceURI != null) return false;
+        return ATTR_ID.equals(qualifiedName);
     }
 
     /**
@@ -94,7 +102,7 @@ public class GenericDocument
      * org.w3c.dom.Document#createElement(String)}.
      */
     public Element createElement(String tagName) throws DOMException {
-        return new GenericElement(tagName.intern(), this);
+        return new GenericElement(internName(tagName), this);
     }
 
     /**
@@ -146,7 +154,7 @@ public class GenericDocument
      * org.w3c.dom.Document#createAttribute(String)}.
      */
     public Attr createAttribute(String name) throws DOMException {
-        return new GenericAttr(name.intern(), this);
+        return new GenericAttr(internName(name), this);
     }
 
     /**
@@ -168,10 +176,10 @@ public class GenericDocument
             namespaceURI = null;
         }
         if (namespaceURI == null) {
-            return new GenericElement(qualifiedName.intern(), this);
+            return new GenericElement(internName(qualifiedName), this);
         } else {
-            return new GenericElementNS(namespaceURI.intern(),
-                                        qualifiedName.intern(),
+            return new GenericElementNS(internName(namespaceURI),
+                                        internName(qualifiedName),
                                         this);
         }
     }
@@ -186,10 +194,10 @@ public class GenericDocument
             namespaceURI = null;
         }
         if (namespaceURI == null) {
-            return new GenericAttr(qualifiedName.intern(), this);
+            return new GenericAttr(internName(qualifiedName), this);
         } else {
-            return new GenericAttrNS(namespaceURI.intern(),
-                                     qualifiedName.intern(),
+            return new GenericAttrNS(internName(namespaceURI),
+                                     internName(qualifiedName),
                                      this);
         }
     }
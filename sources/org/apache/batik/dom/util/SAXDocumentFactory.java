@@ -48,6 +48,7 @@ import org.xml.sax.ext.LexicalHandler;
 import org.xml.sax.helpers.DefaultHandler;
 import org.xml.sax.helpers.XMLReaderFactory;
 
+import org.apache.batik.dom.AbstractDocument;
 import org.apache.batik.util.HaltingThread;
 import org.apache.batik.util.XMLConstants;
 
@@ -140,6 +141,23 @@ public class SAXDocumentFactory
      */
     protected boolean isValidating;
 
+    /**
+     * The maximum length of the attribute values and texts shared by the
+     * created documents.
+     */
+    protected static final int MAX_INTERNED_VALUE_LENGTH = 32;
+
+    /**
+     * Whether the short attribute values and texts are shared by the
+     * created documents.
+     */
+    protected boolean isValueInterning = true;
+
+    /**
+     * The characters of the text to intern.
+     */
+    protected char[] internBuffer = new char[MAX_INTERNED_VALUE_LENGTH];
+
     /**
      * Whether the document just parsed was standalone.
      */
@@ -500,6 +518,23 @@ public class SAXDocumentFactory
         return isValidating;
     }
 
+    /**
+     * Sets whether the created documents share a single instance of their
+     * equal short attribute values and texts, like the whitespace between
+     * elements or the 'none' of fill="none".
+     */
+    public void setValueInterning(boolean isValueInterning) {
+        this.isValueInterning = isValueInterning;
+    }
+
+    /**
+     * Returns whether the created documents share their equal short
+     * attribute values and texts.
+     */
+    public boolean isValueInterning() {
+        return isValueInterning;
+    }
+
     /**
      * Sets a custom error handler.
      */
@@ -657,18 +692,26 @@ public class SAXDocumentFactory
         }
 
         // Attributes creation
+        AbstractDocument ad = (isValueInterning
+                               && document instanceof AbstractDocument)
+            ? (AbstractDocument)document
+            : null;
         for (int i = 0; i < len; i++) {
             String aname = attributes.getQName(i);
+            String value = attributes.getValue(i);
+            if (ad != null && value.length() <= MAX_INTERNED_VALUE_LENGTH) {
+                value = ad.internValue(value);
+            }
             if (aname.equals("xmlns")) {
                 e.setAttributeNS(XMLSupport.XMLNS_NAMESPACE_URI,
                                  aname,
-                                 attributes.getValue(i));
+                                 value);
             } else {
                 idx = aname.indexOf(':');
                 nsURI = (idx == -1)
                     ? null
                     : namespaces.get(aname.substring(0, idx));
-                e.setAttributeNS(nsURI, aname, attributes.getValue(i));
+                e.setAttributeNS(nsURI, aname, value);
             }
         }
     }
@@ -689,7 +732,18 @@ public class SAXDocumentFactory
     public void appendStringData() {
         if (!stringContent) return;
 
-        String str = stringBuffer.toString();
+        String str;
+        int len = stringBuffer.length();
+        if (isValueInterning && len <= MAX_INTERNED_VALUE_LENGTH
+                && document instanceof AbstractDocument) {
+            // Looked up from the characters, not to create a string
+            // for the texts already shared.
+            stringBuffer.getChars(0, len, internBuffer, 0);
+            str = ((AbstractDocument)document).internValue(internBuffer,
+                                                          0, len);
+        } else {
+            str = stringBuffer.toString();
+        }
         stringBuffer.setLength(0); // reuse buffer.
         stringContent = false;
         if (currentNode == null) {
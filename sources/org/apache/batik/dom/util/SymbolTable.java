@@ -0,0 +1,185 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.dom.util;
+
+/**
+ * A table of strings, not synchronized, with fixed load factor, that
+ * returns a single instance for equal strings.  Symbols can be looked up
+ * from a portion of a char array, in which case no string is created when
+ * the symbol is already in the table.
+ * This implementation is not Thread-safe.
+ *
+ * @version $Id$
+ */
+public class SymbolTable {
+
+    /**
+     * The initial capacity
+     */
+    protected static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Whether the symbols added to the table are interned.
+     */
+    protected boolean intern;
+
+    /**
+     * The underlying array
+     */
+    protected Entry[] table = new Entry[INITIAL_CAPACITY];
+
+    /**
+     * The number of entries
+     */
+    protected int count;
+
+    /**
+     * Creates a new table.
+     * @param intern Whether to intern the symbols added to the table, so
+     *        that they are the instances returned by String.intern().
+     */
+    public SymbolTable(boolean intern) {
+        this.intern = intern;
+    }
+
+    /**
+     * Returns the size of this table.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the symbol equal to the given string, adding it to the table
+     * if needed.
+     */
+    public String get(String s) {
+        int hash = s.hashCode() & 0x7FFFFFFF;
+        int index = hash & (table.length - 1);
+
+        for (Entry e = table[index]; e != null; e = e.next) {
+            if (e.hash == hash && e.symbol.equals(s)) {
+                return e.symbol;
+            }
+        }
+        return put(hash, s);
+    }
+
+    /**
+     * Returns the symbol made of the given characters, adding it to the
+     * table if needed.
+     */
+    public String get(char[] ch, int off, int len) {
+        int h = 0;
+        for (int i = off; i < off + len; i++) {
+            h = 31 * h + ch[i];
+        }
+        int hash = h & 0x7FFFFFFF;
+        int index = hash & (table.length - 1);
+
+        for (Entry e = table[index]; e != null; e = e.next) {
+            if (e.hash == hash && e.match(ch, off, len)) {
+                return e.symbol;
+            }
+        }
+        return put(hash, new String(ch, off, len));
+    }
+
+    /**
+     * Adds a symbol to the table.
+     */
+    protected String put(int hash, String s) {
+        if (intern) {
+            s = s.intern();
+        }
+        int len = table.length;
+        if (count++ >= (len - (len >> 2))) {
+            // more than 75% loaded: grow
+            rehash();
+        }
+        int index = hash & (table.length - 1);
+        table[index] = new Entry(hash, s, table[index]);
+        return s;
+    }
+
+    /**
+     * Rehash the table
+     */
+    protected void rehash() {
+        Entry[] oldTable = table;
+
+        table = new Entry[oldTable.length * 2];
+
+        for (int i = oldTable.length - 1; i >= 0; i--) {
+            for (Entry old = oldTable[i]; old != null;) {
+                Entry e = old;
+                old = old.next;
+
+                int index = e.hash & (table.length - 1);
+                e.next = table[index];
+                table[index] = e;
+            }
+        }
+    }
+
+    /**
+     * To manage collisions
+     */
+    protected static class Entry {
+
+        /**
+         * The hash code
+         */
+        public int hash;
+
+        /**
+         * The symbol
+         */
+        public String symbol;
+
+        /**
+         * The next entry
+         */
+        public Entry next;
+
+        /**
+         * Creates a new entry
+         */
+        public Entry(int hash, String symbol, Entry next) {
+            this.hash = hash;
+            this.symbol = symbol;
+            this.next = next;
+        }
+
+        /**
+         * Whether the symbol is made of the given characters.
+         */
+        public boolean match(char[] ch, int off, int len) {
+            if (symbol.length() != len) {
+                return false;
+            }
+            for (int i = 0; i < len; i++) {
+                if (symbol.charAt(i) != ch[off + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
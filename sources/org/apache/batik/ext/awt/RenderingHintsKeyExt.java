@@ -77,9 +77,21 @@ public final class RenderingHintsKeyExt {
     public static final Object VALUE_AVOID_TILE_PAINTING_OFF = new Object();
     public static final Object VALUE_AVOID_TILE_PAINTING_DEFAULT = new Object();
 
+    /**
+     * Hint for a graphics node to keep a raster of its rendering in
+     * device space, and to composite it instead of painting the node
+     * again while neither the node nor its descendants change.  Only the
+     * value set on the node itself is considered.
+     */
+    public static final RenderingHints.Key KEY_LAYER_CACHE;
+
+    public static final Object VALUE_LAYER_CACHE_ON = new Object();
+    public static final Object VALUE_LAYER_CACHE_OFF = new Object();
+
     static {
         int base = 10100;
-        RenderingHints.Key trans=null, aoi=null, bi=null, cs=null, atp=null;
+        RenderingHints.Key trans=null, aoi=null, bi=null, cs=null, atp=null,
+            lc=null;
         while (true) {
             int val = base;
 
@@ -89,6 +101,7 @@ public final class RenderingHintsKeyExt {
                 bi    = new BufferedImageHintKey (val++);
                 cs    = new ColorSpaceHintKey    (val++);
                 atp   = new AvoidTilingHintKey   (val++);
+                lc    = new LayerCacheHintKey    (val++);
             } catch (Exception e) {
                 System.err.println
                     ("You have loaded the Batik jar files more than once\n" +
@@ -106,6 +119,7 @@ public final class RenderingHintsKeyExt {
         KEY_BUFFERED_IMAGE      = bi;
         KEY_COLORSPACE          = cs;
         KEY_AVOID_TILE_PAINTING = atp;
+        KEY_LAYER_CACHE         = lc;
     }
 
     /**
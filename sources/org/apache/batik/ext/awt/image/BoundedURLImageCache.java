@@ -0,0 +1,429 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.ext.awt.image;
+
+import java.awt.geom.Rectangle2D;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.batik.ext.awt.image.renderable.DeferRable;
+import org.apache.batik.ext.awt.image.renderable.Filter;
+import org.apache.batik.util.ParsedURL;
+
+/**
+ * A <code>URLImageCache</code> which keeps the most recently used images
+ * strongly referenced, up to a number of bytes of decoded image data,
+ * and the others only softly referenced.  So the images used by
+ * consecutive documents are not decoded again whenever the garbage
+ * collector runs, while the cache still gives memory back under
+ * pressure.
+ *
+ * <p>Lookups do not lock the whole cache.  As with the other
+ * <code>URLImageCache</code>s, the first thread to request a missing
+ * image is 'on the hook' for it, and the other threads requesting it
+ * wait until it is put or cleared, so that an image is only decoded
+ * once.</p>
+ *
+ * <p>It is installed by giving it to the constructor of an
+ * <code>ImageTagRegistry</code>.  The default registry uses it when the
+ * <code>org.apache.batik.imageCacheSize</code> system property gives
+ * the number of bytes to keep.</p>
+ *
+ * @version $Id$
+ */
+public class BoundedURLImageCache extends URLImageCache {
+
+    /**
+     * The entries, whatever their state.
+     */
+    protected Map entries = new ConcurrentHashMap();
+
+    /**
+     * The entries of the strongly referenced images, in access order.
+     * Guarded by itself.
+     */
+    protected LinkedHashMap strong = new LinkedHashMap(16, 0.75f, true);
+
+    /**
+     * The queue the soft references of the evicted images are appended
+     * to once cleared.
+     */
+    protected ReferenceQueue queue = new ReferenceQueue();
+
+    /**
+     * The maximum number of bytes of strongly referenced images.
+     */
+    protected long maxBytes;
+
+    /**
+     * The number of bytes of strongly referenced images.
+     */
+    protected long bytes;
+
+    /**
+     * The number of requests answered from the cache.
+     */
+    protected AtomicLong hitCount = new AtomicLong();
+
+    /**
+     * The number of requests which put the caller on the hook.
+     */
+    protected AtomicLong missCount = new AtomicLong();
+
+    /**
+     * The number of images moved to the soft tier to stay within the
+     * budget.
+     */
+    protected AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Creates a new BoundedURLImageCache.
+     * @param maxBytes the maximum number of bytes of decoded image data
+     *        strongly referenced by the cache.
+     */
+    public BoundedURLImageCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * The state of a cached image.
+     */
+    protected static class Entry {
+
+        /**
+         * The URL of the image.
+         */
+        final ParsedURL purl;
+
+        /**
+         * Whether the image was put or cleared.  Guarded by the entry.
+         */
+        boolean done;
+
+        /**
+         * The image, while strongly referenced.
+         */
+        volatile Filter image;
+
+        /**
+         * The image, once moved to the soft tier.
+         */
+        volatile Ref ref;
+
+        /**
+         * The estimated size of the image in bytes, -1 if not known
+         * yet.  Guarded by <code>strong</code>.
+         */
+        long size = -1;
+
+        Entry(ParsedURL purl) {
+            this.purl = purl;
+        }
+
+        /**
+         * Returns the image, or null if it was collected or could not
+         * be read.
+         */
+        Filter get() {
+            Filter f = image;
+            if (f != null) {
+                return f;
+            }
+            Ref r = ref;
+            return (r == null) ? null : (Filter)r.get();
+        }
+
+        /**
+         * Marks the image as put or cleared, and wakes the threads
+         * waiting for it.
+         */
+        synchronized void complete() {
+            done = true;
+            notifyAll();
+        }
+
+        /**
+         * Waits until the image is put or cleared.
+         */
+        synchronized void await() {
+            while (!done) {
+                try {
+                    wait();
+                } catch (InterruptedException ie) {
+                    // Loop around and check again.
+                }
+            }
+        }
+
+        synchronized boolean isDone() {
+            return done;
+        }
+    }
+
+    /**
+     * The soft reference to an image of the soft tier.
+     */
+    protected static class Ref extends SoftReference {
+        final Entry entry;
+
+        Ref(Filter f, Entry entry, ReferenceQueue q) {
+            super(f, q);
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * Returns the maximum number of bytes of decoded image data strongly
+     * referenced by the cache.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Returns the estimated number of bytes of decoded image data
+     * strongly referenced by the cache.
+     */
+    public long getBytes() {
+        synchronized (strong) {
+            return bytes;
+        }
+    }
+
+    /**
+     * Returns the number of requests answered from the cache so far.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of requests which were not answered from the
+     * cache so far.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of images moved from the strongly referenced
+     * tier to the softly referenced one, to stay within the budget.
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public boolean isPresent(ParsedURL purl) {
+        Entry e = (Entry)entries.get(purl);
+        if (e == null) {
+            return false;
+        }
+        return !e.isDone() || e.get() != null;
+    }
+
+    public boolean isDone(ParsedURL purl) {
+        Entry e = (Entry)entries.get(purl);
+        return e != null && e.isDone() && e.get() != null;
+    }
+
+    public Filter request(ParsedURL purl) {
+        expunge();
+        for (;;) {
+            Entry e = (Entry)entries.get(purl);
+            if (e == null) {
+                e = new Entry(purl);
+                if (((ConcurrentHashMap)entries).putIfAbsent(purl, e)
+                        == null) {
+                    missCount.incrementAndGet();
+                    return null;
+                }
+                continue;
+            }
+            e.await();
+            Filter f = e.get();
+            if (f != null) {
+                if (e.image != null) {
+                    synchronized (strong) {
+                        // Makes it the most recently used.
+                        strong.get(purl);
+                    }
+                }
+                hitCount.incrementAndGet();
+                return f;
+            }
+            // Cleared or collected, the caller gets the hot potato
+            // unless another thread got it first.
+            Entry n = new Entry(purl);
+            if (((ConcurrentHashMap)entries).replace(purl, e, n)) {
+                remove(e);
+                missCount.incrementAndGet();
+                return null;
+            }
+        }
+    }
+
+    public void clear(ParsedURL purl) {
+        Entry e = (Entry)entries.remove(purl);
+        if (e != null) {
+            remove(e);
+        }
+    }
+
+    public void put(ParsedURL purl, Filter filt) {
+        Entry e = (Entry)entries.get(purl);
+        if (e == null) {
+            // It was cleared or flushed meanwhile.
+            return;
+        }
+        if (e.isDone()) {
+            // Replace what was put before.
+            Entry n = new Entry(purl);
+            if (!((ConcurrentHashMap)entries).replace(purl, e, n)) {
+                return;
+            }
+            remove(e);
+            e = n;
+        }
+        if (filt != null) {
+            e.image = filt;
+            synchronized (strong) {
+                strong.put(purl, e);
+                trim();
+            }
+        }
+        e.complete();
+    }
+
+    public void flush() {
+        Iterator i = entries.values().iterator();
+        while (i.hasNext()) {
+            Entry e = (Entry)i.next();
+            i.remove();
+            remove(e);
+        }
+        synchronized (strong) {
+            strong.clear();
+            bytes = 0;
+        }
+    }
+
+    /**
+     * Returns a printable representation of the cache statistics.
+     */
+    public String toString() {
+        return "BoundedURLImageCache[bytes=" + getBytes() + "/" + maxBytes
+            + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+            + ", evictions=" + getEvictionCount() + "]";
+    }
+
+    /**
+     * Drops the image of an entry removed from <code>entries</code>, and
+     * wakes the threads waiting for it, so that they request it again.
+     */
+    protected void remove(Entry e) {
+        synchronized (strong) {
+            if (strong.get(e.purl) == e) {
+                strong.remove(e.purl);
+                if (e.size > 0) {
+                    bytes -= e.size;
+                }
+            }
+        }
+        e.image = null;
+        e.ref = null;
+        e.complete();
+    }
+
+    /**
+     * Moves the least recently used images to the soft tier until the
+     * strongly referenced ones fit in the budget.  Must be called with
+     * the lock of <code>strong</code> held.
+     */
+    protected void trim() {
+        // Size the images whose size was not known yet.
+        Iterator i = strong.values().iterator();
+        while (i.hasNext()) {
+            Entry e = (Entry)i.next();
+            if (e.size < 0) {
+                e.size = getSize(e.image);
+                if (e.size > 0) {
+                    bytes += e.size;
+                }
+            }
+        }
+        i = strong.values().iterator();
+        while (bytes > maxBytes && i.hasNext()) {
+            Entry e = (Entry)i.next();
+            i.remove();
+            if (e.size > 0) {
+                bytes -= e.size;
+            }
+            Filter f = e.image;
+            if (f != null) {
+                e.ref = new Ref(f, e, queue);
+                e.image = null;
+                evictionCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Removes the entries whose softly referenced images have been
+     * collected.
+     */
+    protected void expunge() {
+        Ref r;
+        while ((r = (Ref)queue.poll()) != null) {
+            Entry e = r.entry;
+            if (e.ref == r) {
+                ((ConcurrentHashMap)entries).remove(e.purl, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the estimated number of bytes of the decoded image, or -1
+     * if it is not known yet.  Does not wait for images read in the
+     * background.
+     */
+    protected long getSize(Filter f) {
+        if (f == null) {
+            return -1;
+        }
+        Rectangle2D r;
+        if (f instanceof DeferRable) {
+            r = ((DeferRable)f).getKnownBounds();
+            if (r == null) {
+                return -1;
+            }
+        } else {
+            r = f.getBounds2D();
+        }
+        return (long)Math.ceil(r.getWidth()) * (long)Math.ceil(r.getHeight())
+            * 4;
+    }
+}
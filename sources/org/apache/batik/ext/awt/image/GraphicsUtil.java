@@ -168,8 +168,10 @@ public class GraphicsUtil {
             if (at.getType() != AffineTransform.TYPE_TRANSLATION)
                 cr = new AffineRed(cr, at, g2d.getRenderingHints());
             else {
-                int xloc = cr.getMinX() + (int)at.getTranslateX();
-                int yloc = cr.getMinY() + (int)at.getTranslateY();
+                // Round down, so the image lands on the same pixels
+                // whatever the sign of the translation.
+                int xloc = cr.getMinX() + (int)Math.floor(at.getTranslateX());
+                int yloc = cr.getMinY() + (int)Math.floor(at.getTranslateY());
                 cr = new TranslateRed(cr, xloc, yloc);
             }
         }
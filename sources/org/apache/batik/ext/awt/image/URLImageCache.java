@@ -51,6 +51,16 @@ public class URLImageCache extends SoftReferenceCache {
      */
     public URLImageCache() { }
 
+    /**
+     * The number of requests answered from the cache.
+     */
+    protected long hits;
+
+    /**
+     * The number of requests which put the caller on the hook.
+     */
+    protected long misses;
+
     /**
      * Check if <code>request(url)</code> will return with a Filter
      * (not putting you on the hook for it).  Note that it is possible
@@ -78,7 +88,28 @@ public class URLImageCache extends SoftReferenceCache {
      * to put the Filter associated with ParsedURL into the
      * cache.  */
     public synchronized Filter request(ParsedURL purl) {
-        return (Filter)super.requestImpl(purl);
+        Filter f = (Filter)super.requestImpl(purl);
+        if (f != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return f;
+    }
+
+    /**
+     * Returns the number of requests answered from the cache so far.
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of requests which were not answered from the
+     * cache so far.
+     */
+    public synchronized long getMissCount() {
+        return misses;
     }
 
     /**
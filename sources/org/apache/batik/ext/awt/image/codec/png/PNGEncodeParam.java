@@ -67,6 +67,12 @@ public abstract class PNGEncodeParam implements ImageEncodeParam {
     /** Constant for use in filtering. */
     public static final int PNG_FILTER_PAETH = 4;
 
+    /**
+     * Constant for use in filtering: chooses the best filter for each
+     * row.
+     */
+    public static final int PNG_FILTER_ADAPTIVE = -1;
+
 
     /**
      * Returns an instance of <code>PNGEncodeParam.Palette</code>,
@@ -587,6 +593,79 @@ public abstract class PNGEncodeParam implements ImageEncodeParam {
         return useInterlacing;
     }
 
+    private int compressionLevel = 9;
+
+    /**
+     * Sets the deflate compression level, from 0 (no compression) to 9
+     * (best compression, the default).  Lower levels encode faster.
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        if (compressionLevel < 0 || compressionLevel > 9) {
+            throw new IllegalArgumentException
+                (PropertyUtil.getString("PNGEncodeParam25"));
+        }
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * Returns the deflate compression level.
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    private int filter = PNG_FILTER_ADAPTIVE;
+
+    /**
+     * Sets the filter applied to every row, one of the
+     * <code>PNG_FILTER_*</code> constants.  The default,
+     * <code>PNG_FILTER_ADAPTIVE</code>, tries each filter on each row
+     * and keeps the one most likely to compress well; a fixed filter
+     * encodes faster, at the cost of a usually larger file.
+     */
+    public void setFilter(int filter) {
+        if (filter < PNG_FILTER_ADAPTIVE || filter > PNG_FILTER_PAETH) {
+            throw new IllegalArgumentException
+                (PropertyUtil.getString("PNGEncodeParam26"));
+        }
+        this.filter = filter;
+    }
+
+    /**
+     * Returns the filter applied to every row, or
+     * <code>PNG_FILTER_ADAPTIVE</code>.
+     */
+    public int getFilter() {
+        return filter;
+    }
+
+    private int threadCount = 1;
+
+    /**
+     * Sets the number of threads used to filter and compress the image
+     * data.  With more than one thread, non interlaced images are split
+     * into blocks of rows compressed independently, each block using
+     * the end of the previous one as its dictionary; the result is
+     * slightly larger than with a single thread.  Note that
+     * <code>filterRow</code> is then called from several threads at
+     * once.
+     */
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException
+                (PropertyUtil.getString("PNGEncodeParam27"));
+        }
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Returns the number of threads used to filter and compress the
+     * image data.
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
     // bKGD chunk - delegate to subclasses
 
     // In JAI 1.0, 'backgroundSet' was private.  The JDK 1.2 compiler
@@ -1379,6 +1458,11 @@ public abstract class PNGEncodeParam implements ImageEncodeParam {
                          int bytesPerRow,
                          int bytesPerPixel) {
 
+        if (filter != PNG_FILTER_ADAPTIVE) {
+            return filterRow(currRow, prevRow, scratchRows,
+                             bytesPerRow, bytesPerPixel, filter);
+        }
+
         int [] badness = {0, 0, 0, 0, 0};
         int curr, left, up, upleft, diff;
         int pa, pb, pc;
@@ -1502,4 +1586,52 @@ public abstract class PNGEncodeParam implements ImageEncodeParam {
 
         return filterType;
     }
+
+    /**
+     * Applies the given filter to a row.  This is the fast path of
+     * <code>filterRow</code> when a fixed filter is set.
+     *
+     * @return <code>filterType</code>.
+     */
+    private static int filterRow(byte[] currRow,
+                                 byte[] prevRow,
+                                 byte[][] scratchRows,
+                                 int bytesPerRow,
+                                 int bytesPerPixel,
+                                 int filterType) {
+        int end = bytesPerRow + bytesPerPixel;
+        byte[] out = scratchRows[filterType];
+        switch (filterType) {
+        case PNG_FILTER_NONE:
+            System.arraycopy(currRow, bytesPerPixel,
+                             out, bytesPerPixel, bytesPerRow);
+            break;
+        case PNG_FILTER_SUB:
+            for (int i = bytesPerPixel; i < end; i++) {
+                out[i] = (byte)(currRow[i] - currRow[i - bytesPerPixel]);
+            }
+            break;
+        case PNG_FILTER_UP:
+            for (int i = bytesPerPixel; i < end; i++) {
+                out[i] = (byte)(currRow[i] - prevRow[i]);
+            }
+            break;
+        case PNG_FILTER_AVERAGE:
+            for (int i = bytesPerPixel; i < end; i++) {
+                int left = currRow[i - bytesPerPixel] & 0xff;
+                int up   = prevRow[i] & 0xff;
+                out[i] = (byte)(currRow[i] - ((left + up) >> 1));
+            }
+            break;
+        case PNG_FILTER_PAETH:
+            for (int i = bytesPerPixel; i < end; i++) {
+                out[i] = (byte)(currRow[i] - paethPredictor
+                                (currRow[i - bytesPerPixel] & 0xff,
+                                 prevRow[i] & 0xff,
+                                 prevRow[i - bytesPerPixel] & 0xff));
+            }
+            break;
+        }
+        return filterType;
+    }
 }
@@ -31,14 +31,26 @@ import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.Iterator;
+import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Adler32;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 
+import org.apache.batik.util.DaemonThreadFactory;
+
 class CRC {
 
     private static int[] crcTable = new int[256];
@@ -328,31 +340,20 @@ public class PNGImageEncoder extends ImageEncoderImpl {
         cs.close();
     }
 
-    private byte[] prevRow = null;
-    private byte[] currRow = null;
-
-    private byte[][] filteredRows = null;
-
     private static int clamp(int val, int maxValue) {
         return (val > maxValue) ? maxValue : val;
     }
 
-    private void encodePass(OutputStream os, Raster ras,
-                            int xOffset,     int yOffset,
-                            int xSkip,       int ySkip)
-        throws IOException {
-        int minX   = ras.getMinX();
-        int minY   = ras.getMinY();
-        int width  = ras.getWidth();
-        int height = ras.getHeight();
-
+    /**
+     * Returns the number of bytes of a row of a pass, not counting the
+     * filter type byte.
+     */
+    private int getBytesPerRow(int width, int xOffset, int xSkip) {
         xOffset *= numBands;
         xSkip   *= numBands;
 
         int samplesPerByte = 8/bitDepth;
-
         int numSamples = width*numBands;
-        int[] samples = new int[numSamples];
 
         int pixels = (numSamples - xOffset + xSkip - 1)/xSkip;
         int bytesPerRow = pixels*numBands;
@@ -361,74 +362,122 @@ public class PNGImageEncoder extends ImageEncoderImpl {
         } else if (bitDepth == 16) {
             bytesPerRow *= 2;
         }
+        return bytesPerRow;
+    }
 
-        if (bytesPerRow == 0) {
-            return;
-        }
-
-        currRow = new byte[bytesPerRow + bpp];
-        prevRow = new byte[bytesPerRow + bpp];
+    /**
+     * Packs the samples of a row of a pass into <code>currRow</code>,
+     * starting at index <code>bpp</code>.
+     */
+    private void packRow(Raster ras, int row, int[] samples, byte[] currRow,
+                         int xOffset, int xSkip) {
+        int minX   = ras.getMinX();
+        int width  = ras.getWidth();
 
-        filteredRows = new byte[5][bytesPerRow + bpp];
+        xOffset *= numBands;
+        xSkip   *= numBands;
 
+        int samplesPerByte = 8/bitDepth;
+        int numSamples = width*numBands;
         int maxValue = (1 << bitDepth) - 1;
 
-        for (int row = minY + yOffset; row < minY + height; row += ySkip) {
-            ras.getPixels(minX, row, width, 1, samples);
+        ras.getPixels(minX, row, width, 1, samples);
 
-            if (compressGray) {
-                int shift = 8 - bitDepth;
-                for (int i = 0; i < width; i++) {
-                    samples[i] >>= shift;
-                }
+        if (compressGray) {
+            int shift = 8 - bitDepth;
+            for (int i = 0; i < width; i++) {
+                samples[i] >>= shift;
             }
+        }
 
-            int count = bpp; // leave first 'bpp' bytes zero
-            int pos = 0;
-            int tmp = 0;
-
-            switch (bitDepth) {
-            case 1: case 2: case 4:
-                // Image can only have a single band
+        int count = bpp; // leave first 'bpp' bytes zero
+        int pos = 0;
+        int tmp = 0;
 
-                int mask = samplesPerByte - 1;
-                for (int s = xOffset; s < numSamples; s += xSkip) {
-                    int val = clamp(samples[s] >> bitShift, maxValue);
-                    tmp = (tmp << bitDepth) | val;
+        switch (bitDepth) {
+        case 1: case 2: case 4:
+            // Image can only have a single band
 
-                    if (pos++  == mask) {
-                        currRow[count++] = (byte)tmp;
-                        tmp = 0;
-                        pos = 0;
-                    }
-                }
+            int mask = samplesPerByte - 1;
+            for (int s = xOffset; s < numSamples; s += xSkip) {
+                int val = clamp(samples[s] >> bitShift, maxValue);
+                tmp = (tmp << bitDepth) | val;
 
-                // Left shift the last byte
-                if (pos != 0) {
-                    tmp <<= (samplesPerByte - pos)*bitDepth;
+                if (pos++  == mask) {
                     currRow[count++] = (byte)tmp;
+                    tmp = 0;
+                    pos = 0;
                 }
-                break;
+            }
 
-            case 8:
-                for (int s = xOffset; s < numSamples; s += xSkip) {
-                    for (int b = 0; b < numBands; b++) {
-                        currRow[count++] =
-                            (byte)clamp(samples[s + b] >> bitShift, maxValue);
-                    }
-                }
-                break;
+            // Left shift the last byte
+            if (pos != 0) {
+                tmp <<= (samplesPerByte - pos)*bitDepth;
+                currRow[count++] = (byte)tmp;
+            }
+            break;
 
-            case 16:
-                for (int s = xOffset; s < numSamples; s += xSkip) {
-                    for (int b = 0; b < numBands; b++) {
-                        int val = clamp(samples[s + b] >> bitShift, maxValue);
-                        currRow[count++] = (byte)(val >> 8);
-                        currRow[count++] = (byte)(val & 0xff);
-                    }
+        case 8:
+            for (int s = xOffset; s < numSamples; s += xSkip) {
+                for (int b = 0; b < numBands; b++) {
+                    currRow[count++] =
+                        (byte)clamp(samples[s + b] >> bitShift, maxValue);
                 }
-                break;
             }
+            break;
+
+        case 16:
+            for (int s = xOffset; s < numSamples; s += xSkip) {
+                for (int b = 0; b < numBands; b++) {
+                    int val = clamp(samples[s + b] >> bitShift, maxValue);
+                    currRow[count++] = (byte)(val >> 8);
+                    currRow[count++] = (byte)(val & 0xff);
+                }
+            }
+            break;
+        }
+    }
+
+    private void encodePass(OutputStream os, Raster ras,
+                            int xOffset,     int yOffset,
+                            int xSkip,       int ySkip)
+        throws IOException {
+        int minY   = ras.getMinY();
+        int height = ras.getHeight();
+
+        encodeRows(os, ras, xOffset, xSkip,
+                   minY + yOffset, minY + height, ySkip);
+    }
+
+    /**
+     * Filters and writes the rows of a pass from <code>startRow</code>
+     * (inclusive) to <code>endRow</code> (exclusive).  The rows of a non
+     * interlaced image may be encoded in several independent ranges,
+     * since the row before the range is packed again to filter the
+     * first row.
+     */
+    private void encodeRows(OutputStream os, Raster ras,
+                            int xOffset, int xSkip,
+                            int startRow, int endRow, int ySkip)
+        throws IOException {
+        int bytesPerRow = getBytesPerRow(ras.getWidth(), xOffset, xSkip);
+
+        if (bytesPerRow == 0) {
+            return;
+        }
+
+        int[] samples = new int[ras.getWidth()*numBands];
+        byte[] currRow = new byte[bytesPerRow + bpp];
+        byte[] prevRow = new byte[bytesPerRow + bpp];
+
+        byte[][] filteredRows = new byte[5][bytesPerRow + bpp];
+
+        if (ySkip == 1 && startRow > ras.getMinY()) {
+            packRow(ras, startRow - 1, samples, prevRow, xOffset, xSkip);
+        }
+
+        for (int row = startRow; row < endRow; row += ySkip) {
+            packRow(ras, row, samples, currRow, xOffset, xSkip);
 
             // Perform filtering
             int filterType = param.filterRow(currRow, prevRow,
@@ -447,8 +496,6 @@ public class PNGImageEncoder extends ImageEncoderImpl {
 
     private void writeIDAT() throws IOException {
         IDATOutputStream ios = new IDATOutputStream(dataOutput, 8192);
-        DeflaterOutputStream dos =
-            new DeflaterOutputStream(ios, new Deflater(9));
 
         // Future work - don't convert entire image to a Raster It
         // might seem that you could just call image.getData() but
@@ -484,6 +531,18 @@ public class PNGImageEncoder extends ImageEncoderImpl {
                                   bandList);
         }
 
+        int level = param.getCompressionLevel();
+        int threadCount = param.getThreadCount();
+        if (!interlace && threadCount > 1 && PARALLEL_DEFLATE_SUPPORTED) {
+            writeParallelIDAT(ios, ras, level, threadCount);
+            ios.flush();
+            ios.close();
+            return;
+        }
+
+        DeflaterOutputStream dos =
+            new DeflaterOutputStream(ios, new Deflater(level));
+
         if (interlace) {
             // Interlacing pass 1
             encodePass(dos, ras, 0, 0, 8, 8);
@@ -509,6 +568,184 @@ public class PNGImageEncoder extends ImageEncoderImpl {
         ios.close();
     }
 
+    /**
+     * The approximate number of bytes of filtered image data compressed
+     * as one block by <code>writeParallelIDAT</code>.
+     */
+    private static final int PARALLEL_BLOCK_SIZE = 128 * 1024;
+
+    /**
+     * The size of the deflate window, which is the most of the previous
+     * block that can be used as the dictionary of a block.
+     */
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    /**
+     * Whether the deflater can end a block on a byte boundary without
+     * ending the stream, which is needed to concatenate independently
+     * compressed blocks (Java 7 and later).
+     */
+    private static final boolean PARALLEL_DEFLATE_SUPPORTED;
+    static {
+        boolean supported;
+        try {
+            Deflater.class.getMethod("deflate", new Class[] {
+                byte[].class, int.class, int.class, int.class });
+            supported = true;
+        } catch (NoSuchMethodException e) {
+            supported = false;
+        }
+        PARALLEL_DEFLATE_SUPPORTED = supported;
+    }
+
+    /**
+     * Writes the zlib stream of a non interlaced image using several
+     * threads.  The rows are split into blocks of about
+     * <code>PARALLEL_BLOCK_SIZE</code> bytes, which are first filtered,
+     * then deflated, in parallel.  Each block is deflated on its own,
+     * using the end of the previous block as its dictionary, and ends on
+     * a byte boundary so that the compressed blocks can simply be
+     * concatenated.  The checksum of the whole stream is then computed
+     * in order.
+     */
+    private void writeParallelIDAT(OutputStream os, final Raster ras,
+                                   final int level, int threadCount)
+        throws IOException {
+        int minY = ras.getMinY();
+        int height = ras.getHeight();
+        final int bytesPerRow = getBytesPerRow(ras.getWidth(), 0, 1);
+        int rowsPerBlock =
+            Math.max(1, PARALLEL_BLOCK_SIZE / (bytesPerRow + 1));
+        int blockCount = (height + rowsPerBlock - 1) / rowsPerBlock;
+
+        final byte[][] filtered = new byte[blockCount][];
+        final byte[][] deflated = new byte[blockCount][];
+
+        List filterTasks = new ArrayList(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            final int block = i;
+            final int startRow = minY + i * rowsPerBlock;
+            final int endRow = Math.min(minY + height, startRow + rowsPerBlock);
+            filterTasks.add(new Callable() {
+                    public Object call() throws IOException {
+                        ByteArrayOutputStream out = new ByteArrayOutputStream
+                            ((endRow - startRow) * (bytesPerRow + 1));
+                        encodeRows(out, ras, 0, 1, startRow, endRow, 1);
+                        filtered[block] = out.toByteArray();
+                        return null;
+                    }
+                });
+        }
+
+        List deflateTasks = new ArrayList(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            final int block = i;
+            deflateTasks.add(new Callable() {
+                    public Object call() {
+                        deflated[block] =
+                            deflateBlock(filtered, block, level);
+                        return null;
+                    }
+                });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool
+            (Math.min(threadCount, blockCount),
+             new DaemonThreadFactory("PNGImageEncoder"));
+        try {
+            invokeAll(executor, filterTasks);
+            invokeAll(executor, deflateTasks);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // zlib header: 32K window, deflate, no preset dictionary.
+        int cmf = 0x78;
+        int flevel = (level < 2) ? 0 : (level < 6) ? 1 : (level == 6) ? 2 : 3;
+        int flg = flevel << 6;
+        flg += 31 - ((cmf << 8) + flg) % 31;
+        os.write(cmf);
+        os.write(flg);
+
+        Adler32 adler = new Adler32();
+        for (int i = 0; i < blockCount; i++) {
+            os.write(deflated[i]);
+            adler.update(filtered[i]);
+        }
+
+        int sum = (int)adler.getValue();
+        os.write(sum >>> 24);
+        os.write((sum >> 16) & 0xff);
+        os.write((sum >> 8) & 0xff);
+        os.write(sum & 0xff);
+    }
+
+    /**
+     * Deflates a block of filtered data into raw deflate data.  All
+     * blocks but the last one end with a sync flush, the last one ends
+     * the deflate stream.
+     */
+    private static byte[] deflateBlock(byte[][] filtered, int block,
+                                       int level) {
+        Deflater def = new Deflater(level, true);
+        try {
+            if (block > 0) {
+                byte[] prev = filtered[block - 1];
+                int len = Math.min(DICTIONARY_SIZE, prev.length);
+                def.setDictionary(prev, prev.length - len, len);
+            }
+            byte[] data = filtered[block];
+            boolean last = block == filtered.length - 1;
+            ByteArrayOutputStream out =
+                new ByteArrayOutputStream(data.length / 2 + 64);
+            byte[] buf = new byte[8192];
+            def.setInput(data);
+            if (last) {
+                def.finish();
+                while (!def.finished()) {
+                    int n = def.deflate(buf);
+                    out.write(buf, 0, n);
+                }
+            } else {
+                int n;
+                do {
+                    n = def.deflate(buf, 0, buf.length, Deflater.SYNC_FLUSH);
+                    out.write(buf, 0, n);
+                } while (n == buf.length);
+            }
+            return out.toByteArray();
+        } finally {
+            def.end();
+        }
+    }
+
+    /**
+     * Runs the given tasks and waits for their completion, rethrowing
+     * the first failure.
+     */
+    private static void invokeAll(ExecutorService executor, List tasks)
+        throws IOException {
+        try {
+            List results = executor.invokeAll(tasks);
+            Iterator i = results.iterator();
+            while (i.hasNext()) {
+                ((Future)i.next()).get();
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException ee) {
+            Throwable t = ee.getCause();
+            if (t instanceof IOException)
+                throw (IOException)t;
+            if (t instanceof RuntimeException)
+                throw (RuntimeException)t;
+            if (t instanceof Error)
+                throw (Error)t;
+            throw new RuntimeException(t.getMessage());
+        }
+    }
+
     private void writeIEND() throws IOException {
         ChunkStream cs = new ChunkStream("IEND");
         cs.writeToStream(dataOutput);
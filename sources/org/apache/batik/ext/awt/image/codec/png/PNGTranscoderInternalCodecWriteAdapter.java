@@ -76,6 +76,19 @@ public class PNGTranscoderInternalCodecWriteAdapter implements
         }
 
 
+        if (hints.containsKey(PNGTranscoder.KEY_COMPRESSION_LEVEL)) {
+            params.setCompressionLevel(((Integer)hints.get
+                (PNGTranscoder.KEY_COMPRESSION_LEVEL)).intValue());
+        }
+        if (hints.containsKey(PNGTranscoder.KEY_FILTER)) {
+            params.setFilter(((Integer)hints.get
+                (PNGTranscoder.KEY_FILTER)).intValue());
+        }
+        if (hints.containsKey(PNGTranscoder.KEY_ENCODING_THREAD_COUNT)) {
+            params.setThreadCount(((Integer)hints.get
+                (PNGTranscoder.KEY_ENCODING_THREAD_COUNT)).intValue());
+        }
+
         float PixSzMM = transcoder.getUserAgent().getPixelUnitToMillimeter();
         // num Pixs in 1 Meter
         int numPix      = (int)((1000/PixSzMM)+0.5);
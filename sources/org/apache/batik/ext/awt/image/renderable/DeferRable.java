@@ -127,6 +127,18 @@ public class DeferRable implements Filter {
         return bounds;
     }
 
+    /**
+     * Returns the bounds if they are known already, or null.  Unlike
+     * getBounds2D(), does not block until the source is provided.
+     */
+    public Rectangle2D getKnownBounds() {
+        synchronized(this) {
+            if (src == null)
+                return bounds;
+        }
+        return src.getBounds2D();
+    }
+
     public float getMinX() {
         return (float)getBounds2D().getX();
     }
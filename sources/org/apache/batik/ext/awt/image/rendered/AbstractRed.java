@@ -376,6 +376,47 @@ public abstract class AbstractRed implements CachableRed {
         return srcs;
     }
 
+    /**
+     * Returns true if several threads may compute areas of this image
+     * at once, every pixel getting the same value whatever the area it
+     * is computed with.  Tiled images only compute their missing tiles
+     * in parallel when this is true.  The default implementation
+     * returns false.
+     */
+    public boolean canComputeConcurrently() {
+        return false;
+    }
+
+    /**
+     * Returns true if all the sources of this image can be computed
+     * concurrently.  Subclasses whose own computation keeps the promise
+     * of {@link #canComputeConcurrently()} can return this.
+     */
+    protected boolean canComputeSourcesConcurrently() {
+        if (srcs == null)
+            return true;
+        Iterator i = srcs.iterator();
+        while (i.hasNext()) {
+            if (!canComputeConcurrently((RenderedImage)i.next()))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if <code>ri</code> is an <code>AbstractRed</code> which
+     * can be computed concurrently.  A tiled image must also keep its
+     * tiles in a store supporting concurrent access.
+     */
+    public static boolean canComputeConcurrently(RenderedImage ri) {
+        if (!(ri instanceof AbstractRed))
+            return false;
+        if ((ri instanceof AbstractTiledRed) &&
+            !((AbstractTiledRed)ri).hasConcurrentTileStore())
+            return false;
+        return ((AbstractRed)ri).canComputeConcurrently();
+    }
+
     public ColorModel getColorModel() {
         return cm;
     }
@@ -22,9 +22,11 @@ import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.image.ColorModel;
 import java.awt.image.DataBufferInt;
+import java.awt.image.MultiPixelPackedSampleModel;
 import java.awt.image.Raster;
 import java.awt.image.SampleModel;
 import java.awt.image.WritableRaster;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -37,6 +39,12 @@ import org.apache.batik.util.HaltingThread;
  * (RenderedImage) interface.  It tries to make no assumptions about
  * the subclass implementation.
  *
+ * <p>When {@link TileWorkers} is given more than one thread, the tiles
+ * missing from a request are computed in parallel, provided
+ * {@link #canComputeConcurrently()} is overridden to tell that
+ * <code>genRect</code> supports it and the tiles are kept in a
+ * {@link BoundedTileCache}, whose stores support concurrent access.
+ *
  * @author <a href="mailto:Thomas.DeWeeese@Kodak.com">Thomas DeWeese</a>
  * @version $Id$
  */
@@ -289,6 +297,14 @@ public abstract class AbstractTiledRed
         this.tiles = tiles;
     }
 
+    /**
+     * Returns true if the tile store of this image supports concurrent
+     * access, which only the stores of a {@link BoundedTileCache} do.
+     */
+    public boolean hasConcurrentTileStore() {
+        return tiles instanceof BoundedTileCache.Store;
+    }
+
     protected TileStore createTileStore() {
         return TileCache.getTileMap(this);
     }
@@ -333,10 +349,16 @@ public abstract class AbstractTiledRed
         tiles.setTile(x, y, ras);
     }
 
-    public void copyToRasterByBlocks(WritableRaster wr) {
+    public void copyToRasterByBlocks(final WritableRaster wr) {
         final boolean is_INT_PACK =
             GraphicsUtil.is_INT_PACK_Data(getSampleModel(), false);
 
+        // Tiles are computed in parallel if enabled and safe, unless
+        // several pixels of wr may share a data element.
+        boolean parallel = (TileWorkers.getThreadCount() > 1) &&
+            canComputeConcurrently(this) &&
+            !(wr.getSampleModel() instanceof MultiPixelPackedSampleModel);
+
         Rectangle bounds = getBounds();
         Rectangle wrR    = wr.getBounds();
 
@@ -427,7 +449,10 @@ public abstract class AbstractTiledRed
                 (insideTx0, insideTy0, xtiles, ytiles, occupied,
                  0, 0, xtiles, ytiles);
             // System.out.println("Starting Splits");
-            drawBlock(block, wr);
+            if (parallel)
+                drawBlockInParallel(block, wr);
+            else
+                drawBlock(block, wr);
             // Exception e= new Exception("Foo");
             // e.printStackTrace();
         }
@@ -438,6 +463,7 @@ public abstract class AbstractTiledRed
             return;
 
         idx = 0;
+        List edgeTiles = parallel ? new ArrayList() : null;
         // Fill in the ones that weren't in the cache.
         for (ty=ty0; ty<=ty1; ty++) {
 
@@ -465,6 +491,20 @@ public abstract class AbstractTiledRed
 
                     // System.out.println("Computing : " + x + "," + y);
 
+                    if (parallel) {
+                        final int x = tx, y = ty;
+                        edgeTiles.add(new Runnable() {
+                                public void run() {
+                                    Raster r = getTile(x, y);
+                                    if (is_INT_PACK)
+                                        GraphicsUtil.copyData_INT_PACK(r, wr);
+                                    else
+                                        GraphicsUtil.copyData_FALLBACK(r, wr);
+                                }
+                            });
+                        continue;
+                    }
+
                     ras = getTile(tx, ty);// Compute the tile..
                     // Check If we should halt early.
                     if (HaltingThread.hasBeenHalted( currentThread ))
@@ -478,6 +518,9 @@ public abstract class AbstractTiledRed
             }
         }
 
+        if (edgeTiles != null)
+            TileWorkers.run(edgeTiles);
+
         // System.out.println("Ending Computation: " + this);
     }
 
@@ -544,6 +587,43 @@ public abstract class AbstractTiledRed
         drawBlockInPlace( blocks, wr );
     }
 
+    /**
+     * Computes the tiles of <code>block</code> which are not occupied
+     * in parallel, directly in <code>wr</code>.  Each block of the best
+     * split is computed one row of tiles at a time, so that there is
+     * work for several threads even when the whole block is missing.
+     */
+    protected void drawBlockInParallel( TileBlock block, WritableRaster wr ) {
+        TileBlock [] blocks = block.getBestSplit();
+        if ( blocks == null ) {
+            return;
+        }
+
+        List rows = new ArrayList();
+        for ( int i = 0; i < blocks.length; i++ ) {
+            TileBlock curr = blocks[ i ];
+            int xloc = curr.getXLoc() * tileWidth + tileGridXOff;
+            int yloc = curr.getYLoc() * tileHeight + tileGridYOff;
+            for ( int j = 0; j < curr.getHeight(); j++ ) {
+                Rectangle tb = new Rectangle( xloc, yloc + j * tileHeight,
+                        curr.getWidth() * tileWidth, tileHeight );
+                tb = tb.intersection( bounds );
+                if ( tb.isEmpty() ) {
+                    continue;
+                }
+                final WritableRaster child =
+                        wr.createWritableChild( tb.x, tb.y, tb.width, tb.height,
+                                tb.x, tb.y, null );
+                rows.add( new Runnable() {
+                        public void run() {
+                            genRect( child );
+                        }
+                    } );
+            }
+        }
+        TileWorkers.run( rows );
+    }
+
     protected void drawBlockAndCopy( TileBlock []blocks, WritableRaster wr ) {
 
         if ( blocks.length == 1 ) {
@@ -97,6 +97,10 @@ public class Any2LsRGBRed extends AbstractRed {
         // System.out.println("");
     }
 
+    public boolean canComputeConcurrently() {
+        return canComputeSourcesConcurrently();
+    }
+
     public WritableRaster copyData(WritableRaster wr) {
         // Get my source.
         CachableRed src   = (CachableRed)getSources().get(0);
@@ -152,6 +152,10 @@ public class Any2sRGBRed extends AbstractRed {
         return wr;
     }
 
+    public boolean canComputeConcurrently() {
+        return canComputeSourcesConcurrently();
+    }
+
     public WritableRaster copyData(WritableRaster wr) {
 
         // Get my source.
@@ -0,0 +1,371 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.ext.awt.image.rendered;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.batik.util.HaltingThread;
+
+/**
+ * A tile cache bounded by the memory used by the cached tiles, rather
+ * than by their number.  The tiles of all the <code>TileStore</code>s
+ * created by a cache share its budget.  They are spread over several
+ * independently locked LRU lists (stripes), so that threads working on
+ * different tiles seldom contend on the same lock.  Each stripe evicts
+ * its least recently used tiles once it holds more than its share of
+ * the budget.
+ *
+ * <p>A cache may be installed for all tiled images with
+ * {@link TileCache#setDefaultCache}, or for the images created by the
+ * current thread with {@link TileCache#setScopedCache}.</p>
+ *
+ * @version $Id$
+ */
+public class BoundedTileCache {
+
+    /**
+     * The default number of stripes.
+     */
+    public static final int DEFAULT_STRIPE_COUNT = 16;
+
+    /**
+     * The minimum budget of each stripe created by default, in bytes.
+     */
+    public static final long MIN_STRIPE_BYTES = 1 << 20;
+
+    /**
+     * The stripes.
+     */
+    protected Stripe[] stripes;
+
+    /**
+     * The maximum number of bytes of cached tile data.
+     */
+    protected long maxBytes;
+
+    /**
+     * Used to give each store its own identifier.
+     */
+    protected AtomicInteger storeCount = new AtomicInteger();
+
+    /**
+     * The number of tiles found in the cache.
+     */
+    protected AtomicLong hits = new AtomicLong();
+
+    /**
+     * The number of tiles that had to be generated.
+     */
+    protected AtomicLong misses = new AtomicLong();
+
+    /**
+     * The number of tiles evicted to stay within the budget.
+     */
+    protected AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a new BoundedTileCache with up to
+     * <code>DEFAULT_STRIPE_COUNT</code> stripes, fewer for small budgets
+     * so that each stripe can hold a reasonable number of tiles.
+     * @param maxBytes the maximum number of bytes of cached tile data.
+     */
+    public BoundedTileCache(long maxBytes) {
+        this(maxBytes,
+             (int)Math.max(1, Math.min(DEFAULT_STRIPE_COUNT,
+                                       maxBytes / MIN_STRIPE_BYTES)));
+    }
+
+    /**
+     * Creates a new BoundedTileCache.
+     * @param maxBytes the maximum number of bytes of cached tile data.
+     * @param stripeCount the number of independently locked stripes.
+     */
+    public BoundedTileCache(long maxBytes, int stripeCount) {
+        if (maxBytes < 0 || stripeCount < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.maxBytes = maxBytes;
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(maxBytes / stripeCount);
+        }
+    }
+
+    /**
+     * Returns a new <code>TileStore</code> whose tiles are kept in this
+     * cache and generated by <code>source</code> when missing.
+     */
+    public TileStore createTileStore(TileGenerator source) {
+        return new Store(storeCount.incrementAndGet(), source);
+    }
+
+    /**
+     * Returns the maximum number of bytes of cached tile data.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Returns the number of bytes of tile data currently cached.
+     */
+    public long getBytes() {
+        long n = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            synchronized (stripes[i]) {
+                n += stripes[i].bytes;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns the number of tiles found in the cache.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of tiles that were not in the cache and had to
+     * be generated.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of tiles evicted from the cache to stay within
+     * its budget.
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Removes all the tiles from the cache.
+     */
+    public void flush() {
+        for (int i = 0; i < stripes.length; i++) {
+            synchronized (stripes[i]) {
+                stripes[i].clear();
+                stripes[i].bytes = 0;
+            }
+        }
+    }
+
+    /**
+     * Returns a printable representation of the cache statistics.
+     */
+    public String toString() {
+        return "BoundedTileCache[bytes=" + getBytes() + "/" + maxBytes
+            + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+            + ", evictions=" + getEvictionCount() + "]";
+    }
+
+    /**
+     * Returns the number of bytes used by the samples of a tile.
+     */
+    protected static long getSize(Raster ras) {
+        SampleModel sm = ras.getSampleModel();
+        long elts = (long)ras.getWidth() * ras.getHeight()
+            * sm.getNumDataElements();
+        return elts * DataBuffer.getDataTypeSize(sm.getDataType()) / 8;
+    }
+
+    /**
+     * Returns the stripe holding the given key.
+     */
+    protected Stripe getStripe(Key k) {
+        int h = k.hashCode();
+        h ^= (h >>> 16);
+        return stripes[(h & 0x7fffffff) % stripes.length];
+    }
+
+    /**
+     * Returns the cached tile for the given key, or null.
+     */
+    protected Raster get(Key k) {
+        Stripe s = getStripe(k);
+        synchronized (s) {
+            return (Raster)s.get(k);
+        }
+    }
+
+    /**
+     * Caches a tile, evicting the least recently used tiles of its
+     * stripe if needed.  Tiles larger than a stripe are not cached.
+     */
+    protected void put(Key k, Raster ras) {
+        Stripe s = getStripe(k);
+        long sz = getSize(ras);
+        synchronized (s) {
+            Raster old = (Raster)s.remove(k);
+            if (old != null) {
+                s.bytes -= getSize(old);
+            }
+            if (sz > s.maxBytes) {
+                return;
+            }
+            s.put(k, ras);
+            s.bytes += sz;
+
+            Iterator i = s.entrySet().iterator();
+            while (s.bytes > s.maxBytes && i.hasNext()) {
+                Map.Entry e = (Map.Entry)i.next();
+                s.bytes -= getSize((Raster)e.getValue());
+                i.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Removes a tile from the cache.
+     */
+    protected void remove(Key k) {
+        Stripe s = getStripe(k);
+        synchronized (s) {
+            Raster old = (Raster)s.remove(k);
+            if (old != null) {
+                s.bytes -= getSize(old);
+            }
+        }
+    }
+
+    /**
+     * An LRU list of tiles, with its share of the budget.
+     */
+    protected static class Stripe extends LinkedHashMap {
+
+        /**
+         * The number of bytes of tile data in this stripe.
+         */
+        protected long bytes;
+
+        /**
+         * The maximum number of bytes of tile data in this stripe.
+         */
+        protected long maxBytes;
+
+        /**
+         * Creates a new Stripe.
+         */
+        public Stripe(long maxBytes) {
+            super(16, 0.75f, true);
+            this.maxBytes = maxBytes;
+        }
+    }
+
+    /**
+     * The key of a tile: the store it belongs to and its position.
+     * Stores are identified by number so that cached tiles do not keep
+     * the images that generated them alive.
+     */
+    protected static class Key {
+        protected int store;
+        protected int x;
+        protected int y;
+
+        public Key(int store, int x, int y) {
+            this.store = store;
+            this.x = x;
+            this.y = y;
+        }
+
+        public int hashCode() {
+            return (store * 31 + x) * 31 + y;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key)o;
+            return k.store == store && k.x == x && k.y == y;
+        }
+    }
+
+    /**
+     * A <code>TileStore</code> keeping its tiles in this cache.
+     */
+    protected class Store implements TileStore {
+
+        /**
+         * The identifier of this store in the cache.
+         */
+        protected int id;
+
+        /**
+         * Generates the tiles missing from the cache.
+         */
+        protected TileGenerator source;
+
+        /**
+         * Creates a new Store.
+         */
+        public Store(int id, TileGenerator source) {
+            this.id = id;
+            this.source = source;
+        }
+
+        public void setTile(int x, int y, Raster ras) {
+            Key k = new Key(id, x, y);
+            if (ras == null) {
+                remove(k);
+            } else {
+                put(k, ras);
+            }
+        }
+
+        public Raster getTileNoCompute(int x, int y) {
+            Raster ras = get(new Key(id, x, y));
+            if (ras != null) {
+                hits.incrementAndGet();
+            }
+            return ras;
+        }
+
+        public Raster getTile(int x, int y) {
+            Key k = new Key(id, x, y);
+            Raster ras = get(k);
+            if (ras != null) {
+                hits.incrementAndGet();
+                return ras;
+            }
+            misses.incrementAndGet();
+            ras = source.genTile(x, y);
+
+            // In all likelyhood the contents of this tile is junk!
+            // So don't cache it.
+            if (HaltingThread.hasBeenHalted())
+                return ras;
+
+            put(k, ras);
+            return ras;
+        }
+    }
+}
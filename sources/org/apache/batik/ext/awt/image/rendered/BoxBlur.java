@@ -0,0 +1,485 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.ext.awt.image.rendered;
+
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The three successive box filters used by <code>GaussianBlurRed8Bit</code>
+ * to approximate a gaussian blur of large standard deviation, on
+ * INT_PACK data.
+ *
+ * <p>Each of the four 8 bit channels is unpacked in turn into an array
+ * of rows of ints, filtered, and packed back.  Every pass goes down the
+ * columns, keeping a row of running column sums updated a whole row at a
+ * time: these loops read and write arrays in order from their start,
+ * which lets the JIT compile them to SIMD instructions.  The horizontal
+ * passes work on the transposed channel, which is unpacked that way and
+ * transposed back for the vertical passes.  The working arrays are taken
+ * from a small pool shared by all threads, bounded in bytes and softly
+ * held, so filtering tile after tile seldom allocates.</p>
+ *
+ * <p>The results are exactly those of the historical per-pixel
+ * implementation: each pass truncates its averages to 8 bits, and the
+ * pixels a pass cannot compute keep their previous value.</p>
+ *
+ * @version $Id$
+ */
+public class BoxBlur {
+
+    /**
+     * The largest array, in ints, kept in the pool.
+     */
+    protected static final int MAX_POOLED_SIZE = 1 << 20;
+
+    /**
+     * The largest number of bytes the arrays kept in the pool may use
+     * together.
+     */
+    protected static final int MAX_POOL_BYTES = 16 << 20;
+
+    /**
+     * The pool shared by all threads, softly held so the collector can
+     * reclaim it when memory runs low.
+     */
+    private static SoftReference poolRef = new SoftReference(null);
+
+    /**
+     * The arrays kept in the pool.
+     */
+    private static class Pool {
+        /**
+         * The pooled int arrays: a List of int[].
+         */
+        List buffers = new ArrayList();
+
+        /**
+         * The pooled arrays of rows: a List of int[][].
+         */
+        List rows = new ArrayList();
+
+        /**
+         * The number of ints held by all the pooled arrays.
+         */
+        int size;
+    }
+
+    /**
+     * Returns the pool, creating it if needed.
+     */
+    private static Pool getPool() {
+        Pool p = (Pool)poolRef.get();
+        if (p == null) {
+            p = new Pool();
+            poolRef = new SoftReference(p);
+        }
+        return p;
+    }
+
+    /**
+     * Returns an int array of at least <code>len</code> elements, taken
+     * from the pool if possible.  Its content is undefined.
+     */
+    public static int[] takeBuffer(int len) {
+        synchronized (BoxBlur.class) {
+            Pool p = (Pool)poolRef.get();
+            if (p != null) {
+                List l = p.buffers;
+                for (int i = 0; i < l.size(); i++) {
+                    int[] buf = (int[])l.get(i);
+                    if (buf.length >= len) {
+                        l.remove(i);
+                        p.size -= buf.length;
+                        return buf;
+                    }
+                }
+            }
+        }
+        return new int[len];
+    }
+
+    /**
+     * Gives back an array returned by {@link #takeBuffer} to the pool.
+     */
+    public static void giveBuffer(int[] buf) {
+        int sz = buf.length;
+        if (sz > MAX_POOLED_SIZE) {
+            return;
+        }
+        synchronized (BoxBlur.class) {
+            Pool p = getPool();
+            if (fits(p, sz)) {
+                p.buffers.add(buf);
+                p.size += sz;
+            }
+        }
+    }
+
+    /**
+     * Returns at least <code>rows</code> rows of at least
+     * <code>cols</code> ints, taken from the pool if possible.  Their
+     * content is undefined.
+     */
+    protected static int[][] takeRows(int rows, int cols) {
+        synchronized (BoxBlur.class) {
+            Pool p = (Pool)poolRef.get();
+            if (p != null) {
+                List l = p.rows;
+                for (int i = 0; i < l.size(); i++) {
+                    int[][] buf = (int[][])l.get(i);
+                    if (buf.length >= rows && buf[0].length >= cols) {
+                        l.remove(i);
+                        p.size -= buf.length * buf[0].length;
+                        return buf;
+                    }
+                }
+            }
+        }
+        // Square arrays fit the transposed requests too.
+        int sz = Math.max(rows, cols);
+        if (sz * sz <= MAX_POOLED_SIZE) {
+            return new int[sz][sz];
+        }
+        return new int[rows][cols];
+    }
+
+    /**
+     * Gives back rows returned by {@link #takeRows} to the pool.
+     */
+    protected static void giveRows(int[][] buf) {
+        if (buf == null) {
+            return;
+        }
+        int sz = buf.length * buf[0].length;
+        if (sz > MAX_POOLED_SIZE) {
+            return;
+        }
+        synchronized (BoxBlur.class) {
+            Pool p = getPool();
+            if (fits(p, sz)) {
+                p.rows.add(buf);
+                p.size += sz;
+            }
+        }
+    }
+
+    /**
+     * Tells whether <code>sz</code> more ints fit in the given pool.
+     */
+    private static boolean fits(Pool p, int sz) {
+        return ((long)p.size + sz) * 4 <= MAX_POOL_BYTES;
+    }
+
+    /**
+     * Returns the number of columns (or rows) on each side the three box
+     * filters of size <code>d</code> leave unfiltered.
+     */
+    public static int getSkip(int d) {
+        if ((d & 0x01) == 0) {
+            return d-1 + d/2;
+        } else {
+            return d-2 + d/2;
+        }
+    }
+
+    /**
+     * Filters the given INT_PACK raster in place, horizontally then
+     * vertically.
+     * @param wr the raster to filter
+     * @param dX the size of the horizontal boxes, 0 for none
+     * @param dY the size of the vertical boxes, 0 for none
+     * @param skipX the columns on each side the vertical passes skip,
+     *        when there is no horizontal pass
+     */
+    public static void blur(WritableRaster wr, int dX, int dY, int skipX) {
+        SinglePixelPackedSampleModel sppsm =
+            (SinglePixelPackedSampleModel)wr.getSampleModel();
+        DataBufferInt db = (DataBufferInt)wr.getDataBuffer();
+        int off = (db.getOffset() +
+                   sppsm.getOffset
+                   (wr.getMinX()-wr.getSampleModelTranslateX(),
+                    wr.getMinY()-wr.getSampleModelTranslateY()));
+        blur(db.getBankData()[0], off, sppsm.getScanlineStride(),
+             wr.getWidth(), wr.getHeight(), dX, dY, skipX);
+    }
+
+    /**
+     * Filters the given INT_PACK pixels in place, horizontally then
+     * vertically.
+     * @param pixels the pixels
+     * @param off the index of the top left pixel
+     * @param scan the distance between two rows
+     * @param w the width
+     * @param h the height
+     * @param dX the size of the horizontal boxes, 0 for none
+     * @param dY the size of the vertical boxes, 0 for none
+     * @param skipX the columns on each side the vertical passes skip,
+     *        when there is no horizontal pass
+     */
+    public static void blur(int[] pixels, int off, int scan, int w, int h,
+                            int dX, int dY, int skipX) {
+        if ((dX <= 0 && dY <= 0) || w <= 0 || h <= 0) {
+            return;
+        }
+        if (dX > 0) {
+            skipX = getSkip(dX);
+        }
+        int[][] passesX = (dX > 0) ? getPasses(dX) : null;
+        int[][] passesY = (dY > 0) ? getPasses(dY) : null;
+
+        int[] sums = takeBuffer(Math.max(w, h));
+        int[][] colsA = null, colsB = null, rowsA = null, rowsB = null;
+        try {
+            if (dX > 0) {
+                colsA = takeRows(w, h);
+                colsB = takeRows(w, h);
+            }
+            if (dY > 0) {
+                rowsA = takeRows(h, w);
+                rowsB = takeRows(h, w);
+            }
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                int[][] cur;
+                boolean transposed;
+                if (dX > 0) {
+                    unpack(pixels, off, scan, w, h, shift, colsA, true);
+                    cur = colsA;
+                    int[][] tmp = colsB;
+                    for (int i = 0; i < 3; i++) {
+                        int[] pass = passesX[i];
+                        if (filterColumns(cur, tmp, sums, h, w, 0,
+                                          pass[0], pass[1], pass[2])) {
+                            int[][] t = cur; cur = tmp; tmp = t;
+                        }
+                    }
+                    transposed = true;
+                    if (dY > 0) {
+                        transpose(cur, rowsA, w, h);
+                        cur = rowsA;
+                        transposed = false;
+                    }
+                } else {
+                    unpack(pixels, off, scan, w, h, shift, rowsA, false);
+                    cur = rowsA;
+                    transposed = false;
+                }
+                if (dY > 0) {
+                    int[][] tmp = rowsB;
+                    for (int i = 0; i < 3; i++) {
+                        int[] pass = passesY[i];
+                        if (filterColumns(cur, tmp, sums, w, h, skipX,
+                                          pass[0], pass[1], pass[2])) {
+                            int[][] t = cur; cur = tmp; tmp = t;
+                        }
+                    }
+                }
+                pack(cur, transposed, pixels, off, scan, w, h, shift);
+            }
+        } finally {
+            giveRows(rowsB);
+            giveRows(rowsA);
+            giveRows(colsB);
+            giveRows(colsA);
+            giveBuffer(sums);
+        }
+    }
+
+    /**
+     * Returns the skip, box size and location of the three passes for
+     * boxes of size <code>d</code>.
+     */
+    protected static int[][] getPasses(int d) {
+        if ((d & 0x01) == 0) {
+            return new int[][] { { 0,     d,     d/2   },
+                                 { d/2,   d,     d/2-1 },
+                                 { d-1,   d+1,   d/2   } };
+        } else {
+            return new int[][] { { 0,     d,     d/2   },
+                                 { d/2,   d,     d/2   },
+                                 { d-2,   d,     d/2   } };
+        }
+    }
+
+    /**
+     * The size of the blocks in which the transpositions are done, so
+     * that both sides stay in the cache.
+     */
+    protected static final int BLOCK = 32;
+
+    /**
+     * Copies one channel of the given pixels into <code>dst</code>,
+     * transposed or not.
+     */
+    protected static void unpack(int[] pixels, int off, int scan,
+                                 int w, int h, int shift,
+                                 int[][] dst, boolean transposed) {
+        if (!transposed) {
+            for (int y = 0; y < h; y++) {
+                int p = off + y * scan;
+                int[] row = dst[y];
+                for (int x = 0; x < w; x++) {
+                    row[x] = (pixels[p + x] >>> shift) & 0xFF;
+                }
+            }
+            return;
+        }
+        for (int y0 = 0; y0 < h; y0 += BLOCK) {
+            int y1 = Math.min(y0 + BLOCK, h);
+            for (int x0 = 0; x0 < w; x0 += BLOCK) {
+                int x1 = Math.min(x0 + BLOCK, w);
+                for (int x = x0; x < x1; x++) {
+                    int[] col = dst[x];
+                    int p = off + y0 * scan + x;
+                    for (int y = y0; y < y1; y++, p += scan) {
+                        col[y] = (pixels[p] >>> shift) & 0xFF;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies <code>src</code>, transposed or not, into one channel of
+     * the given pixels.
+     */
+    protected static void pack(int[][] src, boolean transposed,
+                               int[] pixels, int off, int scan,
+                               int w, int h, int shift) {
+        int mask = ~(0xFF << shift);
+        if (!transposed) {
+            for (int y = 0; y < h; y++) {
+                int p = off + y * scan;
+                int[] row = src[y];
+                for (int x = 0; x < w; x++) {
+                    pixels[p + x] = (pixels[p + x] & mask)
+                        | (row[x] << shift);
+                }
+            }
+            return;
+        }
+        for (int y0 = 0; y0 < h; y0 += BLOCK) {
+            int y1 = Math.min(y0 + BLOCK, h);
+            for (int x0 = 0; x0 < w; x0 += BLOCK) {
+                int x1 = Math.min(x0 + BLOCK, w);
+                for (int x = x0; x < x1; x++) {
+                    int[] col = src[x];
+                    int p = off + y0 * scan + x;
+                    for (int y = y0; y < y1; y++, p += scan) {
+                        pixels[p] = (pixels[p] & mask) | (col[y] << shift);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the transposition of the first <code>rows</code> rows of
+     * <code>cols</code> ints of <code>src</code> into <code>dst</code>.
+     */
+    protected static void transpose(int[][] src, int[][] dst,
+                                    int rows, int cols) {
+        for (int y0 = 0; y0 < cols; y0 += BLOCK) {
+            int y1 = Math.min(y0 + BLOCK, cols);
+            for (int x0 = 0; x0 < rows; x0 += BLOCK) {
+                int x1 = Math.min(x0 + BLOCK, rows);
+                for (int x = x0; x < x1; x++) {
+                    int[] col = src[x];
+                    for (int y = y0; y < y1; y++) {
+                        dst[y][x] = col[y];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Filters the columns of <code>in</code> into <code>out</code>.
+     * @param sums an array of at least <code>w</code> ints
+     * @param w the length of the rows
+     * @param h the number of rows
+     * @param skipX the columns left untouched on each side
+     * @param skip the rows skipped at the top and bottom
+     * @param boxSz the size of the box
+     * @param loc the location of the result in the box
+     * @return false if the columns are too short, in which case nothing
+     *         is done.
+     */
+    protected static boolean filterColumns(int[][] in, int[][] out,
+                                           int[] sums, int w, int h,
+                                           int skipX, int skip,
+                                           int boxSz, int loc) {
+        if (w < (2*skipX)) {
+            return false;
+        }
+        if (h < (2*skip)+boxSz) {
+            return false;
+        }
+        final int x0 = skipX;
+        final int x1 = w - skipX;
+
+        // The pixels around the ones computed are kept.
+        final int first = skip + loc;
+        final int last  = h - skip - boxSz + loc;
+        for (int y = 0; y < h; y++) {
+            if (y < first || y > last) {
+                System.arraycopy(in[y], 0, out[y], 0, w);
+            } else if (x0 > 0) {
+                System.arraycopy(in[y], 0, out[y], 0, x0);
+                System.arraycopy(in[y], x1, out[y], x1, w - x1);
+            }
+        }
+
+        // Fixed point normalization factor (8.24)
+        final int scale = (1<<24)/boxSz;
+
+        // Each loop below stores into a single array, at the index it
+        // reads the others, so that it can be vectorized.
+        for (int x = x0; x < x1; x++) {
+            sums[x] = 0;
+        }
+        for (int y = skip; y < skip + boxSz; y++) {
+            int[] row = in[y];
+            for (int x = x0; x < x1; x++) {
+                sums[x] += row[x];
+            }
+        }
+        int[] dst = out[first];
+        for (int x = x0; x < x1; x++) {
+            dst[x] = (sums[x]*scale) >>> 24;
+        }
+        int dy = first;
+        for (int y = skip + boxSz; y < h - skip; y++) {
+            int[] add = in[y];
+            int[] sub = in[y - boxSz];
+            for (int x = x0; x < x1; x++) {
+                sums[x] += add[x] - sub[x];
+            }
+            dst = out[++dy];
+            for (int x = x0; x < x1; x++) {
+                dst[x] = (sums[x]*scale) >>> 24;
+            }
+        }
+        return true;
+    }
+}
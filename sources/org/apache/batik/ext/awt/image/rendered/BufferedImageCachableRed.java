@@ -104,6 +104,10 @@ public class BufferedImageCachableRed extends AbstractRed {
                                          ret.getMinY()+getMinY());
     }
 
+    public boolean canComputeConcurrently() {
+        return true;
+    }
+
     public WritableRaster copyData(WritableRaster wr) {
         WritableRaster wr2 = wr.createWritableTranslatedChild
             (wr.getMinX()-getMinX(),
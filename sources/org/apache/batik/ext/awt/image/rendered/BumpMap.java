@@ -70,6 +70,13 @@ public final class BumpMap {
         return surfaceScale;
     }
 
+    /**
+     * @return image whose alpha channel is used for the normals.
+     */
+    public RenderedImage getTexture(){
+        return texture;
+    }
+
     /**
      * @param x x-axis coordinate for which the normal is computed
      * @param y y-axis coordinate for which the normal is computed
@@ -94,6 +94,10 @@ public class DiffuseLightingRed extends AbstractRed{
              litRegion.x, litRegion.y, null);
     }
 
+    public boolean canComputeConcurrently() {
+        return canComputeConcurrently(bumpMap.getTexture());
+    }
+
     public WritableRaster copyData(WritableRaster wr){
         final double[] lightColor = light.getColor(linear);
         
@@ -100,6 +100,10 @@ public class FloodRed extends AbstractRed {
         return raster.createTranslatedChild(tx, ty);
     }
 
+    public boolean canComputeConcurrently() {
+        return true;
+    }
+
     public WritableRaster copyData(WritableRaster wr) {
         int tx0 = getXTile(wr.getMinX());
         int ty0 = getYTile(wr.getMinY());
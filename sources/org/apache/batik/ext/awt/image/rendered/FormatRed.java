@@ -103,6 +103,10 @@ public class FormatRed extends AbstractRed {
         return getSource().getPropertyNames();
     }
 
+    public boolean canComputeConcurrently() {
+        return canComputeSourcesConcurrently();
+    }
+
     public WritableRaster copyData(WritableRaster wr) {
         ColorModel  cm    = getColorModel();
         CachableRed cr    = getSource();
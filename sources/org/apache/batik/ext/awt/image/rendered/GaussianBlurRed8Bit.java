@@ -208,6 +208,10 @@ public class GaussianBlurRed8Bit extends AbstractRed {
         return new Kernel(1, len, computeQualityKernelData(len, stdDevY));
     }
 
+    public boolean canComputeConcurrently() {
+        return canComputeSourcesConcurrently();
+    }
+
     public WritableRaster copyData(WritableRaster wr) {
         // Get my source.
         CachableRed src = (CachableRed)getSources().get(0);
@@ -225,323 +229,91 @@ public class GaussianBlurRed8Bit extends AbstractRed {
 
         WritableRaster tmpR1=null, tmpR2=null;
 
-        tmpR1 = srcCM.createCompatibleWritableRaster(r.width, r.height);
-        {
-            WritableRaster fill;
-            fill = tmpR1.createWritableTranslatedChild(r.x, r.y);
-            src.copyData(fill);
-        }
-        if (srcCM.hasAlpha() && !srcCM.isAlphaPremultiplied())
-            GraphicsUtil.coerceData(tmpR1, srcCM, true);
-
-        // For the blur box approx we can use dest as our intermediate
-        // otherwise we let it default to null which means we create a new
-        // one...
-
-        // this lets the Vertical conv know how much is junk, so it
-        // doesn't bother to convolve the top and bottom edges
-        int skipX;
-        // long t1 = System.currentTimeMillis();
-        if (xinset == 0) {
-            skipX = 0;
-        } else if (convOp[0] != null) {
-            tmpR2 = getColorModel().createCompatibleWritableRaster
-                (r.width, r.height);
-            tmpR2 = convOp[0].filter(tmpR1, tmpR2);
-            skipX = convOp[0].getKernel().getXOrigin();
-
-            // Swap them...
-            WritableRaster tmp = tmpR1;
-            tmpR1 = tmpR2;
-            tmpR2 = tmp;
+        // When only box blurs are used the work is done in place, so
+        // the source pixels can go in a pooled buffer.
+        int [] pooled = null;
+        SampleModel sm = srcCM.createCompatibleSampleModel(r.width, r.height);
+        if ((convOp[0] == null) && (convOp[1] == null) &&
+            (sm instanceof SinglePixelPackedSampleModel) &&
+            (sm.getDataType() == DataBuffer.TYPE_INT)) {
+            int len = r.width*r.height;
+            pooled = BoxBlur.takeBuffer(len);
+            tmpR1 = Raster.createWritableRaster
+                (sm, new DataBufferInt(pooled, len), null);
         } else {
-            if ((dX&0x01) == 0){
-                tmpR1 = boxFilterH(tmpR1, tmpR1, 0,    0,   dX,   dX/2);
-                tmpR1 = boxFilterH(tmpR1, tmpR1, dX/2, 0,   dX,   dX/2-1);
-                tmpR1 = boxFilterH(tmpR1, tmpR1, dX-1, 0,   dX+1, dX/2);
-                skipX = dX-1 + dX/2;
-            } else {
-                tmpR1 = boxFilterH(tmpR1, tmpR1, 0,    0,   dX, dX/2);
-                tmpR1 = boxFilterH(tmpR1, tmpR1, dX/2, 0,   dX, dX/2);
-                tmpR1 = boxFilterH(tmpR1, tmpR1, dX-2, 0,   dX, dX/2);
-                skipX = dX-2 + dX/2;
-            }
+            tmpR1 = srcCM.createCompatibleWritableRaster(r.width, r.height);
         }
-
-        if (yinset == 0) {
-            tmpR2 = tmpR1;
-        } else if (convOp[1] != null) {
-            if (tmpR2 == null) {
+        try {
+            {
+                WritableRaster fill;
+                fill = tmpR1.createWritableTranslatedChild(r.x, r.y);
+                src.copyData(fill);
+            }
+            if (srcCM.hasAlpha() && !srcCM.isAlphaPremultiplied())
+                GraphicsUtil.coerceData(tmpR1, srcCM, true);
+
+            // For the blur box approx we can use dest as our intermediate
+            // otherwise we let it default to null which means we create a
+            // new one...
+
+            // this lets the Vertical conv know how much is junk, so it
+            // doesn't bother to convolve the top and bottom edges
+            int skipX;
+            // The size of the horizontal boxes, if any.
+            int boxX = 0;
+            // long t1 = System.currentTimeMillis();
+            if (xinset == 0) {
+                skipX = 0;
+            } else if (convOp[0] != null) {
                 tmpR2 = getColorModel().createCompatibleWritableRaster
                     (r.width, r.height);
-            }
-            tmpR2 = convOp[1].filter(tmpR1, tmpR2);
-        } else {
-            if ((dY&0x01) == 0){
-                tmpR1 = boxFilterV(tmpR1, tmpR1, skipX, 0,    dY,   dY/2);
-                tmpR1 = boxFilterV(tmpR1, tmpR1, skipX, dY/2, dY,   dY/2-1);
-                tmpR1 = boxFilterV(tmpR1, tmpR1, skipX, dY-1, dY+1, dY/2);
-            }
-            else {
-                tmpR1 = boxFilterV(tmpR1, tmpR1, skipX, 0,    dY, dY/2);
-                tmpR1 = boxFilterV(tmpR1, tmpR1, skipX, dY/2, dY, dY/2);
-                tmpR1 = boxFilterV(tmpR1, tmpR1, skipX, dY-2, dY, dY/2);
-            }
-            tmpR2 = tmpR1;
-        }
-        // long t2 = System.currentTimeMillis();
-        // System.out.println("Time: " + (t2-t1) +
-        //                       (((convOp[0] != null) || (convOp[1] != null))?
-        //                        " ConvOp":""));
-        // System.out.println("Rasters  WR :" + wr.getBounds());
-        // System.out.println("         tmp:" + tmpR2.getBounds());
-        // System.out.println("      bounds:" + getBounds());
-        // System.out.println("       skipX:" + skipX +
-        //                    " dx:" + dX + " Dy: " + dY);
-        tmpR2 = tmpR2.createWritableTranslatedChild(r.x, r.y);
-        GraphicsUtil.copyData(tmpR2, wr);
-
-        return wr;
-    }
+                tmpR2 = convOp[0].filter(tmpR1, tmpR2);
+                skipX = convOp[0].getKernel().getXOrigin();
 
-    private WritableRaster boxFilterH(Raster src, WritableRaster dest,
-                                      int skipX, int skipY,
-                                      int boxSz, int loc) {
-
-        final int w = src.getWidth();
-        final int h = src.getHeight();
-
-          // Check if the raster is wide enough to do _any_ work
-        if (w < (2*skipX)+boxSz) return dest;
-        if (h < (2*skipY))       return dest;
-
-        final SinglePixelPackedSampleModel srcSPPSM =
-            (SinglePixelPackedSampleModel)src.getSampleModel();
-
-        final SinglePixelPackedSampleModel dstSPPSM =
-            (SinglePixelPackedSampleModel)dest.getSampleModel();
-
-        // Stride is the distance between two consecutive column elements,
-        // in the one-dimention dataBuffer
-        final int srcScanStride = srcSPPSM.getScanlineStride();
-        final int dstScanStride = dstSPPSM.getScanlineStride();
-
-        // Access the integer buffer for each image.
-        DataBufferInt srcDB = (DataBufferInt)src.getDataBuffer();
-        DataBufferInt dstDB = (DataBufferInt)dest.getDataBuffer();
-
-        // Offset defines where in the stack the real data begin
-        final int srcOff
-            = (srcDB.getOffset() +
-               srcSPPSM.getOffset
-               (src.getMinX()-src.getSampleModelTranslateX(),
-                src.getMinY()-src.getSampleModelTranslateY()));
-        final int dstOff
-            = (dstDB.getOffset() +
-               dstSPPSM.getOffset
-               (dest.getMinX()-dest.getSampleModelTranslateX(),
-                dest.getMinY()-dest.getSampleModelTranslateY()));
-
-        // Access the pixel value array
-        final int[] srcPixels  = srcDB.getBankData()[0];
-        final int[] destPixels = dstDB.getBankData()[0];
-
-        final int [] buffer = new int [boxSz];
-        int curr, prev;
-
-          // Fixed point normalization factor (8.24)
-        int scale = (1<<24)/boxSz;
-
-        /*
-         * System.out.println("Info: srcOff: " + srcOff +
-         *                    " x: " + skipX +
-         *                    " y: " + skipY +
-         *                    " w: " + w +
-         *                    " h: " + h +
-         *                    " boxSz " + boxSz +
-         *                    " srcStride: " + srcScanStride);
-         */
-
-        for (int y=skipY; y<(h-skipY); y++) {
-            int sp     = srcOff + y*srcScanStride;
-            int dp     = dstOff + y*dstScanStride;
-            int rowEnd = sp + (w-skipX);
-
-            int k    = 0;
-            int sumA = 0;
-            int sumR = 0;
-            int sumG = 0;
-            int sumB = 0;
-
-            sp += skipX;
-            int end  = sp+boxSz;
-
-            while (sp < end) {
-                curr = buffer[k] = srcPixels[sp];
-                sumA += (curr>>> 24);
-                sumR += (curr >> 16)&0xFF;
-                sumG += (curr >>  8)&0xFF;
-                sumB += (curr      )&0xFF;
-                k++;
-                sp++;
+                // Swap them...
+                WritableRaster tmp = tmpR1;
+                tmpR1 = tmpR2;
+                tmpR2 = tmp;
+            } else {
+                // Done below, with the vertical boxes if any.
+                boxX  = dX;
+                skipX = BoxBlur.getSkip(dX);
             }
 
-            dp += skipX + loc;
-            prev = destPixels[dp] = (( (sumA*scale)&0xFF000000)       |
-                                     (((sumR*scale)&0xFF000000)>>>8)  |
-                                     (((sumG*scale)&0xFF000000)>>>16) |
-                                     (((sumB*scale)&0xFF000000)>>>24));
-            dp++;
-            k=0;
-            while (sp < rowEnd) {
-                curr = buffer[k];
-                if (curr == srcPixels[sp]) {
-                    destPixels[dp] = prev;
-                } else {
-                    sumA -= (curr>>> 24);
-                    sumR -= (curr >> 16)&0xFF;
-                    sumG -= (curr >>  8)&0xFF;
-                    sumB -= (curr      )&0xFF;
-
-                    curr = buffer[k] = srcPixels[sp];
-
-                    sumA += (curr>>> 24);
-                    sumR += (curr >> 16)&0xFF;
-                    sumG += (curr >>  8)&0xFF;
-                    sumB += (curr      )&0xFF;
-                    prev = destPixels[dp] = (( (sumA*scale)&0xFF000000)       |
-                                             (((sumR*scale)&0xFF000000)>>>8)  |
-                                             (((sumG*scale)&0xFF000000)>>>16) |
-                                             (((sumB*scale)&0xFF000000)>>>24));
+            if (yinset == 0) {
+                BoxBlur.blur(tmpR1, boxX, 0, skipX);
+                tmpR2 = tmpR1;
+            } else if (convOp[1] != null) {
+                BoxBlur.blur(tmpR1, boxX, 0, skipX);
+                if (tmpR2 == null) {
+                    tmpR2 = getColorModel().createCompatibleWritableRaster
+                        (r.width, r.height);
                 }
-                k = (k+1)%boxSz;
-                sp++;
-                dp++;
+                tmpR2 = convOp[1].filter(tmpR1, tmpR2);
+            } else {
+                BoxBlur.blur(tmpR1, boxX, dY, skipX);
+                tmpR2 = tmpR1;
             }
+            // long t2 = System.currentTimeMillis();
+            // System.out.println("Time: " + (t2-t1) +
+            //                    (((convOp[0] != null) || (convOp[1] != null))?
+            //                     " ConvOp":""));
+            // System.out.println("Rasters  WR :" + wr.getBounds());
+            // System.out.println("         tmp:" + tmpR2.getBounds());
+            // System.out.println("      bounds:" + getBounds());
+            // System.out.println("       skipX:" + skipX +
+            //                    " dx:" + dX + " Dy: " + dY);
+            tmpR2 = tmpR2.createWritableTranslatedChild(r.x, r.y);
+            GraphicsUtil.copyData(tmpR2, wr);
+        } finally {
+            if (pooled != null)
+                BoxBlur.giveBuffer(pooled);
         }
-        return dest;
-    }
-
-    private WritableRaster boxFilterV(Raster src, WritableRaster dest,
-                                      int skipX, int skipY,
-                                      int boxSz, int loc) {
-
-        final int w = src.getWidth();
-        final int h = src.getHeight();
-
-          // Check if the raster is wide enough to do _any_ work
-        if (w < (2*skipX))       return dest;
-        if (h < (2*skipY)+boxSz) return dest;
-
-        final SinglePixelPackedSampleModel srcSPPSM =
-            (SinglePixelPackedSampleModel)src.getSampleModel();
-
-        final SinglePixelPackedSampleModel dstSPPSM =
-            (SinglePixelPackedSampleModel)dest.getSampleModel();
-
-        // Stride is the distance between two consecutive column elements,
-        // in the one-dimention dataBuffer
-        final int srcScanStride = srcSPPSM.getScanlineStride();
-        final int dstScanStride = dstSPPSM.getScanlineStride();
-
-        // Access the integer buffer for each image.
-        DataBufferInt srcDB = (DataBufferInt)src.getDataBuffer();
-        DataBufferInt dstDB = (DataBufferInt)dest.getDataBuffer();
-
-        // Offset defines where in the stack the real data begin
-        final int srcOff
-            = (srcDB.getOffset() +
-               srcSPPSM.getOffset
-               (src.getMinX()-src.getSampleModelTranslateX(),
-                src.getMinY()-src.getSampleModelTranslateY()));
-        final int dstOff
-            = (dstDB.getOffset() +
-               dstSPPSM.getOffset
-               (dest.getMinX()-dest.getSampleModelTranslateX(),
-                dest.getMinY()-dest.getSampleModelTranslateY()));
-
-
-        // Access the pixel value array
-        final int[] srcPixels  = srcDB.getBankData()[0];
-        final int[] destPixels = dstDB.getBankData()[0];
-
-        final int [] buffer = new int [boxSz];
-        int curr, prev;
-
-          // Fixed point normalization factor (8.24)
-        final int scale = (1<<24)/boxSz;
-
-        /*
-         * System.out.println("Info: srcOff: " + srcOff +
-         *                    " x: " + skipX +
-         *                    " y: " + skipY +
-         *                    " w: " + w +
-         *                    " h: " + h +
-         *                    " boxSz " + boxSz +
-         *                    " srcStride: " + srcScanStride);
-         */
-
-        for (int x=skipX; x<(w-skipX); x++) {
-            int sp = srcOff + x;
-            int dp = dstOff + x;
-            int colEnd = sp + (h-skipY)*srcScanStride;
-
-            int k=0;
-            int sumA = 0;
-            int sumR = 0;
-            int sumG = 0;
-            int sumB = 0;
-
-            sp += skipY*srcScanStride;
-            int end  = sp+(boxSz*srcScanStride);
-
-            while (sp < end) {
-                curr = buffer[k] = srcPixels[sp];
-                sumA += (curr>>> 24);
-                sumR += (curr >> 16)&0xFF;
-                sumG += (curr >>  8)&0xFF;
-                sumB += (curr      )&0xFF;
-                k++;
-                sp+=srcScanStride;
-            }
 
-
-            dp += (skipY + loc)*dstScanStride;
-            prev = destPixels[dp] = (( (sumA*scale)&0xFF000000)       |
-                                     (((sumR*scale)&0xFF000000)>>>8)  |
-                                     (((sumG*scale)&0xFF000000)>>>16) |
-                                     (((sumB*scale)&0xFF000000)>>>24));
-            dp+=dstScanStride;
-            k=0;
-            while (sp < colEnd) {
-                curr = buffer[k];
-                if (curr == srcPixels[sp]) {
-                    destPixels[dp] = prev;
-                } else {
-                    sumA -= (curr>>> 24);
-                    sumR -= (curr >> 16)&0xFF;
-                    sumG -= (curr >>  8)&0xFF;
-                    sumB -= (curr      )&0xFF;
-
-                    curr = buffer[k] = srcPixels[sp];
-
-                    sumA += (curr>>> 24);
-                    sumR += (curr >> 16)&0xFF;
-                    sumG += (curr >>  8)&0xFF;
-                    sumB += (curr      )&0xFF;
-                    prev = destPixels[dp] = (( (sumA*scale)&0xFF000000)       |
-                                             (((sumR*scale)&0xFF000000)>>>8)  |
-                                             (((sumG*scale)&0xFF000000)>>>16) |
-                                             (((sumB*scale)&0xFF000000)>>>24));
-                }
-                k = (k+1)%boxSz;
-                sp+=srcScanStride;
-                dp+=dstScanStride;
-            }
-        }
-        return dest;
+        return wr;
     }
 
+
     protected static ColorModel fixColorModel(CachableRed src) {
         ColorModel  cm = src.getColorModel();
 
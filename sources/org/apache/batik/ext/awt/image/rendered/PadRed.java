@@ -71,6 +71,10 @@ public class PadRed extends AbstractRed {
 
     }
 
+    public boolean canComputeConcurrently() {
+        return canComputeSourcesConcurrently();
+    }
+
     public WritableRaster copyData(WritableRaster wr) {
         // Get my source.
         CachableRed src = (CachableRed)getSources().get(0);
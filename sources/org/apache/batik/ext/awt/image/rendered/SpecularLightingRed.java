@@ -105,6 +105,10 @@ public class SpecularLightingRed extends AbstractTiledRed{
              litRegion.x, litRegion.y, null);
     }
 
+    public boolean canComputeConcurrently() {
+        return canComputeConcurrently(bumpMap.getTexture());
+    }
+
     public WritableRaster copyData(WritableRaster wr) {
         copyToRaster(wr);
         return wr;
@@ -21,26 +21,87 @@ package org.apache.batik.ext.awt.image.rendered;
 import java.awt.image.RenderedImage;
 
 /**
+ * Creates the <code>TileStore</code>s used by tiled images.  By default
+ * their tiles are kept in one global LRU cache sized in tiles.  A
+ * {@link BoundedTileCache} can be installed instead, either for all
+ * images or only for the images created by a given thread.
  *
  * @version $Id$
  */
 public class TileCache {
         private static LRUCache cache = new LRUCache(50);
 
+        private static volatile BoundedTileCache defaultCache;
+
+        private static final ThreadLocal scopedCache = new ThreadLocal();
+
         public static void setSize(int sz) { cache.setSize(sz); }
 
+        /**
+         * Sets the cache used for all images, unless a scoped cache is
+         * set.  null restores the global LRU cache.
+         */
+        public static void setDefaultCache(BoundedTileCache c) {
+                defaultCache = c;
+        }
+
+        /**
+         * Returns the cache used for all images, or null if the global
+         * LRU cache is used.
+         */
+        public static BoundedTileCache getDefaultCache() {
+                return defaultCache;
+        }
+
+        /**
+         * Sets the cache used for the images created by the current
+         * thread.  This lets a rendering use its own cache, with its own
+         * budget and statistics.  The cache is not inherited by the
+         * threads the current thread creates: a task handed to another
+         * thread must set it there.  Callers should restore the previous
+         * value when done, since threads may be pooled.
+         */
+        public static void setScopedCache(BoundedTileCache c) {
+                scopedCache.set(c);
+        }
+
+        /**
+         * Returns the cache used for the images created by the current
+         * thread, or null.
+         */
+        public static BoundedTileCache getScopedCache() {
+                return (BoundedTileCache)scopedCache.get();
+        }
+
+        /**
+         * Returns the bounded cache to use for new images, if any.
+         */
+        protected static BoundedTileCache getBoundedCache() {
+                BoundedTileCache c = (BoundedTileCache)scopedCache.get();
+                return (c != null) ? c : defaultCache;
+        }
+
         public static TileStore getTileGrid(int minTileX, int minTileY,
                                        int xSz, int ySz, TileGenerator src) {
+                BoundedTileCache c = getBoundedCache();
+                if (c != null)
+                        return c.createTileStore(src);
                 return new TileGrid(minTileX, minTileY, xSz, ySz, src, cache);
         }
 
         public static TileStore getTileGrid(RenderedImage img,
                                             TileGenerator src) {
+                BoundedTileCache c = getBoundedCache();
+                if (c != null)
+                        return c.createTileStore(src);
                 return new TileGrid(img.getMinTileX(),  img.getMinTileY(),
                             img.getNumXTiles(), img.getNumYTiles(),
                             src, cache);
         }
         public static TileStore getTileMap(TileGenerator src) {
+                BoundedTileCache c = getBoundedCache();
+                if (c != null)
+                        return c.createTileStore(src);
                 return new TileMap(src, cache);
         }
 }
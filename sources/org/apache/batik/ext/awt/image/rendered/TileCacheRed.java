@@ -56,6 +56,10 @@ public class TileCacheRed extends AbstractTiledRed {
              null);
     }
 
+    public boolean canComputeConcurrently() {
+        return canComputeSourcesConcurrently();
+    }
+
     public void genRect(WritableRaster wr) {
         // Get my source.
         CachableRed src = (CachableRed)getSources().get(0);
@@ -0,0 +1,240 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.ext.awt.image.rendered;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.batik.util.DaemonThreadFactory;
+import org.apache.batik.util.HaltingThread;
+
+/**
+ * The pool of threads tiled images use to compute their missing tiles in
+ * parallel.  Parallel computation is off by default.  It is enabled for
+ * the requests made by a thread, a rendering for example, by setting a
+ * scoped thread count greater than one with {@link #setScopedThreadCount},
+ * and for all the others with {@link #setDefaultThreadCount} or the
+ * <code>org.apache.batik.tileThreadCount</code> system property.
+ *
+ * <p>The thread asking for the tiles computes some of them itself, and
+ * only waits for the tiles the pool threads have started to compute.
+ * So a tile computed by a pool thread may itself ask for the tiles of
+ * its sources in parallel without the pool running out of threads, and
+ * the pool may be shared by concurrent requests.</p>
+ *
+ * @version $Id$
+ */
+public class TileWorkers {
+
+    /**
+     * The system property giving the initial default thread count.
+     */
+    public static final String THREAD_COUNT_PROPERTY =
+        "org.apache.batik.tileThreadCount";
+
+    /**
+     * The number of threads computing the tiles of a request, the
+     * requesting thread included, unless a scoped count is set.
+     */
+    protected static int defaultThreadCount = 1;
+
+    /**
+     * The thread count set for the current thread, if any.
+     */
+    private static final ThreadLocal scopedThreadCount = new ThreadLocal();
+
+    /**
+     * The pool, created when first needed and grown to the largest
+     * thread count asked for.
+     */
+    protected static ThreadPoolExecutor executor;
+
+    static {
+        try {
+            Integer n = Integer.getInteger(THREAD_COUNT_PROPERTY);
+            if (n != null && n.intValue() > 1) {
+                defaultThreadCount = n.intValue();
+            }
+        } catch (SecurityException se) {
+        }
+    }
+
+    /**
+     * Sets the number of threads computing the tiles of a request, the
+     * requesting thread included, when no scoped count is set.  1
+     * computes them all in the requesting thread.
+     */
+    public static synchronized void setDefaultThreadCount(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Invalid thread count: " + n);
+        }
+        defaultThreadCount = n;
+    }
+
+    /**
+     * Returns the number of threads computing the tiles of a request
+     * when no scoped count is set.
+     */
+    public static synchronized int getDefaultThreadCount() {
+        return defaultThreadCount;
+    }
+
+    /**
+     * Sets the number of threads computing the tiles of the requests
+     * made by the current thread.  The count is not inherited by the
+     * threads the current thread creates: a task handed to another
+     * thread must set it there, as {@link #run} does.  0 restores the
+     * default thread count.
+     */
+    public static void setScopedThreadCount(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Invalid thread count: " + n);
+        }
+        scopedThreadCount.set((n == 0) ? null : new Integer(n));
+    }
+
+    /**
+     * Returns the thread count set for the current thread, or 0.
+     */
+    public static int getScopedThreadCount() {
+        Integer n = (Integer)scopedThreadCount.get();
+        return (n == null) ? 0 : n.intValue();
+    }
+
+    /**
+     * Returns the number of threads computing the tiles of the requests
+     * made by the current thread.
+     */
+    public static int getThreadCount() {
+        int n = getScopedThreadCount();
+        return (n == 0) ? getDefaultThreadCount() : n;
+    }
+
+    /**
+     * Returns the pool, creating it or growing it to at least
+     * <code>threads - 1</code> threads if needed.
+     */
+    protected static synchronized ExecutorService getExecutor(int threads) {
+        int size = threads - 1;
+        if (executor == null) {
+            executor = new ThreadPoolExecutor
+                (size, size, 0L, TimeUnit.MILLISECONDS,
+                 new LinkedBlockingQueue(),
+                 new DaemonThreadFactory("TileWorker"));
+        } else if (executor.getMaximumPoolSize() < size) {
+            executor.setMaximumPoolSize(size);
+            executor.setCorePoolSize(size);
+        }
+        return executor;
+    }
+
+    /**
+     * Runs the given <code>Runnable</code>s, in parallel if enabled, and
+     * returns once they have all completed.  They are skipped once the
+     * calling thread has been halted.  The tile cache scoped to the
+     * calling thread is also used by the pool threads while they run
+     * them.
+     *
+     * @param tasks the <code>Runnable</code>s to run
+     */
+    public static void run(final List tasks) {
+        final int n = tasks.size();
+        final Thread caller = Thread.currentThread();
+        final int threads = getThreadCount();
+        if ((n < 2) || (threads < 2)) {
+            for (int i = 0; i < n; i++) {
+                if (HaltingThread.hasBeenHalted(caller))
+                    return;
+                ((Runnable)tasks.get(i)).run();
+            }
+            return;
+        }
+
+        final BoundedTileCache cache = TileCache.getScopedCache();
+        final AtomicInteger next = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(n);
+        final Throwable[] error = new Throwable[1];
+        Runnable worker = new Runnable() {
+                public void run() {
+                    boolean pooled = Thread.currentThread() != caller;
+                    BoundedTileCache old = null;
+                    int oldThreads = 0;
+                    if (pooled) {
+                        old = TileCache.getScopedCache();
+                        TileCache.setScopedCache(cache);
+                        oldThreads = getScopedThreadCount();
+                        setScopedThreadCount(threads);
+                    }
+                    try {
+                        int i;
+                        while ((i = next.getAndIncrement()) < n) {
+                            try {
+                                if (!HaltingThread.hasBeenHalted(caller))
+                                    ((Runnable)tasks.get(i)).run();
+                            } catch (Throwable t) {
+                                synchronized (error) {
+                                    if (error[0] == null)
+                                        error[0] = t;
+                                }
+                            } finally {
+                                done.countDown();
+                            }
+                        }
+                    } finally {
+                        if (pooled) {
+                            TileCache.setScopedCache(old);
+                            setScopedThreadCount(oldThreads);
+                        }
+                    }
+                }
+            };
+
+        int helpers = Math.min(threads, n) - 1;
+        ExecutorService ex = getExecutor(threads);
+        for (int i = 0; i < helpers; i++) {
+            ex.execute(worker);
+        }
+        worker.run();
+
+        boolean interrupted = false;
+        for (;;) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException ie) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            caller.interrupt();
+
+        Throwable t = error[0];
+        if (t instanceof RuntimeException)
+            throw (RuntimeException)t;
+        if (t instanceof Error)
+            throw (Error)t;
+        if (t != null)
+            throw new RuntimeException(t.getMessage());
+    }
+}
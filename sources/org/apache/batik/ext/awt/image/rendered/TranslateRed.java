@@ -98,6 +98,10 @@ public class TranslateRed extends AbstractRed {
                                          ret.getMinY()+deltaY);
     }
 
+    public boolean canComputeConcurrently() {
+        return canComputeSourcesConcurrently();
+    }
+
     public WritableRaster copyData(WritableRaster wr) {
         WritableRaster wr2 = wr.createWritableTranslatedChild
             (wr.getMinX()-deltaX, wr.getMinY()-deltaY);
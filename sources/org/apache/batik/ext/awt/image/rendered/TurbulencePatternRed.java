@@ -29,6 +29,10 @@ import java.awt.image.DataBufferInt;
 import java.awt.image.DirectColorModel;
 import java.awt.image.SinglePixelPackedSampleModel;
 import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 /**
  * This class creates a RenderedImage in conformance to the one
  * defined for the feTurbulence filter of the SVG specification.  What
@@ -210,8 +214,37 @@ public final class TurbulencePatternRed extends AbstractRed {
     private static final int BSize = 0x100;
     private static final int BM = 0xff;
     private static final double PerlinN = 0x1000;
-    private final int[] latticeSelector = new int[BSize + 1];
-    private final double[] gradient = new double[(BSize+1)*8];
+    private final int[] latticeSelector;
+    private final double[] gradient;
+
+    /**
+     * The initialized lattices, shared by all the instances with the
+     * same seed.  They are never modified once initialized.
+     */
+    static final class Lattice {
+        final int[] latticeSelector = new int[BSize + 1];
+        final double[] gradient = new double[(BSize+1)*8];
+    }
+
+    /**
+     * The maximum number of lattices kept in the cache.
+     */
+    private static final int LATTICE_CACHE_SIZE = 32;
+
+    /**
+     * The cache of lattices, keyed by seed, in access order.
+     */
+    private static final Map latticeCache =
+        new LinkedHashMap(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry eldest) {
+                return size() > LATTICE_CACHE_SIZE;
+            }
+        };
+
+    /**
+     * The minimum number of rows of the bands generated in parallel.
+     */
+    private static final int MIN_BAND_HEIGHT = 16;
 
     public double getBaseFrequencyX(){
         return baseFrequencyX;
@@ -257,7 +290,28 @@ public final class TurbulencePatternRed extends AbstractRed {
         return result;
     }
 
-    private void initLattice(int seed) {
+    /**
+     * Returns the lattice for the given seed, from the cache if
+     * possible.
+     */
+    private Lattice getLattice(int seed) {
+        Integer key = new Integer(setupSeed(seed));
+        Lattice l;
+        synchronized (latticeCache) {
+            l = (Lattice)latticeCache.get(key);
+        }
+        if (l == null) {
+            l = new Lattice();
+            initLattice(seed, l.latticeSelector, l.gradient);
+            synchronized (latticeCache) {
+                latticeCache.put(key, l);
+            }
+        }
+        return l;
+    }
+
+    private void initLattice(int seed, int[] latticeSelector,
+                             double[] gradient) {
         double u, v, s;
         int i, j, k, s1, s2;
         seed = setupSeed(seed);
@@ -1039,6 +1093,10 @@ public final class TurbulencePatternRed extends AbstractRed {
         }
     }
 
+    public boolean canComputeConcurrently() {
+        return true;
+    }
+
     /**
      * Generates a Perlin noise pattern into dest Raster.
      * @param dest Raster to fill with the pattern.
@@ -1052,21 +1110,63 @@ public final class TurbulencePatternRed extends AbstractRed {
                 ("Cannot generate a noise pattern into a null raster");
 
 
-        int w = dest.getWidth();
-        int h = dest.getHeight();
+        final int w = dest.getWidth();
+        final int h = dest.getHeight();
 
         // Access the integer buffer for the destination Raster
         DataBufferInt dstDB = (DataBufferInt)dest.getDataBuffer();
         SinglePixelPackedSampleModel sppsm;
-        int minX = dest.getMinX();
-        int minY = dest.getMinY();
+        final int minX = dest.getMinX();
+        final int minY = dest.getMinY();
         sppsm = (SinglePixelPackedSampleModel)dest.getSampleModel();
-        int dstOff = dstDB.getOffset() +
+        final int dstOff = dstDB.getOffset() +
             sppsm.getOffset(minX - dest.getSampleModelTranslateX(),
                             minY - dest.getSampleModelTranslateY());
 
         final int[] destPixels = dstDB.getBankData()[0];
-        int dstAdjust = sppsm.getScanlineStride() - w;
+        final int scan = sppsm.getScanlineStride();
+
+        // Generate bands of rows in parallel if enabled.
+        int n = TileWorkers.getThreadCount();
+        if (n < 2 || h < 2*MIN_BAND_HEIGHT) {
+            generate(destPixels, dstOff, scan, minX, minY, w, h);
+            return dest;
+        }
+        final int bandH = Math.max(MIN_BAND_HEIGHT, (h + 4*n - 1) / (4*n));
+        List tasks = new ArrayList();
+        for (int y = 0; y < h; y += bandH) {
+            final int y0 = y;
+            tasks.add(new Runnable() {
+                    public void run() {
+                        generate(destPixels, dstOff + y0*scan, scan,
+                                 minX, minY + y0,
+                                 w, Math.min(bandH, h - y0));
+                    }
+                });
+        }
+        TileWorkers.run(tasks);
+        return dest;
+    }
+
+    /**
+     * Generates the pattern for a rectangle of pixels.
+     * @param destPixels the pixel array to write to
+     * @param dstOff the index of the top left pixel
+     * @param scan the distance between two rows
+     * @param minX the x coordinate of the left pixels
+     * @param minY the y coordinate of the top pixels
+     * @param w the width
+     * @param h the height
+     */
+    private void generate(int[] destPixels, int dstOff, int scan,
+                          int minX, int minY, int w, int h) {
+        if (stitchInfo == null && channels.length == 4 &&
+            tx[1] == 0 && ty[0] == 0) {
+            generateRows(destPixels, dstOff, scan, minX, minY, w, h);
+            return;
+        }
+
+        int dstAdjust = scan - w;
 
         // Generate pixel pattern now
         int i, end, dp=dstOff;
@@ -1199,7 +1299,134 @@ public final class TurbulencePatternRed extends AbstractRed {
             }
         }
 
-        return dest;
+    }
+
+    /**
+     * Generates the pattern for a rectangle of pixels, when the x
+     * coordinates in filter space only depend on the columns and the y
+     * coordinates only on the rows.  The lattice indices and weights of
+     * each column and row are then computed once for all the octaves,
+     * instead of for each pixel.  The coordinates are computed from the
+     * pixel locations, so that the result does not depend on how the
+     * image is split in rectangles.
+     */
+    private void generateRows(int[] destPixels, int dstOff, int scan,
+                              int minX, int minY, int w, int h) {
+        final int nOctaves = numOctaves;
+        final boolean fractal = isFractalNoise;
+        final double sx0 = txf.getScaleX();
+        final double tx0 = txf.getTranslateX();
+        final double sy0 = txf.getScaleY();
+        final double ty0 = txf.getTranslateY();
+
+        // The lattice indices and the weights of the columns.
+        final int[]    colI   = new int[nOctaves*w];
+        final int[]    colJ   = new int[nOctaves*w];
+        final double[] colRx0 = new double[nOctaves*w];
+        final double[] colSx  = new double[nOctaves*w];
+        for (int x = 0; x < w; x++) {
+            double pointX = (sx0*(minX + x) + tx0) * baseFrequencyX;
+            for (int o = 0, k = x; o < nOctaves; o++, k += w) {
+                double px = pointX+PerlinN;
+                int b0 = ((int)px)&BM;
+                colI[k] = latticeSelector[b0 ];
+                colJ[k] = latticeSelector[b0+1];
+                colRx0[k] = px - (int)px;
+                colSx[k]  = s_curve(colRx0[k]);
+                pointX *= 2;
+            }
+        }
+
+        // The lattice offsets and the weights of the current row.
+        final int[]    rowB   = new int[nOctaves];
+        final double[] rowRy0 = new double[nOctaves];
+        final double[] rowSy  = new double[nOctaves];
+
+        final double[] g = gradient;
+        for (int y = 0; y < h; y++) {
+            double pointY = (sy0*(minY + y) + ty0) * baseFrequencyY;
+            for (int o = 0; o < nOctaves; o++) {
+                double py = pointY+PerlinN;
+                rowB[o]   = ((int)py) & BM;
+                rowRy0[o] = py - (int)py;
+                rowSy[o]  = s_curve(rowRy0[o]);
+                pointY *= 2;
+            }
+
+            int dp = dstOff + y*scan;
+            for (int x = 0; x < w; x++) {
+                double ratio, f0, f1, f2, f3;
+                if (fractal) {
+                    ratio = 127.5;
+                    f0 = f1 = f2 = f3 = 127.5;
+                } else {
+                    ratio = 255;
+                    f0 = f1 = f2 = f3 = 0;
+                }
+                for (int o = 0, k = x; o < nOctaves; o++, k += w) {
+                    final double rx0 = colRx0[k];
+                    final double rx1 = rx0 - 1.0;
+                    final double sx  = colSx[k];
+                    final double ry0 = rowRy0[o];
+                    final double ry1 = ry0 - 1.0;
+                    final double sy  = rowSy[o];
+                    final int b1 = ((colJ[k] + rowB[o])&BM)<<3;
+                    final int b0 = ((colI[k] + rowB[o])&BM)<<3;
+
+                    double n0, n1, n2, n3;
+                    n0 = lerp(sy,
+                              lerp(sx,
+                                   rx0*g[b0+0] + ry0*g[b0+1],
+                                   rx1*g[b1+0] + ry0*g[b1+1]),
+                              lerp(sx,
+                                   rx0*g[b0+8+0] + ry1*g[b0+8+1],
+                                   rx1*g[b1+8+0] + ry1*g[b1+8+1]));
+                    n1 = lerp(sy,
+                              lerp(sx,
+                                   rx0*g[b0+2] + ry0*g[b0+3],
+                                   rx1*g[b1+2] + ry0*g[b1+3]),
+                              lerp(sx,
+                                   rx0*g[b0+8+2] + ry1*g[b0+8+3],
+                                   rx1*g[b1+8+2] + ry1*g[b1+8+3]));
+                    n2 = lerp(sy,
+                              lerp(sx,
+                                   rx0*g[b0+4] + ry0*g[b0+5],
+                                   rx1*g[b1+4] + ry0*g[b1+5]),
+                              lerp(sx,
+                                   rx0*g[b0+8+4] + ry1*g[b0+8+5],
+                                   rx1*g[b1+8+4] + ry1*g[b1+8+5]));
+                    n3 = lerp(sy,
+                              lerp(sx,
+                                   rx0*g[b0+6] + ry0*g[b0+7],
+                                   rx1*g[b1+6] + ry0*g[b1+7]),
+                              lerp(sx,
+                                   rx0*g[b0+8+6] + ry1*g[b0+8+7],
+                                   rx1*g[b1+8+6] + ry1*g[b1+8+7]));
+                    if (!fractal) {
+                        if (n0<0) n0 = -n0;
+                        if (n1<0) n1 = -n1;
+                        if (n2<0) n2 = -n2;
+                        if (n3<0) n3 = -n3;
+                    }
+                    f0 += n0*ratio;
+                    f1 += n1*ratio;
+                    f2 += n2*ratio;
+                    f3 += n3*ratio;
+                    ratio *= .5;
+                }
+                destPixels[dp++] = ((clamp(f3)<<24) | (clamp(f0)<<16) |
+                                    (clamp(f1)<<8)  |  clamp(f2));
+            }
+        }
+    }
+
+    /**
+     * Returns the given sum, truncated and clamped to [0, 255].
+     */
+    private static int clamp(double f) {
+        int i = (int)f;
+        if ((i & 0xFFFFFF00) == 0) return i;
+        return ((i & 0x80000000) != 0)?0:0xFF;
     }
 
     /**
@@ -1327,7 +1554,9 @@ public final class TurbulencePatternRed extends AbstractRed {
             //                     " maxLatticeY = " + maxLatticeY);
         }
 
-        initLattice(seed);
+        Lattice l = getLattice(seed);
+        latticeSelector = l.latticeSelector;
+        gradient = l.gradient;
 
         ColorModel cm;
         if (alpha)
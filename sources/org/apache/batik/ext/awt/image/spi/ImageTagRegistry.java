@@ -28,6 +28,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 
+import org.apache.batik.ext.awt.image.BoundedURLImageCache;
 import org.apache.batik.ext.awt.image.URLImageCache;
 import org.apache.batik.ext.awt.image.renderable.Filter;
 import org.apache.batik.ext.awt.image.renderable.ProfileRable;
@@ -66,6 +67,21 @@ public class ImageTagRegistry implements ErrorConstants {
         this.imgCache= imgCache;
     }
 
+    /**
+     * Returns the cache of the images read as they are displayed.
+     */
+    public URLImageCache getImageCache() {
+        return imgCache;
+    }
+
+    /**
+     * Returns the cache of the images read with their raw data, so that
+     * a color profile can be applied to them.
+     */
+    public URLImageCache getRawImageCache() {
+        return rawCache;
+    }
+
     /** Removes all decoded raster images from the cache.
      *  All Images will be reloaded from the original source
      *  if decoded again.
@@ -324,13 +340,33 @@ public class ImageTagRegistry implements ErrorConstants {
         return mimeTypes;
     }
 
+    /**
+     * The system property giving the number of bytes of decoded images
+     * each cache of the default registry keeps strongly referenced.
+     * When set, the default registry uses
+     * <code>BoundedURLImageCache</code>s.
+     */
+    public static final String IMAGE_CACHE_SIZE_PROPERTY =
+        "org.apache.batik.imageCacheSize";
+
     static ImageTagRegistry registry = null;
 
     public static synchronized ImageTagRegistry getRegistry() {
         if (registry != null)
             return registry;
 
-        registry = new ImageTagRegistry();
+        Long size = null;
+        try {
+            size = Long.getLong(IMAGE_CACHE_SIZE_PROPERTY);
+        } catch (SecurityException se) {
+        }
+        if (size != null && size.longValue() >= 0) {
+            long n = size.longValue();
+            registry = new ImageTagRegistry(new BoundedURLImageCache(n),
+                                            new BoundedURLImageCache(n));
+        } else {
+            registry = new ImageTagRegistry();
+        }
 
         //registry.register(new PNGRegistryEntry());
         //registry.register(new TIFFRegistryEntry());
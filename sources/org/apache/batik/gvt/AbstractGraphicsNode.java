@@ -21,12 +21,15 @@ package org.apache.batik.gvt;
 import java.awt.AlphaComposite;
 import java.awt.Composite;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Shape;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
 import java.util.Iterator;
 import java.util.List;
@@ -35,6 +38,7 @@ import java.util.Map;
 import javax.swing.event.EventListenerList;
 
 import org.apache.batik.ext.awt.RenderingHintsKeyExt;
+import org.apache.batik.ext.awt.image.GraphicsUtil;
 import org.apache.batik.ext.awt.image.renderable.ClipRable;
 import org.apache.batik.ext.awt.image.renderable.Filter;
 import org.apache.batik.gvt.event.GraphicsNodeChangeEvent;
@@ -137,6 +141,67 @@ public abstract class AbstractGraphicsNode implements GraphicsNode {
      */
     private Rectangle2D bounds;
 
+    /**
+     * The maximum number of pixels of the raster a node caches when it
+     * has the <code>KEY_LAYER_CACHE</code> hint.
+     */
+    public static final int MAX_LAYER_PIXELS = 1 << 22;
+
+    /**
+     * The raster of the rendering of this node, when it has the
+     * <code>KEY_LAYER_CACHE</code> hint.  Dropped when this node or
+     * one of its descendants changes.
+     */
+    protected volatile Layer layer;
+
+    /**
+     * A raster of the rendering of a node in device space.
+     */
+    protected static class Layer {
+
+        /**
+         * The transform the node was painted with.
+         */
+        AffineTransform transform;
+
+        /**
+         * The location of the raster in device space.
+         */
+        int x, y;
+
+        /**
+         * The raster, premultiplied sRGB.
+         */
+        SoftReference image;
+
+        Layer(AffineTransform transform, int x, int y, BufferedImage bi) {
+            this.transform = transform;
+            this.x = x;
+            this.y = y;
+            this.image = new SoftReference(bi);
+        }
+
+        /**
+         * Returns the location of the raster for a node painted with the
+         * given transform, or null if it must be painted again, as the
+         * transforms differ by more than an integer translation.
+         */
+        Rectangle getLocation(AffineTransform at, BufferedImage bi) {
+            AffineTransform t = transform;
+            if (at.getScaleX() != t.getScaleX() ||
+                at.getShearY() != t.getShearY() ||
+                at.getShearX() != t.getShearX() ||
+                at.getScaleY() != t.getScaleY())
+                return null;
+            double dx = at.getTranslateX() - t.getTranslateX();
+            double dy = at.getTranslateY() - t.getTranslateY();
+            if (dx != Math.rint(dx) || dy != Math.rint(dy))
+                return null;
+            return new Rectangle(x + (int)dx, y + (int)dy,
+                                 bi.getWidth(), bi.getHeight());
+        }
+    }
+
 
     protected GraphicsNodeChangeEvent changeStartedEvent   = null;
     protected GraphicsNodeChangeEvent changeCompletedEvent = null;
@@ -178,6 +243,10 @@ public abstract class AbstractGraphicsNode implements GraphicsNode {
      */
     public void setPointerEventType(int pointerEventType) {
         this.pointerEventType = pointerEventType;
+        // The sensitive bounds may change.
+        if (parent != null) {
+            parent.childGeometryChanged(this);
+        }
     }
 
     /**
@@ -200,8 +269,10 @@ public abstract class AbstractGraphicsNode implements GraphicsNode {
             // transform.
             inverseTransform = transform;
         }
-        if (parent != null)
+        if (parent != null) {
+            parent.childGeometryChanged(this);
             parent.invalidateGeometryCache();
+        }
         fireGraphicsNodeChangeCompleted();
     }
 
@@ -443,6 +514,22 @@ public abstract class AbstractGraphicsNode implements GraphicsNode {
         Rectangle2D bounds = getBounds();
         if (bounds == null) return;
 
+        if ((hints != null) &&
+            (hints.get(RenderingHintsKeyExt.KEY_LAYER_CACHE) ==
+             RenderingHintsKeyExt.VALUE_LAYER_CACHE_ON) &&
+            paintLayer(g2d, bounds))
+            return;
+
+        paint(g2d, bounds);
+    }
+
+    /**
+     * Paints this node, whose bounds are given, without using its layer.
+     *
+     * @param g2d the Graphics2D to use
+     * @param bounds the bounds of this node
+     */
+    protected void paint(Graphics2D g2d, Rectangle2D bounds) {
         // Set up graphic context. It is important to setup the
         // transform first, because the clip is defined in this node's
         // user space.
@@ -569,6 +656,98 @@ public abstract class AbstractGraphicsNode implements GraphicsNode {
         }
     }
 
+    /**
+     * Paints this node by compositing the raster of its rendering, which
+     * is painted first if needed.  Returns false if the raster can't be
+     * used, as the destination is not an sRGB raster, the composite is
+     * not source over, or the raster would be too large.
+     *
+     * @param g2d the Graphics2D to use
+     * @param bounds the bounds of this node
+     */
+    protected boolean paintLayer(Graphics2D g2d, Rectangle2D bounds) {
+        if (!AlphaComposite.SrcOver.equals(g2d.getComposite()))
+            return false;
+        if ((composite != null) &&
+            (!(composite instanceof AlphaComposite) ||
+             (((AlphaComposite)composite).getRule() !=
+              AlphaComposite.SRC_OVER)))
+            return false;
+        Object t = g2d.getRenderingHint(RenderingHintsKeyExt.KEY_TRANSCODING);
+        if ((t == RenderingHintsKeyExt.VALUE_TRANSCODING_PRINTING) ||
+            (t == RenderingHintsKeyExt.VALUE_TRANSCODING_VECTOR))
+            return false;
+        BufferedImage dst = GraphicsUtil.getDestination(g2d);
+        if ((dst == null) ||
+            !dst.getColorModel().getColorSpace().isCS_sRGB())
+            return false;
+
+        AffineTransform at = g2d.getTransform();
+        BufferedImage bi = null;
+        Rectangle r = null;
+        Layer l = layer;
+        if (l != null) {
+            bi = (BufferedImage)l.image.get();
+            if (bi != null)
+                r = l.getLocation(at, bi);
+        }
+
+        if (r == null) {
+            Rectangle2D db = getTransformedBounds(at);
+            if (db == null)
+                return true;
+            // Leave room for antialiasing.
+            r = db.getBounds();
+            r.grow(1, 1);
+            if ((long)r.width * r.height > MAX_LAYER_PIXELS)
+                return false;
+
+            bi = new BufferedImage(r.width, r.height,
+                                   BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D lg = GraphicsUtil.createGraphics
+                (bi, g2d.getRenderingHints());
+            lg.translate(-r.x, -r.y);
+            lg.transform(at);
+            if (!isGroupOpacityLayer()) {
+                paint(lg, bounds);
+            } else {
+                // The opacity is applied when compositing the raster, so
+                // no other offscreen is needed.
+                if (hints != null)
+                    lg.addRenderingHints(hints);
+                if (transform != null)
+                    lg.transform(transform);
+                lg.setRenderingHint(RenderingHintsKeyExt.KEY_AREA_OF_INTEREST,
+                                    lg.getClip());
+                primitivePaint(lg);
+            }
+            lg.dispose();
+            if (HaltingThread.hasBeenHalted())
+                return true;  // The raster may be incomplete.
+            layer = new Layer(at, r.x, r.y, bi);
+        }
+
+        g2d.setTransform(new AffineTransform());
+        if ((composite != null) && isGroupOpacityLayer()) {
+            Composite c = g2d.getComposite();
+            g2d.setComposite(composite);
+            g2d.drawImage(bi, r.x, r.y, null);
+            g2d.setComposite(c);
+        } else {
+            g2d.drawImage(bi, r.x, r.y, null);
+        }
+        g2d.setTransform(at);
+        return true;
+    }
+
+    /**
+     * Returns true if the layer of this node holds its rendering without
+     * its composite, which is then applied when compositing the layer.
+     */
+    protected boolean isGroupOpacityLayer() {
+        return (filter == null) && (mask == null) && (clip == null);
+    }
+
     /**
      * DEBUG: Trace filter chain
      */
@@ -659,6 +838,11 @@ public abstract class AbstractGraphicsNode implements GraphicsNode {
         (GraphicsNodeChangeEvent changeStartedEvent) {
         // If we had per node listeners we would fire them here...
 
+        // The layers of this node and its ancestors are out of date.
+        for (AbstractGraphicsNode n = this; n != null; n = n.parent) {
+            n.layer = null;
+        }
+
         RootGraphicsNode rootGN = getRoot();
         if (rootGN == null) return;
 
@@ -748,6 +932,7 @@ public abstract class AbstractGraphicsNode implements GraphicsNode {
         //if (bounds == null) return;
 
         if (parent != null) {
+            parent.childGeometryChanged(this);
             parent.invalidateGeometryCache();
         }
         bounds = null;
@@ -761,30 +946,33 @@ public abstract class AbstractGraphicsNode implements GraphicsNode {
         // Get the primitive bounds
         // Rectangle2D bounds = null;
         if (bounds == null) {
+            // Work on a local so that other threads painting this
+            // node never see partially computed bounds.
+            Rectangle2D b;
             // The painted region, before cliping, masking and compositing is
             // either the area painted by the primitive paint or the area
             // painted by the filter.
             if(filter == null){
-                bounds = getPrimitiveBounds();
+                b = getPrimitiveBounds();
             } else {
-                bounds = filter.getBounds2D();
+                b = filter.getBounds2D();
             }
             // Factor in the clipping area, if any
-            if(bounds != null){
+            if(b != null){
                 if (clip != null) {
                     Rectangle2D clipR = clip.getClipPath().getBounds2D();
-                    if (clipR.intersects(bounds))
-                        Rectangle2D.intersect(bounds, clipR, bounds);
+                    if (clipR.intersects(b))
+                        Rectangle2D.intersect(b, clipR, b);
                 }
                 // Factor in the mask, if any
                 if (mask != null) {
                     Rectangle2D maskR = mask.getBounds2D();
-                    if (maskR.intersects(bounds))
-                        Rectangle2D.intersect(bounds, maskR, bounds);
+                    if (maskR.intersects(b))
+                        Rectangle2D.intersect(b, maskR, b);
                 }
             }
 
-            bounds = normalizeRectangle(bounds);
+            bounds = normalizeRectangle(b);
 
             // Check If we should halt early.
             if (HaltingThread.hasBeenHalted()) {
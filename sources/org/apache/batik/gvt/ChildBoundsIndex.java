@@ -0,0 +1,522 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.gvt;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A bounding volume hierarchy over the children of a
+ * <code>CompositeGraphicsNode</code>, so that the children painted in a
+ * clip or hit by a point are found without testing them all.
+ *
+ * <p>The box of a child is the union of its painted and sensitive bounds
+ * in the user space of the composite, so it can be used to cull both
+ * painting and hit testing.  The boxes of the children whose geometry
+ * changed are computed again, and the boxes of the tree refitted, when
+ * the index is next queried.  The children appended since the tree was
+ * built are kept in a tail tested linearly, until it is large enough to
+ * build the tree again.  Other structural changes rebuild the tree on
+ * the next query.</p>
+ *
+ * @version $Id$
+ */
+class ChildBoundsIndex {
+
+    /**
+     * The maximum number of children of a leaf of the tree.
+     */
+    static final int LEAF_SIZE = 8;
+
+    /**
+     * The number of appended children the tail holds at least before the
+     * tree is built again.
+     */
+    static final int MIN_TAIL = 32;
+
+    /**
+     * The composite whose children are indexed.
+     */
+    protected CompositeGraphicsNode node;
+
+    /**
+     * Whether the index must be built again from the children.
+     */
+    protected boolean invalid = true;
+
+    /**
+     * The number of children known to the index.
+     */
+    protected int size;
+
+    /**
+     * The number of children in the tree, the others are in the tail.
+     */
+    protected int indexed;
+
+    /**
+     * The positions of the children, as Integers.
+     */
+    protected Map positions = new IdentityHashMap();
+
+    /**
+     * The boxes of the children: minX, minY, maxX, maxY for each.  A
+     * child without bounds has an empty box, with min greater than max.
+     */
+    protected double[] boxes = new double[0];
+
+    /**
+     * Whether the box of a child must be computed again.
+     */
+    protected boolean[] dirty = new boolean[0];
+
+    /**
+     * The positions of the children whose box must be computed again.
+     */
+    protected int[] dirtyList = new int[0];
+
+    /**
+     * The number of entries in <code>dirtyList</code>.
+     */
+    protected int dirtyCount;
+
+    /**
+     * The positions of the children of the tree, grouped by leaf.
+     */
+    protected int[] order;
+
+    /**
+     * The leaf holding each child of the tree.
+     */
+    protected int[] leafOf;
+
+    /**
+     * The tree nodes: range in <code>order</code>, children, parent and
+     * box.  Leaves have no children.
+     */
+    protected int[] start, end, left, right, parent;
+    protected double[] nodeBoxes;
+
+    /**
+     * The number of tree nodes.
+     */
+    protected int nodeCount;
+
+    /**
+     * Creates an index of the children of the given composite.
+     */
+    ChildBoundsIndex(CompositeGraphicsNode node) {
+        this.node = node;
+    }
+
+    /**
+     * Makes the index be built again on the next query.
+     */
+    synchronized void invalidate() {
+        invalid = true;
+    }
+
+    /**
+     * Informs the index that a child was inserted at the given position.
+     */
+    synchronized void childAdded(int index, GraphicsNode child) {
+        if (invalid) {
+            return;
+        }
+        if (index != size) {
+            invalid = true;
+            return;
+        }
+        ensureCapacity(size + 1);
+        positions.put(child, new Integer(size));
+        setEmpty(size);
+        markDirty(size);
+        size++;
+    }
+
+    /**
+     * Informs the index that the child at the given position was removed.
+     */
+    synchronized void childRemoved(int index, GraphicsNode child) {
+        if (invalid) {
+            return;
+        }
+        if (index != size - 1 || index < indexed) {
+            invalid = true;
+            return;
+        }
+        positions.remove(child);
+        dirty[index] = false;
+        size--;
+    }
+
+    /**
+     * Informs the index that the child at the given position was
+     * replaced.
+     */
+    synchronized void childReplaced(int index, GraphicsNode oldChild,
+                                    GraphicsNode newChild) {
+        if (invalid) {
+            return;
+        }
+        positions.remove(oldChild);
+        positions.put(newChild, new Integer(index));
+        markDirty(index);
+    }
+
+    /**
+     * Informs the index that the geometry of the given child changed.
+     */
+    synchronized void childChanged(GraphicsNode child) {
+        if (invalid) {
+            return;
+        }
+        Integer i = (Integer)positions.get(child);
+        if (i != null) {
+            markDirty(i.intValue());
+        }
+    }
+
+    /**
+     * Returns the positions, in increasing order, of the children whose
+     * box intersects the given rectangle, edges included.  The first
+     * element of the returned array is the number of positions.
+     */
+    synchronized int[] intersecting(Rectangle2D r) {
+        return intersecting(r.getMinX(), r.getMinY(),
+                            r.getMaxX(), r.getMaxY());
+    }
+
+    /**
+     * Returns the positions, in increasing order, of the children whose
+     * box contains the given point, edges included.  The first element
+     * of the returned array is the number of positions.
+     */
+    synchronized int[] containing(double x, double y) {
+        return intersecting(x, y, x, y);
+    }
+
+    /**
+     * Returns the positions, in increasing order, of the children whose
+     * box intersects the given area.  The first element of the returned
+     * array is the number of positions.
+     */
+    protected int[] intersecting(double x0, double y0,
+                                 double x1, double y1) {
+        update();
+        int[] result = new int[16];
+        int n = 0;
+        if (nodeCount > 0) {
+            int[] stack = new int[64];
+            int sp = 0;
+            stack[sp++] = 0;
+            while (sp > 0) {
+                int t = stack[--sp];
+                int b = t * 4;
+                if (nodeBoxes[b] > x1 || nodeBoxes[b + 2] < x0
+                        || nodeBoxes[b + 1] > y1 || nodeBoxes[b + 3] < y0) {
+                    continue;
+                }
+                if (left[t] < 0) {
+                    for (int i = start[t]; i < end[t]; i++) {
+                        int p = order[i];
+                        if (intersects(p, x0, y0, x1, y1)) {
+                            if (n + 1 >= result.length) {
+                                result = grow(result);
+                            }
+                            result[++n] = p;
+                        }
+                    }
+                } else {
+                    if (sp + 2 > stack.length) {
+                        stack = grow(stack);
+                    }
+                    stack[sp++] = right[t];
+                    stack[sp++] = left[t];
+                }
+            }
+            Arrays.sort(result, 1, n + 1);
+        }
+        for (int p = indexed; p < size; p++) {
+            if (intersects(p, x0, y0, x1, y1)) {
+                if (n + 1 >= result.length) {
+                    result = grow(result);
+                }
+                result[++n] = p;
+            }
+        }
+        result[0] = n;
+        return result;
+    }
+
+    /**
+     * Returns true if the box of the given child intersects the given
+     * area.
+     */
+    protected boolean intersects(int p, double x0, double y0,
+                                 double x1, double y1) {
+        int b = p * 4;
+        return boxes[b] <= x1 && boxes[b + 2] >= x0
+            && boxes[b + 1] <= y1 && boxes[b + 3] >= y0;
+    }
+
+    /**
+     * Brings the index up to date with the children.
+     */
+    protected void update() {
+        GraphicsNode[] children = node.children;
+        int count = node.count;
+        if (invalid || size != count) {
+            // Built again from scratch, also when the children were
+            // modified without telling the index.
+            size = 0;
+            positions.clear();
+            ensureCapacity(count);
+            for (int i = 0; i < count; i++) {
+                positions.put(children[i], new Integer(i));
+                computeBox(i, children[i]);
+                dirty[i] = false;
+            }
+            dirtyCount = 0;
+            size = count;
+            invalid = false;
+            build();
+            return;
+        }
+
+        for (int i = 0; i < dirtyCount; i++) {
+            int p = dirtyList[i];
+            if (p >= size || !dirty[p]) {
+                continue;
+            }
+            dirty[p] = false;
+            computeBox(p, children[p]);
+            if (p < indexed) {
+                refit(p);
+            }
+        }
+        dirtyCount = 0;
+
+        if (size - indexed > Math.max(MIN_TAIL, indexed / 4)) {
+            build();
+        }
+    }
+
+    /**
+     * Computes the box of the given child.
+     */
+    protected void computeBox(int p, GraphicsNode child) {
+        setEmpty(p);
+        if (child == null) {
+            return;
+        }
+        add(boxes, p * 4,
+            child.getTransformedBounds(GraphicsNode.IDENTITY));
+        add(boxes, p * 4, child.getTransformedSensitiveBounds
+            (GraphicsNode.IDENTITY));
+    }
+
+    /**
+     * Adds a rectangle to a box.
+     */
+    protected static void add(double[] b, int i, Rectangle2D r) {
+        if (r == null) {
+            return;
+        }
+        b[i]     = Math.min(b[i],     r.getMinX());
+        b[i + 1] = Math.min(b[i + 1], r.getMinY());
+        b[i + 2] = Math.max(b[i + 2], r.getMaxX());
+        b[i + 3] = Math.max(b[i + 3], r.getMaxY());
+    }
+
+    /**
+     * Adds the box at index j of src to the box at index i of dst.
+     */
+    protected static void add(double[] dst, int i, double[] src, int j) {
+        dst[i]     = Math.min(dst[i],     src[j]);
+        dst[i + 1] = Math.min(dst[i + 1], src[j + 1]);
+        dst[i + 2] = Math.max(dst[i + 2], src[j + 2]);
+        dst[i + 3] = Math.max(dst[i + 3], src[j + 3]);
+    }
+
+    /**
+     * Makes the box of the given child empty.
+     */
+    protected void setEmpty(int p) {
+        setEmpty(boxes, p * 4);
+    }
+
+    protected static void setEmpty(double[] b, int i) {
+        b[i]     = Double.POSITIVE_INFINITY;
+        b[i + 1] = Double.POSITIVE_INFINITY;
+        b[i + 2] = Double.NEGATIVE_INFINITY;
+        b[i + 3] = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Marks the box of the given child to be computed again.
+     */
+    protected void markDirty(int p) {
+        if (dirty[p]) {
+            return;
+        }
+        dirty[p] = true;
+        if (dirtyCount == dirtyList.length) {
+            dirtyList = grow(dirtyList);
+        }
+        dirtyList[dirtyCount++] = p;
+    }
+
+    /**
+     * Makes room for the given number of children.
+     */
+    protected void ensureCapacity(int n) {
+        if (dirty.length >= n) {
+            return;
+        }
+        int c = Math.max(n, dirty.length + dirty.length / 2 + 16);
+        double[] nb = new double[c * 4];
+        System.arraycopy(boxes, 0, nb, 0, size * 4);
+        boxes = nb;
+        boolean[] nd = new boolean[c];
+        System.arraycopy(dirty, 0, nd, 0, size);
+        dirty = nd;
+    }
+
+    protected static int[] grow(int[] a) {
+        int[] b = new int[a.length * 2 + 16];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+
+    /**
+     * Builds the tree over all the children.
+     */
+    protected void build() {
+        indexed = size;
+        nodeCount = 0;
+        if (size == 0) {
+            return;
+        }
+        order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        leafOf = new int[size];
+        int leaves = (size + LEAF_SIZE - 1) / LEAF_SIZE;
+        int max = 4 * leaves;
+        start  = new int[max];
+        end    = new int[max];
+        left   = new int[max];
+        right  = new int[max];
+        parent = new int[max];
+        nodeBoxes = new double[max * 4];
+        double[] keys = new double[size];
+        build(0, size, -1, keys);
+    }
+
+    /**
+     * Builds the subtree over the given range of <code>order</code>, and
+     * returns its root.
+     */
+    protected int build(int s, int e, int up, double[] keys) {
+        int t = nodeCount++;
+        start[t] = s;
+        end[t] = e;
+        parent[t] = up;
+        int b = t * 4;
+        setEmpty(nodeBoxes, b);
+        for (int i = s; i < e; i++) {
+            add(nodeBoxes, b, boxes, order[i] * 4);
+        }
+        if (e - s <= LEAF_SIZE) {
+            left[t] = -1;
+            right[t] = -1;
+            for (int i = s; i < e; i++) {
+                leafOf[order[i]] = t;
+            }
+            return t;
+        }
+
+        // Split at the median of the centers along the longest axis.
+        int axis = (nodeBoxes[b + 2] - nodeBoxes[b]
+                    >= nodeBoxes[b + 3] - nodeBoxes[b + 1]) ? 0 : 1;
+        for (int i = s; i < e; i++) {
+            int j = order[i] * 4 + axis;
+            double k = (boxes[j] + boxes[j + 2]) * 0.5;
+            // Children without bounds are never found, put them anywhere.
+            keys[order[i]] = (k == k) ? k : 0;
+        }
+        int m = (s + e) >>> 1;
+        select(s, e - 1, m, keys);
+        left[t] = build(s, m, t, keys);
+        right[t] = build(m, e, t, keys);
+        return t;
+    }
+
+    /**
+     * Partially sorts the given range of <code>order</code> by key, so
+     * that the k-th element is in place.
+     */
+    protected void select(int lo, int hi, int k, double[] keys) {
+        while (hi > lo) {
+            double pivot = keys[order[(lo + hi) >>> 1]];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (keys[order[i]] < pivot) i++;
+                while (keys[order[j]] > pivot) j--;
+                if (i <= j) {
+                    int tmp = order[i];
+                    order[i] = order[j];
+                    order[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Refits the boxes of the tree nodes above the given child.
+     */
+    protected void refit(int p) {
+        int t = leafOf[p];
+        int b = t * 4;
+        setEmpty(nodeBoxes, b);
+        for (int i = start[t]; i < end[t]; i++) {
+            add(nodeBoxes, b, boxes, order[i] * 4);
+        }
+        for (t = parent[t]; t >= 0; t = parent[t]) {
+            b = t * 4;
+            setEmpty(nodeBoxes, b);
+            add(nodeBoxes, b, nodeBoxes, left[t] * 4);
+            add(nodeBoxes, b, nodeBoxes, right[t] * 4);
+        }
+    }
+}
@@ -48,6 +48,28 @@ public class CompositeGraphicsNode extends AbstractGraphicsNode
     public static final Rectangle2D VIEWPORT  = new Rectangle();
     public static final Rectangle2D NULL_RECT = new Rectangle();
 
+    /**
+     * The system property giving the initial spatial index threshold.
+     */
+    public static final String SPATIAL_INDEX_THRESHOLD_PROPERTY =
+        "org.apache.batik.spatialIndexThreshold";
+
+    /**
+     * The number of children from which a composite indexes the bounds
+     * of its children to cull painting and hit testing, 0 to never do it.
+     */
+    protected static volatile int spatialIndexThreshold = 256;
+
+    static {
+        try {
+            Integer n = Integer.getInteger(SPATIAL_INDEX_THRESHOLD_PROPERTY);
+            if (n != null && n.intValue() >= 0) {
+                spatialIndexThreshold = n.intValue();
+            }
+        } catch (SecurityException se) {
+        }
+    }
+
     /**
      * The children of this composite graphics node.
      */
@@ -90,11 +112,68 @@ public class CompositeGraphicsNode extends AbstractGraphicsNode
      */
     private Shape outline;
 
+    /**
+     * The index of the bounds of the children, null while there are too
+     * few children.
+     */
+    private ChildBoundsIndex childIndex;
+
     /**
      * Constructs a new empty <code>CompositeGraphicsNode</code>.
      */
     public CompositeGraphicsNode() {}
 
+    /**
+     * Sets the number of children from which composites index the bounds
+     * of their children, so that painting and hit testing only consider
+     * the children near the clip or the point.  0 never indexes them.
+     * The index assumes that a child paints and is sensitive only within
+     * its bounds and sensitive bounds.
+     */
+    public static void setSpatialIndexThreshold(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException
+                ("Invalid spatial index threshold: " + n);
+        }
+        spatialIndexThreshold = n;
+    }
+
+    /**
+     * Returns the number of children from which composites index the
+     * bounds of their children, 0 if they never do.
+     */
+    public static int getSpatialIndexThreshold() {
+        return spatialIndexThreshold;
+    }
+
+    /**
+     * Returns the index of the bounds of the children, or null if there
+     * are too few children to use one.
+     */
+    protected ChildBoundsIndex getChildIndex() {
+        int n = spatialIndexThreshold;
+        if (n == 0 || count < n) {
+            childIndex = null;
+            return null;
+        }
+        ChildBoundsIndex ci = childIndex;
+        if (ci == null) {
+            ci = new ChildBoundsIndex(this);
+            childIndex = ci;
+        }
+        return ci;
+    }
+
+    /**
+     * Called when the geometry of one of the children changed.
+     */
+    protected void childGeometryChanged(GraphicsNode child) {
+        ChildBoundsIndex ci = childIndex;
+        if (ci != null) {
+            ci.childChanged(child);
+        }
+    }
+
     //
     // Structural methods
     //
@@ -153,6 +232,24 @@ public class CompositeGraphicsNode extends AbstractGraphicsNode
         // Thread.currentThread() is potentially expensive, so reuse my instance in hasBeenHalted()
         Thread currentThread = Thread.currentThread();
 
+        // Only paint the children near the clip if indexed
+        ChildBoundsIndex ci = getChildIndex();
+        Shape clip = (ci == null) ? null : g2d.getClip();
+        if (clip != null) {
+            int[] hits = ci.intersecting(clip.getBounds2D());
+            for (int j = 1; j <= hits[0]; j++) {
+                if (HaltingThread.hasBeenHalted( currentThread ))
+                    return;
+
+                GraphicsNode node = children[hits[j]];
+                if (node == null) {
+                    continue;
+                }
+                node.paint(g2d);
+            }
+            return;
+        }
+
         // Paint children
         for (int i=0; i < count; ++i) {
             if (HaltingThread.hasBeenHalted( currentThread ))
@@ -218,18 +315,12 @@ public class CompositeGraphicsNode extends AbstractGraphicsNode
             return null;
         }
 
-        primitiveBounds = bounds;
-
+        // Accumulate into a local and only publish the union once it
+        // is complete, as the node may be painted by several threads.
         while (i < count) {
             Rectangle2D ctb = children[i++].getTransformedBounds(IDENTITY);
             if (ctb != null) {
-                if (primitiveBounds == null) {
-                    // another thread has set the primitive bounds to null,
-                    // need to recall this function
-                    return null;
-                } else {
-                    primitiveBounds.add(ctb);
-                }
+                bounds.add(ctb);
             }
 
             if (((i & 0x0F) == 0) && HaltingThread.hasBeenHalted( currentThread ))
@@ -241,8 +332,10 @@ public class CompositeGraphicsNode extends AbstractGraphicsNode
             // The Thread has been halted.
             // Invalidate any cached values and proceed.
             invalidateGeometryCache();
+            return bounds;
         }
-        return primitiveBounds;
+        primitiveBounds = bounds;
+        return bounds;
     }
 
     /**
@@ -462,7 +555,15 @@ public class CompositeGraphicsNode extends AbstractGraphicsNode
         if (count > 0 && bounds != null && bounds.contains(p)) {
             Point2D pt = null;
             Point2D cp = null; // Propagated to children
-            for (int i=0; i < count; ++i) {
+            int[] hits = null;
+            int n = count;
+            ChildBoundsIndex ci = getChildIndex();
+            if (ci != null) {
+                hits = ci.containing(p.getX(), p.getY());
+                n = hits[0];
+            }
+            for (int j=0; j < n; ++j) {
+                int i = (hits == null) ? j : hits[j + 1];
                 AffineTransform t = children[i].getInverseTransform();
                 if(t != null){
                     pt = t.transform(p, pt);
@@ -492,7 +593,15 @@ public class CompositeGraphicsNode extends AbstractGraphicsNode
             // Go backward because the children are in rendering order
             Point2D pt = null;
             Point2D cp = null; // Propagated to children
-            for (int i=count-1; i >= 0; --i) {
+            int[] hits = null;
+            int n = count;
+            ChildBoundsIndex ci = getChildIndex();
+            if (ci != null) {
+                hits = ci.containing(p.getX(), p.getY());
+                n = hits[0];
+            }
+            for (int j=n-1; j >= 0; --j) {
+                int i = (hits == null) ? j : hits[j + 1];
                 AffineTransform t = children[i].getInverseTransform();
                 if(t != null){
                     pt = t.transform(p, pt);
@@ -655,6 +764,9 @@ public class CompositeGraphicsNode extends AbstractGraphicsNode
         // Replace the node to the children list
         GraphicsNode oldNode = children[index];
         children[index] = node;
+        if (childIndex != null) {
+            childIndex.childReplaced(index, oldNode, node);
+        }
         // Set the parents of the graphics nodes
         ((AbstractGraphicsNode) node).setParent(this);
         ((AbstractGraphicsNode) oldNode).setParent(null);
@@ -696,6 +808,9 @@ public class CompositeGraphicsNode extends AbstractGraphicsNode
         // Add the graphics node to the children list
         ensureCapacity(count + 1);  // Increments modCount!!
         children[count++] = node;
+        if (childIndex != null) {
+            childIndex.childAdded(count - 1, node);
+        }
         // Set the parent of the graphics node
         ((AbstractGraphicsNode) node).setParent(this);
         // Set the root of the graphics node
@@ -744,6 +859,9 @@ public class CompositeGraphicsNode extends AbstractGraphicsNode
         System.arraycopy(children, index, children, index+1, count-index);
         children[index] = node;
         count++;
+        if (childIndex != null) {
+            childIndex.childAdded(index, node);
+        }
         // Set parent of the graphics node
         ((AbstractGraphicsNode) node).setParent(this);
         // Set root of the graphics node
@@ -823,6 +941,9 @@ public class CompositeGraphicsNode extends AbstractGraphicsNode
         if (count == 0) {
             children = null;
         }
+        if (childIndex != null) {
+            childIndex.childRemoved(index, oldNode);
+        }
         // Set parent of the node
         ((AbstractGraphicsNode) oldNode).setParent(null);
         // Set root of the node
@@ -48,10 +48,11 @@ public class GraphicsNodeRable8Bit
     extends    AbstractRable 
     implements GraphicsNodeRable, PaintRable {
 
-    private AffineTransform cachedGn2dev   = null;
-    private AffineTransform cachedUsr2dev  = null;
-    private CachableRed     cachedRed      = null;
-    private Rectangle2D     cachedBounds = null;
+    /**
+     * The last rendering, or null.  It is replaced as a whole, so that
+     * threads rendering a shared tree always see a consistent entry.
+     */
+    private volatile CachedRendering cached;
     /**
      * Should GraphicsNodeRable call primitivePaint or Paint.
      */
@@ -102,10 +103,7 @@ public class GraphicsNodeRable8Bit
      * Clear any cached Red.
      */
     public void clearCache() {
-        cachedRed     = null;
-        cachedUsr2dev = null;
-        cachedGn2dev  = null;
-        cachedBounds  = null;
+        cached = null;
     }
 
     /**
@@ -260,25 +258,25 @@ public class GraphicsNodeRable8Bit
 
         Rectangle2D bounds2D = getBounds2D();
 
-        if ((cachedBounds != null)                            &&
-            (cachedGn2dev != null)                            &&
-            (cachedBounds.equals(bounds2D))                   &&
-            (gn2dev.getScaleX()  == cachedGn2dev.getScaleX()) &&
-            (gn2dev.getScaleY()  == cachedGn2dev.getScaleY()) &&
-            (gn2dev.getShearX()  == cachedGn2dev.getShearX()) &&
-            (gn2dev.getShearY()  == cachedGn2dev.getShearY()))
+        CachedRendering c = cached;
+        if ((c != null)                                       &&
+            (c.bounds.equals(bounds2D))                       &&
+            (gn2dev.getScaleX()  == c.gn2dev.getScaleX())    &&
+            (gn2dev.getScaleY()  == c.gn2dev.getScaleY())    &&
+            (gn2dev.getShearX()  == c.gn2dev.getShearX())    &&
+            (gn2dev.getShearY()  == c.gn2dev.getShearY()))
         {
             // Just some form of Translation
             double deltaX = (usr2dev.getTranslateX() - 
-                             cachedUsr2dev.getTranslateX());
+                             c.usr2dev.getTranslateX());
             double deltaY = (usr2dev.getTranslateY() - 
-                             cachedUsr2dev.getTranslateY());
+                             c.usr2dev.getTranslateY());
 
             // System.out.println("Using Cached Red!!! " + 
             //                    deltaX + "x" + deltaY);
             if ((deltaX ==0) && (deltaY == 0))
                 // Actually no translation
-                return cachedRed;
+                return c.red;
 
             // System.out.println("Delta: [" + deltaX + ", " + deltaY + "]");
 
@@ -286,33 +284,49 @@ public class GraphicsNodeRable8Bit
             if ((deltaX == (int)deltaX) &&
                 (deltaY == (int)deltaY)) {
                 return new TranslateRed
-                    (cachedRed, 
-                     (int)Math.round(cachedRed.getMinX()+deltaX),
-                     (int)Math.round(cachedRed.getMinY()+deltaY));
+                    (c.red, 
+                     (int)Math.round(c.red.getMinX()+deltaX),
+                     (int)Math.round(c.red.getMinY()+deltaY));
             }
         }
 
         // Fell through let's do a new rendering...
         if (false) {
             System.out.println("Not using Cached Red: " + usr2dev);
-            System.out.println("Old:                  " + cachedUsr2dev);
+            System.out.println("Old:                  " +
+                               ((c == null) ? null : c.usr2dev));
         }
 
         if((bounds2D.getWidth()  > 0) && 
            (bounds2D.getHeight() > 0)) {
-            cachedUsr2dev = (AffineTransform)usr2dev.clone();
-            cachedGn2dev  = gn2dev;
-            cachedBounds  = bounds2D;
-            cachedRed =  new GraphicsNodeRed8Bit
+            CachableRed red = new GraphicsNodeRed8Bit
                 (node, usr2dev, usePrimitivePaint, 
                  renderContext.getRenderingHints());
-            return cachedRed;
+            cached = new CachedRendering
+                ((AffineTransform)usr2dev.clone(), gn2dev, bounds2D, red);
+            return red;
         }
 
-        cachedUsr2dev = null;
-        cachedGn2dev  = null;
-        cachedBounds  = null;
-        cachedRed     = null;
+        cached = null;
         return null;
     }
+
+    /**
+     * A rendering of this image, with the transforms and the bounds it
+     * was made for.
+     */
+    protected static class CachedRendering {
+        final AffineTransform usr2dev;
+        final AffineTransform gn2dev;
+        final Rectangle2D     bounds;
+        final CachableRed     red;
+
+        CachedRendering(AffineTransform usr2dev, AffineTransform gn2dev,
+                        Rectangle2D bounds, CachableRed red) {
+            this.usr2dev = usr2dev;
+            this.gn2dev  = gn2dev;
+            this.bounds  = bounds;
+            this.red     = red;
+        }
+    }
 }
@@ -30,7 +30,6 @@ import java.awt.geom.Rectangle2D;
 import java.text.AttributedCharacterIterator;
 import java.text.CharacterIterator;
 import java.text.StringCharacterIterator;
-import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.batik.gvt.text.ArabicTextHandler;
@@ -57,7 +56,6 @@ public class AWTGVTFont implements GVTFont {
         this.size = font.getSize2D();
         this.awtFont = font.deriveFont(FONT_SIZE);
         this.scale = size/awtFont.getSize2D();
-        initializeFontCache(awtFont);
     }
 
     /**
@@ -70,7 +68,6 @@ public class AWTGVTFont implements GVTFont {
         this.size = font.getSize2D()*scale;
         this.awtFont = font.deriveFont(FONT_SIZE);
         this.scale = size/awtFont.getSize2D();
-        initializeFontCache(awtFont);
     }
 
     /**
@@ -89,7 +86,6 @@ public class AWTGVTFont implements GVTFont {
             this.size = awtFont.getSize2D();
         }
         this.scale = size/awtFont.getSize2D();
-        initializeFontCache(awtFont);
     }
 
     /**
@@ -103,7 +99,6 @@ public class AWTGVTFont implements GVTFont {
         this.awtFont = new Font(name, style, (int)FONT_SIZE);
         this.size  = size;
         this.scale = size/awtFont.getSize2D();
-        initializeFontCache(awtFont);
     }
 
     /**
@@ -282,9 +277,11 @@ public class AWTGVTFont implements GVTFont {
     public static final float FONT_SIZE = 48.0f;
 
     /**
-     * Returns the geometry of the specified character. This method also put
-     * the in cache the geometry associated to the specified character if
-     * needed.
+     * Returns the geometry of the specified glyph. This method also put
+     * in the shared glyph cache the geometry associated to the specified
+     * glyph if needed.  The glyph is identified by its code in the font,
+     * not by the character, which may be rendered by several glyphs or
+     * share one with others.
      */
     public static
         AWTGlyphGeometryCache.Value getGlyphGeometry(AWTGVTFont font,
@@ -293,10 +290,12 @@ public class AWTGVTFont implements GVTFont {
                                                      int glyphIndex,
                                                      Point2D glyphPos) {
 
-        AWTGlyphGeometryCache glyphCache =
-            (AWTGlyphGeometryCache)fontCache.get(font.awtFont);
+        GlyphCache glyphCache = GlyphCache.getDefault();
+        GlyphCache.Key key = new GlyphCache.Key
+            (font.awtFont, gv.getFontRenderContext(),
+             gv.getGlyphCode(glyphIndex));
 
-        AWTGlyphGeometryCache.Value v = glyphCache.get(c);
+        AWTGlyphGeometryCache.Value v = glyphCache.get(key);
         if (v == null) {
             Shape outline = gv.getGlyphOutline(glyphIndex);
             GlyphMetrics metrics = gv.getGlyphMetrics(glyphIndex);
@@ -307,31 +306,10 @@ public class AWTGVTFont implements GVTFont {
                 outline = tr.createTransformedShape(outline);
             }
             v = new AWTGlyphGeometryCache.Value(outline, gmB);
-            //System.out.println("put "+font.awtFont+" "+c);
-            glyphCache.put(c, v);
+            glyphCache.put(key, v);
         }
         return v;
     }
 
-    //
-    // static cache for AWTGVTFont
-    //
-
-    static Map fontCache = new HashMap(11);
-
-    static void initializeFontCache(Font awtFont) {
-        if (!fontCache.containsKey(awtFont)) {
-            fontCache.put(awtFont, new AWTGlyphGeometryCache());
-        }
-    }
-
-    static void putAWTGVTFont(AWTGVTFont font) {
-        fontCache.put(font.awtFont, font);
-    }
-
-    static AWTGVTFont getAWTGVTFont(Font awtFont) {
-        return (AWTGVTFont)fontCache.get(awtFont);
-    }
-
 }
 
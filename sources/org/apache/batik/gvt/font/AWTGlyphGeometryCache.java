@@ -26,6 +26,8 @@ import java.lang.ref.SoftReference;
 /**
  * This class represents a doubly indexed hash table, which holds
  * soft references to the contained glyph geometry informations.
+ * The fonts now share the glyph geometry through {@link GlyphCache},
+ * which keeps instances of the {@link Value} class of this table.
  *
  * @author <a href="mailto:stephane@hillion.org">Stephane Hillion</a>
  * @author <a href="mailto:tkormann@ilog.fr">Thierry Kormann</a>
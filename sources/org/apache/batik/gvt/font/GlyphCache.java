@@ -0,0 +1,364 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.gvt.font;
+
+import java.awt.Shape;
+import java.awt.geom.PathIterator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of glyph geometry shared by all the documents and threads of
+ * the process.  It keeps the most recently used glyphs, up to an
+ * estimated number of bytes.
+ *
+ * <p>The entries are spread over segments, each guarded by its own
+ * lock, so that threads laying out text concurrently seldom wait for
+ * each other.</p>
+ *
+ * <p>The default cache keeps <code>DEFAULT_MAX_BYTES</code>, or the
+ * number of bytes given by the <code>org.apache.batik.glyphCacheSize</code>
+ * system property.</p>
+ *
+ * @version $Id$
+ */
+public class GlyphCache {
+
+    /**
+     * The system property giving the size in bytes of the default cache.
+     */
+    public static final String GLYPH_CACHE_SIZE_PROPERTY =
+        "org.apache.batik.glyphCacheSize";
+
+    /**
+     * The size in bytes of the default cache when the system property
+     * is not set.
+     */
+    public static final long DEFAULT_MAX_BYTES = 8 << 20;
+
+    /**
+     * The number of segments.
+     */
+    protected static final int SEGMENTS = 16;
+
+    /**
+     * The default cache.
+     */
+    protected static final GlyphCache DEFAULT;
+
+    static {
+        long n = DEFAULT_MAX_BYTES;
+        try {
+            Long size = Long.getLong(GLYPH_CACHE_SIZE_PROPERTY);
+            if (size != null && size.longValue() >= 0)
+                n = size.longValue();
+        } catch (SecurityException se) {
+        } finally {
+            DEFAULT = new GlyphCache(n);
+        }
+    }
+
+    /**
+     * Returns the cache shared by the whole process.
+     */
+    public static GlyphCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * The segments.
+     */
+    protected Segment[] segments;
+
+    /**
+     * The maximum number of bytes of glyph geometry kept by the cache.
+     */
+    protected long maxBytes;
+
+    /**
+     * The number of lookups answered from the cache.
+     */
+    protected AtomicLong hitCount = new AtomicLong();
+
+    /**
+     * The number of lookups which were not.
+     */
+    protected AtomicLong missCount = new AtomicLong();
+
+    /**
+     * The number of glyphs dropped to stay within the budget.
+     */
+    protected AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Creates a new GlyphCache.
+     * @param maxBytes the maximum number of bytes of glyph geometry kept
+     *        by the cache.
+     */
+    public GlyphCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.maxBytes = maxBytes;
+        segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * The key of a glyph: the font it belongs to, the context it was
+     * laid out in, and its code in the font.
+     */
+    public static class Key {
+
+        /**
+         * The font, or any object identifying the glyph source.
+         */
+        protected Object font;
+
+        /**
+         * The rendering context, may be null.
+         */
+        protected Object context;
+
+        /**
+         * The glyph code.
+         */
+        protected int glyphCode;
+
+        /**
+         * The hash code.
+         */
+        protected int hash;
+
+        /**
+         * Creates a new Key.
+         * @param font the font, or any object identifying the glyph
+         *        source, which must be immutable.
+         * @param context the rendering context, which affects the glyph
+         *        geometry, or null.  It must be immutable.
+         * @param glyphCode the glyph code.
+         */
+        public Key(Object font, Object context, int glyphCode) {
+            this.font = font;
+            this.context = context;
+            this.glyphCode = glyphCode;
+            int h = font.hashCode() * 31 + glyphCode;
+            if (context != null)
+                h = h * 31 + context.hashCode();
+            this.hash = h;
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key k = (Key)o;
+            return (hash == k.hash) &&
+                (glyphCode == k.glyphCode) &&
+                font.equals(k.font) &&
+                ((context == null) ? (k.context == null)
+                                   : context.equals(k.context));
+        }
+    }
+
+    /**
+     * A segment of the cache, in access order.  Guarded by itself.
+     */
+    protected static class Segment extends LinkedHashMap {
+
+        /**
+         * The estimated number of bytes of the glyphs of the segment.
+         */
+        long bytes;
+
+        Segment() {
+            super(16, 0.75f, true);
+        }
+    }
+
+    /**
+     * The value of an entry, with its estimated size.
+     */
+    protected static class Entry {
+        final AWTGlyphGeometryCache.Value value;
+        final long size;
+
+        Entry(AWTGlyphGeometryCache.Value value, long size) {
+            this.value = value;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Returns the maximum number of bytes of glyph geometry kept by the
+     * cache.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Returns the estimated number of bytes of glyph geometry kept by
+     * the cache.
+     */
+    public long getBytes() {
+        long n = 0;
+        for (int i = 0; i < SEGMENTS; i++) {
+            Segment s = segments[i];
+            synchronized (s) {
+                n += s.bytes;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns the number of glyphs kept by the cache.
+     */
+    public int size() {
+        int n = 0;
+        for (int i = 0; i < SEGMENTS; i++) {
+            Segment s = segments[i];
+            synchronized (s) {
+                n += s.size();
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns the number of lookups answered from the cache so far.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of lookups which were not answered from the
+     * cache so far.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of glyphs dropped so far to stay within the
+     * budget.
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Returns the geometry of the given glyph, or null if it is not in
+     * the cache.
+     */
+    public AWTGlyphGeometryCache.Value get(Key key) {
+        Segment s = getSegment(key);
+        Entry e;
+        synchronized (s) {
+            e = (Entry)s.get(key);
+        }
+        if (e == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return e.value;
+    }
+
+    /**
+     * Puts the geometry of the given glyph in the cache.  The geometry
+     * must not be modified afterwards, as it is shared.
+     */
+    public void put(Key key, AWTGlyphGeometryCache.Value value) {
+        Entry e = new Entry(value, getSize(value));
+        Segment s = getSegment(key);
+        long max = maxBytes / SEGMENTS;
+        synchronized (s) {
+            Entry old = (Entry)s.put(key, e);
+            if (old != null) {
+                s.bytes -= old.size;
+            }
+            s.bytes += e.size;
+            Iterator i = s.values().iterator();
+            while (s.bytes > max && i.hasNext()) {
+                Entry lru = (Entry)i.next();
+                i.remove();
+                s.bytes -= lru.size;
+                evictionCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Removes all the glyphs from the cache.
+     */
+    public void clear() {
+        for (int i = 0; i < SEGMENTS; i++) {
+            Segment s = segments[i];
+            synchronized (s) {
+                s.clear();
+                s.bytes = 0;
+            }
+        }
+    }
+
+    /**
+     * Returns a printable representation of the cache statistics.
+     */
+    public String toString() {
+        return "GlyphCache[bytes=" + getBytes() + "/" + maxBytes
+            + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+            + ", evictions=" + getEvictionCount() + "]";
+    }
+
+    /**
+     * Returns the segment of the given key.
+     */
+    protected Segment getSegment(Key key) {
+        int h = key.hash;
+        h ^= (h >>> 16);
+        return segments[(h ^ (h >>> 4)) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * Returns the estimated number of bytes of the given glyph geometry.
+     */
+    protected long getSize(AWTGlyphGeometryCache.Value v) {
+        // The value, its bounds and the entry.
+        long n = 160;
+        Shape s = v.getOutline();
+        if (s != null) {
+            // A segment type and up to six float coordinates.
+            PathIterator pi = s.getPathIterator(null);
+            for (; !pi.isDone(); pi.next()) {
+                n += 25;
+            }
+            n += 64;
+        }
+        return n;
+    }
+}
@@ -45,6 +45,9 @@ import org.w3c.dom.Element;
  *   be configured and defaults to 2.
  * + Children nodes are added to the current group as long as
  *   the associated GraphicContext's transform stack is valid.
+ * + When the DOMTreeManager streams its content, children nodes are
+ *   added to the current group as long as it has less than
+ *   DOMTreeManager.STREAM_GROUP_SIZE children.
  *
  * When children nodes can no longer be added, the group is considered
  * complete and the associated DOMTreeManager is notified of the
@@ -83,6 +86,11 @@ public class DOMGroupManager implements SVGSyntax, ErrorConstants {
      */
     protected Element currentGroup;
 
+    /**
+     * Number of children of the current group
+     */
+    protected int currentGroupSize;
+
     /**
      * Constructor
      * @param gc graphic context whose state will be reflected in the
@@ -135,6 +143,7 @@ public class DOMGroupManager implements SVGSyntax, ErrorConstants {
         //
         if (!currentGroup.hasChildNodes()) {
             currentGroup.appendChild(element);
+            currentGroupSize = 1;
 
             groupGC = domTreeManager.gcConverter.toSVG(gc);
             SVGGraphicContext deltaGC;
@@ -173,8 +182,10 @@ public class DOMGroupManager implements SVGSyntax, ErrorConstants {
                 // of differences, then add the node to the current
                 // group and set its attributes
                 trimContextForElement(deltaGC, element);
-                if (countOverrides(deltaGC) <= domTreeManager.maxGCOverrides) {
+                if (countOverrides(deltaGC) <= domTreeManager.maxGCOverrides
+                    && !domTreeManager.isGroupFull(currentGroupSize)) {
                     currentGroup.appendChild(element);
+                    currentGroupSize++;
                     // as there already are children we put all
                     // attributes (group + element) on the element itself.
                     if ((method & DRAW) == 0) {
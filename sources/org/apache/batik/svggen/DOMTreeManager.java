@@ -18,17 +18,23 @@
  */
 package org.apache.batik.svggen;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.ArrayList;
 import java.util.Collections;
 
 import org.apache.batik.ext.awt.g2d.GraphicContext;
 import org.w3c.dom.Comment;
 import org.w3c.dom.Document;
+import org.w3c.dom.DocumentFragment;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 /**
@@ -57,12 +63,38 @@ import org.w3c.dom.NodeList;
  *        +-- ...
  *        +-- [g]    Group n
  *
+ * In stream mode (see {@link #startStream}), the tree is not kept in
+ * memory: every time a group is completed, it is written out with the
+ * definitions created since the previous groups were written, and removed
+ * from the top level group.  The memory used is then bounded by the size
+ * of the current groups and of the definitions.  Each definition is
+ * written once, in a defs element placed just before the groups which
+ * were completed at the same time; later groups refer to it again:
+ * <br>
+ * [svg]
+ *   |
+ *   +-- [defs] Contain generic definitions
+ *   +-- [g]    Top level group
+ *        |
+ *        +-- [defs] Definitions created while drawing group 1
+ *        +-- [g]    Group 1
+ *        +-- [defs] New definitions created while drawing group 2
+ *        +-- [g]    Group 2
+ *        +-- ...
+ *
  * @author <a href="mailto:cjolif">Christophe Jolif</a>
  * @author <a href="mailto:vincent.hardy@eng.sun.com">Vincent Hardy</a>
  * @version $Id$
  */
 public class DOMTreeManager implements SVGSyntax, ErrorConstants {
 
+    /**
+     * Maximum number of children of a group in stream mode.  Groups are
+     * otherwise only completed when the graphic context changes enough,
+     * which may never happen while a large drawing is streamed.
+     */
+    public static final int STREAM_GROUP_SIZE = 1000;
+
     /**
      * Maximum of Graphic Context attributes overrides
      * in children of the current group.
@@ -116,6 +148,44 @@ public class DOMTreeManager implements SVGSyntax, ErrorConstants {
      */
     protected List otherDefs;
 
+    /**
+     * The writer the completed groups are written to, in stream mode.
+     * Null when the tree is kept in memory.
+     */
+    private XmlWriter.IndentWriter streamWriter;
+
+    /**
+     * The svg element written in stream mode.
+     */
+    private Element streamRoot;
+
+    /**
+     * Whether the streamed content uses CSS style properties.
+     */
+    private boolean streamUseCss;
+
+    /**
+     * Whether the streamed characters are escaped.
+     */
+    private boolean streamEscaped;
+
+    /**
+     * Whether a child of the top level group was written in stream mode.
+     */
+    private boolean streamedGroup;
+
+    /**
+     * The first error which occured while writing completed groups, in
+     * stream mode.  It is reported by {@link #endStream}.
+     */
+    private SVGGraphics2DIOException streamError;
+
+    /**
+     * The definitions already written in stream mode.  The converters
+     * keep them while streaming, so that they are not defined again.
+     */
+    private Set streamedDefs;
+
     /**
      * Constructor
      * @param gc default graphic context state
@@ -184,6 +254,10 @@ public class DOMTreeManager implements SVGSyntax, ErrorConstants {
                     gm.recycleCurrentGroup();
             }
         }
+
+        // All the groups but the one just appended are now complete.
+        if (streamWriter != null)
+            writeCompletedGroups(false);
     }
 
     /**
@@ -326,6 +400,20 @@ public class DOMTreeManager implements SVGSyntax, ErrorConstants {
      * the various converters. This also resets the converters.
      */
     public List getDefinitionSet(){
+        List defSet = collectDefinitionSet();
+
+        // Build new converters
+        filterConverter = new SVGBufferedImageOp(generatorContext);
+        gcConverter = new SVGGraphicContextConverter(generatorContext);
+
+        return defSet;
+    }
+
+    /**
+     * Returns the definitions referenced by the attributes generated by
+     * the various converters, without resetting them.
+     */
+    private List collectDefinitionSet(){
         //
         // The definition set contains all the definitions minus
         // any definition that has been placed in the generic definition set
@@ -337,11 +425,6 @@ public class DOMTreeManager implements SVGSyntax, ErrorConstants {
             defSet.addAll(otherDefs);
             otherDefs = null;
         }
-
-        // Build new converters
-        filterConverter = new SVGBufferedImageOp(generatorContext);
-        gcConverter = new SVGGraphicContextConverter(generatorContext);
-
         return defSet;
     }
 
@@ -422,6 +505,184 @@ public class DOMTreeManager implements SVGSyntax, ErrorConstants {
         return topLevelGroup;
     }
 
+    /**
+     * Starts writing the content to the given writer as it is drawn,
+     * instead of keeping it in memory.  The XML header and the start tags
+     * of the given svg element and of the top level group are written
+     * immediately; the groups are then written as soon as they are
+     * complete.  {@link #endStream} must be called once drawing is done.
+     *
+     * <p>While streaming, the top level group and the definition set
+     * must not be requested, since their content is handed over to the
+     * writer.  The converters are only reset by {@link #endStream}: a
+     * definition is written once, before the first group which uses it,
+     * and shared by all the groups written after it.</p>
+     *
+     * @param svgElement the svg element to write the content into, or
+     *        null to create one.  Its attributes must be set: it is
+     *        written before its children.
+     * @param writer the writer to write the content to
+     * @param useCss defines whether the output SVG should use CSS style
+     *        properties as opposed to plain attributes
+     * @param escaped defines if the characters will be escaped
+     */
+    public void startStream(Element svgElement, Writer writer,
+                            boolean useCss, boolean escaped)
+        throws SVGGraphics2DIOException {
+        if (streamWriter != null)
+            throw new SVGGraphics2DRuntimeException(ERR_STREAM_STARTED);
+
+        Element svg = svgElement;
+        if (svg == null) {
+            svg = generatorContext.domFactory.
+                createElementNS(SVG_NAMESPACE_URI, SVG_SVG_TAG);
+        }
+
+        // Unlike getRoot, only the composites used so far can be taken
+        // into account.
+        if (gcConverter.getCompositeConverter().
+            getAlphaCompositeConverter().requiresBackgroundAccess())
+            svg.setAttributeNS
+                (null, SVG_ENABLE_BACKGROUND_ATTRIBUTE, SVG_NEW_VALUE);
+
+        Comment generatorComment = null;
+        if (generatorContext.generatorComment != null) {
+            generatorComment = generatorContext.domFactory.
+                createComment(generatorContext.generatorComment);
+            svg.appendChild(generatorComment);
+        }
+        applyDefaultRenderingStyle(svg);
+        Element genericDefs = getGenericDefinitions();
+        svg.appendChild(genericDefs);
+        if (useCss)
+            SVGCSSStyler.style(svg);
+        svg.appendChild(topLevelGroup);
+
+        DocumentFragment fragment =
+            generatorContext.domFactory.createDocumentFragment();
+        fragment.appendChild(svg);
+
+        XmlWriter.IndentWriter out = new XmlWriter.IndentWriter(writer);
+        try {
+            XmlWriter.writeDocumentHeader(out);
+            XmlWriter.writeStartTag(svg, out, escaped);
+            if (generatorComment != null)
+                XmlWriter.writeXml(generatorComment, out, escaped);
+            XmlWriter.writeXml(genericDefs, out, escaped);
+            XmlWriter.writeStartTag(topLevelGroup, out, escaped);
+        } catch (IOException io) {
+            generatorContext.errorHandler.
+                handleError(new SVGGraphics2DIOException(io));
+            return;
+        }
+
+        streamWriter = out;
+        streamRoot = svg;
+        streamUseCss = useCss;
+        streamEscaped = escaped;
+        streamedGroup = false;
+        streamError = null;
+        streamedDefs = new HashSet();
+    }
+
+    /**
+     * Writes the groups which are not complete yet, with the remaining
+     * definitions, and the end tags of the top level group and of the
+     * svg element, then stops streaming.  The writer is flushed but not
+     * closed.
+     */
+    public void endStream() throws SVGGraphics2DIOException {
+        if (streamWriter == null)
+            throw new SVGGraphics2DRuntimeException(ERR_STREAM_NOT_STARTED);
+
+        writeCompletedGroups(true);
+
+        XmlWriter.IndentWriter out = streamWriter;
+        Element svg = streamRoot;
+        SVGGraphics2DIOException error = streamError;
+        streamWriter = null;
+        streamRoot = null;
+        streamError = null;
+        streamedDefs = null;
+        try {
+            if (error == null) {
+                if (!streamedGroup)
+                    out.setIndentLevel(out.getIndentLevel()-2);
+                XmlWriter.writeEndTag(topLevelGroup, out);
+                XmlWriter.writeEndTag(svg, out);
+                out.write(XmlWriter.EOL);
+                out.flush();
+            }
+        } catch (IOException io) {
+            error = new SVGGraphics2DIOException(io);
+        } finally {
+            recycleTopLevelGroup();
+        }
+        if (error != null)
+            generatorContext.errorHandler.handleError(error);
+    }
+
+    /**
+     * Returns true if the content is written as it is drawn.
+     */
+    public boolean isStreaming() {
+        return streamWriter != null;
+    }
+
+    /**
+     * Returns true if a group with the given number of children must be
+     * completed, whatever the graphic context.
+     */
+    boolean isGroupFull(int groupSize) {
+        return streamWriter != null && groupSize >= STREAM_GROUP_SIZE;
+    }
+
+    /**
+     * Writes the definitions which were not written yet and the completed
+     * children of the top level group, in stream mode, and removes them
+     * from the top level group.  After an error, the children are dropped
+     * without being written, so that memory stays bounded.
+     *
+     * @param all if false, the last child of the top level group, which
+     *        may still receive new elements, is kept.
+     */
+    protected void writeCompletedGroups(boolean all) {
+        List defSet = collectDefinitionSet();
+        defSet.removeAll(streamedDefs);
+        streamedDefs.addAll(defSet);
+        if (defSet.size() > 0) {
+            Element defElement =
+                generatorContext.domFactory.
+                createElementNS(SVG_NAMESPACE_URI, SVG_DEFS_TAG);
+            defElement.
+                setAttributeNS(null, SVG_ID_ATTRIBUTE,
+                               generatorContext.idGenerator.
+                               generateID(ID_PREFIX_DEFS));
+            Iterator iter = defSet.iterator();
+            while(iter.hasNext())
+                defElement.appendChild((Element)iter.next());
+            topLevelGroup.insertBefore(defElement,
+                                       topLevelGroup.getFirstChild());
+        }
+
+        Node last = all ? null : topLevelGroup.getLastChild();
+        Node child = topLevelGroup.getFirstChild();
+        while (child != last) {
+            if (streamError == null) {
+                try {
+                    if (streamUseCss)
+                        SVGCSSStyler.style(child);
+                    XmlWriter.writeXml(child, streamWriter, streamEscaped);
+                    streamedGroup = true;
+                } catch (SVGGraphics2DIOException e) {
+                    streamError = e;
+                }
+            }
+            topLevelGroup.removeChild(child);
+            child = topLevelGroup.getFirstChild();
+        }
+    }
+
     public SVGBufferedImageOp getFilterConverter() {
         return filterConverter;
     }
@@ -511,6 +511,62 @@ public class SVGGraphics2D extends AbstractGraphics2D
         }
     }
 
+    /**
+     * Starts writing the SVG content to the given writer as it is drawn,
+     * instead of building it in memory until one of the
+     * <code>stream</code> methods is called.  The memory used is then
+     * bounded by the size of the group being drawn, which makes it
+     * possible to export drawings made of a very large number of
+     * primitives.  {@link #endStream} must be called once drawing is
+     * done.  The SVG canvas size, if any, must be set beforehand.
+     *
+     * @param writer used to write out the SVG content
+     * @param useCss defines whether the output SVG should use CSS style
+     *        properties as opposed to plain attributes.
+     * @see DOMTreeManager#startStream
+     */
+    public void startStream(Writer writer, boolean useCss)
+        throws SVGGraphics2DIOException {
+        startStream(writer, useCss, false);
+    }
+
+    /**
+     * Starts writing the SVG content to the given writer as it is drawn.
+     *
+     * @param writer used to write out the SVG content
+     * @param useCss defines whether the output SVG should use CSS style
+     *        properties as opposed to plain attributes.
+     * @param escaped defines if the characters will be escaped
+     * @see #startStream(Writer, boolean)
+     */
+    public void startStream(Writer writer, boolean useCss, boolean escaped)
+        throws SVGGraphics2DIOException {
+        Element svgRoot = getDOMFactory().
+            createElementNS(SVG_NAMESPACE_URI, SVG_SVG_TAG);
+        // Same attribute order as with getRoot and stream
+        domTreeManager.applyDefaultRenderingStyle(svgRoot);
+        if (svgCanvasSize != null){
+            svgRoot.setAttributeNS(null, SVG_WIDTH_ATTRIBUTE,  String.valueOf( svgCanvasSize.width ) );
+            svgRoot.setAttributeNS(null, SVG_HEIGHT_ATTRIBUTE, String.valueOf( svgCanvasSize.height) );
+        }
+        svgRoot.setAttributeNS(XMLNS_NAMESPACE_URI,
+                               XMLNS_PREFIX,
+                               SVG_NAMESPACE_URI);
+        svgRoot.setAttributeNS(XMLNS_NAMESPACE_URI,
+                               XMLNS_PREFIX + ":" + XLINK_PREFIX,
+                               XLINK_NAMESPACE_URI);
+        domTreeManager.startStream(svgRoot, writer, useCss, escaped);
+    }
+
+    /**
+     * Writes the end of the SVG content started by
+     * {@link #startStream(Writer, boolean)}.  The writer is flushed but
+     * not closed.
+     */
+    public void endStream() throws SVGGraphics2DIOException {
+        domTreeManager.endStream();
+    }
+
     /**
      * Invoking this method will return a set of definition element that
      * contain all the definitions referenced by the attributes generated by
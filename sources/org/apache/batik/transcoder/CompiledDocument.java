@@ -0,0 +1,112 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.transcoder;
+
+import org.apache.batik.anim.dom.SVGOMDocument;
+import org.apache.batik.bridge.BridgeContext;
+import org.apache.batik.gvt.GraphicsNode;
+
+/**
+ * An SVG document together with its GVT tree, built once by
+ * {@link SVGAbstractTranscoder#compile} to be rendered many times.
+ *
+ * <p>The GVT tree is only read while rendering, so one compiled
+ * document may be rendered by several transcoders at the same time, in
+ * different threads, each with its own transcoding hints (size, area of
+ * interest, background...).  Neither the document nor the tree must be
+ * modified while they are shared.</p>
+ *
+ * @version $Id$
+ */
+public class CompiledDocument {
+
+    /**
+     * The SVG document.
+     */
+    protected SVGOMDocument document;
+
+    /**
+     * The URI of the document, or null.
+     */
+    protected String uri;
+
+    /**
+     * The bridge context the tree was built with.
+     */
+    protected BridgeContext ctx;
+
+    /**
+     * The root of the GVT tree.
+     */
+    protected GraphicsNode root;
+
+    /**
+     * Creates a new CompiledDocument.
+     * @param document the SVG document
+     * @param uri the URI of the document, or null
+     * @param ctx the bridge context the tree was built with
+     * @param root the root of the GVT tree
+     */
+    public CompiledDocument(SVGOMDocument document, String uri,
+                            BridgeContext ctx, GraphicsNode root) {
+        this.document = document;
+        this.uri = uri;
+        this.ctx = ctx;
+        this.root = root;
+    }
+
+    /**
+     * Returns the SVG document.
+     */
+    public SVGOMDocument getDocument() {
+        return document;
+    }
+
+    /**
+     * Returns the URI of the document, or null.
+     */
+    public String getURI() {
+        return uri;
+    }
+
+    /**
+     * Returns the bridge context the tree was built with.
+     */
+    public BridgeContext getBridgeContext() {
+        return ctx;
+    }
+
+    /**
+     * Returns the root of the GVT tree.
+     */
+    public GraphicsNode getRoot() {
+        return root;
+    }
+
+    /**
+     * Releases the bridge context.  The document must not be rendered
+     * afterwards.
+     */
+    public void dispose() {
+        if (ctx != null) {
+            ctx.dispose();
+            ctx = null;
+        }
+    }
+}
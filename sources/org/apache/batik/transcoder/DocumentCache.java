@@ -0,0 +1,445 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.transcoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.CharArrayReader;
+import java.io.CharArrayWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.apache.batik.css.engine.CSSAttributeMap;
+import org.apache.batik.dom.util.DocumentFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * A memory bounded cache of parsed documents, meant to be shared by the
+ * transcoders of a whole application through the
+ * <code>XMLAbstractTranscoder.KEY_DOCUMENT_CACHE</code> transcoding hint.
+ *
+ * <p>The cached documents are never handed out: each transcode gets its
+ * own deep clone, which it is free to modify or to dispose of.  Cloning
+ * a document is much cheaper than parsing it again.</p>
+ *
+ * <p>Documents are keyed by their URI and by a stamp that changes when
+ * their content does:
+ * <ul>
+ * <li>for an input stream or a reader, a digest of the content,</li>
+ * <li>for a local file given by its URI, its modification time and
+ *     length.</li>
+ * </ul>
+ * Other inputs (XML readers, or URIs which are not local files) are
+ * parsed every time, since their content cannot be checked without
+ * reading it through the parser.</p>
+ *
+ * <p>The budget is expressed in bytes, and compared with an estimate of
+ * the memory used by the cached DOM trees.  The least recently used
+ * documents are evicted first.</p>
+ *
+ * @version $Id$
+ */
+public class DocumentCache {
+
+    /**
+     * The estimated number of bytes used by a node, not counting its
+     * text.
+     */
+    public static final int NODE_SIZE = 128;
+
+    /**
+     * The cached entries, in access order.
+     */
+    protected LinkedHashMap entries = new LinkedHashMap(16, 0.75f, true);
+
+    /**
+     * The maximum estimated number of bytes of cached documents.
+     */
+    protected long maxBytes;
+
+    /**
+     * The estimated number of bytes of cached documents.
+     */
+    protected long bytes;
+
+    /**
+     * The number of documents found in the cache.
+     */
+    protected long hits;
+
+    /**
+     * The number of documents that had to be parsed.
+     */
+    protected long misses;
+
+    /**
+     * The number of documents evicted to stay within the budget.
+     */
+    protected long evictions;
+
+    /**
+     * Creates a new DocumentCache.
+     * @param maxBytes the maximum estimated number of bytes of cached
+     *        documents.
+     */
+    public DocumentCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns a private copy of the document read from the given input,
+     * parsing it with the given factory unless an up to date copy is
+     * cached.
+     * @param input the input to read the document from
+     * @param f the factory used to parse the document
+     * @param ns the namespace URI of the root element of the document
+     * @param root the name of the root element of the document
+     * @exception IOException if an error occured while reading the document
+     */
+    public Document getDocument(TranscoderInput input, DocumentFactory f,
+                                String ns, String root)
+        throws IOException {
+        String uri = input.getURI();
+        if (input.getInputStream() != null) {
+            byte[] data = readBytes(input.getInputStream());
+            String key = createKey(f, uri, digest(data));
+            Document doc = getCachedDocument(key);
+            if (doc == null) {
+                doc = f.createDocument(ns, root, uri,
+                                       new ByteArrayInputStream(data));
+                doc = putDocument(key, doc);
+            }
+            return doc;
+        }
+        if (input.getReader() != null) {
+            char[] data = readChars(input.getReader());
+            String key = createKey(f, uri, digest(data));
+            Document doc = getCachedDocument(key);
+            if (doc == null) {
+                doc = f.createDocument(ns, root, uri,
+                                       new CharArrayReader(data));
+                doc = putDocument(key, doc);
+            }
+            return doc;
+        }
+        if (input.getXMLReader() != null) {
+            return f.createDocument(ns, root, uri, input.getXMLReader());
+        }
+        if (uri == null) {
+            return null;
+        }
+        File file = getFile(uri);
+        if (file == null) {
+            return f.createDocument(ns, root, uri);
+        }
+        String key = createKey(f, uri,
+                               file.lastModified() + ":" + file.length());
+        Document doc = getCachedDocument(key);
+        if (doc == null) {
+            doc = f.createDocument(ns, root, uri);
+            doc = putDocument(key, doc);
+        }
+        return doc;
+    }
+
+    /**
+     * Returns the maximum estimated number of bytes of cached documents.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Returns the estimated number of bytes of cached documents.
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the number of cached documents.
+     */
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of documents found in the cache.
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of documents that were not in the cache and had
+     * to be parsed.
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of documents evicted from the cache to stay
+     * within its budget.
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Removes all the documents from the cache.
+     */
+    public synchronized void flush() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Returns a printable representation of the cache statistics.
+     */
+    public synchronized String toString() {
+        return "DocumentCache[documents=" + entries.size()
+            + ", bytes=" + bytes + "/" + maxBytes
+            + ", hits=" + hits + ", misses=" + misses
+            + ", evictions=" + evictions + "]";
+    }
+
+    /**
+     * Returns a copy of the cached document for the given key, or null.
+     */
+    protected Document getCachedDocument(String key) {
+        Entry e;
+        synchronized (this) {
+            e = (Entry)entries.get(key);
+            if (e == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+        return e.copyDocument();
+    }
+
+    /**
+     * Caches a newly parsed document, evicting the least recently used
+     * documents if needed, and returns a copy of it.  Documents larger
+     * than the whole budget are returned as is, and not cached.
+     */
+    protected Document putDocument(String key, Document doc) {
+        long sz = estimateSize(doc);
+        if (sz > maxBytes) {
+            return doc;
+        }
+        Entry e = new Entry(doc, sz);
+        synchronized (this) {
+            Entry old = (Entry)entries.put(key, e);
+            if (old != null) {
+                bytes -= old.size;
+            }
+            bytes += sz;
+
+            Iterator i = entries.values().iterator();
+            while (bytes > maxBytes && i.hasNext()) {
+                Entry lru = (Entry)i.next();
+                bytes -= lru.size;
+                i.remove();
+                evictions++;
+            }
+        }
+        return e.copyDocument();
+    }
+
+    /**
+     * Returns the key of a document.  The factory class and its
+     * validation setting are part of the key, since they affect the
+     * parsed tree.
+     */
+    protected String createKey(DocumentFactory f, String uri, String stamp) {
+        return f.getClass().getName() + '\n' + f.isValidating() + '\n'
+            + uri + '\n' + stamp;
+    }
+
+    /**
+     * Returns the local file the given URI designates, or null.
+     */
+    protected static File getFile(String uri) {
+        try {
+            URI u = new URI(uri);
+            if (!"file".equalsIgnoreCase(u.getScheme())
+                    || u.getFragment() != null
+                    || u.getQuery() != null) {
+                return null;
+            }
+            File file = new File(u);
+            return file.isFile() ? file : null;
+        } catch (URISyntaxException ex) {
+            return null;
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns an estimate of the number of bytes used by the given DOM
+     * tree.
+     */
+    protected static long estimateSize(Node n) {
+        long sz = NODE_SIZE;
+        String v = n.getNodeValue();
+        if (v != null) {
+            sz += 2 * v.length();
+        }
+        NamedNodeMap attrs = n.getAttributes();
+        if (attrs instanceof CSSAttributeMap) {
+            // Read the values without creating the attribute nodes, so
+            // the cached document stays compact.
+            CSSAttributeMap map = (CSSAttributeMap)attrs;
+            int len = map.getLength();
+            for (int i = 0; i < len; i++) {
+                sz += NODE_SIZE + 2 * map.getItemValue(i).length();
+            }
+        } else if (attrs != null) {
+            int len = attrs.getLength();
+            for (int i = 0; i < len; i++) {
+                sz += NODE_SIZE + 2 * attrs.item(i).getNodeValue().length();
+            }
+        }
+        for (Node c = n.getFirstChild(); c != null; c = c.getNextSibling()) {
+            sz += estimateSize(c);
+        }
+        return sz;
+    }
+
+    /**
+     * Reads the whole content of the given stream.
+     */
+    protected static byte[] readBytes(InputStream is) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = is.read(buf)) != -1) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads the whole content of the given reader.
+     */
+    protected static char[] readChars(Reader r) throws IOException {
+        CharArrayWriter out = new CharArrayWriter();
+        char[] buf = new char[8192];
+        int n;
+        while ((n = r.read(buf)) != -1) {
+            out.write(buf, 0, n);
+        }
+        return out.toCharArray();
+    }
+
+    /**
+     * Returns a digest of the given bytes, as an hexadecimal string.
+     */
+    protected static String digest(byte[] data) {
+        return toHex(createDigest().digest(data));
+    }
+
+    /**
+     * Returns a digest of the given characters, as an hexadecimal string.
+     */
+    protected static String digest(char[] data) {
+        MessageDigest md = createDigest();
+        byte[] buf = new byte[2];
+        for (int i = 0; i < data.length; i++) {
+            buf[0] = (byte)(data[i] >> 8);
+            buf[1] = (byte)data[i];
+            md.update(buf);
+        }
+        return toHex(md.digest());
+    }
+
+    /**
+     * Creates the message digest used to identify contents.
+     */
+    protected static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException ex) {
+            // Every Java platform is required to support SHA-1.
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * Returns the hexadecimal representation of the given bytes.
+     */
+    protected static String toHex(byte[] b) {
+        StringBuffer sb = new StringBuffer(b.length * 2);
+        for (int i = 0; i < b.length; i++) {
+            sb.append(Character.forDigit((b[i] >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b[i] & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A cached document.
+     */
+    protected static class Entry {
+
+        /**
+         * The parsed document.  It is only ever read, to be copied.
+         */
+        protected Document document;
+
+        /**
+         * The estimated number of bytes used by the document.
+         */
+        protected long size;
+
+        /**
+         * Creates a new Entry.
+         */
+        public Entry(Document document, long size) {
+            this.document = document;
+            this.size = size;
+        }
+
+        /**
+         * Returns a deep copy of the document.  Copies are made one at a
+         * time, since reading a DOM tree is not guaranteed to be thread
+         * safe.
+         */
+        public synchronized Document copyDocument() {
+            return (Document)document.cloneNode(true);
+        }
+    }
+}
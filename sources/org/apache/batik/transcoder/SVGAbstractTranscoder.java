@@ -158,6 +158,49 @@ public abstract class SVGAbstractTranscoder extends XMLAbstractTranscoder {
         if (ctx != null)
             ctx.dispose();
     }
+    /**
+     * Builds the GVT tree of the specified input once, so that it can be
+     * rendered many times, for example at several sizes or with several
+     * areas of interest, without parsing the document and applying its
+     * style sheets again.  The returned document must be disposed of
+     * when no longer needed.
+     *
+     * @param input the SVG input to compile
+     * @return the compiled document
+     * @exception TranscoderException if an error occured while compiling
+     * @see org.apache.batik.transcoder.image.ImageTranscoder#transcode(CompiledDocument,TranscoderOutput)
+     */
+    public CompiledDocument compile(TranscoderInput input)
+            throws TranscoderException {
+
+        Document document = loadDocument(input);
+        if (document == null) {
+            throw new TranscoderException("No document to compile");
+        }
+        String uri = input.getURI();
+        SVGOMDocument svgDoc = toSVGDocument(document, uri);
+        ctx = createBridgeContext(svgDoc);
+        GraphicsNode gvtRoot;
+        try {
+            gvtRoot = buildGVTTree(svgDoc);
+        } catch (TranscoderException ex) {
+            ctx.dispose();
+            ctx = null;
+            throw ex;
+        }
+
+        // The viewing transform of the document is part of the rendering
+        // transform of each transcode, so that the tree is never changed.
+        CanvasGraphicsNode cgn = getCanvasGraphicsNode(gvtRoot);
+        if (cgn != null) {
+            cgn.setViewingTransform(new AffineTransform());
+        }
+        computeLazyState(gvtRoot);
+        CompiledDocument cd = new CompiledDocument(svgDoc, uri, ctx, gvtRoot);
+        ctx = null; // The compiled document owns it now.
+        return cd;
+    }
+
     /**
      * Transcodes the specified Document as an image in the specified output.
      *
@@ -171,6 +214,91 @@ public abstract class SVGAbstractTranscoder extends XMLAbstractTranscoder {
                              TranscoderOutput output)
             throws TranscoderException {
 
+        if (statistics != null) {
+            statistics.startStage();
+        }
+        SVGOMDocument svgDoc = toSVGDocument(document, uri);
+        ctx = createBridgeContext(svgDoc);
+        GraphicsNode gvtRoot = buildGVTTree(svgDoc);
+        setupTransform(svgDoc, uri, ctx, gvtRoot, false);
+        this.root = gvtRoot;
+        if (statistics != null) {
+            statistics.endStage(TranscoderStatistics.STAGE_BUILD);
+            statistics.setNodeCount(countNodes(gvtRoot));
+        }
+    }
+
+    /**
+     * Sets up the transcoder to render an already compiled document:
+     * <code>root</code>, <code>curTxf</code> and <code>curAOI</code> are
+     * set according to the current transcoding hints.  The compiled GVT
+     * tree is not modified, so several transcoders may render it at the
+     * same time.
+     *
+     * @param cd the compiled document to render
+     * @exception TranscoderException if an error occured while setting up
+     */
+    protected void transcode(CompiledDocument cd)
+            throws TranscoderException {
+
+        setupTransform(cd.getDocument(), cd.getURI(), cd.getBridgeContext(),
+                       cd.getRoot(), true);
+        this.root = cd.getRoot();
+        if (statistics != null) {
+            statistics.setNodeCount(countNodes(this.root));
+        }
+    }
+
+    /**
+     * Computes the bounds, outlines and text layouts that the nodes of
+     * the specified GVT tree, and of their masks, otherwise compute on
+     * first use.  Renderings sharing a compiled tree then only read them.
+     */
+    protected static void computeLazyState(GraphicsNode gn) {
+        if (gn == null) {
+            return;
+        }
+        gn.getBounds();
+        gn.getPrimitiveBounds();
+        gn.getGeometryBounds();
+        gn.getSensitiveBounds();
+        gn.getOutline();
+        if (gn.getMask() != null) {
+            computeLazyState(gn.getMask().getMaskNode());
+        }
+        if (gn instanceof CompositeGraphicsNode) {
+            List children = ((CompositeGraphicsNode)gn).getChildren();
+            for (int i = 0; i < children.size(); i++) {
+                computeLazyState((GraphicsNode)children.get(i));
+            }
+        }
+    }
+
+    /**
+     * Returns the number of nodes in the specified GVT tree.
+     */
+    protected static int countNodes(GraphicsNode gn) {
+        if (gn == null) {
+            return 0;
+        }
+        int count = 1;
+        if (gn instanceof CompositeGraphicsNode) {
+            List children = ((CompositeGraphicsNode)gn).getChildren();
+            for (int i = 0; i < children.size(); i++) {
+                count += countNodes((GraphicsNode)children.get(i));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the specified document as a document of the Batik SVG DOM
+     * implementation, copying it if needed.
+     *
+     * @param document the document to convert
+     * @param uri the uri of the document or null if any
+     */
+    protected SVGOMDocument toSVGDocument(Document document, String uri) {
         if ((document != null) &&
             !(document.getImplementation() instanceof SVGDOMImplementation)) {
             DOMImplementation impl;
@@ -182,16 +310,27 @@ public abstract class SVGAbstractTranscoder extends XMLAbstractTranscoder {
                 ((SVGOMDocument)document).setParsedURL(url);
             }
         }
+        return (SVGOMDocument)document;
+    }
+
+    /**
+     * Builds the GVT tree of the specified document with the current
+     * bridge context, and runs its scripts if it is dynamic.
+     *
+     * @param svgDoc the document to build
+     * @return the root of the GVT tree
+     * @exception TranscoderException if an error occured while building
+     */
+    protected GraphicsNode buildGVTTree(SVGOMDocument svgDoc)
+            throws TranscoderException {
 
+        // The user agent gives the image size as the viewport size.
         if (hints.containsKey(KEY_WIDTH))
             width = ((Float)hints.get(KEY_WIDTH)).floatValue();
         if (hints.containsKey(KEY_HEIGHT))
             height = ((Float)hints.get(KEY_HEIGHT)).floatValue();
 
-
-        SVGOMDocument svgDoc = (SVGOMDocument)document;
         SVGSVGElement root = svgDoc.getRootElement();
-        ctx = createBridgeContext(svgDoc);
 
         // build the GVT tree
         builder = new GVTBuilder();
@@ -226,6 +365,30 @@ public abstract class SVGAbstractTranscoder extends XMLAbstractTranscoder {
             ex.printStackTrace();
             throw new TranscoderException(ex);
         }
+        return gvtRoot;
+    }
+
+    /**
+     * Computes the image size, the area of interest and the rendering
+     * transform of the specified GVT tree from the current transcoding
+     * hints.  Global variables width, height, curAOI and curTxf are
+     * modified.
+     *
+     * @param svgDoc the document the tree was built from
+     * @param uri the uri of the document or null if any
+     * @param ctx the bridge context the tree was built with
+     * @param gvtRoot the root of the GVT tree
+     * @param shared whether the tree may not be modified, in which case
+     *        the viewing transform is part of curTxf rather than being
+     *        set on the canvas graphics node
+     */
+    protected void setupTransform(SVGOMDocument svgDoc,
+                                  String uri,
+                                  BridgeContext ctx,
+                                  GraphicsNode gvtRoot,
+                                  boolean shared) {
+
+        SVGSVGElement root = svgDoc.getRootElement();
 
         // get the 'width' and 'height' attributes of the SVG document
         float docWidth = (float)ctx.getDocumentSize().getWidth();
@@ -279,14 +442,12 @@ public abstract class SVGAbstractTranscoder extends XMLAbstractTranscoder {
         }
 
         CanvasGraphicsNode cgn = getCanvasGraphicsNode(gvtRoot);
-        if (cgn != null) {
+        if (cgn != null && !shared) {
             cgn.setViewingTransform(Px);
             curTxf = new AffineTransform();
         } else {
             curTxf = Px;
         }
-
-        this.root = gvtRoot;
     }
 
     protected CanvasGraphicsNode getCanvasGraphicsNode(GraphicsNode gn) {
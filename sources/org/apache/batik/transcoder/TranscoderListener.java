@@ -0,0 +1,37 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.transcoder;
+
+/**
+ * This interface lets an application monitor the transcodes, for
+ * example to export their timings to a metrics system.  An instance is
+ * registered with the <code>KEY_TRANSCODER_LISTENER</code> transcoding
+ * hint.  The same listener may be given to several transcoders used by
+ * different threads, so implementations must be thread-safe.
+ *
+ * @version $Id$
+ */
+public interface TranscoderListener {
+
+    /**
+     * Invoked when a transcode has completed successfully.
+     * @param stats the measurements made during the transcode
+     */
+    void transcodeCompleted(TranscoderStatistics stats);
+}
@@ -0,0 +1,368 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.transcoder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+
+/**
+ * The measurements made during one transcode, reported to the
+ * {@link TranscoderListener} given by the
+ * <code>KEY_TRANSCODER_LISTENER</code> transcoding hint.
+ *
+ * <p>The transcode is split in stages: parsing the document, building
+ * the GVT tree (which includes the CSS cascade), rendering the image
+ * and encoding it.  The time spent in each stage is measured, as well
+ * as the bytes allocated by the transcoding thread when the virtual
+ * machine can tell.  Counters which could not be measured are -1.</p>
+ *
+ * @version $Id$
+ */
+public class TranscoderStatistics {
+
+    /**
+     * The parsing stage: loading the document.
+     */
+    public static final int STAGE_PARSE = 0;
+
+    /**
+     * The build stage: the CSS cascade and the creation of the GVT tree.
+     */
+    public static final int STAGE_BUILD = 1;
+
+    /**
+     * The rendering stage: painting the GVT tree, filters included.
+     */
+    public static final int STAGE_RENDER = 2;
+
+    /**
+     * The encoding stage: writing the image to the output.
+     */
+    public static final int STAGE_ENCODE = 3;
+
+    /**
+     * The number of stages.
+     */
+    public static final int STAGE_COUNT = 4;
+
+    /**
+     * The names of the stages.
+     */
+    protected static final String[] STAGE_NAMES = {
+        "parse", "build", "render", "encode"
+    };
+
+    /**
+     * The ThreadMXBean and its getThreadAllocatedBytes(long) method,
+     * when the virtual machine supports allocation measurement.
+     */
+    protected static Object threadBean;
+    protected static Method allocatedBytesMethod;
+
+    static {
+        try {
+            Class c = Class.forName("com.sun.management.ThreadMXBean");
+            Object b = ManagementFactory.getThreadMXBean();
+            if (c.isInstance(b)) {
+                Method isSupported = c.getMethod
+                    ("isThreadAllocatedMemorySupported", new Class[0]);
+                Method isEnabled = c.getMethod
+                    ("isThreadAllocatedMemoryEnabled", new Class[0]);
+                Object[] noArgs = new Object[0];
+                if (((Boolean)isSupported.invoke(b, noArgs)).booleanValue()
+                    && ((Boolean)isEnabled.invoke(b, noArgs)).booleanValue()) {
+                    threadBean = b;
+                    allocatedBytesMethod = c.getMethod
+                        ("getThreadAllocatedBytes", new Class[] { long.class });
+                }
+            }
+        } catch (Exception e) {
+            // Not a HotSpot-like virtual machine, allocations are unknown.
+        } catch (LinkageError e) {
+        }
+    }
+
+    /**
+     * The URI of the transcoded document, or null.
+     */
+    protected String uri;
+
+    /**
+     * The time spent in each stage, in nanoseconds.
+     */
+    protected long[] durations = new long[STAGE_COUNT];
+
+    /**
+     * The bytes allocated in each stage, or -1.
+     */
+    protected long[] allocations = new long[STAGE_COUNT];
+
+    /**
+     * The start time and allocation of the current stage.
+     */
+    protected long stageStart;
+    protected long stageAllocation;
+
+    /**
+     * The number of elements of the document, or -1.
+     */
+    protected int elementCount = -1;
+
+    /**
+     * The number of nodes of the GVT tree, or -1.
+     */
+    protected int nodeCount = -1;
+
+    /**
+     * The tile cache counters, or -1.
+     */
+    protected long tileHitCount = -1;
+    protected long tileMissCount = -1;
+    protected long tileEvictionCount = -1;
+
+    /**
+     * The image cache counters, or -1.
+     */
+    protected long imageHitCount = -1;
+    protected long imageMissCount = -1;
+
+    /**
+     * The number of bytes written to the output, or -1.
+     */
+    protected long bytesWritten = -1;
+
+    /**
+     * Creates a new TranscoderStatistics.
+     * @param uri the URI of the transcoded document, or null
+     */
+    public TranscoderStatistics(String uri) {
+        this.uri = uri;
+        if (allocatedBytesMethod == null) {
+            for (int i = 0; i < STAGE_COUNT; i++) {
+                allocations[i] = -1;
+            }
+        }
+    }
+
+    /**
+     * Returns the URI of the transcoded document, or null.
+     */
+    public String getURI() {
+        return uri;
+    }
+
+    /**
+     * Starts measuring a stage.  Stages do not nest.
+     */
+    public void startStage() {
+        stageAllocation = getAllocatedBytes();
+        stageStart = System.nanoTime();
+    }
+
+    /**
+     * Stops measuring the stage started last, and adds its time and
+     * allocations to the given stage.
+     * @param stage one of the STAGE_ constants
+     */
+    public void endStage(int stage) {
+        durations[stage] += System.nanoTime() - stageStart;
+        if (allocations[stage] != -1) {
+            allocations[stage] += getAllocatedBytes() - stageAllocation;
+        }
+    }
+
+    /**
+     * Returns the time spent in the given stage, in nanoseconds.
+     * @param stage one of the STAGE_ constants
+     */
+    public long getDuration(int stage) {
+        return durations[stage];
+    }
+
+    /**
+     * Returns the time spent in all the stages, in nanoseconds.
+     */
+    public long getTotalDuration() {
+        long d = 0;
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            d += durations[i];
+        }
+        return d;
+    }
+
+    /**
+     * Returns the bytes allocated by the transcoding thread in the given
+     * stage, or -1 if unknown.  Rendering threads other than the
+     * transcoding thread are not accounted for.
+     * @param stage one of the STAGE_ constants
+     */
+    public long getAllocatedBytes(int stage) {
+        return allocations[stage];
+    }
+
+    /**
+     * Returns the name of the given stage.
+     * @param stage one of the STAGE_ constants
+     */
+    public static String getStageName(int stage) {
+        return STAGE_NAMES[stage];
+    }
+
+    /**
+     * Returns the number of elements of the document, or -1.
+     */
+    public int getElementCount() {
+        return elementCount;
+    }
+
+    public void setElementCount(int n) {
+        elementCount = n;
+    }
+
+    /**
+     * Returns the number of nodes of the GVT tree, or -1.
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public void setNodeCount(int n) {
+        nodeCount = n;
+    }
+
+    /**
+     * Returns the number of tiles found in the tile cache, or -1 if
+     * unknown.  Tiles are only counted when the transcode uses a
+     * <code>BoundedTileCache</code>.
+     */
+    public long getTileHitCount() {
+        return tileHitCount;
+    }
+
+    /**
+     * Returns the number of tiles computed by filters and other tiled
+     * images, or -1 if unknown.
+     */
+    public long getTileMissCount() {
+        return tileMissCount;
+    }
+
+    /**
+     * Returns the number of tiles evicted from the tile cache, or -1 if
+     * unknown.
+     */
+    public long getTileEvictionCount() {
+        return tileEvictionCount;
+    }
+
+    /**
+     * Sets the tile cache counters.
+     */
+    public void setTileCounts(long hits, long misses, long evictions) {
+        tileHitCount = hits;
+        tileMissCount = misses;
+        tileEvictionCount = evictions;
+    }
+
+    /**
+     * Returns the number of raster images found in the image cache, or
+     * -1.  The image cache is shared by all the transcodes of the
+     * virtual machine, so concurrent transcodes count each other's
+     * requests.
+     */
+    public long getImageHitCount() {
+        return imageHitCount;
+    }
+
+    /**
+     * Returns the number of raster images which had to be loaded, or -1.
+     */
+    public long getImageMissCount() {
+        return imageMissCount;
+    }
+
+    /**
+     * Sets the image cache counters.
+     */
+    public void setImageCounts(long hits, long misses) {
+        imageHitCount = hits;
+        imageMissCount = misses;
+    }
+
+    /**
+     * Returns the number of bytes written to the output, or -1 if the
+     * output is not a stream.
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public void setBytesWritten(long n) {
+        bytesWritten = n;
+    }
+
+    /**
+     * Returns the bytes allocated so far by the current thread, or 0.
+     */
+    protected static long getAllocatedBytes() {
+        if (allocatedBytesMethod == null) {
+            return 0;
+        }
+        try {
+            Long id = new Long(Thread.currentThread().getId());
+            Long n = (Long)allocatedBytesMethod.invoke
+                (threadBean, new Object[] { id });
+            return n.longValue();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    public String toString() {
+        StringBuffer sb = new StringBuffer();
+        sb.append(uri);
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            sb.append(' ');
+            sb.append(STAGE_NAMES[i]);
+            sb.append('=');
+            sb.append(durations[i] / 1000000);
+            sb.append("ms");
+            if (allocations[i] != -1) {
+                sb.append('/');
+                sb.append(allocations[i] / 1024);
+                sb.append("KB");
+            }
+        }
+        sb.append(" elements=");
+        sb.append(elementCount);
+        sb.append(" nodes=");
+        sb.append(nodeCount);
+        sb.append(" tiles=");
+        sb.append(tileHitCount);
+        sb.append('/');
+        sb.append(tileMissCount);
+        sb.append(" images=");
+        sb.append(imageHitCount);
+        sb.append('/');
+        sb.append(imageMissCount);
+        sb.append(" bytes=");
+        sb.append(bytesWritten);
+        return sb.toString();
+    }
+}
@@ -25,11 +25,14 @@ import org.apache.batik.dom.util.DocumentFactory;
 import org.apache.batik.dom.util.SAXDocumentFactory;
 import org.apache.batik.transcoder.keys.BooleanKey;
 import org.apache.batik.transcoder.keys.DOMImplementationKey;
+import org.apache.batik.transcoder.keys.DocumentCacheKey;
 import org.apache.batik.transcoder.keys.StringKey;
+import org.apache.batik.transcoder.keys.TranscoderListenerKey;
 import org.apache.batik.util.XMLResourceDescriptor;
 import org.w3c.dom.DOMException;
 import org.w3c.dom.DOMImplementation;
 import org.w3c.dom.Document;
+import org.w3c.dom.Node;
 
 /**
  * This class may be the base class of all transcoders which take an
@@ -47,11 +50,24 @@ import org.w3c.dom.Document;
  * to create
  * </ul>
  *
+ * <p>Documents parsed from the same input again and again may be kept
+ * in a <code>DocumentCache</code> given by <code>KEY_DOCUMENT_CACHE</code>.
+ *
+ * <p>The time spent in each stage of the transcodes, and other
+ * measurements, are reported to the <code>TranscoderListener</code>
+ * given by <code>KEY_TRANSCODER_LISTENER</code>.
+ *
  * @author <a href="mailto:Thierry.Kormann@sophia.inria.fr">Thierry Kormann</a>
  * @version $Id$
  */
 public abstract class XMLAbstractTranscoder extends AbstractTranscoder {
 
+    /**
+     * The measurements of the current transcode, or null if there is no
+     * <code>TranscoderListener</code> to report them to.
+     */
+    protected TranscoderStatistics statistics;
+
     /**
      * Constructs a new <code>XMLAbstractTranscoder</code>.
      */
@@ -72,6 +88,76 @@ public abstract class XMLAbstractTranscoder extends AbstractTranscoder {
     public void transcode(TranscoderInput input, TranscoderOutput output)
             throws TranscoderException {
 
+        String uri = input.getURI();
+        TranscoderListener listener =
+            (TranscoderListener)hints.get(KEY_TRANSCODER_LISTENER);
+        if (listener != null) {
+            statistics = new TranscoderStatistics(uri);
+        }
+        try {
+            if (statistics != null) {
+                statistics.startStage();
+            }
+            Document document = loadDocument(input);
+            if (statistics != null) {
+                statistics.endStage(TranscoderStatistics.STAGE_PARSE);
+                if (document != null) {
+                    statistics.setElementCount(countElements(document));
+                }
+            }
+            // call the dedicated transcode method
+            if (document != null) {
+                try {
+                    transcode(document, uri, output);
+                } catch(TranscoderException ex) {
+                    // at this time, all TranscoderExceptions are fatal errors
+                    handler.fatalError(ex);
+                    return;
+                }
+                if (listener != null) {
+                    listener.transcodeCompleted(statistics);
+                }
+            }
+        } finally {
+            statistics = null;
+        }
+    }
+
+    /**
+     * Returns the number of elements in the specified subtree.
+     */
+    protected static int countElements(Node n) {
+        int count = 0;
+        Node root = n;
+        while (n != null) {
+            if (n.getNodeType() == Node.ELEMENT_NODE) {
+                count++;
+            }
+            // Walk the tree in document order without recursion.
+            Node next = n.getFirstChild();
+            while (next == null && n != root) {
+                next = n.getNextSibling();
+                if (next == null) {
+                    n = n.getParentNode();
+                }
+            }
+            n = next;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the document of the specified XML input, parsing it if
+     * needed.  Errors are reported to the <code>ErrorHandler</code> as
+     * fatal errors.
+     *
+     * @param input the XML input to load the document from
+     * @return the document, or null if it could not be loaded
+     * @exception TranscoderException if an error occured while loading
+     */
+    protected Document loadDocument(TranscoderInput input)
+            throws TranscoderException {
+
         Document document = null;
         String uri = input.getURI();
         if (input.getDocument() != null) {
@@ -92,25 +178,29 @@ public abstract class XMLAbstractTranscoder extends AbstractTranscoder {
             if (domImpl == null) {
                 handler.fatalError(new TranscoderException(
                     "Unspecified transcoding hints: KEY_DOM_IMPLEMENTATION"));
-                return;
+                return null;
             }
             if (namespaceURI == null) {
                 handler.fatalError(new TranscoderException(
                 "Unspecified transcoding hints: KEY_DOCUMENT_ELEMENT_NAMESPACE_URI"));
-                return;
+                return null;
             }
             if (documentElement == null) {
                 handler.fatalError(new TranscoderException(
                     "Unspecified transcoding hints: KEY_DOCUMENT_ELEMENT"));
-                return;
+                return null;
             }
             // parse the XML document
             DocumentFactory f = createDocumentFactory(domImpl, parserClassname);
             Object xmlParserValidating = hints.get(KEY_XML_PARSER_VALIDATING);
             boolean validating = xmlParserValidating != null && ((Boolean) xmlParserValidating).booleanValue();
             f.setValidating(validating);
+            DocumentCache cache = (DocumentCache)hints.get(KEY_DOCUMENT_CACHE);
             try {
-                if (input.getInputStream() != null) {
+                if (cache != null) {
+                    document = cache.getDocument(input, f, namespaceURI,
+                                                 documentElement);
+                } else if (input.getInputStream() != null) {
                     document = f.createDocument(namespaceURI,
                                                 documentElement,
                                                 input.getURI(),
@@ -136,16 +226,7 @@ public abstract class XMLAbstractTranscoder extends AbstractTranscoder {
                 handler.fatalError(new TranscoderException(ex));
             }
         }
-        // call the dedicated transcode method
-        if (document != null) {
-            try {
-                transcode(document, uri, output);
-            } catch(TranscoderException ex) {
-                // at this time, all TranscoderExceptions are fatal errors
-                handler.fatalError(ex);
-                return;
-            }
-        }
+        return document;
     }
 
     /**
@@ -320,6 +401,68 @@ public abstract class XMLAbstractTranscoder extends AbstractTranscoder {
      */
     public static final TranscodingHints.Key KEY_DOM_IMPLEMENTATION
         = new DOMImplementationKey();
+
+    /**
+     * Document cache key.
+     * <table border="0" cellspacing="0" cellpadding="1">
+     *   <tr>
+     *     <th valign="top" align="right">Key:</th>
+     *     <td valign="top">KEY_DOCUMENT_CACHE</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Value:</th>
+     *     <td valign="top">DocumentCache</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Default:</th>
+     *     <td valign="top">null</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Required:</th>
+     *     <td valign="top">No</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Description:</th>
+     *     <td valign="top">Specify the cache of parsed documents to use.
+     *     The same cache may be shared by any number of transcoders, each
+     *     transcode getting its own copy of the cached document.</td>
+     *   </tr>
+     * </table>
+     */
+    public static final TranscodingHints.Key KEY_DOCUMENT_CACHE
+        = new DocumentCacheKey();
+
+    /**
+     * Transcoder listener key.
+     * <table border="0" cellspacing="0" cellpadding="1">
+     *   <tr>
+     *     <th valign="top" align="right">Key:</th>
+     *     <td valign="top">KEY_TRANSCODER_LISTENER</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Value:</th>
+     *     <td valign="top">TranscoderListener</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Default:</th>
+     *     <td valign="top">null</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Required:</th>
+     *     <td valign="top">No</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Description:</th>
+     *     <td valign="top">Specify the listener the measurements of each
+     *     transcode are reported to: the time spent parsing, building,
+     *     rendering and encoding, the number of DOM elements and GVT
+     *     nodes, the tile and image cache counters, and the number of
+     *     bytes written.</td>
+     *   </tr>
+     * </table>
+     */
+    public static final TranscodingHints.Key KEY_TRANSCODER_LISTENER
+        = new TranscoderListenerKey();
 }
 
 
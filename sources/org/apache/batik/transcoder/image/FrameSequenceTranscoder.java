@@ -0,0 +1,739 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.transcoder.image;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+import org.apache.batik.anim.dom.SVGOMDocument;
+import org.apache.batik.bridge.RepaintManager;
+import org.apache.batik.ext.awt.image.GraphicsUtil;
+import org.apache.batik.ext.awt.image.rendered.BoundedTileCache;
+import org.apache.batik.ext.awt.image.rendered.TileCache;
+import org.apache.batik.ext.awt.image.rendered.TileWorkers;
+import org.apache.batik.gvt.GraphicsNode;
+import org.apache.batik.gvt.RootGraphicsNode;
+import org.apache.batik.gvt.UpdateTracker;
+import org.apache.batik.gvt.renderer.ConcreteImageRendererFactory;
+import org.apache.batik.gvt.renderer.ImageRenderer;
+import org.apache.batik.transcoder.TranscoderException;
+import org.apache.batik.transcoder.TranscoderInput;
+import org.apache.batik.transcoder.TranscoderOutput;
+import org.apache.batik.transcoder.TranscodingHints;
+import org.apache.batik.transcoder.image.resources.Messages;
+import org.apache.batik.transcoder.keys.FloatKey;
+import org.apache.batik.transcoder.keys.IntegerKey;
+import org.apache.batik.util.DaemonThreadFactory;
+import org.w3c.dom.Document;
+
+/**
+ * This class is a <code>PNGTranscoder</code> that renders a sequence of
+ * frames of an animated document, <code>KEY_FRAME_COUNT</code> frames
+ * taken <code>KEY_FRAME_RATE</code> times per second from the document
+ * time given by <code>KEY_SNAPSHOT_TIME</code>.
+ *
+ * <p>The document is parsed and built once: the animation engine is then
+ * moved from frame to frame, and only the areas changed by the
+ * animations are rendered again.</p>
+ *
+ * <p>With <code>KEY_WORKER_COUNT</code> set, the timeline is split into
+ * as many consecutive parts, each rendered by a thread with its own copy
+ * of the document, bridge context and GVT tree.</p>
+ *
+ * <p>{@link #transcode(TranscoderInput,TranscoderOutput)} writes the
+ * frames as an animated PNG, in which each frame only holds the area
+ * which changed since the previous one, and
+ * {@link #transcode(TranscoderInput,FrameWriter)} hands them to a
+ * {@link FrameWriter}, such as a {@link FileFrameWriter} writing
+ * numbered PNG images.</p>
+ *
+ * <p>Scripts are run as with <code>KEY_EXECUTE_ONLOAD</code>, since
+ * animations need a dynamic document.</p>
+ *
+ * @version $Id$
+ */
+public class FrameSequenceTranscoder extends PNGTranscoder {
+
+    /**
+     * The default number of frames per second.
+     */
+    public static final float DEFAULT_FRAME_RATE = 25;
+
+    /**
+     * Constructs a new <code>FrameSequenceTranscoder</code>.
+     */
+    public FrameSequenceTranscoder() {
+    }
+
+    /**
+     * Receives the frames of a sequence as they are rendered.
+     */
+    public interface FrameWriter {
+
+        /**
+         * Writes a frame.  Frames rendered by different workers may be
+         * written at the same time from different threads; the frames
+         * of a worker are written in order.
+         * @param transcoder the transcoder which rendered the frame,
+         *        which may be used to encode it
+         * @param index the index of the frame in the sequence
+         * @param frame the whole frame, which is reused for the next
+         *        frame of the worker once this method returns
+         * @param changed the area of the frame which changed since the
+         *        previous frame of the worker, or the whole frame for its
+         *        first frame.  It is empty if nothing changed.
+         * @throws TranscoderException if the frame could not be written
+         */
+        void writeFrame(FrameSequenceTranscoder transcoder, int index,
+                        BufferedImage frame, Rectangle changed)
+            throws TranscoderException;
+    }
+
+    /**
+     * Transcodes the specified input as a sequence of frames, given to
+     * the specified writer.
+     *
+     * @param input the input to transcode
+     * @param writer the writer of the frames
+     * @exception TranscoderException if an error occured while transcoding
+     */
+    public void transcode(TranscoderInput input, FrameWriter writer)
+            throws TranscoderException {
+
+        Document document = loadDocument(input);
+        if (document == null) {
+            return;
+        }
+        BoundedTileCache oldCache = setupTileCache();
+        try {
+            transcodeFrames(document, input.getURI(), writer);
+        } finally {
+            restoreTileCache(oldCache);
+        }
+    }
+
+    /**
+     * Renders the frames of the specified document and writes them as an
+     * animated PNG to the specified output.
+     */
+    protected void transcodeImage(Document document,
+                                  String uri,
+                                  TranscoderOutput output)
+            throws TranscoderException {
+
+        OutputStream ostream = output.getOutputStream();
+        if (ostream == null) {
+            throw new TranscoderException(
+                Messages.formatMessage("png.badoutput", null));
+        }
+        if (hints.containsKey(KEY_INDEXED)) {
+            // Each frame would get its own palette.
+            throw new TranscoderException
+                ("KEY_INDEXED is not supported by animated PNG images");
+        }
+        AnimatedPNGWriter writer = new AnimatedPNGWriter(getFrameCount());
+        transcodeFrames(document, uri, writer);
+        try {
+            writer.write(ostream, getFrameRate());
+            ostream.flush();
+        } catch (IOException ex) {
+            throw new TranscoderException(ex);
+        }
+    }
+
+    /**
+     * Returns the number of frames to render, given by
+     * <code>KEY_FRAME_COUNT</code>.
+     */
+    protected int getFrameCount() throws TranscoderException {
+        Integer n = (Integer)hints.get(KEY_FRAME_COUNT);
+        if (n == null || n.intValue() <= 0) {
+            throw new TranscoderException
+                ("KEY_FRAME_COUNT must be a positive number of frames");
+        }
+        return n.intValue();
+    }
+
+    /**
+     * Returns the number of frames per second, given by
+     * <code>KEY_FRAME_RATE</code>.
+     */
+    protected float getFrameRate() throws TranscoderException {
+        Float r = (Float)hints.get(KEY_FRAME_RATE);
+        if (r == null) {
+            return DEFAULT_FRAME_RATE;
+        }
+        if (!(r.floatValue() > 0)) {
+            throw new TranscoderException
+                ("KEY_FRAME_RATE must be a positive number of frames");
+        }
+        return r.floatValue();
+    }
+
+    /**
+     * Renders the frames of the specified document, splitting them
+     * between the workers.
+     *
+     * @param document the document to render
+     * @param uri the uri of the document or null if any
+     * @param writer the writer of the frames
+     * @exception TranscoderException if an error occured while rendering
+     */
+    protected void transcodeFrames(Document document,
+                                   String uri,
+                                   final FrameWriter writer)
+            throws TranscoderException {
+
+        final int frameCount = getFrameCount();
+        final float interval = 1 / getFrameRate();
+        float t = 0;
+        if (hints.containsKey(KEY_SNAPSHOT_TIME)) {
+            t = ((Float)hints.get(KEY_SNAPSHOT_TIME)).floatValue();
+        }
+        final float startTime = t;
+
+        int n = 1;
+        if (hints.containsKey(KEY_WORKER_COUNT)) {
+            n = ((Integer)hints.get(KEY_WORKER_COUNT)).intValue();
+        }
+        n = Math.max(1, Math.min(n, frameCount));
+
+        SVGOMDocument svgDoc = toSVGDocument(document, uri);
+        if (n == 1) {
+            createWorker().renderFrames(svgDoc, uri, 0, frameCount,
+                                        startTime, interval, writer);
+            return;
+        }
+
+        // Each worker gets its own copy of the document, made here since
+        // reading a DOM tree is not guaranteed to be thread safe.
+        final String u = uri;
+        final BoundedTileCache tc = TileCache.getScopedCache();
+        final int threads = TileWorkers.getScopedThreadCount();
+        List tasks = new ArrayList(n);
+        for (int i = 0; i < n; i++) {
+            final SVGOMDocument doc = (i == 0)
+                ? svgDoc
+                : (SVGOMDocument)svgDoc.cloneNode(true);
+            final int first = (int)((long)frameCount * i / n);
+            final int count = (int)((long)frameCount * (i + 1) / n) - first;
+            final FrameSequenceTranscoder worker = createWorker();
+            tasks.add(new Callable() {
+                    public Object call() throws TranscoderException {
+                        BoundedTileCache old = TileCache.getScopedCache();
+                        int oldThreads = TileWorkers.getScopedThreadCount();
+                        TileCache.setScopedCache(tc);
+                        TileWorkers.setScopedThreadCount(threads);
+                        try {
+                            worker.renderFrames(doc, u, first, count,
+                                                startTime, interval, writer);
+                        } finally {
+                            TileCache.setScopedCache(old);
+                            TileWorkers.setScopedThreadCount(oldThreads);
+                        }
+                        return null;
+                    }
+                });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool
+            (n, new DaemonThreadFactory("FrameSequenceTranscoder"));
+        try {
+            List results = executor.invokeAll(tasks);
+            Iterator i = results.iterator();
+            while (i.hasNext()) {
+                ((Future)i.next()).get();
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new TranscoderException(ie);
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof TranscoderException)
+                throw (TranscoderException)cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            if (cause instanceof Error)
+                throw (Error)cause;
+            throw new TranscoderException(cause.getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns a new transcoder rendering a part of the frames, with the
+     * transcoding hints of this one.  Subclasses customizing the
+     * rendering should return an instance of their own class.
+     */
+    protected FrameSequenceTranscoder createWorker() {
+        FrameSequenceTranscoder t = new FrameSequenceTranscoder();
+        t.setTranscodingHints(hints);
+        t.addTranscodingHint(KEY_EXECUTE_ONLOAD, Boolean.TRUE);
+        t.setErrorHandler(handler);
+        return t;
+    }
+
+    /**
+     * Builds the GVT tree of the specified document and renders a part
+     * of its frames.  The first frame is rendered entirely, the others
+     * only where the tree changed since the previous one.
+     *
+     * @param svgDoc the document, owned by this transcoder
+     * @param uri the uri of the document or null if any
+     * @param first the index of the first frame to render
+     * @param count the number of frames to render
+     * @param startTime the document time of the frame of index 0
+     * @param interval the time between two frames
+     * @param writer the writer of the frames
+     * @exception TranscoderException if an error occured while rendering
+     */
+    protected void renderFrames(SVGOMDocument svgDoc,
+                                String uri,
+                                int first,
+                                int count,
+                                float startTime,
+                                float interval,
+                                FrameWriter writer)
+            throws TranscoderException {
+
+        ctx = createBridgeContext(svgDoc);
+        try {
+            GraphicsNode gvtRoot = buildGVTTree(svgDoc);
+            setupTransform(svgDoc, uri, ctx, gvtRoot, false);
+
+            UpdateTracker tracker = new UpdateTracker();
+            RootGraphicsNode rgn = gvtRoot.getRoot();
+            if (rgn != null) {
+                rgn.addTreeGraphicsNodeChangeListener(tracker);
+            }
+            ctx.getAnimationEngine().setCurrentTime
+                (startTime + first * interval);
+            tracker.clear();
+
+            int w = (int)(width+0.5);
+            int h = (int)(height+0.5);
+            ImageRenderer renderer =
+                new ConcreteImageRendererFactory().createDynamicImageRenderer();
+            RepaintManager repaintManager = new RepaintManager(renderer);
+            Shape aoi = curTxf.createInverse().createTransformedShape
+                (new Rectangle2D.Float(0, 0, width, height));
+            renderer.setTree(gvtRoot);
+            repaintManager.setupRenderer(curTxf, false, aoi, w, h);
+
+            Rectangle bounds = new Rectangle(0, 0, w, h);
+            BufferedImage frame = createImage(w, h);
+            for (int i = 0; i < count; i++) {
+                Collection areas = null;
+                if (i == 0) {
+                    areas = Collections.singletonList(aoi);
+                } else {
+                    ctx.getAnimationEngine().setCurrentTime
+                        (startTime + (first + i) * interval);
+                    if (tracker.hasChanged()) {
+                        areas = tracker.getDirtyAreas();
+                        tracker.clear();
+                    }
+                }
+                Rectangle changed = new Rectangle();
+                if (areas != null && !areas.isEmpty()) {
+                    Iterator it = repaintManager.updateRendering(areas)
+                        .iterator();
+                    while (it.hasNext()) {
+                        Rectangle r = (Rectangle)it.next();
+                        if (changed.isEmpty()) {
+                            changed = new Rectangle(r);
+                        } else {
+                            changed.add(r);
+                        }
+                    }
+                    changed = changed.intersection(bounds);
+                    if (!changed.isEmpty()) {
+                        paintFrame(frame, renderer.getOffScreen(), changed);
+                    } else {
+                        changed = new Rectangle();
+                    }
+                }
+                writer.writeFrame(this, first + i, frame, changed);
+            }
+        } catch (NoninvertibleTransformException ex) {
+            throw new TranscoderException(ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TranscoderException(ex);
+        } finally {
+            ctx.dispose();
+            ctx = null;
+        }
+    }
+
+    /**
+     * Paints the specified area of the rendering on the frame, over the
+     * background color if any.
+     */
+    protected void paintFrame(BufferedImage frame,
+                              BufferedImage rend,
+                              Rectangle area) {
+        Graphics2D g2d = GraphicsUtil.createGraphics(frame);
+        g2d.clip(area);
+        g2d.setComposite(AlphaComposite.Clear);
+        g2d.fill(area);
+        if (hints.containsKey(KEY_BACKGROUND_COLOR)) {
+            Paint bgcolor = (Paint)hints.get(KEY_BACKGROUND_COLOR);
+            g2d.setComposite(AlphaComposite.SrcOver);
+            g2d.setPaint(bgcolor);
+            g2d.fill(area);
+        }
+        g2d.setComposite(AlphaComposite.SrcOver);
+        if (rend != null) {
+            g2d.drawRenderedImage(rend, new AffineTransform());
+        }
+        g2d.dispose();
+    }
+
+    /**
+     * Encodes the specified area of a frame as a PNG image.
+     */
+    protected byte[] encodeArea(BufferedImage frame, Rectangle area)
+            throws TranscoderException {
+        BufferedImage img = createImage(area.width, area.height);
+        Graphics2D g2d = GraphicsUtil.createGraphics(img);
+        g2d.setComposite(AlphaComposite.Src);
+        g2d.drawImage(frame, -area.x, -area.y, null);
+        g2d.dispose();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        writeImage(img, new TranscoderOutput(bos));
+        return bos.toByteArray();
+    }
+
+    /**
+     * A frame writer writing each frame as a PNG image in its own file.
+     */
+    public static class FileFrameWriter implements FrameWriter {
+
+        /**
+         * The pattern of the file names.
+         */
+        protected String pattern;
+
+        /**
+         * Creates a new FileFrameWriter.
+         * @param pattern the pattern of the file names, formatted with
+         *        the index of the frame as by
+         *        <code>String.format</code>, for instance
+         *        <code>"frame%04d.png"</code>
+         */
+        public FileFrameWriter(String pattern) {
+            this.pattern = pattern;
+        }
+
+        /**
+         * Returns the file of the frame of the specified index.
+         */
+        public File getFile(int index) {
+            return new File(String.format(pattern,
+                                          new Object[] { new Integer(index) }));
+        }
+
+        public void writeFrame(FrameSequenceTranscoder transcoder, int index,
+                               BufferedImage frame, Rectangle changed)
+                throws TranscoderException {
+            try {
+                OutputStream os = new FileOutputStream(getFile(index));
+                try {
+                    transcoder.writeImage(frame, new TranscoderOutput(os));
+                } finally {
+                    os.close();
+                }
+            } catch (IOException ex) {
+                throw new TranscoderException(ex);
+            }
+        }
+    }
+
+    /**
+     * A frame writer keeping the changed area of each frame, encoded as a
+     * PNG image, to write them as an animated PNG once all are rendered.
+     */
+    protected static class AnimatedPNGWriter implements FrameWriter {
+
+        /**
+         * The PNG file signature.
+         */
+        protected static final byte[] SIGNATURE = {
+            (byte)137, 80, 78, 71, 13, 10, 26, 10
+        };
+
+        /**
+         * The encoded frames.
+         */
+        protected byte[][] frames;
+
+        /**
+         * The area of the image covered by each frame.
+         */
+        protected Rectangle[] areas;
+
+        /**
+         * Creates a new AnimatedPNGWriter.
+         * @param frameCount the number of frames
+         */
+        public AnimatedPNGWriter(int frameCount) {
+            frames = new byte[frameCount][];
+            areas = new Rectangle[frameCount];
+        }
+
+        public void writeFrame(FrameSequenceTranscoder transcoder, int index,
+                               BufferedImage frame, Rectangle changed)
+                throws TranscoderException {
+            // A frame cannot be empty: an unchanged one repeats a pixel.
+            Rectangle area = changed.isEmpty()
+                ? new Rectangle(0, 0, 1, 1)
+                : changed;
+            frames[index] = transcoder.encodeArea(frame, area);
+            areas[index] = area;
+        }
+
+        /**
+         * Writes the frames as an animated PNG.  The header and the
+         * ancillary chunks of the first frame, which covers the whole
+         * image, are those of the animation.
+         * @param os the stream to write to
+         * @param frameRate the number of frames per second
+         */
+        public void write(OutputStream os, float frameRate)
+                throws IOException {
+            DataOutputStream out = new DataOutputStream(os);
+            out.write(SIGNATURE);
+
+            int delay = Math.max(1, Math.min(0xffff,
+                                             Math.round(1000 / frameRate)));
+            int sequence = 0;
+            for (int f = 0; f < frames.length; f++) {
+                byte[] png = frames[f];
+                Rectangle area = areas[f];
+                boolean controlWritten = false;
+                int p = SIGNATURE.length;
+                while (p + 8 <= png.length) {
+                    int len = readInt(png, p);
+                    String type = new String(png, p + 4, 4, "ISO-8859-1");
+                    int data = p + 8;
+                    p = data + len + 4;
+                    if (type.equals("IEND")) {
+                        break;
+                    }
+                    if (type.equals("IDAT")) {
+                        if (!controlWritten) {
+                            controlWritten = true;
+                            ByteArrayOutputStream bos =
+                                new ByteArrayOutputStream(26);
+                            DataOutputStream fc = new DataOutputStream(bos);
+                            fc.writeInt(sequence++);
+                            fc.writeInt(area.width);
+                            fc.writeInt(area.height);
+                            fc.writeInt(area.x);
+                            fc.writeInt(area.y);
+                            fc.writeShort(delay);
+                            fc.writeShort(1000);
+                            fc.writeByte(0); // APNG_DISPOSE_OP_NONE
+                            fc.writeByte(0); // APNG_BLEND_OP_SOURCE
+                            writeChunk(out, "fcTL", bos.toByteArray(), 0,
+                                       bos.size(), -1);
+                        }
+                        if (f == 0) {
+                            writeChunk(out, "IDAT", png, data, len, -1);
+                        } else {
+                            writeChunk(out, "fdAT", png, data, len,
+                                       sequence++);
+                        }
+                    } else if (f == 0) {
+                        writeChunk(out, type, png, data, len, -1);
+                        if (type.equals("IHDR")) {
+                            byte[] ac = new byte[8];
+                            writeInt(ac, 0, frames.length);
+                            writeInt(ac, 4, 0); // Loops forever.
+                            writeChunk(out, "acTL", ac, 0, 8, -1);
+                        }
+                    }
+                }
+            }
+            writeChunk(out, "IEND", new byte[0], 0, 0, -1);
+            out.flush();
+        }
+
+        /**
+         * Writes a chunk.
+         * @param sequence the sequence number to write before the data,
+         *        or -1
+         */
+        protected static void writeChunk(DataOutputStream out, String type,
+                                         byte[] b, int off, int len,
+                                         int sequence)
+                throws IOException {
+            byte[] t = type.getBytes("ISO-8859-1");
+            CRC32 crc = new CRC32();
+            crc.update(t);
+            if (sequence >= 0) {
+                byte[] s = new byte[4];
+                writeInt(s, 0, sequence);
+                out.writeInt(len + 4);
+                out.write(t);
+                out.write(s);
+                crc.update(s);
+            } else {
+                out.writeInt(len);
+                out.write(t);
+            }
+            out.write(b, off, len);
+            crc.update(b, off, len);
+            out.writeInt((int)crc.getValue());
+        }
+
+        protected static int readInt(byte[] b, int off) {
+            return ((b[off] & 0xff) << 24) | ((b[off + 1] & 0xff) << 16)
+                | ((b[off + 2] & 0xff) << 8) | (b[off + 3] & 0xff);
+        }
+
+        protected static void writeInt(byte[] b, int off, int v) {
+            b[off] = (byte)(v >>> 24);
+            b[off + 1] = (byte)(v >>> 16);
+            b[off + 2] = (byte)(v >>> 8);
+            b[off + 3] = (byte)v;
+        }
+    }
+
+    // --------------------------------------------------------------------
+    // Keys definition
+    // --------------------------------------------------------------------
+
+    /**
+     * The frame count key.
+     *
+     * <table border="0" cellspacing="0" cellpadding="1">
+     *   <tr>
+     *     <th valign="top" align="right">Key:</th>
+     *     <td valign="top">KEY_FRAME_COUNT</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Value:</th>
+     *     <td valign="top">Integer</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Default:</th>
+     *     <td valign="top">none</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Required:</th>
+     *     <td valign="top">Yes</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Description:</th>
+     *     <td valign="top">Specify the number of frames to render.</td>
+     *   </tr>
+     * </table>
+     */
+    public static final TranscodingHints.Key KEY_FRAME_COUNT
+        = new IntegerKey();
+
+    /**
+     * The frame rate key.
+     *
+     * <table border="0" cellspacing="0" cellpadding="1">
+     *   <tr>
+     *     <th valign="top" align="right">Key:</th>
+     *     <td valign="top">KEY_FRAME_RATE</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Value:</th>
+     *     <td valign="top">Float</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Default:</th>
+     *     <td valign="top">25</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Required:</th>
+     *     <td valign="top">No</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Description:</th>
+     *     <td valign="top">Specify the number of frames per second of
+     *       document time.</td>
+     *   </tr>
+     * </table>
+     */
+    public static final TranscodingHints.Key KEY_FRAME_RATE
+        = new FloatKey();
+
+    /**
+     * The worker count key.
+     *
+     * <table border="0" cellspacing="0" cellpadding="1">
+     *   <tr>
+     *     <th valign="top" align="right">Key:</th>
+     *     <td valign="top">KEY_WORKER_COUNT</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Value:</th>
+     *     <td valign="top">Integer</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Default:</th>
+     *     <td valign="top">1</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Required:</th>
+     *     <td valign="top">No</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Description:</th>
+     *     <td valign="top">Specify the number of threads rendering the
+     *       frames.  Each renders a consecutive part of the sequence
+     *       with its own copy of the document, so the memory used grows
+     *       with the number of workers.</td>
+     *   </tr>
+     * </table>
+     */
+    public static final TranscodingHints.Key KEY_WORKER_COUNT
+        = new IntegerKey();
+}
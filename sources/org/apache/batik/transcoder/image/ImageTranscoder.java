@@ -27,16 +27,28 @@ import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
 import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 
 import org.apache.batik.ext.awt.image.GraphicsUtil;
+import org.apache.batik.ext.awt.image.URLImageCache;
+import org.apache.batik.ext.awt.image.rendered.BoundedTileCache;
+import org.apache.batik.ext.awt.image.rendered.TileCache;
+import org.apache.batik.ext.awt.image.rendered.TileWorkers;
+import org.apache.batik.ext.awt.image.spi.ImageTagRegistry;
 import org.apache.batik.gvt.renderer.ConcreteImageRendererFactory;
 import org.apache.batik.gvt.renderer.ImageRenderer;
 import org.apache.batik.gvt.renderer.ImageRendererFactory;
+import org.apache.batik.transcoder.CompiledDocument;
 import org.apache.batik.transcoder.SVGAbstractTranscoder;
 import org.apache.batik.transcoder.TranscoderException;
+import org.apache.batik.transcoder.TranscoderListener;
 import org.apache.batik.transcoder.TranscoderOutput;
+import org.apache.batik.transcoder.TranscoderStatistics;
 import org.apache.batik.transcoder.TranscodingHints;
 import org.apache.batik.transcoder.keys.BooleanKey;
+import org.apache.batik.transcoder.keys.IntegerKey;
 import org.apache.batik.transcoder.keys.PaintKey;
 import org.w3c.dom.Document;
 
@@ -64,11 +76,36 @@ import org.w3c.dom.Document;
  * stylesheet, and <code>KEY_MM_PER_PIXEL</code> to specify the number of
  * millimeters in each pixel .
  *
+ * <p>The <code>KEY_TILE_THREAD_COUNT</code> allows the filters of
+ * an image to be computed by several threads, and <code>KEY_TILE_CACHE_SIZE</code>
+ * gives each transcode its own tile cache.
+ *
+ * <p>A document rendered many times, at several sizes for instance, may
+ * be compiled once with {@link #compile}, and rendered with
+ * {@link #transcode(CompiledDocument,TranscoderOutput)}.
+ *
  * @author <a href="mailto:Thierry.Kormann@sophia.inria.fr">Thierry Kormann</a>
  * @version $Id$
  */
 public abstract class ImageTranscoder extends SVGAbstractTranscoder {
 
+    /**
+     * The tile cache of the current or last transcode, if any.
+     */
+    protected BoundedTileCache tileCache;
+
+    /**
+     * The tile thread count to restore after the current transcode.
+     */
+    protected int oldTileThreadCount;
+
+    /**
+     * The size in bytes of the tile cache used by a transcode computing
+     * its tiles with several threads or rendering a compiled document,
+     * when none is given.
+     */
+    public static final int DEFAULT_TILE_CACHE_SIZE = 16 << 20;
+
     /**
      * Constructs a new <code>ImageTranscoder</code>.
      */
@@ -88,8 +125,179 @@ public abstract class ImageTranscoder extends SVGAbstractTranscoder {
                              TranscoderOutput output)
             throws TranscoderException {
 
+        // Give this transcode its own tile cache if requested.
+        BoundedTileCache oldCache = setupTileCache();
+        try {
+            long[] counts = getCacheCounts();
+            transcodeImage(document, uri, output);
+            setCacheCounts(counts);
+        } finally {
+            restoreTileCache(oldCache);
+        }
+    }
+
+    /**
+     * Gives the current transcode its own tile cache if requested by
+     * <code>KEY_TILE_CACHE_SIZE</code>, or if its tiles are computed by
+     * several threads and no bounded cache is installed, and sets the
+     * number of threads given by <code>KEY_TILE_THREAD_COUNT</code>.
+     * @return the tile cache to restore once done
+     */
+    protected BoundedTileCache setupTileCache() {
+        return setupTileCache(false);
+    }
+
+    /**
+     * Gives the current transcode its own tile cache, as
+     * {@link #setupTileCache()} does.
+     * @param shared true if the images of the transcode may be shared
+     *        with concurrent transcodes, which then always need a
+     *        bounded cache
+     * @return the tile cache to restore once done
+     */
+    protected BoundedTileCache setupTileCache(boolean shared) {
+        BoundedTileCache oldCache = TileCache.getScopedCache();
+        tileCache = null;
+        int threads = 0;
+        if (hints.containsKey(KEY_TILE_THREAD_COUNT)) {
+            threads = ((Integer)hints.get(KEY_TILE_THREAD_COUNT)).intValue();
+        }
+        if (hints.containsKey(KEY_TILE_CACHE_SIZE)) {
+            int sz = ((Integer)hints.get(KEY_TILE_CACHE_SIZE)).intValue();
+            tileCache = new BoundedTileCache(sz);
+        } else if (((threads > 1) || shared) && (oldCache == null)
+                   && (TileCache.getDefaultCache() == null)) {
+            // Only the stores of a bounded cache are thread-safe.
+            tileCache = new BoundedTileCache(DEFAULT_TILE_CACHE_SIZE);
+        }
+        if (tileCache != null) {
+            TileCache.setScopedCache(tileCache);
+        }
+        oldTileThreadCount = TileWorkers.getScopedThreadCount();
+        if (threads > 0) {
+            TileWorkers.setScopedThreadCount(threads);
+        }
+        return oldCache;
+    }
+
+    /**
+     * Restores the tile cache and the tile thread count in use before
+     * the current transcode.
+     */
+    protected void restoreTileCache(BoundedTileCache oldCache) {
+        TileWorkers.setScopedThreadCount(oldTileThreadCount);
+        if (tileCache != null) {
+            TileCache.setScopedCache(oldCache);
+        }
+    }
+
+    /**
+     * Renders a document compiled by {@link #compile} as an image in the
+     * specified output, according to the transcoding hints of this
+     * transcoder.  Several transcoders may render the same compiled
+     * document at the same time.
+     *
+     * @param cd the compiled document to transcode
+     * @param output the ouput where to transcode
+     * @exception TranscoderException if an error occured while transcoding
+     */
+    public void transcode(CompiledDocument cd, TranscoderOutput output)
+            throws TranscoderException {
+
+        TranscoderListener listener =
+            (TranscoderListener)hints.get(KEY_TRANSCODER_LISTENER);
+        if (listener != null) {
+            statistics = new TranscoderStatistics(cd.getURI());
+        }
+        // Filters cache their renderings in the shared tree.
+        BoundedTileCache oldCache = setupTileCache(true);
+        try {
+            long[] counts = getCacheCounts();
+            // Sets up root, curTxf & curAoi
+            super.transcode(cd);
+            renderImage(output);
+            setCacheCounts(counts);
+            if (listener != null) {
+                listener.transcodeCompleted(statistics);
+            }
+        } finally {
+            restoreTileCache(oldCache);
+            statistics = null;
+        }
+    }
+
+    /**
+     * Returns the current counters of the tile cache used by the current
+     * transcode and of the image caches, or null if no statistics are
+     * collected.  The tile counters are -1 when the tiles go to the
+     * global LRU cache, which does not count them.
+     */
+    protected long[] getCacheCounts() {
+        if (statistics == null) {
+            return null;
+        }
+        long[] counts = { -1, -1, -1, 0, 0 };
+        BoundedTileCache tc = TileCache.getScopedCache();
+        if (tc == null) {
+            tc = TileCache.getDefaultCache();
+        }
+        if (tc != null) {
+            counts[0] = tc.getHitCount();
+            counts[1] = tc.getMissCount();
+            counts[2] = tc.getEvictionCount();
+        }
+        ImageTagRegistry reg = ImageTagRegistry.getRegistry();
+        URLImageCache[] caches = { reg.getImageCache(),
+                                   reg.getRawImageCache() };
+        for (int i = 0; i < caches.length; i++) {
+            counts[3] += caches[i].getHitCount();
+            counts[4] += caches[i].getMissCount();
+        }
+        return counts;
+    }
+
+    /**
+     * Sets the cache counters of the statistics of the current
+     * transcode to their increase since the given counters were read.
+     * @param before the counters returned by {@link #getCacheCounts}
+     */
+    protected void setCacheCounts(long[] before) {
+        long[] after = getCacheCounts();
+        if (after == null || before == null) {
+            return;
+        }
+        if (after[0] != -1 && before[0] != -1) {
+            statistics.setTileCounts(after[0] - before[0],
+                                     after[1] - before[1],
+                                     after[2] - before[2]);
+        }
+        statistics.setImageCounts(after[3] - before[3],
+                                  after[4] - before[4]);
+    }
+
+    /**
+     * Builds, renders and writes the image of the specified Document.
+     */
+    protected void transcodeImage(Document document,
+                                  String uri,
+                                  TranscoderOutput output)
+            throws TranscoderException {
+
         // Sets up root, curTxf & curAoi
         super.transcode(document, uri, output);
+        renderImage(output);
+    }
+
+    /**
+     * Renders and writes the image of the current GVT tree, once root,
+     * curTxf and curAOI are set up.
+     */
+    protected void renderImage(TranscoderOutput output)
+            throws TranscoderException {
+
+        if (statistics != null) {
+            statistics.startStage();
+        }
 
         // prepare the image to be painted
         int w = (int)(width+0.5);
@@ -113,26 +321,87 @@ public abstract class ImageTranscoder extends SVGAbstractTranscoder {
             BufferedImage rend = renderer.getOffScreen();
             renderer = null; // We're done with it...
 
-            BufferedImage dest = createImage(w, h);
-
-            Graphics2D g2d = GraphicsUtil.createGraphics(dest);
-            if (hints.containsKey(KEY_BACKGROUND_COLOR)) {
-                Paint bgcolor = (Paint)hints.get(KEY_BACKGROUND_COLOR);
-                g2d.setComposite(AlphaComposite.SrcOver);
-                g2d.setPaint(bgcolor);
-                g2d.fillRect(0, 0, w, h);
-            }
-            if (rend != null) { // might be null if the svg document is empty
-                g2d.drawRenderedImage(rend, new AffineTransform());
-            }
-            g2d.dispose();
-            rend = null; // We're done with it...
-            writeImage(dest, output);
+            writeRendering(rend, w, h, output);
         } catch (Exception ex) {
             throw new TranscoderException(ex);
         }
     }
 
+    /**
+     * Draws the rendering of the document over the background color, if
+     * any, in a new image and writes it.
+     * @param rend the rendering, or null if the document is empty
+     * @param w the image width in pixels
+     * @param h the image height in pixels
+     * @param output the ouput where to write the image
+     */
+    protected void writeRendering(BufferedImage rend, int w, int h,
+                                  TranscoderOutput output)
+            throws TranscoderException {
+        BufferedImage dest = createImage(w, h);
+
+        Graphics2D g2d = GraphicsUtil.createGraphics(dest);
+        if (hints.containsKey(KEY_BACKGROUND_COLOR)) {
+            Paint bgcolor = (Paint)hints.get(KEY_BACKGROUND_COLOR);
+            g2d.setComposite(AlphaComposite.SrcOver);
+            g2d.setPaint(bgcolor);
+            g2d.fillRect(0, 0, w, h);
+        }
+        if (rend != null) { // might be null if the svg document is empty
+            g2d.drawRenderedImage(rend, new AffineTransform());
+        }
+        g2d.dispose();
+        rend = null; // We're done with it...
+
+        if (statistics == null) {
+            writeImage(dest, output);
+            return;
+        }
+        statistics.endStage(TranscoderStatistics.STAGE_RENDER);
+        statistics.startStage();
+        CountingOutputStream cos = null;
+        if (output.getOutputStream() != null) {
+            cos = new CountingOutputStream(output.getOutputStream());
+            TranscoderOutput o = new TranscoderOutput(cos);
+            o.setURI(output.getURI());
+            output = o;
+        }
+        writeImage(dest, output);
+        statistics.endStage(TranscoderStatistics.STAGE_ENCODE);
+        if (cos != null) {
+            statistics.setBytesWritten(cos.getCount());
+        }
+    }
+
+    /**
+     * An output stream which counts the bytes written to it.
+     */
+    protected static class CountingOutputStream extends FilterOutputStream {
+
+        /**
+         * The number of bytes written so far.
+         */
+        protected long count;
+
+        public CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
     /**
      * Method so subclasses can modify the Renderer used to render document.
      */
@@ -142,6 +411,16 @@ public abstract class ImageTranscoder extends SVGAbstractTranscoder {
         return rendFactory.createStaticImageRenderer();
     }
 
+    /**
+     * Returns the tile cache used by the last transcode, when
+     * <code>KEY_TILE_CACHE_SIZE</code> or <code>KEY_TILE_THREAD_COUNT</code>
+     * gave it its own, or null.  Its counters
+     * tell how well the tiles of filters and other effects were reused.
+     */
+    public BoundedTileCache getTileCache() {
+        return tileCache;
+    }
+
     /**
      * Converts an image so that viewers which do not support the
      * alpha channel will see a white background (and not a black
@@ -275,4 +554,75 @@ public abstract class ImageTranscoder extends SVGAbstractTranscoder {
      */
     public static final TranscodingHints.Key KEY_FORCE_TRANSPARENT_WHITE
         = new BooleanKey();
+
+    /**
+     * The tile thread count key.
+     *
+     * <table border="0" cellspacing="0" cellpadding="1">
+     *   <tr>
+     *     <th valign="top" align="right">Key:</th>
+     *     <td valign="top">KEY_TILE_THREAD_COUNT</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Value:</th>
+     *     <td valign="top">Integer</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Default:</th>
+     *     <td valign="top">The <code>org.apache.batik.tileThreadCount</code>
+     *       system property, or 1</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Required:</th>
+     *     <td valign="top">No</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Description:</th>
+     *     <td valign="top">The number of threads computing the tiles of
+     *       the filters, masks and group opacity of the image.  Only
+     *       the parts of them which can be computed concurrently are
+     *       split between the threads, so the image is the same
+     *       whatever the number of threads.  When greater than one, the
+     *       transcode uses its own tile cache of
+     *       <code>DEFAULT_TILE_CACHE_SIZE</code> bytes unless
+     *       <code>KEY_TILE_CACHE_SIZE</code> is set or a bounded cache is
+     *       already installed.</td>
+     *   </tr>
+     * </table>
+     */
+    public static final TranscodingHints.Key KEY_TILE_THREAD_COUNT
+        = new IntegerKey();
+
+    /**
+     * The tile cache size key.
+     *
+     * <table border="0" cellspacing="0" cellpadding="1">
+     *   <tr>
+     *     <th valign="top" align="right">Key:</th>
+     *     <td valign="top">KEY_TILE_CACHE_SIZE</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Value:</th>
+     *     <td valign="top">Integer</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Default:</th>
+     *     <td valign="top">null</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Required:</th>
+     *     <td valign="top">No</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Description:</th>
+     *     <td valign="top">The maximum number of bytes of tile data
+     *       cached while transcoding.  When set, each transcode uses its
+     *       own <code>BoundedTileCache</code> (see
+     *       <code>getTileCache</code>) instead of the global tile cache,
+     *       so concurrent transcodes do not share a cache.</td>
+     *   </tr>
+     * </table>
+     */
+    public static final TranscodingHints.Key KEY_TILE_CACHE_SIZE
+        = new IntegerKey();
 }
@@ -220,4 +220,99 @@ public class PNGTranscoder extends ImageTranscoder {
      */
     public static final TranscodingHints.Key KEY_INDEXED
         = new IntegerKey();
+
+    /**
+     * The compression level key.
+     *
+     * <table border="0" cellspacing="0" cellpadding="1">
+     *   <tr>
+     *     <th valign="top" align="right">Key:</th>
+     *     <td valign="top">KEY_COMPRESSION_LEVEL</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Value:</th>
+     *     <td valign="top">Integer</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Default:</th>
+     *     <td valign="top">9</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Required:</th>
+     *     <td valign="top">No</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Description:</th>
+     *     <td valign="top">Specify the deflate compression level, from 0
+     *       (no compression) to 9 (best compression).  Lower levels
+     *       produce larger files much faster.</td>
+     *   </tr>
+     * </table>
+     */
+    public static final TranscodingHints.Key KEY_COMPRESSION_LEVEL
+        = new IntegerKey();
+
+    /**
+     * The row filter key.
+     *
+     * <table border="0" cellspacing="0" cellpadding="1">
+     *   <tr>
+     *     <th valign="top" align="right">Key:</th>
+     *     <td valign="top">KEY_FILTER</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Value:</th>
+     *     <td valign="top">Integer</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Default:</th>
+     *     <td valign="top">-1 (adaptive)</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Required:</th>
+     *     <td valign="top">No</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Description:</th>
+     *     <td valign="top">Specify the filter applied to every row: 0
+     *       (none), 1 (sub), 2 (up), 3 (average) or 4 (Paeth), or -1 to
+     *       choose the best filter for each row.  A fixed filter
+     *       encodes faster.</td>
+     *   </tr>
+     * </table>
+     */
+    public static final TranscodingHints.Key KEY_FILTER
+        = new IntegerKey();
+
+    /**
+     * The encoding thread count key.
+     *
+     * <table border="0" cellspacing="0" cellpadding="1">
+     *   <tr>
+     *     <th valign="top" align="right">Key:</th>
+     *     <td valign="top">KEY_ENCODING_THREAD_COUNT</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Value:</th>
+     *     <td valign="top">Integer</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Default:</th>
+     *     <td valign="top">1</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Required:</th>
+     *     <td valign="top">No</td>
+     *   </tr>
+     *   <tr>
+     *     <th valign="top" align="right">Description:</th>
+     *     <td valign="top">Specify the number of threads used to filter
+     *       and compress the image data.  With more than one thread,
+     *       non interlaced images are compressed in independent blocks,
+     *       which makes the file slightly larger.</td>
+     *   </tr>
+     * </table>
+     */
+    public static final TranscodingHints.Key KEY_ENCODING_THREAD_COUNT
+        = new IntegerKey();
 }
@@ -0,0 +1,786 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.transcoder.image;
+
+import java.awt.AlphaComposite;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.batik.anim.dom.SAXSVGDocumentFactory;
+import org.apache.batik.anim.dom.SVGOMDocument;
+import org.apache.batik.bridge.BridgeContext;
+import org.apache.batik.bridge.GVTBuilder;
+import org.apache.batik.bridge.GraphicsNodeBridge;
+import org.apache.batik.bridge.SVGGElementBridge;
+import org.apache.batik.css.engine.CSSStyleSheetNode;
+import org.apache.batik.dom.util.XLinkSupport;
+import org.apache.batik.ext.awt.image.GraphicsUtil;
+import org.apache.batik.ext.awt.image.renderable.ClipRable;
+import org.apache.batik.ext.awt.image.rendered.AbstractTiledRed;
+import org.apache.batik.ext.awt.image.rendered.BoundedTileCache;
+import org.apache.batik.gvt.CanvasGraphicsNode;
+import org.apache.batik.gvt.CompositeGraphicsNode;
+import org.apache.batik.gvt.GraphicsNode;
+import org.apache.batik.transcoder.TranscoderException;
+import org.apache.batik.transcoder.TranscoderInput;
+import org.apache.batik.transcoder.TranscoderOutput;
+import org.apache.batik.util.ParsedURL;
+import org.apache.batik.util.SVGConstants;
+import org.apache.batik.util.XMLResourceDescriptor;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+/**
+ * This class is a <code>PNGTranscoder</code> that renders a document
+ * while it is parsed: each graphics element is built and painted as soon
+ * as its end tag is read, and then discarded, so that the memory used
+ * depends on the depth of the document rather than on its size.
+ *
+ * <p>Only plain groups, with no opacity, filter, mask, clip path or
+ * background, are streamed into: the other graphics elements are built
+ * and painted as a whole.  The non-rendering elements, like gradients,
+ * patterns or symbols, are kept, as well as the first element of each
+ * group and the element before the one parsed, so that the
+ * <code>:first-child</code> pseudo-class and the adjacent sibling
+ * selectors still match.</p>
+ *
+ * <p>A document that can't be streamed is parsed again and transcoded as
+ * by a <code>PNGTranscoder</code>: this is the case when the input is not
+ * given by its URI, when scripts are run (<code>KEY_EXECUTE_ONLOAD</code>),
+ * for SVG 1.2 documents, and when the document refers to an element
+ * which is not parsed yet or which was discarded, or has a style sheet
+ * or a font after its first graphics element.  {@link #isStreamed()}
+ * tells whether the last document was streamed.</p>
+ *
+ * <p>A streamed image may still differ slightly from the one of a
+ * <code>PNGTranscoder</code> along some antialiased edges, often those of
+ * glyphs.  The static renderer paints in an image which starts at the
+ * top left corner of the bounds of the whole document, and is clipped
+ * to these bounds, which are only known once the document is built.
+ * Java2D does not rasterize a shape moved by whole pixels exactly alike,
+ * and normalized strokes overflow their bounds by half a pixel, so that
+ * the documents which do not cover the top left corner, or whose bounds
+ * end inside the image, can have pixels off by a few levels of alpha.
+ * Documents with a background, or whose content crosses the edges of
+ * the canvas, are rendered alike.</p>
+ *
+ * @version $Id$
+ */
+public class StreamingTranscoder extends PNGTranscoder {
+
+    /**
+     * The names of the SVG elements which are not rendered.  Those found
+     * before the first graphics element of the document are built with
+     * the document element.
+     */
+    protected static final Set NON_RENDERING_ELEMENTS = new HashSet
+        (Arrays.asList(new String[] {
+            SVGConstants.SVG_ANIMATE_TAG,
+            SVGConstants.SVG_ANIMATE_COLOR_TAG,
+            SVGConstants.SVG_ANIMATE_MOTION_TAG,
+            SVGConstants.SVG_ANIMATE_TRANSFORM_TAG,
+            SVGConstants.SVG_CLIP_PATH_TAG,
+            SVGConstants.SVG_COLOR_PROFILE_TAG,
+            SVGConstants.SVG_CURSOR_TAG,
+            SVGConstants.SVG_DEFS_TAG,
+            SVGConstants.SVG_DESC_TAG,
+            SVGConstants.SVG_FILTER_TAG,
+            SVGConstants.SVG_FONT_TAG,
+            SVGConstants.SVG_FONT_FACE_TAG,
+            SVGConstants.SVG_LINEAR_GRADIENT_TAG,
+            SVGConstants.SVG_MARKER_TAG,
+            SVGConstants.SVG_MASK_TAG,
+            SVGConstants.SVG_METADATA_TAG,
+            SVGConstants.SVG_PATTERN_TAG,
+            SVGConstants.SVG_RADIAL_GRADIENT_TAG,
+            SVGConstants.SVG_SCRIPT_TAG,
+            SVGConstants.SVG_SET_TAG,
+            SVGConstants.SVG_STYLE_TAG,
+            SVGConstants.SVG_SYMBOL_TAG,
+            SVGConstants.SVG_TITLE_TAG,
+            SVGConstants.SVG_VIEW_TAG }));
+
+    /**
+     * The mode of a group whose children are streamed.
+     */
+    protected static final int STREAM = 0;
+
+    /**
+     * The mode of a graphics element built and painted when parsed.
+     */
+    protected static final int PAINT = 1;
+
+    /**
+     * The mode of the descendants of a painted element.
+     */
+    protected static final int CONTENT = 2;
+
+    /**
+     * The mode of a non-rendering element, kept in the document.
+     */
+    protected static final int KEEP = 3;
+
+    /**
+     * Whether the last transcoded document was streamed.
+     */
+    protected boolean streamed;
+
+    /**
+     * Constructs a new <code>StreamingTranscoder</code>.
+     */
+    public StreamingTranscoder() {
+    }
+
+    /**
+     * Returns whether the last transcoded document was rendered while
+     * parsed, rather than transcoded as by a <code>PNGTranscoder</code>.
+     */
+    public boolean isStreamed() {
+        return streamed;
+    }
+
+    /**
+     * Transcodes the specified input in the specified output, streaming
+     * it if possible.
+     *
+     * @param input the input to transcode
+     * @param output the ouput where to transcode
+     * @exception TranscoderException if an error occured while transcoding
+     */
+    public void transcode(TranscoderInput input, TranscoderOutput output)
+            throws TranscoderException {
+
+        streamed = false;
+        if (isStreamable(input)) {
+            BoundedTileCache oldCache = setupTileCache();
+            try {
+                streamed = stream(input.getURI(), output);
+            } finally {
+                restoreTileCache(oldCache);
+                if (ctx != null) {
+                    ctx.dispose();
+                    ctx = null;
+                }
+            }
+            if (streamed) {
+                return;
+            }
+        }
+        super.transcode(input, output);
+    }
+
+    /**
+     * Returns whether the specified input may be streamed with the
+     * current transcoding hints.
+     */
+    protected boolean isStreamable(TranscoderInput input) {
+        String uri = input.getURI();
+        if (uri == null
+                || input.getDocument() != null
+                || input.getInputStream() != null
+                || input.getReader() != null
+                || input.getXMLReader() != null) {
+            return false;
+        }
+        // The view given by the fragment may not be parsed yet.
+        String ref = new ParsedURL(uri).getRef();
+        if (ref != null && ref.length() != 0) {
+            return false;
+        }
+        Object onload = hints.get(KEY_EXECUTE_ONLOAD);
+        return (onload == null || !((Boolean)onload).booleanValue())
+            && !hints.containsKey(KEY_DOCUMENT_CACHE)
+            && !hints.containsKey(KEY_TRANSCODER_LISTENER);
+    }
+
+    /**
+     * Renders the document of the specified URI while parsing it, and
+     * writes the image.  Errors while writing the image are reported to
+     * the <code>ErrorHandler</code> as fatal errors.
+     *
+     * @param uri the URI of the document
+     * @param output the ouput where to write the image
+     * @return false if the document could not be streamed
+     * @exception TranscoderException if an error occured while writing
+     */
+    protected boolean stream(String uri, TranscoderOutput output)
+            throws TranscoderException {
+
+        String parserClassname = (String)hints.get(KEY_XML_PARSER_CLASSNAME);
+        if (parserClassname == null) {
+            parserClassname = XMLResourceDescriptor.getXMLParserClassName();
+        }
+        StreamingDocumentFactory f =
+            new StreamingDocumentFactory(parserClassname, uri);
+        Object validating = hints.get(KEY_XML_PARSER_VALIDATING);
+        f.setValidating(validating != null
+                        && ((Boolean)validating).booleanValue());
+        // Shared values would be kept as long as the document.
+        f.setValueInterning(false);
+        try {
+            f.createDocument(uri);
+        } catch (Exception ex) {
+            // Whatever went wrong is reported by the normal transcoding.
+            if (f.graphics != null) {
+                f.graphics.dispose();
+            }
+            return false;
+        }
+        try {
+            writeRendering(f.image, (int)(width + 0.5), (int)(height + 0.5),
+                           output);
+        } catch (TranscoderException ex) {
+            handler.fatalError(ex);
+        }
+        return true;
+    }
+
+    /**
+     * The state of an element being parsed.
+     */
+    protected static class Frame {
+
+        /**
+         * The element.
+         */
+        public Element element;
+
+        /**
+         * How the element is rendered: STREAM, PAINT, CONTENT or KEEP.
+         */
+        public int mode;
+
+        /**
+         * The node of a streamed group.
+         */
+        public CompositeGraphicsNode node;
+
+        /**
+         * The transform from the user space of the children of a streamed
+         * group to the image.
+         */
+        public AffineTransform transform;
+
+        /**
+         * The rendering hints of the children of a streamed group.
+         */
+        public RenderingHints hints;
+
+        /**
+         * The first child element of a streamed group.
+         */
+        public Element first;
+
+        /**
+         * The last child element of a streamed group that was rendered
+         * and may be removed.
+         */
+        public Element previous;
+
+        /**
+         * Whether elements were kept in a streamed group, which then
+         * can't be removed.
+         */
+        public boolean hasKept;
+
+        public Frame(Element element, int mode) {
+            this.element = element;
+            this.mode = mode;
+        }
+    }
+
+    /**
+     * A GVT builder which builds single elements in a given parent node.
+     */
+    protected static class StreamingBuilder extends GVTBuilder {
+
+        /**
+         * Builds the graphics node of the specified element as the last
+         * child of the specified node.
+         */
+        protected void buildGraphicsNode(BridgeContext ctx,
+                                         Element e,
+                                         CompositeGraphicsNode parentNode) {
+            super.buildGraphicsNode(ctx, e, parentNode);
+        }
+    }
+
+    /**
+     * A document factory which renders the graphics elements as they are
+     * parsed.  Anything that prevents the streaming of the document
+     * stops the parsing with an exception.
+     */
+    protected class StreamingDocumentFactory extends SAXSVGDocumentFactory {
+
+        /**
+         * The URI of the document.
+         */
+        protected String uri;
+
+        /**
+         * The frames of the elements being parsed.
+         */
+        protected List frames = new ArrayList();
+
+        /**
+         * The non-rendering elements kept in the document.
+         */
+        protected Set keptElements = new HashSet();
+
+        /**
+         * The painted element being parsed, if any.
+         */
+        protected Element paintElement;
+
+        /**
+         * Whether the bridge context and the image are set up.
+         */
+        protected boolean isSetUp;
+
+        /**
+         * The builder of the painted elements.
+         */
+        protected StreamingBuilder streamingBuilder = new StreamingBuilder();
+
+        /**
+         * The rendering of the document.
+         */
+        protected BufferedImage image;
+
+        /**
+         * The graphics painting the image.
+         */
+        protected Graphics2D graphics;
+
+        public StreamingDocumentFactory(String parser, String uri) {
+            super(parser);
+            this.uri = uri;
+        }
+
+        /**
+         * <b>SAX</b>: Implements {@link
+         * org.xml.sax.ContentHandler#startElement(String,String,String,Attributes)}.
+         */
+        public void startElement(String     uri,
+                                 String     localName,
+                                 String     rawName,
+                                 Attributes attributes) throws SAXException {
+            super.startElement(uri, localName, rawName, attributes);
+            try {
+                frames.add(createFrame((Element)currentNode, attributes));
+            } catch (RuntimeException ex) {
+                throw new SAXException(ex);
+            }
+        }
+
+        /**
+         * <b>SAX</b>: Implements {@link
+         * org.xml.sax.ContentHandler#endElement(String,String,String)}.
+         */
+        public void endElement(String uri, String localName, String rawName)
+            throws SAXException {
+            super.endElement(uri, localName, rawName);
+            Frame f = (Frame)frames.remove(frames.size() - 1);
+            try {
+                endFrame(f);
+            } catch (RuntimeException ex) {
+                throw new SAXException(ex);
+            } catch (TranscoderException ex) {
+                throw new SAXException(ex);
+            }
+        }
+
+        /**
+         * Drops the texts of the streamed groups.
+         */
+        public void appendStringData() {
+            if (stringContent && isStreamedGroup(currentNode)) {
+                stringBuffer.setLength(0);
+                stringContent = false;
+                return;
+            }
+            super.appendStringData();
+        }
+
+        /**
+         * <b>SAX</b>: Implements {@link
+         * org.xml.sax.ContentHandler#processingInstruction(String,String)}.
+         */
+        public void processingInstruction(String target, String data)
+            throws SAXException {
+            if (isSetUp && target.equals("xml-stylesheet")) {
+                throw new SAXException("Style sheet after the content");
+            }
+            if (isStreamedGroup(currentNode)) {
+                appendStringData();
+                return;
+            }
+            super.processingInstruction(target, data);
+        }
+
+        /**
+         * <b>SAX</b>: Implements
+         * {@link org.xml.sax.ext.LexicalHandler#comment(char[],int,int)}.
+         */
+        public void comment(char[] ch, int start, int length)
+            throws SAXException {
+            if (isStreamedGroup(currentNode)) {
+                appendStringData();
+                return;
+            }
+            super.comment(ch, start, length);
+        }
+
+        /**
+         * Tells whether the specified node is a streamed group.
+         */
+        protected boolean isStreamedGroup(Node n) {
+            int size = frames.size();
+            if (n == null || size == 0) {
+                return false;
+            }
+            Frame f = (Frame)frames.get(size - 1);
+            return f.element == n && f.mode == STREAM;
+        }
+
+        /**
+         * Returns the frame of the specified element, just created.
+         */
+        protected Frame createFrame(Element e, Attributes attributes)
+                throws SAXException {
+            int size = frames.size();
+            if (size == 0) {
+                if (!(document instanceof SVGOMDocument)
+                        || ((SVGOMDocument)document).isSVG12()
+                        || !SVGConstants.SVG_NAMESPACE_URI.equals
+                            (e.getNamespaceURI())
+                        || !SVGConstants.SVG_SVG_TAG.equals
+                            (e.getLocalName())) {
+                    throw new SAXException("Not an SVG 1.1 document");
+                }
+                return new Frame(e, STREAM);
+            }
+            if (isSetUp) {
+                checkStyle(e);
+            }
+            Frame parent = (Frame)frames.get(size - 1);
+            switch (parent.mode) {
+            case KEEP:
+                return new Frame(e, KEEP);
+            case PAINT:
+            case CONTENT:
+                checkReferences(e, attributes);
+                return new Frame(e, CONTENT);
+            }
+
+            if (parent.first == null) {
+                parent.first = e;
+            }
+            if (!isSetUp) {
+                if (!SVGConstants.SVG_NAMESPACE_URI.equals(e.getNamespaceURI())
+                        || NON_RENDERING_ELEMENTS.contains
+                            (e.getLocalName())) {
+                    keptElements.add(e);
+                    return new Frame(e, KEEP);
+                }
+                // The document element is built without this element.
+                parent.element.removeChild(e);
+                setUp(parent);
+                parent.element.appendChild(e);
+            }
+            checkReferences(e, attributes);
+            Object bridge = ctx.getBridge(e);
+            if (!(bridge instanceof GraphicsNodeBridge)) {
+                keptElements.add(e);
+                parent.hasKept = true;
+                return new Frame(e, KEEP);
+            }
+            if (bridge instanceof SVGGElementBridge
+                    && SVGConstants.SVG_G_TAG.equals(e.getLocalName())) {
+                Frame f = createGroupFrame(e, parent,
+                                           (GraphicsNodeBridge)bridge);
+                if (f != null) {
+                    return f;
+                }
+            }
+            paintElement = e;
+            return new Frame(e, PAINT);
+        }
+
+        /**
+         * Returns the frame of the specified group, or null if it has to
+         * be painted as a whole.
+         */
+        protected Frame createGroupFrame(Element e, Frame parent,
+                                         GraphicsNodeBridge bridge) {
+            if (!bridge.getDisplay(e)) {
+                return null;
+            }
+            GraphicsNode gn = bridge.createGraphicsNode(ctx, e);
+            if (gn == null) {
+                return null;
+            }
+            bridge.buildGraphicsNode(ctx, e, gn);
+            if (!isPlain(gn)) {
+                return null;
+            }
+            parent.node.getChildren().add(gn);
+            Frame f = new Frame(e, STREAM);
+            f.node = (CompositeGraphicsNode)gn;
+            f.transform = new AffineTransform(parent.transform);
+            if (gn.getTransform() != null) {
+                f.transform.concatenate(gn.getTransform());
+            }
+            f.hints = parent.hints;
+            if (gn.getRenderingHints() != null) {
+                f.hints = new RenderingHints(null);
+                f.hints.putAll(parent.hints);
+                f.hints.putAll(gn.getRenderingHints());
+            }
+            return f;
+        }
+
+        /**
+         * Tells whether the children of the specified node can be painted
+         * directly in the image.
+         */
+        protected boolean isPlain(GraphicsNode gn) {
+            Composite c = gn.getComposite();
+            return (c == null || AlphaComposite.SrcOver.equals(c))
+                && gn.getFilter() == null
+                && gn.getMask() == null
+                && gn.getClip() == null
+                && ((CompositeGraphicsNode)gn).getBackgroundEnable() == null;
+        }
+
+        /**
+         * Sets up the bridge context and the image, when the first
+         * graphics element of the document is parsed.
+         */
+        protected void setUp(Frame root) throws SAXException {
+            SVGOMDocument doc = (SVGOMDocument)document;
+            doc.setParsedURL(new ParsedURL(uri));
+            ctx = createBridgeContext(doc);
+            GraphicsNode gvtRoot;
+            try {
+                gvtRoot = buildGVTTree(doc);
+            } catch (TranscoderException ex) {
+                throw new SAXException(ex);
+            }
+            setupTransform(doc, uri, ctx, gvtRoot, false);
+            CanvasGraphicsNode cgn = getCanvasGraphicsNode(gvtRoot);
+            if (cgn == null) {
+                throw new SAXException("No canvas");
+            }
+            Composite c = cgn.getComposite();
+            if ((c != null && !AlphaComposite.SrcOver.equals(c))
+                    || cgn.getFilter() != null
+                    || cgn.getMask() != null
+                    || cgn.getBackgroundEnable() != null
+                    || cgn.getBackgroundPaint() != null) {
+                throw new SAXException("Not a plain canvas");
+            }
+
+            // As the static renderer, paint past the right and bottom
+            // edges of the image, up to one tile after the last one, so
+            // that the nodes crossing them are rendered alike.
+            int ts = AbstractTiledRed.getDefaultTileSize();
+            int w = (((int)(width + 0.5) + ts - 1) / ts + 1) * ts;
+            int h = (((int)(height + 0.5) + ts - 1) / ts + 1) * ts;
+            image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            graphics = GraphicsUtil.createGraphics
+                (image, createRenderer().getRenderingHints());
+            RenderingHints rh = graphics.getRenderingHints();
+
+            // As the static renderer, move the image by whole pixels.
+            AffineTransform t = AffineTransform.getTranslateInstance
+                (Math.round((float)curTxf.getTranslateX()),
+                 Math.round((float)curTxf.getTranslateY()));
+            t.concatenate(new AffineTransform(curTxf.getScaleX(),
+                                              curTxf.getShearY(),
+                                              curTxf.getShearX(),
+                                              curTxf.getScaleY(),
+                                              0, 0));
+            t.concatenate(cgn.getGlobalTransform());
+
+            // The viewport clip is applied as the canvas would, which
+            // paints through an offscreen image if it is antialiased.
+            graphics.setTransform(t);
+            ClipRable clip = cgn.getClip();
+            if (clip != null) {
+                Shape s = clip.getClipPath();
+                if (clip.getUseAntialiasedClip()
+                        && (!(s instanceof Rectangle2D)
+                            || t.getShearX() != 0
+                            || t.getShearY() != 0)) {
+                    throw new SAXException("Antialiased canvas clip");
+                }
+                graphics.clip(s);
+            }
+            root.node = cgn;
+            root.transform = t;
+            root.hints = new RenderingHints(null);
+            root.hints.putAll(rh);
+            if (cgn.getRenderingHints() != null) {
+                root.hints.putAll(cgn.getRenderingHints());
+            }
+            isSetUp = true;
+        }
+
+        /**
+         * Builds, paints and discards the element of the specified frame,
+         * now parsed, as needed.
+         */
+        protected void endFrame(Frame f)
+                throws SAXException, TranscoderException {
+            if (frames.isEmpty()) {
+                if (!isSetUp) {
+                    setUp(f);
+                }
+                graphics.dispose();
+                return;
+            }
+            Frame parent = (Frame)frames.get(frames.size() - 1);
+            switch (f.mode) {
+            case STREAM:
+                parent.node.getChildren().remove(f.node);
+                if (f.hasKept) {
+                    parent.hasKept = true;
+                }
+                childDone(parent, f.element, !f.hasKept);
+                break;
+            case PAINT:
+                paintElement = null;
+                List children = parent.node.getChildren();
+                int i = children.size();
+                streamingBuilder.buildGraphicsNode(ctx, f.element,
+                                                   parent.node);
+                if (children.size() > i) {
+                    GraphicsNode gn = (GraphicsNode)children.get(i);
+                    graphics.setTransform(parent.transform);
+                    graphics.setRenderingHints(parent.hints);
+                    gn.paint(graphics);
+                    children.remove(i);
+                }
+                Node n = f.element.getFirstChild();
+                while (n != null) {
+                    Node next = n.getNextSibling();
+                    f.element.removeChild(n);
+                    n = next;
+                }
+                childDone(parent, f.element, true);
+                break;
+            case KEEP:
+                if (parent.mode == STREAM && isSetUp) {
+                    builder.build(ctx, f.element);
+                }
+            }
+        }
+
+        /**
+         * Removes the child of the specified group rendered before the
+         * specified one, unless it is the first.
+         */
+        protected void childDone(Frame parent, Element e, boolean removable) {
+            if (e == parent.first) {
+                return;
+            }
+            if (parent.previous != null) {
+                parent.element.removeChild(parent.previous);
+            }
+            parent.previous = removable ? e : null;
+        }
+
+        /**
+         * Checks that the specified element, parsed after the first
+         * graphics element, is neither a style sheet nor a font face,
+         * which may apply to the elements already rendered.
+         */
+        protected void checkStyle(Element e) throws SAXException {
+            if (e instanceof CSSStyleSheetNode
+                    || (SVGConstants.SVG_FONT_FACE_TAG.equals(e.getLocalName())
+                        && SVGConstants.SVG_NAMESPACE_URI.equals
+                            (e.getNamespaceURI()))) {
+                throw new SAXException("Style after the content");
+            }
+        }
+
+        /**
+         * Checks that the elements the specified one refers to are kept
+         * in the document.
+         */
+        protected void checkReferences(Element e, Attributes attributes)
+                throws SAXException {
+            int len = attributes.getLength();
+            for (int i = 0; i < len; i++) {
+                String value = attributes.getValue(i);
+                int idx = value.indexOf("url(");
+                while (idx != -1) {
+                    int start = idx + 4;
+                    int end = value.indexOf(')', start);
+                    if (end == -1) {
+                        break;
+                    }
+                    String ref = value.substring(start, end).trim();
+                    if (ref.length() > 1 && (ref.charAt(0) == '\''
+                                             || ref.charAt(0) == '"')) {
+                        ref = ref.substring(1, ref.length() - 1).trim();
+                    }
+                    if (ref.startsWith("#")) {
+                        checkReference(ref.substring(1));
+                    }
+                    idx = value.indexOf("url(", end);
+                }
+            }
+            if (SVGConstants.SVG_A_TAG.equals(e.getLocalName())) {
+                return; // A link, not a reference.
+            }
+            String href = XLinkSupport.getXLinkHref(e);
+            if (href != null && href.startsWith("#")) {
+                checkReference(href.substring(1));
+            }
+        }
+
+        /**
+         * Checks that the element of the specified ID is kept in the
+         * document.
+         */
+        protected void checkReference(String id) throws SAXException {
+            Element t = document.getElementById(id);
+            for (Node n = t; n != null; n = n.getParentNode()) {
+                if (n == paintElement || keptElements.contains(n)) {
+                    return;
+                }
+            }
+            throw new SAXException("Unresolved reference #" + id);
+        }
+    }
+}
@@ -24,6 +24,7 @@ import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.ByteBuffer;
 
 import org.apache.batik.dom.util.DOMUtilities;
 import org.apache.batik.transcoder.AbstractTranscoder;
@@ -35,6 +36,8 @@ import org.apache.batik.transcoder.TranscodingHints;
 import org.apache.batik.transcoder.keys.BooleanKey;
 import org.apache.batik.transcoder.keys.IntegerKey;
 import org.apache.batik.transcoder.keys.StringKey;
+import org.apache.batik.util.ParsedURL;
+import org.apache.batik.xml.XMLStreamNormalizingReader;
 import org.w3c.dom.Document;
 
 /**
@@ -167,6 +170,22 @@ public class SVGTranscoder extends AbstractTranscoder {
         Reader r = input.getReader();
         Writer w = output.getWriter();
 
+        if (r == null && input.getDocument() == null
+                && input.getURI() != null) {
+            // Local files are decoded straight from their mapped content.
+            try {
+                ParsedURL purl = new ParsedURL(input.getURI());
+                ByteBuffer bb = purl.openBuffer();
+                if (bb != null) {
+                    r = new XMLStreamNormalizingReader(bb, null);
+                } else {
+                    r = new XMLStreamNormalizingReader(purl.openStream(),
+                                                       null);
+                }
+            } catch (IOException ioEx) {
+                throw new TranscoderException(ioEx);
+            }
+        }
         if (r == null) {
             Document d = input.getDocument();
             if (d == null) {
@@ -0,0 +1,58 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+*/
+package org.apache.batik.util;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A <code>ThreadFactory</code> that creates named daemon threads, so
+ * that worker pools used to split up rendering or conversion work
+ * never keep the VM alive on their own.
+ *
+ * @version $Id$
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+
+    /**
+     * The prefix of the names of the created threads.
+     */
+    protected String namePrefix;
+
+    /**
+     * The number of threads created so far.
+     */
+    protected int count;
+
+    /**
+     * Creates a new DaemonThreadFactory.
+     * @param namePrefix the prefix of the names of the created threads.
+     */
+    public DaemonThreadFactory(String namePrefix) {
+        this.namePrefix = namePrefix;
+    }
+
+    /**
+     * Creates a new daemon thread that runs <code>r</code>.
+     */
+    public synchronized Thread newThread(Runnable r) {
+        Thread t = new Thread(r, namePrefix + "-" + (++count));
+        t.setDaemon(true);
+        return t;
+    }
+}
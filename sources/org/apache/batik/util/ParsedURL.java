@@ -21,6 +21,7 @@ package org.apache.batik.util;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -441,6 +442,16 @@ public class ParsedURL {
         return data.openStream(userAgent, mimeTypes);
     }
 
+    /**
+     * Returns the content of this URL if it is a local file, mapped in
+     * memory if it is large, or null if it is not a local file or if its
+     * content looks compressed.  In that case the stream should be
+     * opened instead.
+     */
+    public ByteBuffer openBuffer() throws IOException {
+        return data.openBuffer();
+    }
+
     /**
      * Attempt to open the stream, does no checking for compression
      * types.
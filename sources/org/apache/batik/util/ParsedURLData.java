@@ -19,12 +19,18 @@
 package org.apache.batik.util;
 
 import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -57,6 +63,12 @@ public class ParsedURLData {
      */
     public static final byte[] GZIP_MAGIC = {(byte)0x1f, (byte)0x8b};
 
+    /**
+     * The size from which local files are mapped in memory rather than
+     * read by {@link #openBuffer()}.
+     */
+    protected static final long MAP_THRESHOLD = 1 << 20;
+
     /**
      * This is a utility function others can call that checks if
      * is is a GZIP stream if so it returns a GZIPInputStream that
@@ -499,6 +511,60 @@ loop2:          while (i < len) {
         return ret;
     }
 
+    /**
+     * Returns the content of this URL if it is a local file, or null if it
+     * is not or if the content looks compressed, in which case the stream
+     * should be opened instead.  Large files are mapped in memory rather
+     * than read.
+     */
+    public ByteBuffer openBuffer() throws IOException {
+        if (!"file".equals(protocol) || path == null
+                || (host != null && host.length() > 0)) {
+            return null;
+        }
+        File f;
+        try {
+            f = new File(new URI("file:" + path));
+        } catch (URISyntaxException e) {
+            f = new File(path);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!f.isFile()) {
+            return null;
+        }
+        ByteBuffer bb;
+        FileInputStream fis = new FileInputStream(f);
+        try {
+            FileChannel fc = fis.getChannel();
+            long size = fc.size();
+            if (size > Integer.MAX_VALUE) {
+                return null;
+            }
+            if (size >= MAP_THRESHOLD) {
+                bb = fc.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                bb = ByteBuffer.allocate((int) size);
+                while (bb.hasRemaining() && fc.read(bb) != -1) {
+                }
+                bb.flip();
+            }
+        } finally {
+            fis.close();
+        }
+        if (bb.remaining() >= 2) {
+            int b0 = bb.get(0) & 0xff;
+            int b1 = bb.get(1) & 0xff;
+            if (b0 == (GZIP_MAGIC[0] & 0xff) && b1 == (GZIP_MAGIC[1] & 0xff)
+                    || (b0 & 0x0f) == 8 && (b0 >>> 4) <= 7
+                        && (b0 * 256 + b1) % 31 == 0) {
+                // Possibly a gzip or zlib stream.
+                return null;
+            }
+        }
+        return bb;
+    }
+
     protected InputStream openStreamInternal(String userAgent,
                                              Iterator mimeTypes,
                                              Iterator encodingTypes)
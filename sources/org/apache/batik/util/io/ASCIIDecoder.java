@@ -20,6 +20,7 @@ package org.apache.batik.util.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * This class represents an object which decodes ASCII characters from
@@ -37,6 +38,13 @@ public class ASCIIDecoder extends AbstractCharDecoder {
         super(is);
     }
 
+    /**
+     * Creates a new ASCIIDecoder.
+     */
+    public ASCIIDecoder(ByteBuffer bb) {
+        super(bb);
+    }
+
     /**
      * Reads the next character.
      * @return a character or END_OF_STREAM.
@@ -54,4 +62,29 @@ public class ASCIIDecoder extends AbstractCharDecoder {
         }
         return result;
     }
+
+    /**
+     * Reads characters into a portion of an array.
+     * @return the number of characters read, or END_OF_STREAM.
+     */
+    public int readChars(char[] cbuf, int off, int len) throws IOException {
+        if (position == count) {
+            fillBuffer();
+        }
+        if (count == -1) {
+            return END_OF_STREAM;
+        }
+        int n = Math.min(len, count - position);
+        byte[] b = buffer;
+        int p = position;
+        for (int i = 0; i < n; i++) {
+            int c = b[p++];
+            if (c < 0) {
+                charError("ASCII");
+            }
+            cbuf[off + i] = (char) c;
+        }
+        position = p;
+        return n;
+    }
 }
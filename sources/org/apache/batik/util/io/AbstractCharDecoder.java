@@ -20,6 +20,7 @@ package org.apache.batik.util.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * This class is the superclass of all the char decoders.
@@ -39,6 +40,11 @@ public abstract class AbstractCharDecoder implements CharDecoder {
      */
     protected InputStream inputStream;
 
+    /**
+     * The byte buffer to read, when not reading a stream.
+     */
+    protected ByteBuffer byteBuffer;
+
     /**
      * The input buffer.
      */
@@ -62,20 +68,66 @@ public abstract class AbstractCharDecoder implements CharDecoder {
         inputStream = is;
     }
 
+    /**
+     * Creates a new CharDecoder object.
+     * @param bb The buffer to read, from its position to its limit.  A
+     *        buffer backed by an array is decoded in place.
+     */
+    protected AbstractCharDecoder(ByteBuffer bb) {
+        byteBuffer = bb;
+    }
+
     /**
      * Disposes the associated resources.
      */
     public void dispose() throws IOException {
-        inputStream.close();
-        inputStream = null;
+        if (inputStream != null) {
+            inputStream.close();
+            inputStream = null;
+        }
+        byteBuffer = null;
     }
 
     /**
      * Fills the input buffer.
      */
     protected void fillBuffer() throws IOException {
-        count = inputStream.read(buffer, 0, BUFFER_SIZE);
-        position = 0;
+        if (byteBuffer == null) {
+            count = inputStream.read(buffer, 0, BUFFER_SIZE);
+            position = 0;
+            return;
+        }
+        int n = byteBuffer.remaining();
+        if (n == 0) {
+            count = -1;
+            position = 0;
+        } else if (byteBuffer.hasArray()) {
+            buffer = byteBuffer.array();
+            position = byteBuffer.arrayOffset() + byteBuffer.position();
+            count = position + n;
+            byteBuffer.position(byteBuffer.limit());
+        } else {
+            if (n > BUFFER_SIZE) {
+                n = BUFFER_SIZE;
+            }
+            byteBuffer.get(buffer, 0, n);
+            count = n;
+            position = 0;
+        }
+    }
+
+    /**
+     * Reads the next byte of the input.
+     * @return a byte or -1 at the end of the input.
+     */
+    protected int readByte() throws IOException {
+        if (position == count) {
+            fillBuffer();
+        }
+        if (count == -1) {
+            return -1;
+        }
+        return buffer[position++] & 0xff;
     }
 
     /**
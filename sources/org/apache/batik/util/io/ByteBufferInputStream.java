@@ -0,0 +1,92 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.util.io;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * This class represents an input stream which reads the bytes of a
+ * {@link ByteBuffer}, from its position to its limit.
+ *
+ * @version $Id$
+ */
+public class ByteBufferInputStream extends InputStream {
+
+    /**
+     * The buffer to read.
+     */
+    protected ByteBuffer buffer;
+
+    /**
+     * Creates a new ByteBufferInputStream.
+     * @param bb The buffer to read.  Its position is advanced as the
+     *        stream is read.
+     */
+    public ByteBufferInputStream(ByteBuffer bb) {
+        buffer = bb;
+    }
+
+    /**
+     * Reads the next byte of data.
+     */
+    public int read() {
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        return buffer.get() & 0xff;
+    }
+
+    /**
+     * Reads up to <code>len</code> bytes of data into an array of bytes.
+     */
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        int n = buffer.remaining();
+        if (n == 0) {
+            return -1;
+        }
+        if (n > len) {
+            n = len;
+        }
+        buffer.get(b, off, n);
+        return n;
+    }
+
+    /**
+     * Skips over and discards <code>n</code> bytes of data.
+     */
+    public long skip(long n) {
+        if (n <= 0) {
+            return 0;
+        }
+        int k = (int) Math.min(n, buffer.remaining());
+        buffer.position(buffer.position() + k);
+        return k;
+    }
+
+    /**
+     * Returns the number of bytes that can be read without blocking.
+     */
+    public int available() {
+        return buffer.remaining();
+    }
+}
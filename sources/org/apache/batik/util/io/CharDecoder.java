@@ -40,6 +40,17 @@ public interface CharDecoder {
      */
     int readChar() throws IOException;
 
+    /**
+     * Reads characters into a portion of an array.  This method blocks
+     * until at least one character is available.
+     * @param cbuf The destination buffer.
+     * @param off The offset at which to start storing characters.
+     * @param len The maximum number of characters to read, which must be
+     *        greater than zero.
+     * @return the number of characters read, or END_OF_STREAM.
+     */
+    int readChars(char[] cbuf, int off, int len) throws IOException;
+
     /**
      * Disposes the associated resources.
      */
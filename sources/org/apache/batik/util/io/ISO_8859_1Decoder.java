@@ -20,6 +20,7 @@ package org.apache.batik.util.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * This class represents an object which decodes ISO-8859-1 characters from
@@ -37,6 +38,13 @@ public class ISO_8859_1Decoder extends AbstractCharDecoder {
         super(is);
     }
 
+    /**
+     * Creates a new ISO_8859_1Decoder.
+     */
+    public ISO_8859_1Decoder(ByteBuffer bb) {
+        super(bb);
+    }
+
     /**
      * Reads the next character.
      * @return a character or END_OF_STREAM.
@@ -50,4 +58,25 @@ public class ISO_8859_1Decoder extends AbstractCharDecoder {
         }
         return buffer[position++] & 0xff;
     }
+
+    /**
+     * Reads characters into a portion of an array.
+     * @return the number of characters read, or END_OF_STREAM.
+     */
+    public int readChars(char[] cbuf, int off, int len) throws IOException {
+        if (position == count) {
+            fillBuffer();
+        }
+        if (count == -1) {
+            return END_OF_STREAM;
+        }
+        int n = Math.min(len, count - position);
+        byte[] b = buffer;
+        int p = position;
+        for (int i = 0; i < n; i++) {
+            cbuf[off + i] = (char) (b[p++] & 0xff);
+        }
+        position = p;
+        return n;
+    }
 }
@@ -52,8 +52,7 @@ public abstract class NormalizingReader extends Reader {
         do {
             cbuf[result + off] = (char)c;
             result++;
-            c = read();
-        } while (c != -1 && result < len);
+        } while (result < len && (c = read()) != -1);
         return result;
     }
 
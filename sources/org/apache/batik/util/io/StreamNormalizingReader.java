@@ -21,6 +21,7 @@ package org.apache.batik.util.io;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -41,9 +42,24 @@ public class StreamNormalizingReader extends NormalizingReader {
     protected CharDecoder charDecoder;
 
     /**
-     * The next char.
+     * The size of the buffer of decoded characters.
      */
-    protected int nextChar = -1;
+    protected static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The decoded characters, with line breaks not yet normalized.
+     */
+    protected char[] chars = new char[BUFFER_SIZE];
+
+    /**
+     * The position of the next char in the decoded characters.
+     */
+    protected int charPosition;
+
+    /**
+     * The number of decoded characters.
+     */
+    protected int charCount;
 
     /**
      * The current line in the stream.
@@ -78,6 +94,20 @@ public class StreamNormalizingReader extends NormalizingReader {
         charDecoder = createCharDecoder(is, enc);
     }
 
+    /**
+     * Creates a new NormalizingReader.
+     * @param bb The buffer to decode, from its position to its limit.
+     * @param enc The standard encoding name. A null encoding means
+     * ISO-8859-1.
+     */
+    public StreamNormalizingReader(ByteBuffer bb, String enc)
+        throws IOException {
+        if (enc == null) {
+            enc = "ISO-8859-1";
+        }
+        charDecoder = createCharDecoder(bb, enc);
+    }
+
     /**
      * Creates a new NormalizingReader.
      * @param r The reader to wrap.
@@ -98,36 +128,86 @@ public class StreamNormalizingReader extends NormalizingReader {
      * stream is reached.
      */
     public int read() throws IOException {
-        int result = nextChar;
-        if (result != -1) {
-            nextChar = -1;
-            if (result == 13) {
-                column = 0;
-                line++;
-            } else {
-                column++;
-            }
-            return result;
+        if (charPosition == charCount && !fillChars()) {
+            return -1;
         }
-        result = charDecoder.readChar();
+        int result = chars[charPosition++];
         switch (result) {
         case 13:
-            column = 0;
-            line++;
-            int c = charDecoder.readChar();
-            if (c == 10) {
-                return 10;
+            if ((charPosition < charCount || fillChars())
+                    && chars[charPosition] == 10) {
+                charPosition++;
             }
-            nextChar = c;
-            return 10;
+            result = 10;
+            // Fall through.
 
         case 10:
             column = 0;
             line++;
+            break;
+
+        default:
+            column++;
         }
         return result;
     }
 
+    /**
+     * Read characters into a portion of an array.
+     * @param cbuf  Destination buffer
+     * @param off   Offset at which to start writing characters
+     * @param len   Maximum number of characters to read
+     * @return The number of characters read, or -1 if the end of the
+     * stream has been reached
+     */
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (charPosition == charCount && !fillChars()) {
+            return -1;
+        }
+        int n = 0;
+        while (n < len && charPosition < charCount) {
+            char[] cs = chars;
+            int p = charPosition;
+            int end = Math.min(charCount, p + len - n);
+            int o = off + n;
+            int col = column;
+            while (p < end) {
+                char c = cs[p];
+                if (c == 13 || c == 10) {
+                    break;
+                }
+                cbuf[o++] = c;
+                col++;
+                p++;
+            }
+            column = col;
+            n += p - charPosition;
+            charPosition = p;
+            if (p < end) {
+                cbuf[off + n++] = (char) read();
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Decodes the next block of characters.
+     * @return false if the end of the stream has been reached.
+     */
+    protected boolean fillChars() throws IOException {
+        int n = charDecoder.readChars(chars, 0, chars.length);
+        charPosition = 0;
+        if (n == -1) {
+            charCount = 0;
+            return false;
+        }
+        charCount = n;
+        return true;
+    }
+
     /**
      * Returns the current line in the stream.
      */
@@ -167,6 +247,20 @@ public class StreamNormalizingReader extends NormalizingReader {
         return new GenericDecoder(is, e);
     }
 
+    /**
+     * Creates the CharDecoder mapped with the given encoding name, to
+     * decode the given buffer.
+     */
+    protected CharDecoder createCharDecoder(ByteBuffer bb, String enc)
+        throws IOException {
+        CharDecoderFactory cdf =
+            (CharDecoderFactory)charDecoderFactories.get(enc.toUpperCase());
+        if (cdf != null) {
+            return cdf.createCharDecoder(bb);
+        }
+        return createCharDecoder(new ByteBufferInputStream(bb), enc);
+    }
+
     /**
      * The CharDecoder factories map.
      */
@@ -185,6 +279,7 @@ public class StreamNormalizingReader extends NormalizingReader {
      */
     protected interface CharDecoderFactory {
         CharDecoder createCharDecoder(InputStream is) throws IOException;
+        CharDecoder createCharDecoder(ByteBuffer bb) throws IOException;
     }
 
     /**
@@ -196,6 +291,10 @@ public class StreamNormalizingReader extends NormalizingReader {
             throws IOException {
             return new ASCIIDecoder(is);
         }
+        public CharDecoder createCharDecoder(ByteBuffer bb)
+            throws IOException {
+            return new ASCIIDecoder(bb);
+        }
     }
 
     /**
@@ -207,6 +306,10 @@ public class StreamNormalizingReader extends NormalizingReader {
             throws IOException {
             return new ISO_8859_1Decoder(is);
         }
+        public CharDecoder createCharDecoder(ByteBuffer bb)
+            throws IOException {
+            return new ISO_8859_1Decoder(bb);
+        }
     }
 
     /**
@@ -218,6 +321,10 @@ public class StreamNormalizingReader extends NormalizingReader {
             throws IOException {
             return new UTF8Decoder(is);
         }
+        public CharDecoder createCharDecoder(ByteBuffer bb)
+            throws IOException {
+            return new UTF8Decoder(bb);
+        }
     }
 
     /**
@@ -229,5 +336,9 @@ public class StreamNormalizingReader extends NormalizingReader {
             throws IOException {
             return new UTF16Decoder(is);
         }
+        public CharDecoder createCharDecoder(ByteBuffer bb)
+            throws IOException {
+            return new UTF16Decoder(bb);
+        }
     }
 }
@@ -20,6 +20,7 @@ package org.apache.batik.util.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * This class represents an object which decodes UTF-16 characters from
@@ -42,12 +43,50 @@ public class UTF16Decoder extends AbstractCharDecoder {
      */
     public UTF16Decoder(InputStream is) throws IOException {
         super(is);
-        // Byte-order detection.
-        int b1 = is.read();
+        readByteOrderMark();
+    }
+
+    /**
+     * Creates a new UTF16Decoder.
+     * It is assumed that the byte-order mark is present.
+     * @param bb The buffer to decode.
+     */
+    public UTF16Decoder(ByteBuffer bb) throws IOException {
+        super(bb);
+        readByteOrderMark();
+    }
+
+    /**
+     * Creates a new UTF16Decoder.
+     * @param is The stream to decode. 
+     * @param be Whether or not the given stream's byte-order is
+     * big-endian.
+     */
+    public UTF16Decoder(InputStream is, boolean be) {
+        super(is);
+        bigEndian = be;
+    }
+
+    /**
+     * Creates a new UTF16Decoder.
+     * @param bb The buffer to decode.
+     * @param be Whether or not the given buffer's byte-order is
+     * big-endian.
+     */
+    public UTF16Decoder(ByteBuffer bb, boolean be) {
+        super(bb);
+        bigEndian = be;
+    }
+
+    /**
+     * Reads the byte-order mark and sets the byte-order accordingly.
+     */
+    protected void readByteOrderMark() throws IOException {
+        int b1 = readByte();
         if (b1 == -1) {
             endOfStreamError("UTF-16");
         }
-        int b2 = is.read();
+        int b2 = readByte();
         if (b2 == -1) {
             endOfStreamError("UTF-16");
         }
@@ -63,17 +102,6 @@ public class UTF16Decoder extends AbstractCharDecoder {
         }
     }
 
-    /**
-     * Creates a new UTF16Decoder.
-     * @param is The stream to decode. 
-     * @param be Whether or not the given stream's byte-order is
-     * big-endian.
-     */
-    public UTF16Decoder(InputStream is, boolean be) {
-        super(is);
-        bigEndian = be;
-    }
-
     /**
      * Reads the next character.
      * @return a character or END_OF_STREAM.
@@ -101,4 +129,34 @@ public class UTF16Decoder extends AbstractCharDecoder {
         }
         return c;
     }
+
+    /**
+     * Reads characters into a portion of an array.
+     * @return the number of characters read, or END_OF_STREAM.
+     */
+    public int readChars(char[] cbuf, int off, int len) throws IOException {
+        if (count - position < 2) {
+            // A character may span two fills of the buffer.
+            int c = readChar();
+            if (c == END_OF_STREAM) {
+                return END_OF_STREAM;
+            }
+            cbuf[off] = (char) c;
+            return 1;
+        }
+        int n = Math.min(len, (count - position) / 2);
+        byte[] b = buffer;
+        int p = position;
+        int hi = bigEndian ? 0 : 1;
+        for (int i = 0; i < n; i++) {
+            int c = ((b[p + hi] & 0xff) << 8) | (b[p + 1 - hi] & 0xff);
+            if (c == 0xfffe) {
+                charError("UTF-16");
+            }
+            cbuf[off + i] = (char) c;
+            p += 2;
+        }
+        position = p;
+        return n;
+    }
 }
@@ -21,6 +21,7 @@ package org.apache.batik.util.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * This class represents an object which decodes UTF-8 characters from
@@ -58,6 +59,13 @@ public class UTF8Decoder extends AbstractCharDecoder {
         super(is);
     }
 
+    /**
+     * Creates a new UTF8Decoder.
+     */
+    public UTF8Decoder(ByteBuffer bb) {
+        super(bb);
+    }
+
     /**
      * Reads the next character.
      * @return a character or END_OF_STREAM.
@@ -109,7 +117,7 @@ public class UTF8Decoder extends AbstractCharDecoder {
             if ((b2 & 0xc0) != 0x80 || (b3 & 0xc0) != 0x80) {
                 charError("UTF-8");
             }
-            return ((b1 & 0x1f) << 12) | ((b2 & 0x3f) << 6) | (b3 & 0x1f);
+            return ((b1 & 0x0f) << 12) | ((b2 & 0x3f) << 6) | (b3 & 0x3f);
 
         case 4:
             if (position == count) {
@@ -138,12 +146,60 @@ public class UTF8Decoder extends AbstractCharDecoder {
                 (b4 & 0xc0) != 0x80) {
                 charError("UTF-8");
             }
-            int c = ((b1 & 0x1f) << 18)
+            int c = ((b1 & 0x07) << 18)
                 | ((b2 & 0x3f) << 12)
-                | ((b3 & 0x1f) << 6)
-                | (b4 & 0x1f);
+                | ((b3 & 0x3f) << 6)
+                | (b4 & 0x3f);
             nextChar = (c - 0x10000) % 0x400 + 0xdc00;
             return (c - 0x10000) / 0x400 + 0xd800;
         }
     }
+
+    /**
+     * Reads characters into a portion of an array.  Runs of ASCII bytes
+     * are copied directly; other sequences are decoded by
+     * {@link #readChar()}.
+     * @return the number of characters read, or END_OF_STREAM.
+     */
+    public int readChars(char[] cbuf, int off, int len) throws IOException {
+        int n = 0;
+        if (nextChar != -1) {
+            cbuf[off] = (char) nextChar;
+            nextChar = -1;
+            n = 1;
+        }
+        while (n < len) {
+            if (position == count) {
+                if (n > 0) {
+                    break;
+                }
+                fillBuffer();
+                if (count == -1) {
+                    return END_OF_STREAM;
+                }
+            }
+            byte[] b = buffer;
+            int p = position;
+            int end = Math.min(count, p + len - n);
+            int o = off + n;
+            while (p < end) {
+                int c = b[p];
+                if (c < 0) {
+                    break;
+                }
+                cbuf[o++] = (char) c;
+                p++;
+            }
+            n += p - position;
+            position = p;
+            if (p < end) {
+                cbuf[off + n++] = (char) readChar();
+                if (nextChar != -1 && n < len) {
+                    cbuf[off + n++] = (char) nextChar;
+                    nextChar = -1;
+                }
+            }
+        }
+        return n;
+    }
 }
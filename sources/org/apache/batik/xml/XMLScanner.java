@@ -208,12 +208,17 @@ public class XMLScanner implements Localizable {
 
     /**
      * Creates a new XML scanner.
-     * @param r The reader to scan.
+     * @param r The reader to scan.  A {@link NormalizingReader} is scanned
+     *        directly.
      */
     public XMLScanner(Reader r) throws XMLException {
         context = DOCUMENT_START_CONTEXT;
         try {
-            reader = new StreamNormalizingReader(r);
+            if (r instanceof NormalizingReader) {
+                reader = (NormalizingReader) r;
+            } else {
+                reader = new StreamNormalizingReader(r);
+            }
             current = nextChar();
         } catch (IOException e) {
             throw new XMLException(e);
@@ -18,11 +18,14 @@
  */
 package org.apache.batik.xml;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PushbackInputStream;
 import java.io.Reader;
+import java.nio.ByteBuffer;
 
+import org.apache.batik.util.io.CharDecoder;
 import org.apache.batik.util.io.StreamNormalizingReader;
 import org.apache.batik.util.io.UTF16Decoder;
 
@@ -43,6 +46,35 @@ public class XMLStreamNormalizingReader extends StreamNormalizingReader {
     public XMLStreamNormalizingReader(InputStream is, String encod)
         throws IOException {
         PushbackInputStream pbis = new PushbackInputStream(is, 128);
+        charDecoder = createXMLCharDecoder(pbis, null, encod);
+    }
+
+    /**
+     * Creates a new XMLStreamNormalizingReader.
+     * @param bb The buffer to read, from its position to its limit.
+     * @param encod The character encoding to use if the auto-detection fail.
+     */
+    public XMLStreamNormalizingReader(ByteBuffer bb, String encod)
+        throws IOException {
+        ByteBuffer head = bb.duplicate();
+        byte[] buf = new byte[Math.min(head.remaining(), 128)];
+        head.get(buf);
+        PushbackInputStream pbis =
+            new PushbackInputStream(new ByteArrayInputStream(buf), 128);
+        charDecoder = createXMLCharDecoder(pbis, bb, encod);
+    }
+
+    /**
+     * Creates the CharDecoder for an XML document, from the encoding
+     * figured out from its first few bytes.
+     * @param pbis The stream positionned at the beginning of the document.
+     * @param bb The buffer holding the whole document, or null to decode
+     *        the stream.
+     * @param encod The character encoding to use if the auto-detection fail.
+     */
+    protected CharDecoder createXMLCharDecoder(PushbackInputStream pbis,
+                                               ByteBuffer bb, String encod)
+        throws IOException {
         byte[] buf = new byte[4];
 
         int len = pbis.read(buf);
@@ -54,8 +86,8 @@ public class XMLStreamNormalizingReader extends StreamNormalizingReader {
             switch (buf[0] & 0x00FF) {
             case 0:
                 if (buf[1] == 0x003c && buf[2] == 0x0000 && buf[3] == 0x003f) {
-                    charDecoder = new UTF16Decoder(pbis, true);
-                    return;
+                    return bb == null ? new UTF16Decoder(pbis, true)
+                                      : new UTF16Decoder(bb, true);
                 }
                 break;
 
@@ -63,8 +95,8 @@ public class XMLStreamNormalizingReader extends StreamNormalizingReader {
                 switch (buf[1] & 0x00FF) {
                 case 0:
                     if (buf[2] == 0x003f && buf[3] == 0x0000) {
-                        charDecoder = new UTF16Decoder(pbis, false);
-                        return;
+                        return bb == null ? new UTF16Decoder(pbis, false)
+                                          : new UTF16Decoder(bb, false);
                     }
                     break;
 
@@ -74,8 +106,7 @@ public class XMLStreamNormalizingReader extends StreamNormalizingReader {
                             (pbis, "UTF8");
                         String enc = XMLUtilities.getXMLDeclarationEncoding
                             (r, "UTF-8");
-                        charDecoder = createCharDecoder(pbis, enc);
-                        return;
+                        return createCharDecoder(pbis, bb, enc);
                     }
                 }
                 break;
@@ -88,27 +119,35 @@ public class XMLStreamNormalizingReader extends StreamNormalizingReader {
                         (pbis, "CP037");
                     String enc = XMLUtilities.getXMLDeclarationEncoding
                         (r, "EBCDIC-CP-US");
-                    charDecoder = createCharDecoder(pbis, enc);
-                    return;
+                    return createCharDecoder(pbis, bb, enc);
                 }
                 break;
 
             case 0x00FE:
                 if ((buf[1] & 0x00FF) == 0x00FF) {
-                    charDecoder = createCharDecoder(pbis, "UTF-16");
-                    return;
+                    return createCharDecoder(pbis, bb, "UTF-16");
                 }
                 break;
 
             case 0x00FF:
                 if ((buf[1] & 0x00FF) == 0x00FE) {
-                    charDecoder = createCharDecoder(pbis, "UTF-16");
-                    return;
+                    return createCharDecoder(pbis, bb, "UTF-16");
                 }
             }
         }
 
         encod = (encod == null) ? "UTF-8" : encod;
-        charDecoder = createCharDecoder(pbis, encod);
+        return createCharDecoder(pbis, bb, encod);
+    }
+
+    /**
+     * Creates the CharDecoder mapped with the given encoding name, to
+     * decode the given buffer or, if it is null, the given stream.
+     */
+    protected CharDecoder createCharDecoder(InputStream is, ByteBuffer bb,
+                                            String enc)
+        throws IOException {
+        return bb == null ? createCharDecoder(is, enc)
+                          : createCharDecoder(bb, enc);
     }
 }
@@ -0,0 +1,217 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.anim;
+
+import java.io.StringReader;
+
+import org.apache.batik.anim.dom.SAXSVGDocumentFactory;
+import org.apache.batik.anim.dom.SVGOMDocument;
+import org.apache.batik.bridge.BaseScriptingEnvironment;
+import org.apache.batik.bridge.BridgeContext;
+import org.apache.batik.bridge.GVTBuilder;
+import org.apache.batik.bridge.UserAgentAdapter;
+import org.apache.batik.test.AbstractTest;
+import org.apache.batik.test.DefaultTestSuite;
+import org.apache.batik.util.XMLResourceDescriptor;
+
+import org.w3c.dom.svg.SVGAnimationElement;
+import org.w3c.dom.svg.SVGRectElement;
+
+/**
+ * Checks that ticking a document only samples the animations that are
+ * active or due to change, and that it animates the document as seeking
+ * to each time does.
+ *
+ * @version $Id$
+ */
+public class SampleScheduleTest extends DefaultTestSuite {
+
+    /** The number of rectangles in the test documents. */
+    static final int COUNT = 24;
+
+    public SampleScheduleTest() {
+        addTest(new CheckValues());
+        addTest(new CheckSampledElements());
+        addTest(new CheckBeginElement());
+    }
+
+    /**
+     * Returns a document of rectangles animated with offset and syncbase
+     * begin times, repeats, fills and 'set' elements.
+     */
+    static String createDocument() {
+        StringBuffer sb = new StringBuffer
+            ("<svg xmlns='http://www.w3.org/2000/svg'>");
+        for (int i = 0; i < COUNT; i++) {
+            sb.append("<rect id='r" + i + "' x='0' y='0' width='10'"
+                      + " height='10'>");
+            switch (i % 4) {
+                case 0:
+                    sb.append("<animate id='a" + i + "' attributeName='x'"
+                              + " by='30' begin='" + i * 0.25 + "s'"
+                              + " dur='1s' fill='freeze'/>");
+                    break;
+                case 1:
+                    sb.append("<animate attributeName='y' values='0;20;0'"
+                              + " begin='" + (i % 5) + "s' dur='0.5s'"
+                              + " repeatCount='3'/>");
+                    break;
+                case 2:
+                    sb.append("<set attributeName='width' to='3'"
+                              + " begin='a" + (i - 2) + ".end' dur='1s'/>");
+                    break;
+                default:
+                    sb.append("<animate attributeName='height' from='10'"
+                              + " to='20' begin='" + (i % 7) + "s'"
+                              + " dur='0.4s' additive='sum'/>");
+            }
+            sb.append("</rect>");
+        }
+        sb.append("<rect id='b' x='0' y='0' width='10' height='10'>"
+                  + "<animate id='ab' attributeName='x' from='0' to='100'"
+                  + " begin='indefinite' dur='1s'/></rect>");
+        return sb.append("</svg>").toString();
+    }
+
+    /**
+     * Builds and starts the animations of a document.
+     */
+    static BridgeContext load() throws Exception {
+        SAXSVGDocumentFactory f = new SAXSVGDocumentFactory
+            (XMLResourceDescriptor.getXMLParserClassName());
+        SVGOMDocument doc = (SVGOMDocument) f.createDocument
+            ("file:/schedule.svg", new StringReader(createDocument()));
+        BridgeContext ctx = new BridgeContext(new UserAgentAdapter());
+        ctx.setDynamicState(BridgeContext.DYNAMIC);
+        new GVTBuilder().build(ctx, doc);
+        BaseScriptingEnvironment se = new BaseScriptingEnvironment(ctx);
+        se.loadScripts();
+        se.dispatchSVGLoadEvent();
+        return ctx;
+    }
+
+    /**
+     * Returns the animated geometry of the rectangles.  Seeking does not
+     * begin syncbase timed elements, so those animated by 'set' elements
+     * can be left out.
+     */
+    static String getValues(BridgeContext ctx, boolean syncbase) {
+        StringBuffer sb = new StringBuffer();
+        for (int i = 0; i < COUNT; i++) {
+            if (!syncbase && i % 4 == 2) {
+                continue;
+            }
+            SVGRectElement r = (SVGRectElement)
+                ctx.getDocument().getElementById("r" + i);
+            sb.append(r.getX().getAnimVal().getValue()).append(' ')
+              .append(r.getY().getAnimVal().getValue()).append(' ')
+              .append(r.getWidth().getAnimVal().getValue()).append(' ')
+              .append(r.getHeight().getAnimVal().getValue()).append(';');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Checks that the document ticked forward has the values it has when
+     * seeked to each time, and that the 'set' elements begin when the
+     * animations they are synchronized with end.
+     */
+    static class CheckValues extends AbstractTest {
+        public boolean runImplBasic() throws Exception {
+            BridgeContext ticked = load();
+            BridgeContext seeked = load();
+            AnimationEngine te = ticked.getAnimationEngine();
+            AnimationEngine se = seeked.getAnimationEngine();
+            te.setCurrentTime(0);
+            for (int i = 1; i <= 100; i++) {
+                float t = i * 0.07f;
+                te.tick(t, false);
+                se.setCurrentTime(t);
+                if (!getValues(ticked, false).equals
+                        (getValues(seeked, false))) {
+                    return false;
+                }
+            }
+            ticked = load();
+            te = ticked.getAnimationEngine();
+            te.setCurrentTime(0);
+            SVGRectElement r = (SVGRectElement)
+                ticked.getDocument().getElementById("r2");
+            float[] times = { 0.5f, 1.1f, 1.9f, 2.1f };
+            float[] widths = { 10, 3, 3, 10 };
+            for (int i = 0; i < times.length; i++) {
+                te.tick(times[i], false);
+                if (r.getWidth().getAnimVal().getValue() != widths[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Checks that waiting and finished animations are not sampled at every
+     * tick, and that their current time follows the document's.
+     */
+    static class CheckSampledElements extends AbstractTest {
+        public boolean runImplBasic() throws Exception {
+            BridgeContext ctx = load();
+            AnimationEngine eng = ctx.getAnimationEngine();
+            eng.setCurrentTime(0);
+            eng.resetTickStatistics();
+            int ticks = 200;
+            for (int i = 1; i <= ticks; i++) {
+                eng.tick(i * 0.05f, false);
+            }
+            if (eng.getTickCount() != ticks
+                    || eng.getSampledElementCount() * 4
+                        > (long) ticks * (COUNT + 1)
+                    || eng.getUpdatedValueCount() == 0
+                    || eng.getTickTime() < eng.getLastTickTime()) {
+                return false;
+            }
+            SVGAnimationElement ab = (SVGAnimationElement)
+                ctx.getDocument().getElementById("ab");
+            return ab.getCurrentTime() == ticks * 0.05f;
+        }
+    }
+
+    /**
+     * Checks that an animation begun through the DOM is sampled at the next
+     * tick.
+     */
+    static class CheckBeginElement extends AbstractTest {
+        public boolean runImplBasic() throws Exception {
+            BridgeContext ctx = load();
+            AnimationEngine eng = ctx.getAnimationEngine();
+            SVGRectElement b = (SVGRectElement)
+                ctx.getDocument().getElementById("b");
+            eng.setCurrentTime(2);
+            eng.tick(2.1f, false);
+            if (b.getX().getAnimVal().getValue() != 0) {
+                return false;
+            }
+            ((SVGAnimationElement) ctx.getDocument().getElementById("ab"))
+                .beginElement();
+            eng.tick(eng.getCurrentTime() + 0.5f, false);
+            float x = b.getX().getAnimVal().getValue();
+            return x > 0 && x < 100;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.anim.dom;
+
+import org.apache.batik.dom.svg.LiveAttributeException;
+import org.apache.batik.test.AbstractTest;
+import org.apache.batik.test.DefaultTestSuite;
+import org.apache.batik.util.SVGConstants;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.svg.SVGPointList;
+
+/**
+ * Checks that the values used for rendering are read from the attributes
+ * without building the DOM values, and that they follow the changes made
+ * to the attributes and through the DOM values.
+ *
+ * @version $Id$
+ */
+public class LazyValueTest extends DefaultTestSuite {
+
+    public LazyValueTest() {
+        addTest(new CheckLength());
+        addTest(new CheckPoints());
+        addTest(new CheckListeners());
+    }
+
+    static SVGOMElement createElement(String name) {
+        SVGOMDocument doc = (SVGOMDocument)
+            SVGDOMImplementation.getDOMImplementation().createDocument
+            (SVGConstants.SVG_NAMESPACE_URI, SVGConstants.SVG_SVG_TAG, null);
+        SVGOMElement e = (SVGOMElement) doc.createElementNS
+            (SVGConstants.SVG_NAMESPACE_URI, name);
+        doc.getDocumentElement().appendChild(e);
+        return e;
+    }
+
+    static boolean isMalformed(AbstractSVGAnimatedLength l) {
+        try {
+            l.getCheckedValue();
+            return false;
+        } catch (LiveAttributeException e) {
+            return e.getCode()
+                == LiveAttributeException.ERR_ATTRIBUTE_MALFORMED;
+        }
+    }
+
+    /**
+     * Checks the value of a length, and that its SVGLength is only
+     * created when asked for.
+     */
+    static class CheckLength extends AbstractTest {
+        public boolean runImplBasic() {
+            SVGOMRectElement r = (SVGOMRectElement)
+                createElement(SVGConstants.SVG_RECT_TAG);
+            AbstractSVGAnimatedLength w =
+                (AbstractSVGAnimatedLength) r.getWidth();
+            r.setAttributeNS(null, SVGConstants.SVG_WIDTH_ATTRIBUTE, "12");
+            if (w.getCheckedValue() != 12 || w.baseVal != null)
+                return false;
+            r.setAttributeNS(null, SVGConstants.SVG_WIDTH_ATTRIBUTE, "3px");
+            if (w.getCheckedValue() != 3 || w.baseVal != null)
+                return false;
+            r.setAttributeNS(null, SVGConstants.SVG_WIDTH_ATTRIBUTE, "2x");
+            if (!isMalformed(w))
+                return false;
+
+            w.getBaseVal().setValue(30);
+            return w.getCheckedValue() == 30
+                && Float.parseFloat(r.getAttributeNS
+                       (null, SVGConstants.SVG_WIDTH_ATTRIBUTE)) == 30;
+        }
+    }
+
+    /**
+     * Checks the coordinates of the points of a polyline, and that they
+     * follow the changes made through the point list.
+     */
+    static class CheckPoints extends AbstractTest {
+        public boolean runImplBasic() {
+            SVGOMPolylineElement p = (SVGOMPolylineElement)
+                createElement(SVGConstants.SVG_POLYLINE_TAG);
+            p.setAttributeNS(null, SVGConstants.SVG_POINTS_ATTRIBUTE,
+                             "1,2 3 4");
+            SVGOMAnimatedPoints ap = p.getSVGOMAnimatedPoints();
+            ap.check();
+            float[] pts = ap.getAnimatedPointValues();
+            if (pts.length != 4 || pts[0] != 1 || pts[3] != 4
+                    || ap.baseVal != null)
+                return false;
+
+            SVGPointList l = p.getPoints();
+            l.getItem(0).setX(5);
+            pts = ap.getAnimatedPointValues();
+            if (pts.length != 4 || pts[0] != 5)
+                return false;
+
+            p.setAttributeNS(null, SVGConstants.SVG_POINTS_ATTRIBUTE, "1 2 3");
+            try {
+                ap.check();
+                return false;
+            } catch (LiveAttributeException e) {
+                if (e.getCode()
+                        != LiveAttributeException.ERR_ATTRIBUTE_MALFORMED)
+                    return false;
+            }
+            return ap.getAnimatedPointValues().length == 0;
+        }
+    }
+
+    /**
+     * A listener counting the changes of an animated value.
+     */
+    static class CountingListener implements AnimatedAttributeListener {
+        int count;
+
+        public void animatedAttributeChanged(Element e,
+                                             AnimatedLiveAttributeValue alv) {
+            count++;
+        }
+
+        public void otherAnimationChanged(Element e,
+                                          String type) {
+        }
+    }
+
+    /**
+     * Checks that the listeners of an animated value are notified, after
+     * the first one was removed too.
+     */
+    static class CheckListeners extends AbstractTest {
+        public boolean runImplBasic() {
+            SVGOMRectElement r = (SVGOMRectElement)
+                createElement(SVGConstants.SVG_RECT_TAG);
+            AbstractSVGAnimatedValue x = (AbstractSVGAnimatedValue) r.getX();
+            CountingListener a = new CountingListener();
+            CountingListener b = new CountingListener();
+            x.addAnimatedAttributeListener(a);
+            x.addAnimatedAttributeListener(b);
+            x.addAnimatedAttributeListener(a);
+            r.setAttributeNS(null, SVGConstants.SVG_X_ATTRIBUTE, "1");
+            if (a.count != 1 || b.count != 1)
+                return false;
+            x.removeAnimatedAttributeListener(a);
+            r.setAttributeNS(null, SVGConstants.SVG_X_ATTRIBUTE, "2");
+            if (a.count != 1 || b.count != 2)
+                return false;
+            x.addAnimatedAttributeListener(a);
+            x.removeAnimatedAttributeListener(b);
+            r.setAttributeNS(null, SVGConstants.SVG_X_ATTRIBUTE, "3");
+            return a.count == 2 && b.count == 2;
+        }
+    }
+}
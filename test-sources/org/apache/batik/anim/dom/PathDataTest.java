@@ -0,0 +1,145 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.anim.dom;
+
+import java.awt.Shape;
+import java.awt.geom.PathIterator;
+import java.util.Arrays;
+
+import org.apache.batik.dom.svg.LiveAttributeException;
+import org.apache.batik.dom.svg.SVGAnimatedPathDataSupport;
+import org.apache.batik.parser.AWTPathProducer;
+import org.apache.batik.test.AbstractTest;
+import org.apache.batik.test.DefaultTestSuite;
+import org.apache.batik.util.SVGConstants;
+
+import org.w3c.dom.svg.SVGPathSegList;
+
+/**
+ * Checks that the shape of a path is built from its parsed path data
+ * without building its path segment list, and that it follows the
+ * changes made through the list.
+ *
+ * @version $Id$
+ */
+public class PathDataTest extends DefaultTestSuite {
+
+    public static final String PATH =
+        "M10 20l5-5H30h2V40v-3C1 2 3 4 5 6c1 2 3 4 5 6S1 2 3 4s1 2 3 4"
+        + "Q1 2 3 4q1 2 3 4T5 6t1 2A10 20 30 1 0 40 50a5 5 0 0 1 10 10Z"
+        + "m1 1 2 2 3 3z";
+
+    public PathDataTest() {
+        addTest(new CheckShape());
+        addTest(new CheckListChanges());
+    }
+
+    static SVGOMPathElement createPath(String d) {
+        SVGOMDocument doc = (SVGOMDocument)
+            SVGDOMImplementation.getDOMImplementation().createDocument
+            (SVGConstants.SVG_NAMESPACE_URI, SVGConstants.SVG_SVG_TAG, null);
+        SVGOMPathElement p = (SVGOMPathElement) doc.createElementNS
+            (SVGConstants.SVG_NAMESPACE_URI, SVGConstants.SVG_PATH_TAG);
+        p.setAttributeNS(null, SVGConstants.SVG_D_ATTRIBUTE, d);
+        doc.getDocumentElement().appendChild(p);
+        return p;
+    }
+
+    /**
+     * Returns the shape built from the parsed path data.
+     */
+    static Shape shape(SVGOMPathElement p) {
+        AWTPathProducer app = new AWTPathProducer();
+        SVGOMAnimatedPathData d = p.getAnimatedPathData();
+        d.check();
+        d.handleAnimatedPathData(app);
+        return app.getShape();
+    }
+
+    /**
+     * Returns the shape built from the given path segment list.
+     */
+    static Shape shape(SVGPathSegList l) {
+        AWTPathProducer app = new AWTPathProducer();
+        SVGAnimatedPathDataSupport.handlePathSegList(l, app);
+        return app.getShape();
+    }
+
+    static boolean sameShape(Shape a, Shape b) {
+        PathIterator i = a.getPathIterator(null);
+        PathIterator j = b.getPathIterator(null);
+        float[] c = new float[6];
+        float[] d = new float[6];
+        for (; !i.isDone() && !j.isDone(); i.next(), j.next()) {
+            Arrays.fill(c, 0);
+            Arrays.fill(d, 0);
+            if (i.currentSegment(c) != j.currentSegment(d)
+                    || !Arrays.equals(c, d))
+                return false;
+        }
+        return i.isDone() && j.isDone();
+    }
+
+    /**
+     * Checks that the shapes built from the path data and from the path
+     * segment list are the same, and that the list is built only when
+     * asked for.
+     */
+    static class CheckShape extends AbstractTest {
+        public boolean runImplBasic() {
+            SVGOMPathElement p = createPath(PATH);
+            Shape s = shape(p);
+            if (p.getAnimatedPathData().pathSegs != null)
+                return false;
+            if (!sameShape(s, shape(p.getPathSegList())))
+                return false;
+
+            p.setAttributeNS(null, SVGConstants.SVG_D_ATTRIBUTE, "M0 0L1 1");
+            if (!sameShape(shape(p), shape(p.getPathSegList())))
+                return false;
+
+            p.setAttributeNS(null, SVGConstants.SVG_D_ATTRIBUTE, "M0 0L1");
+            try {
+                shape(p);
+                return false;
+            } catch (LiveAttributeException e) {
+                return e.getCode()
+                    == LiveAttributeException.ERR_ATTRIBUTE_MALFORMED;
+            }
+        }
+    }
+
+    /**
+     * Checks that the shape follows the changes made through the path
+     * segment list.
+     */
+    static class CheckListChanges extends AbstractTest {
+        public boolean runImplBasic() {
+            SVGOMPathElement p = createPath(PATH);
+            shape(p);
+            SVGPathSegList l = p.getPathSegList();
+            l.appendItem(p.createSVGPathSegLinetoAbs(100, 200));
+            l.removeItem(1);
+            if (!sameShape(shape(p), shape(l)))
+                return false;
+            l.initialize(p.createSVGPathSegMovetoRel(3, 4));
+            return sameShape(shape(p), shape(l));
+        }
+    }
+}
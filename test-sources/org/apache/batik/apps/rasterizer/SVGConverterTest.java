@@ -413,6 +413,31 @@ public class SVGConverterTest extends DefaultTestSuite {
         addTest(t);
         t.setId("OutputTest.reference");
 
+        // Concurrent conversion, controller notified in source order
+        t = new ConcurrentOutputTest(new String[]{"samples/anne.svg",
+                                                  "samples/batikLogo.svg",
+                                                  "samples/gradients.svg",
+                                                  "samples/asf-logo.svg",
+                                                  "samples/mapSpain.svg"},
+                                     "test-reports/concurrent",
+                                     3);
+        addTest(t);
+        t.setId("OutputTest.concurrent");
+
+        // Concurrent conversion, failures reported once the batch is over
+        t = new ConcurrentFailureTest(new String[]{"samples/anne.svg",
+                                                   "test-resources/org/apache/batik/apps/rasterizer/invalidSVG.svg",
+                                                   "samples/batikLogo.svg",
+                                                   "test-resources/org/apache/batik/apps/rasterizer/missing.svg"},
+                                      new String[]{"invalidSVG.svg "
+                                                   + SVGConverter.ERROR_WHILE_RASTERIZING_FILE,
+                                                   "missing.svg "
+                                                   + SVGConverter.ERROR_CANNOT_OPEN_SOURCE},
+                                      "test-reports/concurrentFailures",
+                                      3);
+        addTest(t);
+        t.setId("OutputTest.concurrentFailures");
+
     }
 }
 
@@ -1089,3 +1114,151 @@ class ConverterOutputTest extends AbstractTest {
         return r;
     }
 }
+
+/**
+ * This test checks that converting several files concurrently creates
+ * every output file and notifies the controller once per source, in
+ * source order.
+ */
+class ConcurrentOutputTest extends AbstractTest
+    implements SVGConverterController {
+    public static final String ERROR_UNEXPECTED_NOTIFICATION
+        = "ConcurrentOutputTest.error.unexpected.notification";
+
+    public static final String ERROR_OUTPUT_NOT_CREATED
+        = "ConcurrentOutputTest.error.output.not.created";
+
+    public static final String ENTRY_KEY_NOTIFICATIONS
+        = "ConcurrentOutputTest.entry.key.notifications";
+
+    String[] svgSources;
+    String dstDir;
+    int threadCount;
+
+    List expected = new ArrayList();
+    List notifications = new ArrayList();
+
+    public ConcurrentOutputTest(String[] svgSources,
+                                String dstDir,
+                                int threadCount){
+        this.svgSources = svgSources;
+        this.dstDir = dstDir;
+        this.threadCount = threadCount;
+    }
+
+    public TestReport runImpl() throws Exception {
+        SVGConverter c = new SVGConverter(this);
+        c.setSources(svgSources);
+        c.setDst(new File(dstDir));
+        c.setDestinationType(DestinationType.PNG);
+        c.setThreadCount(threadCount);
+
+        c.execute();
+
+        TestReport report = null;
+        if (!expected.equals(notifications)){
+            report = reportError(ERROR_UNEXPECTED_NOTIFICATION);
+            report.addDescriptionEntry(ENTRY_KEY_NOTIFICATIONS,
+                                       notifications.toString());
+        }
+
+        for (int i = 0; i < expected.size(); i++){
+            File f = new File((String)expected.get(i));
+            if (report == null && f.length() == 0){
+                report = reportError(ERROR_OUTPUT_NOT_CREATED);
+                report.addDescriptionEntry(ENTRY_KEY_NOTIFICATIONS,
+                                           f.toString());
+            }
+            f.delete();
+        }
+        (new File(dstDir)).delete();
+
+        return report != null ? report : reportSuccess();
+    }
+
+    public boolean proceedWithComputedTask(Transcoder transcoder,
+                                           Map hints,
+                                           List sources,
+                                           List dest){
+        for (int i = 0; i < dest.size(); i++){
+            expected.add(dest.get(i).toString());
+        }
+        return true;
+    }
+
+    public boolean proceedWithSourceTranscoding(SVGConverterSource source,
+                                                File dest) {
+        return true;
+    }
+
+    public boolean proceedOnSourceTranscodingFailure(SVGConverterSource source,
+                                                     File dest,
+                                                     String errorCode){
+        notifications.add(errorCode);
+        return true;
+    }
+
+    public void onSourceTranscodingSuccess(SVGConverterSource source,
+                                           File dest){
+        notifications.add(dest.toString());
+    }
+}
+
+/**
+ * This test checks that converting several files concurrently goes on
+ * after a failure, and that every failure is returned, in source order,
+ * by <code>getFailures</code> once the batch is over.
+ */
+class ConcurrentFailureTest extends AbstractTest {
+    public static final String ERROR_UNEXPECTED_FAILURES
+        = "ConcurrentFailureTest.error.unexpected.failures";
+
+    public static final String ENTRY_KEY_FAILURES
+        = "ConcurrentFailureTest.entry.key.failures";
+
+    String[] svgSources;
+    String[] expectedFailures;
+    String dstDir;
+    int threadCount;
+
+    public ConcurrentFailureTest(String[] svgSources,
+                                 String[] expectedFailures,
+                                 String dstDir,
+                                 int threadCount){
+        this.svgSources = svgSources;
+        this.expectedFailures = expectedFailures;
+        this.dstDir = dstDir;
+        this.threadCount = threadCount;
+    }
+
+    public TestReport runImpl() throws Exception {
+        SVGConverter c = new SVGConverter();
+        c.setSources(svgSources);
+        c.setDst(new File(dstDir));
+        c.setDestinationType(DestinationType.PNG);
+        c.setThreadCount(threadCount);
+
+        c.execute();
+
+        List failures = new ArrayList();
+        List l = c.getFailures();
+        for (int i = 0; i < l.size(); i++){
+            SVGConverter.Failure f = (SVGConverter.Failure)l.get(i);
+            failures.add(f.getSource().getName() + " " + f.getErrorCode());
+        }
+
+        File[] files = new File(dstDir).listFiles();
+        for (int i = 0; files != null && i < files.length; i++){
+            files[i].delete();
+        }
+        (new File(dstDir)).delete();
+
+        if (!Arrays.asList(expectedFailures).equals(failures)){
+            TestReport report = reportError(ERROR_UNEXPECTED_FAILURES);
+            report.addDescriptionEntry(ENTRY_KEY_FAILURES,
+                                       failures.toString());
+            return report;
+        }
+        return reportSuccess();
+    }
+}
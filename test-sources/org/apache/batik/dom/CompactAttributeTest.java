@@ -0,0 +1,146 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.dom;
+
+import java.io.StringReader;
+
+import org.apache.batik.dom.util.SAXDocumentFactory;
+import org.apache.batik.test.AbstractTest;
+import org.apache.batik.util.XMLResourceDescriptor;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.events.Event;
+import org.w3c.dom.events.EventListener;
+import org.w3c.dom.events.EventTarget;
+import org.w3c.dom.events.MutationEvent;
+
+/**
+ * Checks that the attributes of a parsed document are stored without
+ * their nodes, and that the nodes created when asked for behave as the
+ * attributes they stand for.
+ *
+ * @version $Id$
+ */
+public class CompactAttributeTest extends AbstractTest {
+
+    private String DOC = "<a xmlns:p='http://example.org/p' x='1' p:y='2'/>";
+
+    /**
+     * Returns the entry of the given attribute.
+     */
+    static AbstractElement.Entry entry(AbstractElement e, String ns,
+                                       String ln) {
+        return ((AbstractElement.NamedNodeHashMap) e.getAttributes())
+            .getEntry(ns, ln);
+    }
+
+    public boolean runImplBasic() throws Exception {
+        String parser = XMLResourceDescriptor.getXMLParserClassName();
+        SAXDocumentFactory df = new SAXDocumentFactory(GenericDOMImplementation.getDOMImplementation(), parser);
+        Document doc = df.createDocument("http://example.org/", new StringReader(DOC));
+        AbstractElement a = (AbstractElement) doc.getDocumentElement();
+        String p = "http://example.org/p";
+
+        // (1) Values are read without creating the nodes
+        ensure(1, a.getAttribute("x").equals("1")
+                  && a.getAttributeNS(p, "y").equals("2")
+                  && a.hasAttributeNS(p, "y")
+                  && !a.hasAttribute("y")
+                  && a.getAttributeValueNS(null, "z") == null
+                  && entry(a, null, "x").value == null
+                  && entry(a, p, "y").value == null);
+
+        // (2) The map gives the names and values of its items
+        NamedNodeMap map = a.getAttributes();
+        AbstractElement.NamedNodeHashMap nnhm =
+            (AbstractElement.NamedNodeHashMap) map;
+        boolean names = map.getLength() == 3;
+        for (int i = 0; i < map.getLength(); i++) {
+            String n = nnhm.getItemName(i);
+            String v = nnhm.getItemValue(i);
+            names &= n.equals("xmlns:p") || n.equals("x") || n.equals("p:y");
+            names &= entry(a, null, "x").value == null
+                || !n.equals("x") || v.equals("1");
+        }
+        ensure(2, names && entry(a, null, "x").value == null);
+
+        // (3) The node is created once, and stands for the attribute
+        Attr y = a.getAttributeNodeNS(p, "y");
+        ensure(3, y != null
+                  && y == a.getAttributeNodeNS(p, "y")
+                  && y.getValue().equals("2")
+                  && "p".equals(y.getPrefix())
+                  && y.getOwnerElement() == a
+                  && y.getSpecified());
+
+        // (4) Changes go through the created node
+        a.setAttributeNS(p, "y", "3");
+        a.setAttribute("x", "4");
+        ensure(4, y.getValue().equals("3")
+                  && a.getAttribute("x").equals("4")
+                  && entry(a, null, "x").value == null);
+
+        // (5) With a listener, the events give the node of the attribute
+        final Object[] related = new Object[1];
+        ((EventTarget) a).addEventListener("DOMAttrModified",
+            new EventListener() {
+                public void handleEvent(Event evt) {
+                    related[0] = ((MutationEvent) evt).getRelatedNode();
+                }
+            }, false);
+        a.setAttributeNS(null, "x", "5");
+        ensure(5, related[0] != null
+                  && related[0] == a.getAttributeNode("x")
+                  && a.getAttributeNode("x").getValue().equals("5"));
+
+        // (6) Removing an attribute stored without node
+        a.setAttributeNS(null, "z", "6");
+        a.removeAttributeNS(null, "x");
+        ensure(6, !a.hasAttribute("x") && map.getLength() == 3
+                  && a.getAttribute("z").equals("6"));
+
+        // (7) Cloning copies the attributes without creating their nodes
+        Document doc2 = df.createDocument("http://example.org/", new StringReader(DOC));
+        AbstractElement b = (AbstractElement) doc2.getDocumentElement();
+        AbstractElement c = (AbstractElement) b.cloneNode(true);
+        ensure(7, c.getAttribute("x").equals("1")
+                  && c.getAttributeNS(p, "y").equals("2")
+                  && entry(b, p, "y").value == null
+                  && entry(c, null, "x").value == null
+                  && entry(c, p, "y").value == null);
+
+        // (8) So does exporting them to another document
+        AbstractElement d = (AbstractElement)
+            b.deepExport(b.cloneNode(false), (AbstractDocument) doc);
+        ensure(8, d.getOwnerDocument() == doc
+                  && d.getAttributeNS(p, "y").equals("2")
+                  && entry(b, p, "y").value == null
+                  && entry(d, p, "y").value == null
+                  && "p".equals(d.getAttributeNodeNS(p, "y").getPrefix()));
+        return true;
+    }
+
+    protected void ensure(int subTestNumber, boolean b) {
+        if (!b) {
+            throw new RuntimeException("Assertion failure in sub-test " + subTestNumber);
+        }
+    }
+}
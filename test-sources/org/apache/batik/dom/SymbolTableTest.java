@@ -0,0 +1,85 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.dom;
+
+import java.io.StringReader;
+
+import org.apache.batik.dom.util.SAXDocumentFactory;
+import org.apache.batik.test.AbstractTest;
+import org.apache.batik.util.XMLResourceDescriptor;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Checks that the names, the short attribute values and the short texts
+ * of a parsed document are shared, and that the values are not shared
+ * when value interning is disabled.
+ *
+ * @version $Id$
+ */
+public class SymbolTableTest extends AbstractTest {
+
+    private String DOC = "<a xmlns:p='http://example.org/p'>\n"
+        + "  <b p:c='none' d='none'/>\n  <b p:c='none' d='none'/>\n</a>";
+
+    public boolean runImplBasic() throws Exception {
+        String parser = XMLResourceDescriptor.getXMLParserClassName();
+        SAXDocumentFactory df = new SAXDocumentFactory
+            (GenericDOMImplementation.getDOMImplementation(), parser);
+        String p = "http://example.org/p";
+
+        Document doc = df.createDocument("http://example.org/",
+                                         new StringReader(DOC));
+        NodeList bs = doc.getElementsByTagName("b");
+        Element b1 = (Element) bs.item(0);
+        Element b2 = (Element) bs.item(1);
+
+        // (1) Names are the interned strings
+        AbstractElement.NamedNodeHashMap map =
+            (AbstractElement.NamedNodeHashMap) b2.getAttributes();
+        ensure(1, b1.getNodeName() == "b"
+                  && map.getEntry(p, "c").name == "c");
+
+        // (2) Short values and texts are shared
+        ensure(2, b1.getAttribute("d") == b2.getAttribute("d")
+                  && b1.getAttributeNS(p, "c") == b2.getAttribute("d")
+                  && b1.getPreviousSibling().getNodeValue()
+                       == b1.getNextSibling().getNodeValue());
+
+        // (3) Unless value interning is disabled
+        df.setValueInterning(false);
+        doc = df.createDocument("http://example.org/",
+                                new StringReader(DOC));
+        bs = doc.getElementsByTagName("b");
+        b1 = (Element) bs.item(0);
+        b2 = (Element) bs.item(1);
+        ensure(3, b1.getAttribute("d") != b2.getAttribute("d")
+                  && b1.getAttribute("d").equals(b2.getAttribute("d")));
+        return true;
+    }
+
+    protected void ensure(int subTestNumber, boolean b) {
+        if (!b) {
+            throw new RuntimeException("Assertion failure in sub-test "
+                                       + subTestNumber);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.ext.awt.image;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.batik.ext.awt.image.renderable.Filter;
+import org.apache.batik.ext.awt.image.renderable.FloodRable8Bit;
+import org.apache.batik.test.AbstractTest;
+import org.apache.batik.test.DefaultTestSuite;
+import org.apache.batik.util.ParsedURL;
+
+/**
+ * Checks the lookups, evictions and statistics of the
+ * BoundedURLImageCache.
+ *
+ * @version $Id$
+ */
+public class BoundedURLImageCacheTest extends DefaultTestSuite {
+
+    public BoundedURLImageCacheTest() {
+        addTest(new CheckHitMiss());
+        addTest(new CheckEviction());
+        addTest(new CheckSingleFlight());
+        addTest(new CheckClear());
+    }
+
+    /**
+     * Returns an image of the given size, 4 bytes per pixel.
+     */
+    static Filter image(int w, int h) {
+        return new FloodRable8Bit(new Rectangle(0, 0, w, h), Color.red);
+    }
+
+    static ParsedURL url(int i) {
+        return new ParsedURL("http://example.org/image" + i + ".png");
+    }
+
+    /**
+     * Checks that a request is a miss until the image is put, and a hit
+     * afterwards.
+     */
+    static class CheckHitMiss extends AbstractTest {
+        public boolean runImplBasic() {
+            BoundedURLImageCache c = new BoundedURLImageCache(1 << 20);
+            ParsedURL u = url(0);
+            Filter f = image(10, 10);
+            if (c.isPresent(u) || c.request(u) != null)
+                return false;
+            if (!c.isPresent(u) || c.isDone(u))
+                return false;
+            c.put(u, f);
+            return c.isDone(u)
+                && c.request(u) == f
+                && c.getHitCount() == 1
+                && c.getMissCount() == 1
+                && c.getBytes() == 400;
+        }
+    }
+
+    /**
+     * Checks that the least recently used images leave the strong tier
+     * once over the budget, and are still found while referenced.
+     */
+    static class CheckEviction extends AbstractTest {
+        public boolean runImplBasic() {
+            BoundedURLImageCache c = new BoundedURLImageCache(1000);
+            Filter[] f = new Filter[3];
+            for (int i = 0; i < 3; i++) {
+                f[i] = image(10, 10);
+                c.request(url(i));
+                c.put(url(i), f[i]);
+            }
+            // Makes the first one the most recently used.
+            c.request(url(0));
+            c.request(url(3));
+            c.put(url(3), image(10, 10));
+            // The second and third ones are evicted, so the fourth fits.
+            if (c.getEvictionCount() != 2 || c.getBytes() != 800)
+                return false;
+            // The evicted images are still referenced here.
+            return c.request(url(1)) == f[1]
+                && c.request(url(0)) == f[0]
+                && c.getHitCount() == 3;
+        }
+    }
+
+    /**
+     * Checks that concurrent requests for the same image put only one
+     * thread on the hook, and give the others the image it puts.
+     */
+    static class CheckSingleFlight extends AbstractTest {
+        public boolean runImplBasic() throws Exception {
+            final BoundedURLImageCache c = new BoundedURLImageCache(1 << 20);
+            final ParsedURL u = url(0);
+            final Filter f = image(10, 10);
+            final AtomicInteger decodes = new AtomicInteger();
+            final AtomicInteger found = new AtomicInteger();
+            int n = 8;
+            final CountDownLatch start = new CountDownLatch(1);
+            Thread[] threads = new Thread[n];
+            for (int i = 0; i < n; i++) {
+                threads[i] = new Thread() {
+                        public void run() {
+                            try {
+                                start.await();
+                            } catch (InterruptedException ie) {
+                                return;
+                            }
+                            Filter r = c.request(u);
+                            if (r == null) {
+                                decodes.incrementAndGet();
+                                try {
+                                    Thread.sleep(50);
+                                } catch (InterruptedException ie) {
+                                }
+                                c.put(u, f);
+                            } else if (r == f) {
+                                found.incrementAndGet();
+                            }
+                        }
+                    };
+                threads[i].start();
+            }
+            start.countDown();
+            for (int i = 0; i < n; i++) {
+                threads[i].join();
+            }
+            return decodes.get() == 1
+                && found.get() == n - 1
+                && c.getMissCount() == 1
+                && c.getHitCount() == n - 1;
+        }
+    }
+
+    /**
+     * Checks that clearing an image being read puts a waiting thread
+     * on the hook for it.
+     */
+    static class CheckClear extends AbstractTest {
+        public boolean runImplBasic() throws Exception {
+            final BoundedURLImageCache c = new BoundedURLImageCache(1 << 20);
+            final ParsedURL u = url(0);
+            final Filter[] result = { image(1, 1) };
+            c.request(u);
+            Thread t = new Thread() {
+                    public void run() {
+                        result[0] = c.request(u);
+                    }
+                };
+            t.start();
+            Thread.sleep(50);
+            c.clear(u);
+            t.join(5000);
+            if (t.isAlive() || result[0] != null)
+                return false;
+            c.put(u, image(2, 2));
+            c.flush();
+            return !c.isPresent(u) && c.getBytes() == 0;
+        }
+    }
+}
@@ -54,24 +54,7 @@ public class PNGEncoderTest extends AbstractTest {
 
     public TestReport runImpl() throws Exception {
         // Create a BufferedImage to be encoded
-        BufferedImage image = new BufferedImage(100, 75, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D ig = image.createGraphics();
-        ig.scale(.5, .5);
-        ig.setPaint(new Color(128,0,0));
-        ig.fillRect(0, 0, 100, 50);
-        ig.setPaint(Color.orange);
-        ig.fillRect(100, 0, 100, 50);
-        ig.setPaint(Color.yellow);
-        ig.fillRect(0, 50, 100, 50);
-        ig.setPaint(Color.red);
-        ig.fillRect(100, 50, 100, 50);
-        ig.setPaint(new Color(255, 127, 127));
-        ig.fillRect(0, 100, 100, 50);
-        ig.setPaint(Color.black);
-        ig.draw(new Rectangle2D.Double(0.5, 0.5, 199, 149));
-        ig.dispose();
-
-        image = image.getSubimage(50, 0, 50, 25);
+        BufferedImage image = createImage();
 
         // Create an output stream where the PNG data
         // will be stored.
@@ -79,8 +62,7 @@ public class PNGEncoderTest extends AbstractTest {
         OutputStream os = buildOutputStream(bos);
 
         // Now, try to encode image
-        PNGEncodeParam params =
-            PNGEncodeParam.getDefaultEncodeParam(image);
+        PNGEncodeParam params = createEncodeParam(image);
         PNGImageEncoder pngImageEncoder = new PNGImageEncoder(os, params);
 
         try{
@@ -113,7 +95,7 @@ public class PNGEncoderTest extends AbstractTest {
             decodedImage = new BufferedImage(decodedRenderedImage.getWidth(),
                                              decodedRenderedImage.getHeight(),
                                              BufferedImage.TYPE_INT_ARGB);
-            ig = decodedImage.createGraphics();
+            Graphics2D ig = decodedImage.createGraphics();
             ig.drawRenderedImage(decodedRenderedImage,
                                  new AffineTransform());
             ig.dispose();
@@ -127,6 +109,41 @@ public class PNGEncoderTest extends AbstractTest {
         return reportSuccess();
     }
 
+    /**
+     * Template method for building the image to encode. This gives a
+     * chance to sub-classes (e.g., ParallelPNGEncoderTest) to use a
+     * different image.
+     */
+    public BufferedImage createImage(){
+        BufferedImage image = new BufferedImage(100, 75, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D ig = image.createGraphics();
+        ig.scale(.5, .5);
+        ig.setPaint(new Color(128,0,0));
+        ig.fillRect(0, 0, 100, 50);
+        ig.setPaint(Color.orange);
+        ig.fillRect(100, 0, 100, 50);
+        ig.setPaint(Color.yellow);
+        ig.fillRect(0, 50, 100, 50);
+        ig.setPaint(Color.red);
+        ig.fillRect(100, 50, 100, 50);
+        ig.setPaint(new Color(255, 127, 127));
+        ig.fillRect(0, 100, 100, 50);
+        ig.setPaint(Color.black);
+        ig.draw(new Rectangle2D.Double(0.5, 0.5, 199, 149));
+        ig.dispose();
+
+        return image.getSubimage(50, 0, 50, 25);
+    }
+
+    /**
+     * Template method for building the encoding parameters. This gives
+     * a chance to sub-classes (e.g., ParallelPNGEncoderTest) to change
+     * the way the image is encoded.
+     */
+    public PNGEncodeParam createEncodeParam(BufferedImage image){
+        return PNGEncodeParam.getDefaultEncodeParam(image);
+    }
+
     /**
      * Template method for building the PNG output stream. This gives a
      * chance to sub-classes (e.g., Base64PNGEncoderTest) to add an
@@ -0,0 +1,62 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.ext.awt.image.codec.png;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * This test validates the PNGEncoder operation when the image data is
+ * filtered and compressed by several threads, with a fixed filter.  The
+ * image is large enough to be split into several blocks.
+ *
+ * @version $Id$
+ */
+public class ParallelPNGEncoderTest extends PNGEncoderTest {
+
+    /**
+     * Template method for building the image to encode.  The image is
+     * opaque, since the decoded image is compared after being drawn.
+     */
+    public BufferedImage createImage(){
+        int w = 300;
+        int h = 700;
+        BufferedImage image
+            = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int r = (x + y) & 0xff;
+                int g = (x ^ y) & 0xff;
+                int b = (x * 7 + y * 3) & 0xff;
+                image.setRGB(x, y, 0xff000000 | (r << 16) | (g << 8) | b);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Template method for building the encoding parameters
+     */
+    public PNGEncodeParam createEncodeParam(BufferedImage image){
+        PNGEncodeParam params = PNGEncodeParam.getDefaultEncodeParam(image);
+        params.setThreadCount(4);
+        params.setCompressionLevel(6);
+        params.setFilter(PNGEncodeParam.PNG_FILTER_PAETH);
+        return params;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.ext.awt.image.rendered;
+
+import java.awt.Point;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+
+import org.apache.batik.test.AbstractTest;
+import org.apache.batik.test.DefaultTestSuite;
+
+/**
+ * Checks the budget and the counters of the BoundedTileCache.
+ *
+ * @version $Id$
+ */
+public class BoundedTileCacheTest extends DefaultTestSuite {
+
+    /**
+     * The size in bytes of the 16x16 single band byte tiles used.
+     */
+    static final int TILE_SIZE = 16 * 16;
+
+    public BoundedTileCacheTest() {
+        addTest(new CheckHitsAndMisses());
+        addTest(new CheckBudget());
+        addTest(new CheckScopedCache());
+    }
+
+    /**
+     * Generates tiles and counts how many were generated.
+     */
+    static class Generator implements TileGenerator {
+        int count;
+        public Raster genTile(int x, int y) {
+            count++;
+            return Raster.createBandedRaster
+                (DataBuffer.TYPE_BYTE, 16, 16, 1, new Point(x * 16, y * 16));
+        }
+    }
+
+    static class CheckHitsAndMisses extends AbstractTest {
+        public boolean runImplBasic() {
+            BoundedTileCache c = new BoundedTileCache(100 * TILE_SIZE, 1);
+            Generator g = new Generator();
+            TileStore ts = c.createTileStore(g);
+            ts.getTile(0, 0);
+            ts.getTile(0, 0);
+            ts.getTile(1, 0);
+            if (ts.getTileNoCompute(2, 0) != null)
+                return false;
+            return g.count == 2
+                && c.getHitCount() == 1
+                && c.getMissCount() == 2
+                && c.getEvictionCount() == 0
+                && c.getBytes() == 2 * TILE_SIZE;
+        }
+    }
+
+    static class CheckBudget extends AbstractTest {
+        public boolean runImplBasic() {
+            BoundedTileCache c = new BoundedTileCache(4 * TILE_SIZE, 1);
+            Generator g = new Generator();
+            TileStore ts = c.createTileStore(g);
+            for (int i = 0; i < 10; i++) {
+                ts.getTile(i, 0);
+            }
+            // Touch the oldest remaining tile so it survives the next one.
+            ts.getTile(6, 0);
+            ts.getTile(10, 0);
+            return c.getBytes() == 4 * TILE_SIZE
+                && c.getEvictionCount() == 7
+                && ts.getTileNoCompute(6, 0) != null
+                && ts.getTileNoCompute(7, 0) == null;
+        }
+    }
+
+    static class CheckScopedCache extends AbstractTest {
+        public boolean runImplBasic() throws Exception {
+            BoundedTileCache c = new BoundedTileCache(4 * TILE_SIZE);
+            final Object[] seen = { c };
+            TileCache.setScopedCache(c);
+            try {
+                TileStore ts = TileCache.getTileMap(new Generator());
+                ts.getTile(0, 0);
+                // Threads started meanwhile do not inherit the cache.
+                Thread t = new Thread() {
+                        public void run() {
+                            seen[0] = TileCache.getScopedCache();
+                        }
+                    };
+                t.start();
+                t.join();
+            } finally {
+                TileCache.setScopedCache(null);
+            }
+            return c.getMissCount() == 1
+                && seen[0] == null
+                && !(TileCache.getTileMap(new Generator())
+                     instanceof BoundedTileCache.Store);
+        }
+    }
+}
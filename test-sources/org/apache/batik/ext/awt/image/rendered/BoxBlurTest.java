@@ -0,0 +1,163 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.ext.awt.image.rendered;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.batik.test.AbstractTest;
+import org.apache.batik.test.DefaultTestSuite;
+
+/**
+ * Checks the box blurs of {@link BoxBlur} against a straightforward
+ * implementation which sums the pixels of each box.
+ *
+ * @version $Id$
+ */
+public class BoxBlurTest extends DefaultTestSuite {
+
+    public BoxBlurTest() {
+        addTest(new CheckSameData(40, 30, 4, 4));
+        addTest(new CheckSameData(40, 30, 5, 7));
+        addTest(new CheckSameData(97, 61, 12, 0));
+        addTest(new CheckSameData(33, 80, 0, 9));
+        // Too small for some of the passes.
+        addTest(new CheckSameData(20, 12, 6, 6));
+    }
+
+    /**
+     * Returns premultiplied pixels with random values.
+     */
+    static int[] randomPixels(int n, long seed) {
+        Random rand = new Random(seed);
+        int[] pixels = new int[n];
+        for (int i = 0; i < n; i++) {
+            int a = rand.nextInt(256);
+            int r = rand.nextInt(a + 1);
+            int g = rand.nextInt(a + 1);
+            int b = rand.nextInt(a + 1);
+            pixels[i] = (a << 24) | (r << 16) | (g << 8) | b;
+        }
+        return pixels;
+    }
+
+    /**
+     * Filters a rectangle of pixels with one box, horizontally or
+     * vertically, summing each box on its own.  The pixels which cannot
+     * be computed are left untouched.
+     */
+    static void box(int[] pixels, int off, int scan, int w, int h,
+                    boolean horizontal, int skipX, int skipY,
+                    int boxSz, int loc) {
+        int[] src = (int[])pixels.clone();
+        int xEnd = horizontal ? w - skipX - boxSz : w - skipX - 1;
+        int yEnd = horizontal ? h - skipY - 1 : h - skipY - boxSz;
+        int scale = (1 << 24) / boxSz;
+        for (int y = skipY; y <= yEnd; y++) {
+            for (int x = skipX; x <= xEnd; x++) {
+                int dst = horizontal
+                    ? off + y * scan + x + loc
+                    : off + (y + loc) * scan + x;
+                int p = 0;
+                for (int shift = 0; shift < 32; shift += 8) {
+                    int sum = 0;
+                    for (int i = 0; i < boxSz; i++) {
+                        int s = horizontal
+                            ? off + y * scan + x + i
+                            : off + (y + i) * scan + x;
+                        sum += (src[s] >>> shift) & 0xff;
+                    }
+                    p |= ((sum * scale) >>> 24) << shift;
+                }
+                pixels[dst] = p;
+            }
+        }
+    }
+
+    /**
+     * Filters a rectangle of pixels with the three boxes of the given
+     * size along one axis.
+     */
+    static void boxes(int[] pixels, int off, int scan, int w, int h,
+                      boolean horizontal, int skipX, int d) {
+        int[][] passes;
+        if ((d & 1) == 0) {
+            passes = new int[][] { { 0, d, d/2 },
+                                   { d/2, d, d/2 - 1 },
+                                   { d - 1, d + 1, d/2 } };
+        } else {
+            passes = new int[][] { { 0, d, d/2 },
+                                   { d/2, d, d/2 },
+                                   { d - 2, d, d/2 } };
+        }
+        for (int i = 0; i < 3; i++) {
+            int[] p = passes[i];
+            if (horizontal) {
+                box(pixels, off, scan, w, h, true, p[0], 0, p[1], p[2]);
+            } else {
+                box(pixels, off, scan, w, h, false, skipX, p[0], p[1], p[2]);
+            }
+        }
+    }
+
+    /**
+     * Checks that the pixels filtered by {@link BoxBlur} are the ones of
+     * the straightforward implementation, in a rectangle of a larger
+     * array.
+     */
+    static class CheckSameData extends AbstractTest {
+        int w, h, dX, dY;
+
+        CheckSameData(int w, int h, int dX, int dY) {
+            this.w = w;
+            this.h = h;
+            this.dX = dX;
+            this.dY = dY;
+        }
+
+        public String getName() {
+            return "BoxBlurTest.CheckSameData." + w + "x" + h
+                + "." + dX + "x" + dY;
+        }
+
+        public boolean runImplBasic() {
+            int scan = w + 5;
+            int off = 2 * scan + 3;
+            int[] pixels = randomPixels(scan * (h + 4), w * h + dX);
+
+            int[] expected = (int[])pixels.clone();
+            int skipX = 2;
+            if (dX > 0) {
+                boxes(expected, off, scan, w, h, true, 0, dX);
+                skipX = BoxBlur.getSkip(dX);
+            }
+            if (dY > 0) {
+                boxes(expected, off, scan, w, h, false, skipX, dY);
+            }
+
+            int[] actual = (int[])pixels.clone();
+            BoxBlur.blur(actual, off, scan, w, h, dX, dY, 2);
+            // A second time, with the buffers pooled by the first one.
+            int[] again = (int[])pixels.clone();
+            BoxBlur.blur(again, off, scan, w, h, dX, dY, 2);
+            return Arrays.equals(expected, actual)
+                && Arrays.equals(expected, again);
+        }
+    }
+}
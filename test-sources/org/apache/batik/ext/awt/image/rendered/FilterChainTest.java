@@ -0,0 +1,133 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.ext.awt.image.rendered;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.awt.image.renderable.RenderContext;
+import java.util.Arrays;
+
+import org.apache.batik.ext.awt.image.GraphicsUtil;
+import org.apache.batik.ext.awt.image.Light;
+import org.apache.batik.ext.awt.image.PointLight;
+import org.apache.batik.ext.awt.image.SpotLight;
+import org.apache.batik.ext.awt.image.renderable.DiffuseLightingRable8Bit;
+import org.apache.batik.ext.awt.image.renderable.Filter;
+import org.apache.batik.ext.awt.image.renderable.GaussianBlurRable8Bit;
+import org.apache.batik.ext.awt.image.renderable.MorphologyRable8Bit;
+import org.apache.batik.ext.awt.image.renderable.SpecularLightingRable8Bit;
+import org.apache.batik.ext.awt.image.renderable.TurbulenceRable8Bit;
+import org.apache.batik.test.AbstractTest;
+import org.apache.batik.test.DefaultTestSuite;
+
+/**
+ * Checks that filter chains made of turbulence, blur, morphology and
+ * lighting have the same pixels whether their tiles are computed in
+ * parallel or not.
+ *
+ * @version $Id$
+ */
+public class FilterChainTest extends DefaultTestSuite {
+
+    public FilterChainTest() {
+        addTest(new CheckSameData(false));
+        addTest(new CheckSameData(true));
+    }
+
+    /**
+     * Builds the filter chain: turbulence, blurred, dilated, then lit
+     * by a spot light for specular lighting or by a point light for
+     * diffuse lighting.
+     */
+    static Filter createChain(boolean specular) {
+        Rectangle2D region = new Rectangle2D.Double(0, 0, 300, 260);
+        Filter f = new TurbulenceRable8Bit(region, 3, 4, 0.03, 0.05,
+                                           false, true);
+        f = new GaussianBlurRable8Bit(f, 2.5, 4);
+        f = new MorphologyRable8Bit(f, 3, 2, true);
+        if (specular) {
+            Light light = new SpotLight(150, 60, 80, 170, 150, 0,
+                                        4, 40, Color.white);
+            return new SpecularLightingRable8Bit(f, region, light,
+                                                 1.5, 12, 5, null);
+        }
+        Light light = new PointLight(40, 200, 60, Color.yellow);
+        return new DiffuseLightingRable8Bit(f, region, light, 1.2, 3, null);
+    }
+
+    /**
+     * Renders the filter chain with the given number of threads, the way
+     * filter results are cached, and returns its pixels.  The tiles are
+     * kept in a bounded cache, as they are only computed in parallel in
+     * one.
+     */
+    static int[] render(boolean specular, int threads) {
+        int n = TileWorkers.getScopedThreadCount();
+        BoundedTileCache c = TileCache.getScopedCache();
+        try {
+            TileWorkers.setScopedThreadCount(threads);
+            TileCache.setScopedCache(new BoundedTileCache(16 << 20));
+            Filter f = createChain(specular);
+            RenderContext rc = new RenderContext
+                (AffineTransform.getScaleInstance(1.5, 1.5),
+                 f.getBounds2D(), null);
+            RenderedImage ri = f.createRendering(rc);
+            CachableRed cr = new TileCacheRed(GraphicsUtil.wrap(ri));
+            if (!AbstractRed.canComputeConcurrently(cr))
+                throw new IllegalStateException
+                    ("The filter chain is computed serially");
+            Rectangle r = cr.getBounds();
+            WritableRaster wr = cr.getColorModel()
+                .createCompatibleWritableRaster(r.width, r.height)
+                .createWritableTranslatedChild(r.x, r.y);
+            cr.copyData(wr);
+            return wr.getPixels(r.x, r.y, r.width, r.height, (int[])null);
+        } finally {
+            TileWorkers.setScopedThreadCount(n);
+            TileCache.setScopedCache(c);
+        }
+    }
+
+    /**
+     * Checks that the pixels are the same whether computed in parallel
+     * or not.
+     */
+    static class CheckSameData extends AbstractTest {
+        boolean specular;
+
+        CheckSameData(boolean specular) {
+            this.specular = specular;
+        }
+
+        public String getName() {
+            return "FilterChainTest.CheckSameData"
+                + (specular ? ".specular" : ".diffuse");
+        }
+
+        public boolean runImplBasic() {
+            int[] serial = render(specular, 1);
+            int[] parallel = render(specular, 4);
+            return Arrays.equals(serial, parallel);
+        }
+    }
+}
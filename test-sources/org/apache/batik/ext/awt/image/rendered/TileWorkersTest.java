@@ -0,0 +1,275 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.ext.awt.image.rendered;
+
+import java.awt.Rectangle;
+import java.awt.image.ColorModel;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.batik.ext.awt.image.GraphicsUtil;
+import org.apache.batik.test.AbstractTest;
+import org.apache.batik.test.DefaultTestSuite;
+
+/**
+ * Checks that the tiles of tiled images computed in parallel by the
+ * TileWorkers are the same as the ones computed serially.
+ *
+ * @version $Id$
+ */
+public class TileWorkersTest extends DefaultTestSuite {
+
+    public TileWorkersTest() {
+        addTest(new CheckSameData());
+        addTest(new CheckNested());
+        addTest(new CheckError());
+        addTest(new CheckSerial());
+        addTest(new CheckScoped());
+        addTest(new CheckTileStore());
+    }
+
+    /**
+     * The cache keeping the tiles of the test images, whose stores
+     * support concurrent access.
+     */
+    static final BoundedTileCache CACHE = new BoundedTileCache(4 << 20);
+
+    /**
+     * A tiled image whose pixels are a function of their location, and
+     * of the pixels of its source if any.
+     */
+    static class PatternRed extends AbstractTiledRed {
+        int failX = Integer.MIN_VALUE;
+        boolean concurrent = true;
+        Set threads = Collections.synchronizedSet(new HashSet());
+
+        PatternRed(CachableRed src, Rectangle bounds) {
+            ColorModel cm = GraphicsUtil.sRGB_Unpre;
+            init(src, bounds, cm, cm.createCompatibleSampleModel(16, 16),
+                 0, 0, null);
+            setTileStore(CACHE.createTileStore(this));
+        }
+
+        public boolean canComputeConcurrently() {
+            return concurrent && canComputeSourcesConcurrently();
+        }
+
+        public void genRect(WritableRaster wr) {
+            threads.add(Thread.currentThread());
+            Rectangle r = wr.getBounds();
+            if (r.contains(failX, r.y))
+                throw new IllegalStateException("failX");
+            int[] src = null;
+            if (getSources().size() > 0) {
+                CachableRed cr = (CachableRed)getSources().get(0);
+                WritableRaster sr = cr.getColorModel()
+                    .createCompatibleWritableRaster(r.width, r.height)
+                    .createWritableTranslatedChild(r.x, r.y);
+                cr.copyData(sr);
+                src = sr.getPixels(r.x, r.y, r.width, r.height, (int[])null);
+            }
+            int[] pixel = new int[4];
+            int i = 0;
+            for (int y = r.y; y < r.y + r.height; y++) {
+                for (int x = r.x; x < r.x + r.width; x++) {
+                    pixel[0] = (x * 7) & 0xff;
+                    pixel[1] = (y * 13) & 0xff;
+                    pixel[2] = (src == null) ? 0 : src[i];
+                    pixel[3] = 0xff;
+                    wr.setPixel(x, y, pixel);
+                    i += 4;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the pixels of the given area of the given image.
+     */
+    static int[] copyData(CachableRed cr, Rectangle r) {
+        WritableRaster wr = cr.getColorModel()
+            .createCompatibleWritableRaster(r.width, r.height)
+            .createWritableTranslatedChild(r.x, r.y);
+        cr.copyData(wr);
+        return wr.getPixels(r.x, r.y, r.width, r.height, (int[])null);
+    }
+
+    /**
+     * Checks that the pixels of a tiled image are the same whether its
+     * tiles are computed in parallel or not, over an area which does
+     * not fall on tile boundaries.
+     */
+    static class CheckSameData extends AbstractTest {
+        public boolean runImplBasic() {
+            Rectangle bounds = new Rectangle(3, 5, 150, 100);
+            Rectangle area = new Rectangle(10, 7, 120, 90);
+            int n = TileWorkers.getScopedThreadCount();
+            try {
+                TileWorkers.setScopedThreadCount(1);
+                int[] serial = copyData(new PatternRed(null, bounds), area);
+                TileWorkers.setScopedThreadCount(4);
+                PatternRed pr = new PatternRed(null, bounds);
+                // Cache some tiles, so that the rest is split in blocks.
+                copyData(pr, new Rectangle(40, 40, 20, 20));
+                int[] parallel = copyData(pr, area);
+                return Arrays.equals(serial, parallel);
+            } finally {
+                TileWorkers.setScopedThreadCount(n);
+            }
+        }
+    }
+
+    /**
+     * Checks that tiles computed by the pool threads may ask for the
+     * tiles of their source in parallel, even when the pool is smaller
+     * than the number of requests.
+     */
+    static class CheckNested extends AbstractTest {
+        public boolean runImplBasic() {
+            Rectangle bounds = new Rectangle(0, 0, 128, 128);
+            int n = TileWorkers.getScopedThreadCount();
+            try {
+                TileWorkers.setScopedThreadCount(1);
+                int[] serial = copyData
+                    (new PatternRed(new PatternRed(null, bounds), bounds),
+                     bounds);
+                TileWorkers.setScopedThreadCount(2);
+                int[] parallel = copyData
+                    (new PatternRed(new PatternRed(null, bounds), bounds),
+                     bounds);
+                return Arrays.equals(serial, parallel);
+            } finally {
+                TileWorkers.setScopedThreadCount(n);
+            }
+        }
+    }
+
+    /**
+     * Checks that an exception thrown while computing a tile in parallel
+     * is thrown to the caller.
+     */
+    static class CheckError extends AbstractTest {
+        public boolean runImplBasic() {
+            int n = TileWorkers.getScopedThreadCount();
+            try {
+                TileWorkers.setScopedThreadCount(4);
+                PatternRed pr = new PatternRed(null,
+                                               new Rectangle(0, 0, 64, 64));
+                pr.failX = 40;
+                try {
+                    copyData(pr, new Rectangle(0, 0, 64, 64));
+                } catch (IllegalStateException ise) {
+                    return true;
+                }
+                return false;
+            } finally {
+                TileWorkers.setScopedThreadCount(n);
+            }
+        }
+    }
+
+    /**
+     * Checks that the tiles of an image which does not declare it can be
+     * computed concurrently are all computed by the requesting thread.
+     */
+    static class CheckSerial extends AbstractTest {
+        public boolean runImplBasic() {
+            int n = TileWorkers.getScopedThreadCount();
+            try {
+                TileWorkers.setScopedThreadCount(4);
+                PatternRed pr = new PatternRed(null,
+                                               new Rectangle(0, 0, 64, 64));
+                pr.concurrent = false;
+                copyData(pr, new Rectangle(3, 3, 50, 50));
+                return pr.threads.size() == 1 &&
+                    pr.threads.contains(Thread.currentThread());
+            } finally {
+                TileWorkers.setScopedThreadCount(n);
+            }
+        }
+    }
+
+    /**
+     * Checks that the thread count scoped to a thread leaves the default
+     * count alone, that the pool threads computing its tiles use it, and
+     * that the threads it starts do not.
+     */
+    static class CheckScoped extends AbstractTest {
+        public boolean runImplBasic() throws Exception {
+            int d = TileWorkers.getDefaultThreadCount();
+            int n = TileWorkers.getScopedThreadCount();
+            try {
+                TileWorkers.setScopedThreadCount(3);
+                if (TileWorkers.getThreadCount() != 3 ||
+                    TileWorkers.getDefaultThreadCount() != d)
+                    return false;
+                final int[] seen = new int[2];
+                List tasks = new ArrayList();
+                for (int i = 0; i < seen.length; i++) {
+                    final int j = i;
+                    tasks.add(new Runnable() {
+                            public void run() {
+                                seen[j] = TileWorkers.getThreadCount();
+                            }
+                        });
+                }
+                TileWorkers.run(tasks);
+                if (seen[0] != 3 || seen[1] != 3)
+                    return false;
+                // Threads started meanwhile do not inherit the count.
+                Thread t = new Thread((Runnable)tasks.get(0));
+                t.start();
+                t.join();
+                if (seen[0] != d)
+                    return false;
+                TileWorkers.setScopedThreadCount(0);
+                return TileWorkers.getThreadCount() == d;
+            } finally {
+                TileWorkers.setScopedThreadCount(n);
+            }
+        }
+    }
+
+    /**
+     * Checks that the tiles of an image kept in a store which does not
+     * support concurrent access are all computed by the requesting
+     * thread.
+     */
+    static class CheckTileStore extends AbstractTest {
+        public boolean runImplBasic() {
+            int n = TileWorkers.getScopedThreadCount();
+            try {
+                TileWorkers.setScopedThreadCount(4);
+                PatternRed pr = new PatternRed(null,
+                                               new Rectangle(0, 0, 64, 64));
+                pr.setTileStore(new TileMap(pr, new LRUCache(50)));
+                copyData(pr, new Rectangle(3, 3, 50, 50));
+                return pr.threads.size() == 1 &&
+                    pr.threads.contains(Thread.currentThread());
+            } finally {
+                TileWorkers.setScopedThreadCount(n);
+            }
+        }
+    }
+}
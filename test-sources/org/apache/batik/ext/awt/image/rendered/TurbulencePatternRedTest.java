@@ -0,0 +1,97 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.ext.awt.image.rendered;
+
+import java.awt.Rectangle;
+import java.awt.color.ColorSpace;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+import org.apache.batik.test.AbstractTest;
+import org.apache.batik.test.DefaultTestSuite;
+
+/**
+ * Checks that the turbulence generated in parallel bands of rows is the
+ * same as the one generated at once.
+ *
+ * @version $Id$
+ */
+public class TurbulencePatternRedTest extends DefaultTestSuite {
+
+    public TurbulencePatternRedTest() {
+        addTest(new CheckSameData(false, false));
+        addTest(new CheckSameData(true, false));
+        addTest(new CheckSameData(false, true));
+    }
+
+    /**
+     * Generates the whole turbulence image with the given number of
+     * threads.
+     */
+    static int[] generate(boolean fractalNoise, boolean stitched,
+                          int threads) {
+        int n = TileWorkers.getScopedThreadCount();
+        try {
+            TileWorkers.setScopedThreadCount(threads);
+            Rectangle bounds = new Rectangle(3, 5, 150, 130);
+            Rectangle2D tile = stitched
+                ? new Rectangle2D.Double(0, 0, 60, 40) : null;
+            TurbulencePatternRed tpr = new TurbulencePatternRed
+                (0.05, 0.08, 4, 7, fractalNoise, tile,
+                 AffineTransform.getScaleInstance(0.75, 0.75), bounds,
+                 ColorSpace.getInstance(ColorSpace.CS_sRGB), true);
+            WritableRaster wr = tpr.getColorModel()
+                .createCompatibleWritableRaster(bounds.width, bounds.height)
+                .createWritableTranslatedChild(bounds.x, bounds.y);
+            tpr.copyData(wr);
+            return wr.getPixels(bounds.x, bounds.y,
+                                bounds.width, bounds.height, (int[])null);
+        } finally {
+            TileWorkers.setScopedThreadCount(n);
+        }
+    }
+
+    /**
+     * Checks that the pixels are the same whether generated in parallel
+     * or not.
+     */
+    static class CheckSameData extends AbstractTest {
+        boolean fractalNoise;
+        boolean stitched;
+
+        CheckSameData(boolean fractalNoise, boolean stitched) {
+            this.fractalNoise = fractalNoise;
+            this.stitched = stitched;
+        }
+
+        public String getName() {
+            return "TurbulencePatternRedTest.CheckSameData"
+                + (fractalNoise ? ".fractalNoise" : ".turbulence")
+                + (stitched ? ".stitched" : "");
+        }
+
+        public boolean runImplBasic() {
+            int[] serial = generate(fractalNoise, stitched, 1);
+            int[] parallel = generate(fractalNoise, stitched, 4);
+            return Arrays.equals(serial, parallel);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.gvt;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.batik.test.AbstractTest;
+import org.apache.batik.test.DefaultTestSuite;
+
+/**
+ * Checks that hit testing and painting give the same results whether the
+ * children of a composite are indexed or not, also after the children
+ * were modified.
+ *
+ * @version $Id$
+ */
+public class ChildBoundsIndexTest extends DefaultTestSuite {
+
+    public ChildBoundsIndexTest() {
+        addTest(new CheckHit());
+        addTest(new CheckPaint());
+    }
+
+    static ShapeNode shapeNode(Shape s, Color c) {
+        ShapeNode n = new ShapeNode();
+        FillShapePainter p = new FillShapePainter(s);
+        p.setPaint(c);
+        n.setShape(s);
+        n.setShapePainter(p);
+        return n;
+    }
+
+    /**
+     * Returns a composite of many small ellipses, some in nested
+     * composites.
+     */
+    static CompositeGraphicsNode scene(Random r) {
+        CompositeGraphicsNode cgn = new CompositeGraphicsNode();
+        for (int i = 0; i < 1500; i++) {
+            Shape s = new Ellipse2D.Double(r.nextInt(400), r.nextInt(400),
+                                           2 + r.nextInt(30),
+                                           2 + r.nextInt(30));
+            ShapeNode n = shapeNode(s, new Color(r.nextInt(0xffffff)));
+            if (i % 100 == 0) {
+                CompositeGraphicsNode g = new CompositeGraphicsNode();
+                g.add(n);
+                g.setTransform(AffineTransform.getRotateInstance
+                               (0.3, 200, 200));
+                cgn.add(g);
+            } else {
+                cgn.add(n);
+            }
+        }
+        return cgn;
+    }
+
+    /**
+     * Modifies the given composite: the geometry of its children one time
+     * out of two, the list of its children otherwise.
+     */
+    static void modify(CompositeGraphicsNode cgn, Random r, int i) {
+        if (i % 2 == 0) {
+            modifyChildren(cgn, r);
+        } else {
+            modifyList(cgn, r);
+        }
+    }
+
+    /**
+     * Modifies the geometry of some children of the given composite, and
+     * appends some children.
+     */
+    static void modifyChildren(CompositeGraphicsNode cgn, Random r) {
+        // Moves some children.
+        for (int i = 0; i < 50; i++) {
+            GraphicsNode n = (GraphicsNode)cgn.get(r.nextInt(cgn.size()));
+            n.setTransform(AffineTransform.getTranslateInstance
+                           (r.nextInt(100) - 50, r.nextInt(100) - 50));
+        }
+        // Reshapes some.
+        for (int i = 0; i < 50; i++) {
+            GraphicsNode n = (GraphicsNode)cgn.get(r.nextInt(cgn.size()));
+            if (n instanceof ShapeNode) {
+                ((ShapeNode)n).setShape
+                    (new Rectangle(r.nextInt(400), r.nextInt(400), 20, 10));
+            }
+        }
+        // Appends some, and moves one of them.
+        for (int i = 0; i < 20; i++) {
+            cgn.add(shapeNode(new Rectangle(r.nextInt(400), r.nextInt(400),
+                                            10, 10), Color.yellow));
+        }
+        ((GraphicsNode)cgn.get(cgn.size() - 1)).setTransform
+            (AffineTransform.getTranslateInstance(30, 30));
+    }
+
+    /**
+     * Removes, inserts, replaces and appends some children of the given
+     * composite.
+     */
+    static void modifyList(CompositeGraphicsNode cgn, Random r) {
+        cgn.remove(r.nextInt(cgn.size()));
+        cgn.remove(cgn.size() - 1);
+        cgn.add(r.nextInt(cgn.size()),
+                shapeNode(new Rectangle(100, 100, 50, 50), Color.red));
+        cgn.set(r.nextInt(cgn.size()),
+                shapeNode(new Rectangle(200, 50, 50, 50), Color.blue));
+        for (int i = 0; i < 100; i++) {
+            cgn.add(shapeNode(new Rectangle(r.nextInt(400), r.nextInt(400),
+                                            10, 10), Color.green));
+        }
+    }
+
+    /**
+     * Returns the nodes hit at a grid of points, found by the composite,
+     * or by testing all its children if linear.
+     */
+    static GraphicsNode[] hits(CompositeGraphicsNode cgn, boolean linear) {
+        GraphicsNode[] result = new GraphicsNode[100 * 100];
+        Point2D p = new Point2D.Double();
+        for (int y = 0; y < 100; y++) {
+            for (int x = 0; x < 100; x++) {
+                p.setLocation(x * 4.3, y * 4.3);
+                GraphicsNode hit = null;
+                if (linear) {
+                    for (int i = cgn.size() - 1; hit == null && i >= 0; i--) {
+                        GraphicsNode n = (GraphicsNode)cgn.get(i);
+                        AffineTransform t = n.getInverseTransform();
+                        hit = n.nodeHitAt((t == null) ? p
+                                          : t.transform(p, null));
+                    }
+                } else {
+                    hit = cgn.nodeHitAt(p);
+                    if (cgn.contains(p) != (hit != null))
+                        return null;
+                }
+                result[y * 100 + x] = hit;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the pixels painted in a clip by the composite, or by all
+     * its children if linear.
+     */
+    static int[] paint(CompositeGraphicsNode cgn, Rectangle clip,
+                       boolean linear) {
+        BufferedImage bi = new BufferedImage(400, 400,
+                                             BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = bi.createGraphics();
+        g.scale(0.9, 0.9);
+        g.clip(clip);
+        if (linear) {
+            for (int i = 0; i < cgn.size(); i++) {
+                ((GraphicsNode)cgn.get(i)).paint(g);
+            }
+        } else {
+            cgn.paint(g);
+        }
+        g.dispose();
+        return bi.getRGB(0, 0, 400, 400, null, 0, 400);
+    }
+
+    /**
+     * Checks the nodes hit with and without index.
+     */
+    static class CheckHit extends AbstractTest {
+        public boolean runImplBasic() {
+            int t = CompositeGraphicsNode.getSpatialIndexThreshold();
+            try {
+                CompositeGraphicsNode.setSpatialIndexThreshold(1);
+                CompositeGraphicsNode cgn = scene(new Random(1));
+                Random r = new Random(2);
+                for (int i = 0; i < 5; i++) {
+                    GraphicsNode[] indexed = hits(cgn, false);
+                    GraphicsNode[] linear = hits(cgn, true);
+                    if (indexed == null || !Arrays.equals(linear, indexed))
+                        return false;
+                    modify(cgn, r, i);
+                }
+                return true;
+            } finally {
+                CompositeGraphicsNode.setSpatialIndexThreshold(t);
+            }
+        }
+    }
+
+    /**
+     * Checks the pixels painted in a clip with and without index.
+     */
+    static class CheckPaint extends AbstractTest {
+        public boolean runImplBasic() {
+            int t = CompositeGraphicsNode.getSpatialIndexThreshold();
+            try {
+                CompositeGraphicsNode.setSpatialIndexThreshold(1);
+                CompositeGraphicsNode cgn = scene(new Random(3));
+                Random r = new Random(4);
+                Rectangle clip = new Rectangle(50, 70, 120, 90);
+                for (int i = 0; i < 5; i++) {
+                    int[] indexed = paint(cgn, clip, false);
+                    int[] linear = paint(cgn, clip, true);
+                    if (!Arrays.equals(linear, indexed))
+                        return false;
+                    modify(cgn, r, i);
+                }
+                return true;
+            } finally {
+                CompositeGraphicsNode.setSpatialIndexThreshold(t);
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.gvt;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+
+import org.apache.batik.ext.awt.RenderingHintsKeyExt;
+import org.apache.batik.ext.awt.image.GraphicsUtil;
+import org.apache.batik.test.AbstractTest;
+import org.apache.batik.test.DefaultTestSuite;
+
+/**
+ * Checks that a node with the KEY_LAYER_CACHE hint renders as it would
+ * without, reuses its raster while unchanged, and paints again once one
+ * of its descendants changed.
+ *
+ * @version $Id$
+ */
+public class LayerCacheTest extends DefaultTestSuite {
+
+    public LayerCacheTest() {
+        addTest(new CheckSameRendering());
+        addTest(new CheckReuse());
+    }
+
+    /**
+     * A ShapeNode counting how many times it is painted.
+     */
+    static class CountingShapeNode extends ShapeNode {
+        int paintCount;
+
+        public void primitivePaint(Graphics2D g2d) {
+            paintCount++;
+            super.primitivePaint(g2d);
+        }
+    }
+
+    static CountingShapeNode shapeNode(Shape s, Color c) {
+        CountingShapeNode n = new CountingShapeNode();
+        n.setShape(s);
+        FillShapePainter p = new FillShapePainter(s);
+        p.setPaint(c);
+        n.setShapePainter(p);
+        return n;
+    }
+
+    /**
+     * Returns a group of overlapping antialiased shapes.
+     */
+    static CompositeGraphicsNode scene(boolean cached) {
+        CompositeGraphicsNode cgn = new CompositeGraphicsNode();
+        cgn.add(shapeNode(new Ellipse2D.Double(10.3, 10.7, 80, 60),
+                          Color.red));
+        cgn.add(shapeNode(new Ellipse2D.Double(40.5, 30.2, 70, 70),
+                          new Color(0, 0, 255, 128)));
+        cgn.add(shapeNode(new Rectangle(20, 60, 50, 30), Color.green));
+        cgn.setTransform(AffineTransform.getRotateInstance(0.2, 60, 60));
+        RenderingHints hints = new RenderingHints
+            (RenderingHints.KEY_ANTIALIASING,
+             RenderingHints.VALUE_ANTIALIAS_ON);
+        if (cached) {
+            hints.put(RenderingHintsKeyExt.KEY_LAYER_CACHE,
+                      RenderingHintsKeyExt.VALUE_LAYER_CACHE_ON);
+        }
+        cgn.setRenderingHints(hints);
+        return cgn;
+    }
+
+    /**
+     * Paints the given node on a white background, translated by the
+     * given amount, and returns the pixels.
+     */
+    static int[] paint(GraphicsNode gn, double tx, double ty) {
+        return paint(gn, tx, ty, 1);
+    }
+
+    /**
+     * Paints the given node on a transparent image, translated by the
+     * given amount, composites it with the given opacity on a white
+     * background, and returns the pixels.
+     */
+    static int[] paint(GraphicsNode gn, double tx, double ty,
+                       float opacity) {
+        BufferedImage bi = new BufferedImage
+            (200, 200, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = GraphicsUtil.createGraphics(bi);
+        g.translate(tx, ty);
+        g.scale(1.5, 1.5);
+        gn.paint(g);
+        g.dispose();
+        BufferedImage dst = new BufferedImage
+            (200, 200, BufferedImage.TYPE_INT_ARGB_PRE);
+        g = GraphicsUtil.createGraphics(dst);
+        g.setColor(Color.white);
+        g.fillRect(0, 0, 200, 200);
+        g.setComposite(AlphaComposite.getInstance
+                       (AlphaComposite.SRC_OVER, opacity));
+        g.drawImage(bi, 0, 0, null);
+        g.dispose();
+        return dst.getRGB(0, 0, 200, 200, null, 0, 200);
+    }
+
+    /**
+     * Returns true if the given pixels differ by at most two per channel,
+     * as blending the layer may round differently.
+     */
+    static boolean same(int[] a, int[] b) {
+        for (int i = 0; i < a.length; i++) {
+            for (int s = 0; s < 32; s += 8) {
+                int d = ((a[i] >>> s) & 0xff) - ((b[i] >>> s) & 0xff);
+                if (d > 2 || d < -2)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that the rendering is the same with and without layer, and
+     * that the opacity of a node is applied to its layer as a whole.
+     */
+    static class CheckSameRendering extends AbstractTest {
+        public boolean runImplBasic() {
+            if (!same(paint(scene(false), 3.25, 7),
+                      paint(scene(true), 3.25, 7)))
+                return false;
+            CompositeGraphicsNode cached = scene(true);
+            cached.setComposite(AlphaComposite.getInstance
+                                (AlphaComposite.SRC_OVER, 0.5f));
+            return same(paint(scene(false), 3.25, 7, 0.5f),
+                        paint(cached, 3.25, 7));
+        }
+    }
+
+    /**
+     * Checks that the layer is reused when the node is painted again, up
+     * to an integer translation, and painted again once a descendant
+     * changed.
+     */
+    static class CheckReuse extends AbstractTest {
+        public boolean runImplBasic() {
+            CompositeGraphicsNode cgn = scene(true);
+            CountingShapeNode n = (CountingShapeNode)cgn.get(0);
+            paint(cgn, 3.25, 7);
+            if (n.paintCount != 1)
+                return false;
+            int[] moved = paint(cgn, 13.25, -2);
+            if (n.paintCount != 1
+                    || !same(moved, paint(scene(false), 13.25, -2)))
+                return false;
+            // Not an integer translation.
+            paint(cgn, 13.5, -2);
+            if (n.paintCount != 2)
+                return false;
+
+            n.setShape(new Rectangle(0, 0, 30, 30));
+            int[] changed = paint(cgn, 13.5, -2);
+            CompositeGraphicsNode ref = scene(false);
+            ((ShapeNode)ref.get(0)).setShape(new Rectangle(0, 0, 30, 30));
+            return n.paintCount == 3
+                && same(changed, paint(ref, 13.5, -2));
+        }
+    }
+}
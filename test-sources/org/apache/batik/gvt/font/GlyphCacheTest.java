@@ -0,0 +1,111 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.gvt.font;
+
+import java.awt.Font;
+import java.awt.Rectangle;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.Rectangle2D;
+import java.text.StringCharacterIterator;
+
+import org.apache.batik.test.AbstractTest;
+import org.apache.batik.test.DefaultTestSuite;
+
+/**
+ * Checks the glyph cache shared by the fonts.
+ *
+ * @version $Id$
+ */
+public class GlyphCacheTest extends DefaultTestSuite {
+
+    public GlyphCacheTest() {
+        addTest(new CheckEviction());
+        addTest(new CheckShared());
+    }
+
+    static AWTGlyphGeometryCache.Value value(int w) {
+        return new AWTGlyphGeometryCache.Value
+            (new Rectangle(0, 0, w, w), new Rectangle(0, 0, w, w));
+    }
+
+    /**
+     * Checks that the cache stays within its budget, dropping the least
+     * recently used glyphs, and counts hits, misses and evictions.
+     */
+    static class CheckEviction extends AbstractTest {
+        public boolean runImplBasic() {
+            GlyphCache cache = new GlyphCache(GlyphCache.SEGMENTS * 2000);
+            GlyphCache.Key k0 = new GlyphCache.Key("font", null, 0);
+            cache.put(k0, value(0));
+            if (cache.get(new GlyphCache.Key("font", null, 0)) == null ||
+                cache.get(new GlyphCache.Key("font", null, 1)) != null ||
+                cache.get(new GlyphCache.Key("other", null, 0)) != null ||
+                cache.get(new GlyphCache.Key("font", "ctx", 0)) != null)
+                return false;
+            if (cache.getHitCount() != 1 || cache.getMissCount() != 3)
+                return false;
+
+            for (int i = 1; i < 1000; i++) {
+                // Keeps the first glyph the most recently used.
+                cache.get(k0);
+                cache.put(new GlyphCache.Key("font", null, i), value(i));
+            }
+            return cache.getBytes() <= cache.getMaxBytes()
+                && cache.getEvictionCount() > 0
+                && cache.size() < 1000
+                && cache.get(k0) != null
+                && cache.get(new GlyphCache.Key("font", null, 1)) == null;
+        }
+    }
+
+    /**
+     * Checks that fonts of different sizes share the geometry of their
+     * glyphs, and that it is scaled to their size.
+     */
+    static class CheckShared extends AbstractTest {
+        public boolean runImplBasic() {
+            FontRenderContext frc = new FontRenderContext(null, true, true);
+            String text = "Glyph cache";
+            AWTGVTFont f1 = new AWTGVTFont
+                (new Font("SansSerif", Font.PLAIN, 10));
+            AWTGVTFont f2 = new AWTGVTFont
+                (new Font("SansSerif", Font.PLAIN, 20));
+            GVTGlyphVector gv1 = f1.createGlyphVector
+                (frc, new StringCharacterIterator(text));
+            GVTGlyphVector gv2 = f2.createGlyphVector
+                (frc, new StringCharacterIterator(text));
+            gv1.performDefaultLayout();
+            gv2.performDefaultLayout();
+
+            GlyphCache cache = GlyphCache.getDefault();
+            for (int i = 0; i < text.length(); i++) {
+                gv1.getGlyphOutline(i);
+            }
+            long hits = cache.getHitCount();
+            for (int i = 0; i < text.length(); i++) {
+                Rectangle2D b1 = gv1.getGlyphOutline(i).getBounds2D();
+                Rectangle2D b2 = gv2.getGlyphOutline(i).getBounds2D();
+                if (Math.abs(b1.getWidth() * 2 - b2.getWidth()) > 1e-3 ||
+                    Math.abs(b1.getHeight() * 2 - b2.getHeight()) > 1e-3)
+                    return false;
+            }
+            return cache.getHitCount() - hits >= text.length();
+        }
+    }
+}
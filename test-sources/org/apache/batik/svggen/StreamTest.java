@@ -0,0 +1,218 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.svggen;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.w3c.dom.DOMImplementation;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import org.apache.batik.anim.dom.SAXSVGDocumentFactory;
+import org.apache.batik.dom.GenericDOMImplementation;
+import org.apache.batik.svggen.SVGGeneratorContext.GraphicContextDefaults;
+import org.apache.batik.test.AbstractTest;
+import org.apache.batik.test.TestReport;
+import org.apache.batik.util.SVGConstants;
+import org.apache.batik.util.XMLResourceDescriptor;
+
+/**
+ * This test validates the stream mode of the SVGGraphics2D:
+ * <ul>
+ * <li>without definitions, the streamed content is identical to the
+ *     content of the DOM tree built in memory,</li>
+ * <li>when many primitives are drawn, they are streamed in several
+ *     groups, and all the definitions they reference are written,</li>
+ * <li>a definition shared by several groups is written once.</li>
+ * </ul>
+ *
+ * @version $Id$
+ */
+public class StreamTest extends AbstractTest implements SVGConstants {
+    public static final Dimension CANVAS_SIZE
+        = new Dimension(300, 400);
+
+    public static final String ERROR_DIFFERENT_SVG_OUTPUT
+        = "StreamTest.error.different.svg.output";
+
+    public static final String ERROR_TOO_FEW_GROUPS
+        = "StreamTest.error.too.few.groups";
+
+    public static final String ERROR_UNDEFINED_REFERENCE
+        = "StreamTest.error.undefined.reference";
+
+    public static final String ERROR_DUPLICATE_DEFINITION
+        = "StreamTest.error.duplicate.definition";
+
+    public static final String ENTRY_KEY_DOM_OUTPUT
+        = "StreamTest.entry.key.dom.output";
+
+    public static final String ENTRY_KEY_STREAM_OUTPUT
+        = "StreamTest.entry.key.stream.output";
+
+    public static final String ENTRY_KEY_REFERENCE
+        = "StreamTest.entry.key.reference";
+
+    public static final String ENTRY_KEY_DEFINITIONS
+        = "StreamTest.entry.key.definitions";
+
+    public TestReport runImpl() throws Exception {
+        Painter painter = new BasicShapes();
+
+        // First, build the tree in memory
+        SVGGraphics2D g2d = createGraphics();
+        painter.paint(g2d);
+
+        StringWriter swA = new StringWriter();
+        g2d.stream(swA);
+
+        // Now, stream the content as it is drawn
+        g2d = createGraphics();
+        StringWriter swB = new StringWriter();
+        g2d.startStream(swB, false);
+        painter.paint(g2d);
+        g2d.endStream();
+
+        if (!swA.toString().equals(swB.toString())) {
+            TestReport report = reportError(ERROR_DIFFERENT_SVG_OUTPUT);
+            report.addDescriptionEntry(ENTRY_KEY_DOM_OUTPUT,
+                                       swA.toString());
+            report.addDescriptionEntry(ENTRY_KEY_STREAM_OUTPUT,
+                                       swB.toString());
+            return report;
+        }
+
+        // Stream enough primitives, with gradients, to fill several groups.
+        // The same gradients are used by all the groups.
+        GradientPaint[] gradients = new GradientPaint[3];
+        for (int i = 0; i < gradients.length; i++) {
+            gradients[i] = new GradientPaint(0, 0, Color.blue,
+                                             (i + 1) * 100, 10, Color.red);
+        }
+        g2d = createGraphics();
+        StringWriter sw = new StringWriter();
+        g2d.startStream(sw, true);
+        int n = 3 * DOMTreeManager.STREAM_GROUP_SIZE;
+        for (int i = 0; i < n; i++) {
+            if (i % 100 == 0) {
+                g2d.setPaint(gradients[(i / 100) % gradients.length]);
+            }
+            g2d.fillRect(i % 300, i / 300, 2, 2);
+        }
+        g2d.endStream();
+
+        String parser = XMLResourceDescriptor.getXMLParserClassName();
+        SAXSVGDocumentFactory f = new SAXSVGDocumentFactory(parser);
+        Document doc = f.createDocument("http://example.org/stream.svg",
+                                        new StringReader(sw.toString()));
+
+        Element topLevelGroup = null;
+        int nGroups = 0;
+        for (Node c = doc.getDocumentElement().getFirstChild();
+             c != null;
+             c = c.getNextSibling()) {
+            if (SVG_G_TAG.equals(c.getLocalName())) {
+                topLevelGroup = (Element)c;
+            }
+        }
+        if (topLevelGroup != null) {
+            for (Node c = topLevelGroup.getFirstChild();
+                 c != null;
+                 c = c.getNextSibling()) {
+                if (SVG_G_TAG.equals(c.getLocalName())) {
+                    nGroups++;
+                }
+            }
+        }
+        if (nGroups < 3) {
+            return reportError(ERROR_TOO_FEW_GROUPS);
+        }
+
+        String ref = findUndefinedReference(doc, doc.getDocumentElement());
+        if (ref != null) {
+            TestReport report = reportError(ERROR_UNDEFINED_REFERENCE);
+            report.addDescriptionEntry(ENTRY_KEY_REFERENCE, ref);
+            return report;
+        }
+
+        int nDefs = doc.getElementsByTagNameNS
+            (SVG_NAMESPACE_URI, SVG_LINEAR_GRADIENT_TAG).getLength();
+        if (nDefs != gradients.length) {
+            TestReport report = reportError(ERROR_DUPLICATE_DEFINITION);
+            report.addDescriptionEntry(ENTRY_KEY_DEFINITIONS,
+                                       Integer.toString(nDefs));
+            return report;
+        }
+
+        return reportSuccess();
+    }
+
+    /**
+     * Creates a new SVGGraphics2D with the same defaults as GetRootTest.
+     */
+    protected SVGGraphics2D createGraphics() {
+        DOMImplementation impl = GenericDOMImplementation.getDOMImplementation();
+        String namespaceURI = SVGConstants.SVG_NAMESPACE_URI;
+        Document domFactory = impl.createDocument(namespaceURI, SVG_SVG_TAG, null);
+        SVGGeneratorContext ctx = SVGGeneratorContext.createDefault(domFactory);
+        GraphicContextDefaults defaults
+            = new GraphicContextDefaults();
+        defaults.font = new Font("Arial", Font.PLAIN, 12);
+        ctx.setGraphicContextDefaults(defaults);
+        SVGGraphics2D g2d = new SVGGraphics2D(ctx, false);
+        g2d.setSVGCanvasSize(CANVAS_SIZE);
+        return g2d;
+    }
+
+    /**
+     * Returns the first url(#id) reference of the given element or its
+     * descendants whose target is not defined in the document, or null.
+     */
+    protected String findUndefinedReference(Document doc, Element e) {
+        NamedNodeMap attrs = e.getAttributes();
+        for (int i = 0; i < attrs.getLength(); i++) {
+            String v = attrs.item(i).getNodeValue();
+            int idx = v.indexOf("url(#");
+            while (idx != -1) {
+                int end = v.indexOf(')', idx);
+                String id = v.substring(idx + 5, end);
+                if (doc.getElementById(id) == null) {
+                    return v;
+                }
+                idx = v.indexOf("url(#", end);
+            }
+        }
+        for (Node c = e.getFirstChild(); c != null; c = c.getNextSibling()) {
+            if (c.getNodeType() == Node.ELEMENT_NODE) {
+                String ref = findUndefinedReference(doc, (Element)c);
+                if (ref != null) {
+                    return ref;
+                }
+            }
+        }
+        return null;
+    }
+}
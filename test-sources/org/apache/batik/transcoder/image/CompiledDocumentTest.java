@@ -0,0 +1,135 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.transcoder.image;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+
+import org.apache.batik.test.AbstractTest;
+import org.apache.batik.transcoder.CompiledDocument;
+import org.apache.batik.transcoder.TranscoderInput;
+import org.apache.batik.transcoder.TranscoderOutput;
+
+/**
+ * Renders a compiled document at several sizes from several threads at
+ * once, and checks that each size is rendered the same way every time.
+ *
+ * @version $Id$
+ */
+public class CompiledDocumentTest extends AbstractTest {
+
+    /** The widths of the images to render. */
+    static final int[] WIDTHS = { 50, 120, 200 };
+
+    /** The number of renderings of each width. */
+    static final int RENDER_COUNT = 3;
+
+    /** The URI of the input image. */
+    protected String inputURI;
+
+    /**
+     * Constructs a new <code>CompiledDocumentTest</code>.
+     *
+     * @param inputURI the URI of the input image
+     */
+    public CompiledDocumentTest(String inputURI) {
+        this.inputURI = inputURI;
+    }
+
+    public boolean runImplBasic() throws Exception {
+        String uri = new File(inputURI).toURL().toString();
+        final CompiledDocument cd =
+            new BufferedImageTranscoder().compile(new TranscoderInput(uri));
+        final BufferedImage[] images =
+            new BufferedImage[WIDTHS.length * RENDER_COUNT];
+        final Exception[] errors = new Exception[images.length];
+        Thread[] threads = new Thread[images.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int n = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        BufferedImageTranscoder t =
+                            new BufferedImageTranscoder();
+                        t.addTranscodingHint
+                            (ImageTranscoder.KEY_WIDTH,
+                             new Float(WIDTHS[n % WIDTHS.length]));
+                        t.transcode(cd, null);
+                        images[n] = t.image;
+                    } catch (Exception ex) {
+                        errors[n] = ex;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+        cd.dispose();
+
+        for (int i = 0; i < images.length; i++) {
+            if (errors[i] != null) {
+                throw errors[i];
+            }
+            if (images[i].getWidth() != WIDTHS[i % WIDTHS.length]) {
+                return false;
+            }
+            if (i >= WIDTHS.length
+                    && !sameImage(images[i], images[i % WIDTHS.length])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether two images have the same pixels.
+     */
+    static boolean sameImage(BufferedImage a, BufferedImage b) {
+        if (a.getWidth() != b.getWidth() || a.getHeight() != b.getHeight()) {
+            return false;
+        }
+        for (int y = 0; y < a.getHeight(); y++) {
+            for (int x = 0; x < a.getWidth(); x++) {
+                if (a.getRGB(x, y) != b.getRGB(x, y)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * An image transcoder which keeps the image it renders.
+     */
+    static class BufferedImageTranscoder extends ImageTranscoder {
+
+        /** The rendered image. */
+        BufferedImage image;
+
+        public BufferedImage createImage(int w, int h) {
+            return new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        }
+
+        public void writeImage(BufferedImage img, TranscoderOutput output) {
+            image = img;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.transcoder.image;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.batik.test.DefaultTestReport;
+import org.apache.batik.test.TestReport;
+import org.apache.batik.transcoder.DocumentCache;
+import org.apache.batik.transcoder.TranscoderInput;
+import org.apache.batik.transcoder.XMLAbstractTranscoder;
+
+/**
+ * Test the ImageTranscoder with a document cache: the same document is
+ * transcoded several times, from its URI and from an input stream, and
+ * must only be parsed once for each kind of input.
+ *
+ * @version $Id$
+ */
+public class DocumentCacheTest extends AbstractImageTranscoderTest {
+
+    /**
+     * Error when the cache statistics are not the expected ones.
+     */
+    public static final String ERROR_CACHE_STATISTICS =
+        "DocumentCacheTest.error.cache.statistics";
+
+    /** The URI of the input image. */
+    protected String inputURI;
+
+    /** The URI of the reference image. */
+    protected String refImageURI;
+
+    /** The cache shared by the transcodes. */
+    protected DocumentCache cache = new DocumentCache(16 << 20);
+
+    /** Whether to read the input from a stream. */
+    protected boolean useStream;
+
+    /**
+     * Constructs a new <code>DocumentCacheTest</code>.
+     *
+     * @param inputURI the URI of the input image
+     * @param refImageURI the URI of the reference image
+     */
+    public DocumentCacheTest(String inputURI, String refImageURI) {
+        this.inputURI = inputURI;
+        this.refImageURI = refImageURI;
+    }
+
+    /**
+     * Transcodes the document three times from its URI, then three times
+     * from an input stream, and checks the cache statistics.
+     */
+    public TestReport runImpl() throws Exception {
+        for (int i = 0; i < 6; i++) {
+            useStream = i >= 3;
+            TestReport r = super.runImpl();
+            if (!r.hasPassed()) {
+                return r;
+            }
+        }
+        if (cache.getMissCount() != 2 || cache.getHitCount() != 4
+                || cache.getSize() != 2) {
+            DefaultTestReport r = new DefaultTestReport(this);
+            r.setErrorCode(ERROR_CACHE_STATISTICS);
+            r.addDescriptionEntry(ERROR_CACHE_STATISTICS, cache.toString());
+            r.setPassed(false);
+            return r;
+        }
+        return reportSuccess();
+    }
+
+    /**
+     * Creates the <code>TranscoderInput</code>.
+     */
+    protected TranscoderInput createTranscoderInput() {
+        URL url = resolveURL(inputURI);
+        if (!useStream) {
+            return new TranscoderInput(url.toString());
+        }
+        try {
+            InputStream istream = url.openStream();
+            TranscoderInput input = new TranscoderInput(istream);
+            input.setURI(url.toString());
+            return input;
+        } catch (IOException ex) {
+            throw new IllegalArgumentException(inputURI);
+        }
+    }
+
+    /**
+     * Creates a Map that contains additional transcoding hints.
+     */
+    protected Map createTranscodingHints() {
+        Map hints = new HashMap(3);
+        hints.put(XMLAbstractTranscoder.KEY_DOCUMENT_CACHE, cache);
+        return hints;
+    }
+
+    /**
+     * Returns the reference image for this test.
+     */
+    protected byte [] getReferenceImageData() {
+        return createBufferedImageData(resolveURL(refImageURI));
+    }
+}
@@ -0,0 +1,150 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.transcoder.image;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import org.apache.batik.test.AbstractTest;
+import org.apache.batik.transcoder.TranscoderInput;
+import org.apache.batik.transcoder.TranscoderOutput;
+
+/**
+ * Renders the frames of an animated document with one and with several
+ * workers, and checks that they are rendered as snapshots taken at the
+ * same times, that only the changed areas are reported, and that the
+ * animated PNG holds every frame.
+ *
+ * @version $Id$
+ */
+public class FrameSequenceTest extends AbstractTest {
+
+    /** The number of frames to render. */
+    static final int FRAME_COUNT = 15;
+
+    /** The number of frames per second. */
+    static final float FRAME_RATE = 10;
+
+    /** The URI of the input image. */
+    protected String inputURI;
+
+    /**
+     * Constructs a new <code>FrameSequenceTest</code>.
+     *
+     * @param inputURI the URI of the input image
+     */
+    public FrameSequenceTest(String inputURI) {
+        this.inputURI = inputURI;
+    }
+
+    public boolean runImplBasic() throws Exception {
+        String uri = new File(inputURI).toURL().toString();
+        CollectingFrameWriter single = render(uri, 1);
+        CollectingFrameWriter split = render(uri, 3);
+
+        for (int i = 0; i < FRAME_COUNT; i++) {
+            CompiledDocumentTest.BufferedImageTranscoder t =
+                new CompiledDocumentTest.BufferedImageTranscoder();
+            t.addTranscodingHint(ImageTranscoder.KEY_EXECUTE_ONLOAD,
+                                 Boolean.TRUE);
+            t.addTranscodingHint(ImageTranscoder.KEY_SNAPSHOT_TIME,
+                                 new Float(i * (1 / FRAME_RATE)));
+            t.transcode(new TranscoderInput(uri), null);
+            if (!CompiledDocumentTest.sameImage(t.image, single.frames[i])
+                    || !CompiledDocumentTest.sameImage(t.image,
+                                                       split.frames[i])) {
+                return false;
+            }
+        }
+
+        // Only the moving rectangle is rendered again after the first
+        // frame.
+        Rectangle whole = new Rectangle(0, 0, 200, 100);
+        if (!single.changed[0].equals(whole)) {
+            return false;
+        }
+        for (int i = 1; i < FRAME_COUNT; i++) {
+            Rectangle c = single.changed[i];
+            if ((i <= 10 && c.isEmpty()) || c.width > 50 || c.height > 50) {
+                return false;
+            }
+        }
+
+        FrameSequenceTranscoder t = createTranscoder(2);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        t.transcode(new TranscoderInput(uri), new TranscoderOutput(bos));
+        byte[] png = bos.toByteArray();
+        int frames = -1;
+        int controls = 0;
+        for (int p = 8; p + 8 <= png.length; ) {
+            int len = FrameSequenceTranscoder.AnimatedPNGWriter.readInt
+                (png, p);
+            String type = new String(png, p + 4, 4, "ISO-8859-1");
+            if (type.equals("acTL")) {
+                frames = FrameSequenceTranscoder.AnimatedPNGWriter.readInt
+                    (png, p + 8);
+            } else if (type.equals("fcTL")) {
+                controls++;
+            }
+            p += len + 12;
+        }
+        return frames == FRAME_COUNT && controls == FRAME_COUNT;
+    }
+
+    static FrameSequenceTranscoder createTranscoder(int workers) {
+        FrameSequenceTranscoder t = new FrameSequenceTranscoder();
+        t.addTranscodingHint(FrameSequenceTranscoder.KEY_FRAME_COUNT,
+                             new Integer(FRAME_COUNT));
+        t.addTranscodingHint(FrameSequenceTranscoder.KEY_FRAME_RATE,
+                             new Float(FRAME_RATE));
+        t.addTranscodingHint(FrameSequenceTranscoder.KEY_WORKER_COUNT,
+                             new Integer(workers));
+        return t;
+    }
+
+    static CollectingFrameWriter render(String uri, int workers)
+            throws Exception {
+        CollectingFrameWriter w = new CollectingFrameWriter();
+        createTranscoder(workers).transcode(new TranscoderInput(uri), w);
+        return w;
+    }
+
+    /**
+     * A frame writer keeping a copy of each frame.
+     */
+    static class CollectingFrameWriter
+            implements FrameSequenceTranscoder.FrameWriter {
+
+        BufferedImage[] frames = new BufferedImage[FRAME_COUNT];
+
+        Rectangle[] changed = new Rectangle[FRAME_COUNT];
+
+        public void writeFrame(FrameSequenceTranscoder transcoder, int index,
+                               BufferedImage frame, Rectangle changed) {
+            BufferedImage copy = new BufferedImage
+                (frame.getWidth(), frame.getHeight(),
+                 BufferedImage.TYPE_INT_ARGB);
+            copy.setData(frame.getData());
+            frames[index] = copy;
+            this.changed[index] = changed;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.transcoder.image;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+
+import org.apache.batik.test.AbstractTest;
+import org.apache.batik.transcoder.TranscoderInput;
+import org.apache.batik.transcoder.TranscoderOutput;
+
+/**
+ * Transcodes a document with a <code>StreamingTranscoder</code>, checks
+ * whether it was streamed or transcoded as a whole, and that the image is
+ * the one of a <code>PNGTranscoder</code>.
+ *
+ * @version $Id$
+ */
+public class StreamingTest extends AbstractTest {
+
+    /** The URI of the input image. */
+    protected String inputURI;
+
+    /** Whether the document is expected to be streamed. */
+    protected boolean streamed;
+
+    /**
+     * Constructs a new <code>StreamingTest</code>.
+     *
+     * @param inputURI the URI of the input image
+     * @param streamed whether the document can be streamed
+     */
+    public StreamingTest(String inputURI, Boolean streamed) {
+        this.inputURI = inputURI;
+        this.streamed = streamed.booleanValue();
+    }
+
+    public boolean runImplBasic() throws Exception {
+        String uri = new File(inputURI).toURL().toString();
+        PNGImageTranscoder ref = new PNGImageTranscoder();
+        ref.transcode(new TranscoderInput(uri), null);
+
+        BufferedImageTranscoder t = new BufferedImageTranscoder();
+        t.transcode(new TranscoderInput(uri), null);
+        return t.isStreamed() == streamed
+            && CompiledDocumentTest.sameImage(t.image, ref.image);
+    }
+
+    /**
+     * A PNG transcoder which keeps the image it renders.
+     */
+    static class PNGImageTranscoder extends PNGTranscoder {
+
+        /** The rendered image. */
+        BufferedImage image;
+
+        public BufferedImage createImage(int w, int h) {
+            return new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        }
+
+        public void writeImage(BufferedImage img, TranscoderOutput output) {
+            image = img;
+        }
+    }
+
+    /**
+     * A streaming transcoder which keeps the image it renders.
+     */
+    static class BufferedImageTranscoder extends StreamingTranscoder {
+
+        /** The rendered image. */
+        BufferedImage image;
+
+        public BufferedImage createImage(int w, int h) {
+            return new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        }
+
+        public void writeImage(BufferedImage img, TranscoderOutput output) {
+            image = img;
+        }
+    }
+}
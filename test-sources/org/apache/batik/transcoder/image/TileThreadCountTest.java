@@ -0,0 +1,68 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.transcoder.image;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+
+import org.apache.batik.test.AbstractTest;
+import org.apache.batik.transcoder.TranscoderInput;
+
+/**
+ * Renders a document with its tiles computed by one thread and by
+ * several threads, and checks that both images have the same pixels.
+ *
+ * @version $Id$
+ */
+public class TileThreadCountTest extends AbstractTest {
+
+    /** The number of threads of the parallel rendering. */
+    static final int THREAD_COUNT = 4;
+
+    /** The URI of the input image. */
+    protected String inputURI;
+
+    /**
+     * Constructs a new <code>TileThreadCountTest</code>.
+     *
+     * @param inputURI the URI of the input image
+     */
+    public TileThreadCountTest(String inputURI) {
+        this.inputURI = inputURI;
+    }
+
+    public boolean runImplBasic() throws Exception {
+        BufferedImage serial = render(1);
+        BufferedImage parallel = render(THREAD_COUNT);
+        return CompiledDocumentTest.sameImage(serial, parallel);
+    }
+
+    /**
+     * Renders the document with the given number of threads.
+     */
+    protected BufferedImage render(int threads) throws Exception {
+        String uri = new File(inputURI).toURL().toString();
+        CompiledDocumentTest.BufferedImageTranscoder t =
+            new CompiledDocumentTest.BufferedImageTranscoder();
+        t.addTranscodingHint(ImageTranscoder.KEY_TILE_THREAD_COUNT,
+                             new Integer(threads));
+        t.transcode(new TranscoderInput(uri), null);
+        return t.image;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.transcoder.image;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.batik.test.AbstractTest;
+import org.apache.batik.test.DefaultTestReport;
+import org.apache.batik.test.TestReport;
+import org.apache.batik.transcoder.TranscoderInput;
+import org.apache.batik.transcoder.TranscoderListener;
+import org.apache.batik.transcoder.TranscoderOutput;
+import org.apache.batik.transcoder.TranscoderStatistics;
+import org.apache.batik.transcoder.XMLAbstractTranscoder;
+
+/**
+ * Transcodes a document to PNG with a <code>TranscoderListener</code>,
+ * and checks the statistics reported for the transcode.
+ *
+ * @version $Id$
+ */
+public class TranscoderStatisticsTest extends AbstractTest {
+
+    /**
+     * Error when the statistics are not the expected ones.
+     */
+    public static final String ERROR_STATISTICS =
+        "TranscoderStatisticsTest.error.statistics";
+
+    /** The URI of the input image. */
+    protected String inputURI;
+
+    /**
+     * Constructs a new <code>TranscoderStatisticsTest</code>.
+     *
+     * @param inputURI the URI of the input image
+     */
+    public TranscoderStatisticsTest(String inputURI) {
+        this.inputURI = inputURI;
+    }
+
+    public TestReport runImpl() throws Exception {
+        final List reports = new ArrayList();
+        TranscoderListener l = new TranscoderListener() {
+                public void transcodeCompleted(TranscoderStatistics s) {
+                    reports.add(s);
+                }
+            };
+        String uri = new File(inputURI).toURL().toString();
+        PNGTranscoder t = new PNGTranscoder();
+        t.addTranscodingHint(XMLAbstractTranscoder.KEY_TRANSCODER_LISTENER, l);
+        t.addTranscodingHint(ImageTranscoder.KEY_TILE_CACHE_SIZE,
+                             new Integer(16 << 20));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        t.transcode(new TranscoderInput(uri), new TranscoderOutput(out));
+
+        if (reports.size() == 1) {
+            TranscoderStatistics s = (TranscoderStatistics)reports.get(0);
+            boolean timed = true;
+            for (int i = 0; i < TranscoderStatistics.STAGE_COUNT; i++) {
+                timed &= s.getDuration(i) > 0;
+            }
+            if (timed
+                    && uri.equals(s.getURI())
+                    && s.getElementCount() > 0
+                    && s.getNodeCount() > 0
+                    && s.getTileMissCount() >= 0
+                    && s.getImageMissCount() >= 0
+                    && s.getBytesWritten() == out.size()) {
+                return reportSuccess();
+            }
+        }
+        DefaultTestReport r = new DefaultTestReport(this);
+        r.setErrorCode(ERROR_STATISTICS);
+        r.addDescriptionEntry(ERROR_STATISTICS, reports.toString());
+        r.setPassed(false);
+        return r;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.util.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+
+import org.apache.batik.test.AbstractTest;
+import org.apache.batik.util.ParsedURL;
+import org.apache.batik.xml.XMLStreamNormalizingReader;
+
+/**
+ * Checks that text decoded in blocks, from streams, heap buffers and local
+ * files, is the text decoded one character at a time, with its line
+ * separators normalized.
+ *
+ * @version $Id$
+ */
+public class NormalizingReaderTest extends AbstractTest {
+
+    /** The encoding of the text. */
+    protected String encoding;
+
+    /**
+     * Constructs a new <code>NormalizingReaderTest</code>.
+     *
+     * @param encoding the encoding of the text to decode
+     */
+    public NormalizingReaderTest(String encoding) {
+        this.encoding = encoding;
+    }
+
+    /**
+     * Returns the text to decode, long enough to span several buffers.
+     */
+    protected String createText() {
+        boolean ascii = encoding.equals("US-ASCII");
+        boolean latin1 = encoding.equals("ISO-8859-1");
+        StringBuffer sb = new StringBuffer("<?xml version='1.0' encoding='"
+                                           + encoding + "'?>\r\n<t>");
+        for (int i = 0; i < 3000; i++) {
+            sb.append("line ").append(i);
+            if (!ascii) {
+                sb.append(" caf\u00e9");
+                if (!latin1) {
+                    sb.append(" \u20ac \ud83d\ude00");
+                }
+            }
+            sb.append(i % 3 == 0 ? "\r\n" : i % 3 == 1 ? "\r" : "\n");
+        }
+        return sb.append("</t>").toString();
+    }
+
+    public boolean runImplBasic() throws Exception {
+        String text = createText();
+        byte[] data = text.getBytes(encoding);
+        String expected = text.replaceAll("\r\n?", "\n");
+
+        if (!expected.equals(readAll(new StreamNormalizingReader
+                (new ByteArrayInputStream(data), encoding), false))) {
+            return false;
+        }
+        if (!expected.equals(readAll(new StreamNormalizingReader
+                (new ByteArrayInputStream(data), encoding), true))) {
+            return false;
+        }
+        if (!expected.equals(readAll(new StreamNormalizingReader
+                (ByteBuffer.wrap(data), encoding), true))) {
+            return false;
+        }
+
+        File f = File.createTempFile("normalizing", ".xml");
+        try {
+            FileOutputStream fos = new FileOutputStream(f);
+            try {
+                fos.write(data);
+            } finally {
+                fos.close();
+            }
+            ByteBuffer bb = new ParsedURL(f.toURL()).openBuffer();
+            if (bb == null) {
+                return false;
+            }
+            return expected.equals(readAll(new XMLStreamNormalizingReader
+                                           (bb, null), true));
+        } finally {
+            f.delete();
+        }
+    }
+
+    /**
+     * Reads all the characters of the given reader, in blocks or one at a
+     * time.
+     */
+    protected String readAll(Reader r, boolean blocks) throws IOException {
+        StringBuffer sb = new StringBuffer();
+        if (blocks) {
+            char[] buf = new char[1000];
+            int n;
+            while ((n = r.read(buf, 0, buf.length)) != -1) {
+                sb.append(buf, 0, n);
+            }
+        } else {
+            int c;
+            while ((c = r.read()) != -1) {
+                sb.append((char) c);
+            }
+        }
+        r.close();
+        return sb.toString();
+    }
+}